@@ -0,0 +1,222 @@
+package com.greenmarket.tests.bench.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compara un resultado JSON de JMH con la línea base versionada del módulo (baseline.json)
+ *
+ * Una medición es regresión si asigna por operación más que la base con su tolerancia (gc.alloc.rate.norm, que
+ * casi no cambia entre máquinas) y los intervalos de error de la base y de la medición no se tocan
+ *
+ * El tiempo se informa como aviso: depende de la máquina y de su carga, y en los benchmarks cortos el error de JMH
+ * llega a superar el puntaje, así que un intervalo que no se toca con el de la base casi nunca ocurre y el control
+ * no detectaría nada. Con --time-gate=true los avisos de tiempo cuentan como regresiones; conviene usarlo solo con
+ * una base regrabada en la misma máquina que compara (ClientBenchmarks --update-baseline=true)
+ *
+ * Uso: java com.greenmarket.tests.bench.client.BaselineCheck baseline.json target/client-bench.json
+ *      [--time-tolerance=0.30] [--alloc-tolerance=0.10] [--time-gate=false]
+ * Termina con código 1 si hay regresiones
+ */
+public class BaselineCheck {
+    
+    /** Bytes por operación que se toleran siempre, por el ruido de gc.alloc.rate.norm en valores chicos */
+    private static final double ALLOCATION_SLACK_BYTES = 32;
+    
+    private final double timeTolerance;
+    private final double allocationTolerance;
+    private final boolean timeGate;
+    
+    /**
+     * Medición de un benchmark con sus parámetros
+     * @param key Clase.método y parámetros, p. ej. "ResponseDeserializationBenchmark.catalogTyped {products=10}"
+     * @param score Puntaje principal
+     * @param error Error del puntaje (intervalo de 99.9%), NaN si JMH no lo calculó
+     * @param unit Unidad del puntaje, p. ej. "us/op"
+     * @param allocation Bytes asignados por operación, NaN si se corrió sin -prof gc
+     * @param allocationError Error de allocation
+     */
+    public record Measurement(String key, double score, double error, String unit, double allocation,
+                              double allocationError) {
+    }
+    
+    /**
+     * Resultado de comparar una medición con la base
+     * @param baseline Medición base, o null si el benchmark es nuevo
+     * @param current Medición actual
+     * @param regression Motivo de la regresión, o null si no la hay
+     * @param warning Aviso que no cuenta como regresión (tiempo sin --time-gate), o null
+     */
+    public record Comparison(Measurement baseline, Measurement current, String regression, String warning) {
+    }
+    
+    /**
+     * @param timeTolerance Aumento de tiempo tolerado (0.30 = 30%)
+     * @param allocationTolerance Aumento de bytes por operación tolerado (0.10 = 10%)
+     * @param timeGate Si un aumento de tiempo es regresión; si no, es un aviso
+     */
+    public BaselineCheck(double timeTolerance, double allocationTolerance, boolean timeGate) {
+        if (timeTolerance < 0 || allocationTolerance < 0) {
+            throw new IllegalArgumentException("Las tolerancias no pueden ser negativas");
+        }
+        this.timeTolerance = timeTolerance;
+        this.allocationTolerance = allocationTolerance;
+        this.timeGate = timeGate;
+    }
+    
+    /**
+     * Lee un archivo de resultados de JMH en formato JSON (-rf json)
+     * @param file Archivo
+     * @return Mediciones por clave, en el orden del archivo
+     * @throws IOException Si no se puede leer
+     */
+    public static Map<String, Measurement> read(Path file) throws IOException {
+        Map<String, Measurement> measurements = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            String benchmark = result.path("benchmark").asText();
+            String[] parts = benchmark.split("\\.");
+            String key = parts.length >= 2 ? parts[parts.length - 2] + "." + parts[parts.length - 1] : benchmark;
+            Map<String, String> params = new TreeMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = result.path("params").fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = it.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            if (!params.isEmpty()) {
+                key += " " + params;
+            }
+            JsonNode primary = result.path("primaryMetric");
+            JsonNode allocation = result.path("secondaryMetrics").path("gc.alloc.rate.norm");
+            measurements.put(key, new Measurement(key,
+                    primary.path("score").asDouble(),
+                    primary.path("scoreError").isNumber() ? primary.path("scoreError").asDouble() : Double.NaN,
+                    primary.path("scoreUnit").asText(),
+                    allocation.isMissingNode() ? Double.NaN : allocation.path("score").asDouble(),
+                    allocation.path("scoreError").isNumber() ? allocation.path("scoreError").asDouble() : 0));
+        }
+        return measurements;
+    }
+    
+    /**
+     * Compara cada medición actual con la base; las de la base que no se corrieron se ignoran
+     * (permite correr un subconjunto con --include)
+     */
+    public List<Comparison> compare(Map<String, Measurement> baseline, Map<String, Measurement> current) {
+        List<Comparison> comparisons = new ArrayList<>();
+        for (Measurement now : current.values()) {
+            Measurement base = baseline.get(now.key());
+            if (base == null) {
+                comparisons.add(new Comparison(null, now, null, null));
+                continue;
+            }
+            String allocation = allocationRegression(base, now);
+            String time = slower(base, now);
+            if (allocation != null) {
+                comparisons.add(new Comparison(base, now, allocation, time));
+            } else if (timeGate) {
+                comparisons.add(new Comparison(base, now, time, null));
+            } else {
+                comparisons.add(new Comparison(base, now, null, time));
+            }
+        }
+        return comparisons;
+    }
+    
+    private String allocationRegression(Measurement base, Measurement now) {
+        if (!Double.isNaN(base.allocation()) && !Double.isNaN(now.allocation())
+                && now.allocation() > base.allocation()
+                        + Math.max(base.allocation() * allocationTolerance, ALLOCATION_SLACK_BYTES)
+                && now.allocation() - now.allocationError() > base.allocation() + base.allocationError()) {
+            return String.format(Locale.ROOT, "asigna %+.0f%%", change(base.allocation(), now.allocation()));
+        }
+        return null;
+    }
+    
+    private String slower(Measurement base, Measurement now) {
+        double baseError = Double.isNaN(base.error()) ? 0 : base.error();
+        double nowError = Double.isNaN(now.error()) ? 0 : now.error();
+        if (base.unit().equals(now.unit()) && now.score() > base.score() * (1 + timeTolerance)
+                && now.score() - nowError > base.score() + baseError) {
+            return String.format(Locale.ROOT, "tarda %+.0f%%", change(base.score(), now.score()));
+        }
+        return null;
+    }
+    
+    /**
+     * Imprime la tabla de comparación
+     * @return Cantidad de regresiones
+     */
+    public static int print(List<Comparison> comparisons, PrintStream out) {
+        out.println();
+        out.println("=== Comparación con la línea base ===");
+        out.printf(Locale.ROOT, "%-62s %12s %12s %8s %12s %12s %8s  %s%n",
+                "Benchmark", "Base", "Actual", "Δ", "Base B/op", "Actual B/op", "Δ", "Estado");
+        int regressions = 0;
+        for (Comparison comparison : comparisons) {
+            Measurement base = comparison.baseline();
+            Measurement now = comparison.current();
+            String state = base == null ? "NUEVO" : comparison.regression() == null ? "OK" : "REGRESIÓN: " + comparison.regression();
+            if (comparison.warning() != null) {
+                state += " (aviso: " + comparison.warning() + ")";
+            }
+            if (comparison.regression() != null) {
+                regressions++;
+            }
+            out.printf(Locale.ROOT, "%-62s %12s %12s %8s %12s %12s %8s  %s%n",
+                    now.key(),
+                    base == null ? "-" : format(base.score()) + " " + base.unit(), format(now.score()) + " " + now.unit(),
+                    base == null ? "-" : String.format(Locale.ROOT, "%+.1f%%", change(base.score(), now.score())),
+                    base == null ? "-" : format(base.allocation()), format(now.allocation()),
+                    base == null || Double.isNaN(base.allocation()) || Double.isNaN(now.allocation()) ? "-"
+                            : String.format(Locale.ROOT, "%+.1f%%", change(base.allocation(), now.allocation())),
+                    state);
+        }
+        out.println(regressions == 0 ? "Sin regresiones" : "Regresiones: " + regressions);
+        return regressions;
+    }
+    
+    private static double change(double base, double now) {
+        return base == 0 ? 0 : (now - base) * 100 / base;
+    }
+    
+    private static String format(double value) {
+        return Double.isNaN(value) ? "-" : String.format(Locale.ROOT, value >= 100 ? "%.0f" : "%.3f", value);
+    }
+    
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        double timeTolerance = 0.30;
+        double allocationTolerance = 0.10;
+        boolean timeGate = false;
+        for (String arg : args) {
+            if (arg.startsWith("--time-gate=")) {
+                timeGate = Boolean.parseBoolean(arg.substring("--time-gate=".length()));
+            } else if (arg.startsWith("--time-tolerance=")) {
+                timeTolerance = Double.parseDouble(arg.substring("--time-tolerance=".length()));
+            } else if (arg.startsWith("--alloc-tolerance=")) {
+                allocationTolerance = Double.parseDouble(arg.substring("--alloc-tolerance=".length()));
+            } else {
+                files.add(arg);
+            }
+        }
+        if (files.size() != 2) {
+            throw new IllegalArgumentException("Se esperan la línea base y el resultado actual");
+        }
+        BaselineCheck check = new BaselineCheck(timeTolerance, allocationTolerance, timeGate);
+        int regressions = print(check.compare(read(Paths.get(files.get(0))), read(Paths.get(files.get(1)))), System.out);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.greenmarket.tests.bench.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Respuestas fijas de la API de GreenMarket, servidas en el mismo proceso
+ *
+ * Como filtro de REST Assured responde sin abrir conexiones: la petición pasa por la specification, los filtros
+ * y la serialización del cuerpo igual que en las suites, y la respuesta por la misma validación, pero no hay red
+ * ni servidor en la medición. Los cuerpos imitan mock-server/db.json
+ */
+public class CannedResponses implements Filter {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private final Map<String, Canned> responses = new HashMap<>();
+    
+    private record Canned(int status, byte[] body) {
+    }
+    
+    /**
+     * Registra la respuesta de un endpoint
+     * @param method Método HTTP
+     * @param path Ruta tal como la escribe la prueba, p. ej. "/orders"
+     * @param status Código de estado
+     * @param body Cuerpo JSON
+     * @return Este filtro
+     */
+    public CannedResponses respond(String method, String path, int status, byte[] body) {
+        responses.put(method + " " + path, new Canned(status, body));
+        return this;
+    }
+    
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+                           FilterContext ctx) {
+        Canned canned = responses.get(requestSpec.getMethod() + " " + requestSpec.getUserDefinedPath());
+        if (canned == null) {
+            return new ResponseBuilder().setStatusCode(404).setStatusLine("HTTP/1.1 404 Not Found")
+                    .setContentType(ContentType.JSON).setBody("{}").build();
+        }
+        return new ResponseBuilder()
+                .setStatusCode(canned.status())
+                .setStatusLine("HTTP/1.1 " + canned.status())
+                .setContentType(ContentType.JSON)
+                .setBody(canned.body())
+                .build();
+    }
+    
+    /**
+     * Producto como GET /products/{id}
+     */
+    public static Product product(int id) {
+        return new Product(Integer.toString(id), "Bolsa Reutilizable Orgánica " + id,
+                "Bolsa de algodón 100% orgánico certificado, perfecta para compras sustentables",
+                990 + id % 9000, id % 2 == 0 ? "organic" : "sustainable", 50 + id % 50,
+                List.of("https://picsum.photos/400/400?random=" + id), 4.8, 23, "2025-10-15T08:00:00Z");
+    }
+    
+    /**
+     * Catálogo como GET /products
+     * @param size Productos
+     */
+    public static List<Product> products(int size) {
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            products.add(product(i));
+        }
+        return products;
+    }
+    
+    /**
+     * Orden recién creada, como la respuesta de POST /orders que valida CP-010
+     */
+    public static Order createdOrder() {
+        return new Order("1", "1", "1",
+                List.of(new Order.Item("1", "Bolsa Reutilizable Orgánica", 2, 5990),
+                        new Order.Item("3", "Kit de Cubiertos Biodegradables", 1, 3990)),
+                15970, 3000, 18970, "pending", "Av. Principal 123, Santiago, Chile", "credit_card",
+                "2025-11-10T10:30:00Z", "2025-11-10T10:30:00Z");
+    }
+    
+    /**
+     * Cuerpo JSON de un valor
+     */
+    public static byte[] json(Object value) {
+        try {
+            return MAPPER.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la respuesta fija", e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.greenmarket.tests.bench.client;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Corre los benchmarks del cliente con el profiler de GC de JMH (bytes asignados por operación y tasa de
+ * asignación), guarda el resultado en JSON y lo compara con baseline.json (ver BaselineCheck)
+ *
+ * Uso: java -jar target/benchmarks.jar [--include=regex] [--baseline=baseline.json] [--out=target/client-bench.json]
+ *      [--time-tolerance=0.30] [--alloc-tolerance=0.10] [--time-gate=false] [--update-baseline=true]
+ * Termina con código 1 si hay regresiones de asignación (y de tiempo con --time-gate=true); con
+ * --update-baseline=true reemplaza la base en lugar de comparar
+ */
+public class ClientBenchmarks {
+    
+    public static void main(String[] args) throws RunnerException, IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        Path baseline = Paths.get(options.getOrDefault("baseline", "baseline.json"));
+        Path out = Paths.get(options.getOrDefault("out", "target/client-bench.json"));
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        new Runner(new OptionsBuilder()
+                .include(options.getOrDefault("include", ClientBenchmarks.class.getPackageName() + ".*Benchmark"))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(out.toString())
+                .build()).run();
+        if (Boolean.parseBoolean(options.getOrDefault("update-baseline", "false"))) {
+            Files.copy(out, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Línea base actualizada: " + baseline.toAbsolutePath());
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            System.out.println("Sin línea base en " + baseline.toAbsolutePath() + "; resultado en " + out.toAbsolutePath());
+            return;
+        }
+        BaselineCheck check = new BaselineCheck(
+                Double.parseDouble(options.getOrDefault("time-tolerance", "0.30")),
+                Double.parseDouble(options.getOrDefault("alloc-tolerance", "0.10")),
+                Boolean.parseBoolean(options.getOrDefault("time-gate", "false")));
+        int regressions = BaselineCheck.print(check.compare(BaselineCheck.read(baseline), BaselineCheck.read(out)),
+                System.out);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.greenmarket.tests.bench.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Orden tipada según schemas/orders.json, más el orderId que CP-010 espera en la respuesta de POST /orders
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record Order(String id,
+                    String orderId,
+                    String userId,
+                    List<Item> items,
+                    double subtotal,
+                    double shipping,
+                    double total,
+                    String status,
+                    String shippingAddress,
+                    String paymentMethod,
+                    String createdAt,
+                    String updatedAt) {
+    
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Item(String productId, String productName, int quantity, double price) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.greenmarket.tests.bench.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cuerpos de CP-010 (orden) y CP-001 (registro) con String.format, como en las suites, frente a records
+ * serializados con un ObjectWriter de Jackson reutilizado
+ *
+ * Las dos variantes terminan en bytes UTF-8, que es lo que sale por la red. String.format además no escapa
+ * comillas ni barras de los valores; Jackson sí
+ *
+ * Uso: java com.greenmarket.tests.bench.client.PayloadSerializationBenchmark [regex JMH]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class PayloadSerializationBenchmark {
+    
+    /**
+     * Ítem de una orden
+     */
+    public record Line(String productId, int quantity) {
+    }
+    
+    /**
+     * Cuerpo de POST /orders
+     */
+    public record OrderRequest(List<Line> items, String shippingAddress) {
+    }
+    
+    /**
+     * Cuerpo de POST /users/register
+     */
+    public record Registration(String name, String email, String password, String phone) {
+    }
+    
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectWriter orderWriter = mapper.writerFor(OrderRequest.class);
+    private final ObjectWriter registrationWriter = mapper.writerFor(Registration.class);
+    private long sequence;
+    
+    @Benchmark
+    public byte[] orderStringFormat() {
+        String requestBody = String.format(
+            "{\"items\":[{\"productId\":\"%s\",\"quantity\":2}]," +
+            "\"shippingAddress\":\"Av. Principal 123, Santiago, Chile\"}",
+            Long.toString(++sequence)
+        );
+        return requestBody.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Benchmark
+    public byte[] orderJackson() throws JsonProcessingException {
+        return orderWriter.writeValueAsBytes(new OrderRequest(
+                List.of(new Line(Long.toString(++sequence), 2)), "Av. Principal 123, Santiago, Chile"));
+    }
+    
+    @Benchmark
+    public byte[] registrationStringFormat() {
+        long id = ++sequence;
+        String requestBody = String.format(
+            "{\"name\":\"%s\",\"email\":\"%s\",\"password\":\"%s\",\"phone\":\"%s\"}",
+            "Usuario de Prueba", "test" + id + "@greenmarket.com", "Password123!", "+56912345678"
+        );
+        return requestBody.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Benchmark
+    public byte[] registrationJackson() throws JsonProcessingException {
+        long id = ++sequence;
+        return registrationWriter.writeValueAsBytes(new Registration(
+                "Usuario de Prueba", "test" + id + "@greenmarket.com", "Password123!", "+56912345678"));
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : PayloadSerializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,22 @@
+package com.greenmarket.tests.bench.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Producto tipado según schemas/products.json
+ * Los campos desconocidos se ignoran, así un campo nuevo en la API no rompe la deserialización
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record Product(String id,
+                      String name,
+                      String description,
+                      double price,
+                      String category,
+                      int stock,
+                      List<String> images,
+                      double rating,
+                      int reviewsCount,
+                      String createdAt) {
+}
@@ -0,0 +1,120 @@
+package com.greenmarket.tests.bench.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.restassured.path.json.JsonPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de respuestas con JsonPath, como en las suites, frente a records Product/Order deserializados con un
+ * ObjectReader de Jackson reutilizado
+ *
+ * Las variantes JsonPath leen los campos que usan las pruebas, cada uno con getString/getInt sobre el mismo
+ * JsonPath; las tipadas leen el cuerpo completo una vez. El catálogo se mide con 10 y 1000 productos
+ *
+ * Uso: java com.greenmarket.tests.bench.client.ResponseDeserializationBenchmark [regex JMH]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class ResponseDeserializationBenchmark {
+    
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader productReader = mapper.readerFor(Product.class);
+    private final ObjectReader orderReader = mapper.readerFor(Order.class);
+    private final ObjectReader catalogReader = mapper.readerFor(new TypeReference<List<Product>>() { });
+    private final byte[] product = CannedResponses.json(CannedResponses.product(1));
+    private final byte[] order = CannedResponses.json(CannedResponses.createdOrder());
+    
+    /**
+     * Catálogo de GET /products
+     */
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        
+        @Param({"10", "1000"})
+        public int products;
+        
+        byte[] body;
+        
+        @Setup
+        public void setup() {
+            body = CannedResponses.json(CannedResponses.products(products));
+        }
+    }
+    
+    @Benchmark
+    public Object productJsonPath() {
+        JsonPath json = JsonPath.from(new String(product, StandardCharsets.UTF_8));
+        return json.getString("id") + json.getString("name") + json.getFloat("price")
+                + json.getString("category") + json.getInt("stock");
+    }
+    
+    @Benchmark
+    public Object productTyped() throws IOException {
+        Product typed = productReader.readValue(product);
+        return typed.id() + typed.name() + typed.price() + typed.category() + typed.stock();
+    }
+    
+    @Benchmark
+    public Object orderJsonPath() {
+        JsonPath json = JsonPath.from(new String(order, StandardCharsets.UTF_8));
+        return json.getString("orderId") + json.getFloat("total") + json.getString("status")
+                + json.getList("items").size();
+    }
+    
+    @Benchmark
+    public Object orderTyped() throws IOException {
+        Order typed = orderReader.readValue(order);
+        return typed.orderId() + typed.total() + typed.status() + typed.items().size();
+    }
+    
+    @Benchmark
+    public Object catalogJsonPath(Catalog catalog) {
+        List<Map<String, Object>> items = JsonPath.from(new String(catalog.body, StandardCharsets.UTF_8)).getList("$");
+        double total = 0;
+        for (Map<String, Object> item : items) {
+            total += ((Number) item.get("price")).doubleValue();
+        }
+        return total;
+    }
+    
+    @Benchmark
+    public Object catalogTyped(Catalog catalog) throws IOException {
+        List<Product> items = catalogReader.readValue(catalog.body);
+        double total = 0;
+        for (Product item : items) {
+            total += item.price();
+        }
+        return total;
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ResponseDeserializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,224 @@
+package com.greenmarket.tests.http;
+
+import io.restassured.response.Response;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Control de concurrencia adaptativo del cliente frente a 429/503 (AIMD)
+ *
+ * Limita las peticiones simultáneas a un límite que crece en 1 por cada ventana de respuestas exitosas
+ * y se multiplica por ThrottleConfig.decrease ante una señal de sobrecarga (429 o 503). Las respuestas
+ * de peticiones enviadas antes de la última reducción no vuelven a reducir: una ráfaga de 429 cuenta como
+ * un solo evento de congestión
+ *
+ * La petición sobrecargada se reintenta tras Retry-After más un backoff exponencial con jitter completo,
+ * para que los clientes limitados a la vez no vuelvan todos en el mismo instante
+ *
+ * Los reintentos se hacen sobre la petición completa (Supplier) y no dentro de un Filter: la cadena de filtros
+ * de REST Assured se consume una sola vez por petición
+ */
+public class AdaptiveThrottle {
+    
+    private final ThrottleConfig config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder unavailable = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder decreases = new LongAdder();
+    private final LongAdder queuedNanos = new LongAdder();
+    
+    // Protegidos por lock
+    private double limit;
+    private int inFlight;
+    private double minObserved;
+    private long lastDecreaseNanos = Long.MIN_VALUE;
+    
+    public AdaptiveThrottle(ThrottleConfig config) {
+        this.config = config;
+        this.limit = config.initialLimit();
+        this.minObserved = limit;
+    }
+    
+    /**
+     * Throttle configurado con -Dgreenmarket.throttle.*
+     * @return Throttle, o null si -Dgreenmarket.throttle=off
+     */
+    public static AdaptiveThrottle fromSystemProperties() {
+        ThrottleConfig config = ThrottleConfig.fromSystemProperties();
+        return config.enabled() ? new AdaptiveThrottle(config) : null;
+    }
+    
+    /**
+     * Ejecuta una petición respetando el límite de concurrencia y reintentando ante 429/503
+     * @param request Envío completo de la petición (se vuelve a invocar en cada reintento)
+     * @return Primera respuesta que no indica sobrecarga, o la última si se agotaron los reintentos
+     */
+    public Response execute(Supplier<Response> request) {
+        requests.increment();
+        for (int attempt = 0; ; attempt++) {
+            long sentAt = acquire();
+            Response response;
+            boolean overloaded;
+            try {
+                attempts.increment();
+                response = request.get();
+                overloaded = isOverload(response.statusCode());
+            } catch (RuntimeException e) {
+                release(sentAt, false);
+                throw e;
+            }
+            release(sentAt, overloaded);
+            if (!overloaded) {
+                return response;
+            }
+            if (attempt >= config.maxRetries()) {
+                exhausted.increment();
+                return response;
+            }
+            sleep(retryDelayNanos(response, attempt));
+        }
+    }
+    
+    /**
+     * Límite de concurrencia actual
+     */
+    public double getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getRequests() {
+        return requests.sum();
+    }
+    
+    /**
+     * Envíos en la red, incluidos los reintentos
+     */
+    public long getAttempts() {
+        return attempts.sum();
+    }
+    
+    public long getThrottled() {
+        return throttled.sum();
+    }
+    
+    public long getUnavailable() {
+        return unavailable.sum();
+    }
+    
+    /**
+     * Peticiones que siguieron sobrecargadas tras todos los reintentos
+     */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+    
+    /**
+     * Resumen de una línea para los reportes de carga
+     */
+    public String summary() {
+        lock.lock();
+        double current;
+        double lowest;
+        try {
+            current = limit;
+            lowest = minObserved;
+        } finally {
+            lock.unlock();
+        }
+        return String.format(Locale.ROOT,
+                "Envíos: %d (reintentos: %d) | 429: %d | 503: %d | Agotadas: %d | Reducciones: %d | "
+                        + "Límite: %.1f (mín. %.1f) | Espera en cola: %.0f ms",
+                getAttempts(), getAttempts() - getRequests(), getThrottled(), getUnavailable(), getExhausted(),
+                decreases.sum(), current, lowest, queuedNanos.sum() / 1_000_000.0);
+    }
+    
+    private boolean isOverload(int status) {
+        if (status == 429) {
+            throttled.increment();
+            return true;
+        }
+        if (status == 503) {
+            unavailable.increment();
+            return true;
+        }
+        return false;
+    }
+    
+    private long acquire() {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            while (inFlight >= Math.max(1, (int) limit)) {
+                released.awaitUninterruptibly();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        long now = System.nanoTime();
+        queuedNanos.add(now - start);
+        return now;
+    }
+    
+    private void release(long sentAt, boolean overloaded) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (overloaded) {
+                if (sentAt > lastDecreaseNanos) {
+                    limit = Math.max(config.minLimit(), limit * config.decrease());
+                    minObserved = Math.min(minObserved, limit);
+                    lastDecreaseNanos = System.nanoTime();
+                    decreases.increment();
+                }
+            } else {
+                // +1 por ventana: cada respuesta exitosa suma 1/límite
+                limit = Math.min(config.maxLimit(), limit + 1.0 / limit);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Retry-After (segundos) más backoff exponencial con jitter completo
+     */
+    private long retryDelayNanos(Response response, int attempt) {
+        long retryAfter = 0;
+        String header = response.getHeader("Retry-After");
+        if (header != null) {
+            try {
+                retryAfter = TimeUnit.SECONDS.toNanos(Long.parseLong(header.trim()));
+            } catch (NumberFormatException ignored) {
+                // Retry-After con fecha HTTP: se usa solo el backoff
+            }
+        }
+        long cap = Math.min(config.maxDelay().toNanos(), config.baseDelay().toNanos() << Math.min(attempt, 20));
+        return retryAfter + ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+    
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido durante el backoff", e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.greenmarket.tests.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento de Java Flight Recorder por cada llamada a la API hecha por la suite
+ * La duración del evento es el tiempo total de la llamada; en JDK Mission Control se ve en la misma
+ * línea de tiempo que GC, compilación JIT y asignaciones del hilo de la prueba
+ *
+ * Grabación: -XX:StartFlightRecording=filename=target/suite.jfr,settings=profile
+ * Lectura: jfr print --events greenmarket.ApiCall target/suite.jfr
+ */
+@Name("greenmarket.ApiCall")
+@Label("API Call")
+@Category({"GreenMarket", "HTTP"})
+@Description("Petición HTTP de la suite de GreenMarket")
+@StackTrace(false)
+public class ApiCallEvent extends Event {
+    
+    @Label("Test")
+    @Description("Caso de prueba que hizo la llamada (CP-0xx o Clase.metodo)")
+    String testId;
+    
+    @Label("Method")
+    String method;
+    
+    @Label("Endpoint")
+    @Description("Ruta con los IDs reemplazados por {id}")
+    String endpoint;
+    
+    @Label("Status")
+    @Description("Código HTTP, o 0 si no hubo respuesta")
+    int status;
+    
+    @Label("Request Bytes")
+    @DataAmount
+    long requestBytes;
+    
+    @Label("Response Bytes")
+    @DataAmount
+    long responseBytes;
+    
+    @Label("Wire Bytes")
+    @Description("Bytes del cuerpo recibidos por la red (comprimidos si correspondía), -1 si el transporte no lo mide")
+    @DataAmount
+    long wireBytes;
+    
+    @Label("Decode Time")
+    @Description("Tiempo de descompresión del cuerpo, 0 si no venía comprimido")
+    @Timespan(Timespan.NANOSECONDS)
+    long decode;
+    
+    @Label("Cache")
+    @Description("Resultado de la caché HTTP del cliente (HIT, REVALIDATED, MISS, CHANGED), vacío sin caché")
+    String cache;
+    
+    @Label("DNS")
+    @Timespan(Timespan.NANOSECONDS)
+    long dns;
+    
+    @Label("Connect")
+    @Timespan(Timespan.NANOSECONDS)
+    long connect;
+    
+    @Label("Time To First Byte")
+    @Timespan(Timespan.NANOSECONDS)
+    long timeToFirstByte;
+}
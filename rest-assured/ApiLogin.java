@@ -0,0 +1,65 @@
+package com.greenmarket.tests.base;
+
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Login contra /users/login para la TokenCache de la suite
+ * Si el usuario no existe (401) se registra una vez con /users/register y se reintenta el login
+ */
+public class ApiLogin implements TokenCache.Login {
+    
+    private final RequestSpecification spec;
+    private final String name;
+    
+    /**
+     * @param spec Specification sin autenticación apuntando a la API
+     * @param name Nombre usado si hay que registrar al usuario
+     */
+    public ApiLogin(RequestSpecification spec, String name) {
+        this.spec = spec;
+        this.name = name;
+    }
+    
+    @Override
+    public String login(TokenCache.Credentials credentials) {
+        Response response = post(credentials);
+        if (response.statusCode() == 401) {
+            // Mismo cuerpo que CP-001
+            String requestBody = String.format(
+                "{\"name\":\"%s\",\"email\":\"%s\",\"password\":\"%s\",\"phone\":\"%s\"}",
+                name, credentials.email(), credentials.password(), "+56912345678"
+            );
+            int status = given()
+                    .spec(spec)
+                    .body(requestBody)
+                .when()
+                    .post("/users/register")
+                    .statusCode();
+            if (status != 201 && status != 409) {
+                throw new IllegalStateException("No se pudo registrar " + credentials.email() + ": HTTP " + status);
+            }
+            response = post(credentials);
+        }
+        String token = response.statusCode() == 200 ? response.jsonPath().getString("token") : null;
+        if (token == null) {
+            throw new IllegalStateException("Login fallido para " + credentials.email() + ": HTTP " + response.statusCode());
+        }
+        return token;
+    }
+    
+    private Response post(TokenCache.Credentials credentials) {
+        // Mismo cuerpo que CP-003
+        String requestBody = String.format(
+            "{\"email\":\"%s\",\"password\":\"%s\"}",
+            credentials.email(), credentials.password()
+        );
+        return given()
+                .spec(spec)
+                .body(requestBody)
+            .when()
+                .post("/users/login");
+    }
+}
@@ -0,0 +1,194 @@
+package com.greenmarket.tests.metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Contadores e histogramas por endpoint de todas las llamadas de la suite, exportables en formato
+ * de texto de Prometheus al terminar la corrida
+ *
+ * Registrar no toma locks: cada serie usa LongAdder y un ConcurrentHistogram (HdrHistogram, latencias
+ * en microsegundos); los buckets de Prometheus se calculan recién al exportar
+ */
+public class ApiMetrics {
+    
+    /** Latencia máxima registrable: 60 s en microsegundos */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+    
+    /** Límites superiores de los buckets de duración, en segundos */
+    private static final double[] BUCKETS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    
+    private static final ThreadLocal<String> CURRENT_TEST = new ThreadLocal<>();
+    
+    private final ConcurrentMap<String, Series> series = new ConcurrentHashMap<>();
+    
+    /**
+     * Métricas de un endpoint
+     */
+    static class Series {
+        
+        final String method;
+        final String endpoint;
+        final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        final LongAdder latencySumMicros = new LongAdder();
+        final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        final LongAdder requestBytes = new LongAdder();
+        final LongAdder responseBytes = new LongAdder();
+        final LongAdder wireBytes = new LongAdder();
+        final LongAdder decodeNanos = new LongAdder();
+        
+        Series(String method, String endpoint) {
+            this.method = method;
+            this.endpoint = endpoint;
+        }
+    }
+    
+    /**
+     * Caso de prueba que hace llamadas en el hilo actual (ver TestIdExtension)
+     * @return ID del caso, o null fuera de una prueba
+     */
+    public static String currentTest() {
+        return CURRENT_TEST.get();
+    }
+    
+    static void setCurrentTest(String testId) {
+        if (testId == null) {
+            CURRENT_TEST.remove();
+        } else {
+            CURRENT_TEST.set(testId);
+        }
+    }
+    
+    /**
+     * Registra una llamada
+     * @param method Método HTTP
+     * @param endpoint Plantilla de la ruta (ver EndpointTemplate), sin el método
+     * @param status Código HTTP, o 0 si no hubo respuesta
+     * @param latencyNanos Duración total
+     * @param requestBytes Bytes del cuerpo enviado
+     * @param responseBytes Bytes del cuerpo recibido, ya descomprimido
+     * @param wireBytes Bytes del cuerpo como llegaron por la red
+     * @param decodeNanos Tiempo de descompresión del cuerpo
+     */
+    public void record(String method, String endpoint, int status, long latencyNanos, long requestBytes,
+                       long responseBytes, long wireBytes, long decodeNanos) {
+        Series current = series.computeIfAbsent(method + ' ' + endpoint, key -> new Series(method, endpoint));
+        long micros = Math.min(MAX_LATENCY_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        current.latencies.recordValue(micros);
+        current.latencySumMicros.add(micros);
+        current.statuses.computeIfAbsent(status, code -> new LongAdder()).increment();
+        current.requestBytes.add(requestBytes);
+        current.responseBytes.add(responseBytes);
+        current.wireBytes.add(wireBytes);
+        current.decodeNanos.add(decodeNanos);
+    }
+    
+    /**
+     * Cantidad total de llamadas registradas
+     */
+    public long getRequests() {
+        return series.values().stream().mapToLong(s -> s.latencies.getTotalCount()).sum();
+    }
+    
+    /**
+     * Escribe las métricas en formato de texto de Prometheus (exposition format 0.0.4)
+     * @param writer Destino; no se cierra
+     * @throws IOException Si falla la escritura
+     */
+    public void writePrometheus(Writer writer) throws IOException {
+        List<Series> sorted = new ArrayList<>(series.values());
+        sorted.sort(Comparator.comparing((Series s) -> s.endpoint).thenComparing(s -> s.method));
+        
+        writer.write("# HELP greenmarket_api_requests_total Llamadas a la API por endpoint y código HTTP\n");
+        writer.write("# TYPE greenmarket_api_requests_total counter\n");
+        for (Series s : sorted) {
+            for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(s.statuses).entrySet()) {
+                writer.write("greenmarket_api_requests_total{" + labels(s) + ",status=\"" + status.getKey() + "\"} "
+                        + status.getValue().sum() + "\n");
+            }
+        }
+        
+        writer.write("# HELP greenmarket_api_request_duration_seconds Duración total de las llamadas a la API\n");
+        writer.write("# TYPE greenmarket_api_request_duration_seconds histogram\n");
+        for (Series s : sorted) {
+            Histogram h = s.latencies.copy();
+            for (double bound : BUCKETS) {
+                long micros = (long) (bound * 1_000_000);
+                writer.write("greenmarket_api_request_duration_seconds_bucket{" + labels(s) + ",le=\"" + number(bound)
+                        + "\"} " + h.getCountBetweenValues(0, micros) + "\n");
+            }
+            writer.write("greenmarket_api_request_duration_seconds_bucket{" + labels(s) + ",le=\"+Inf\"} "
+                    + h.getTotalCount() + "\n");
+            writer.write("greenmarket_api_request_duration_seconds_sum{" + labels(s) + "} "
+                    + number(s.latencySumMicros.sum() / 1_000_000.0) + "\n");
+            writer.write("greenmarket_api_request_duration_seconds_count{" + labels(s) + "} " + h.getTotalCount() + "\n");
+        }
+        
+        counter(writer, sorted, "greenmarket_api_request_bytes_total", "Bytes enviados en cuerpos de petición",
+                s -> s.requestBytes.sum());
+        counter(writer, sorted, "greenmarket_api_response_bytes_total", "Bytes recibidos en cuerpos de respuesta",
+                s -> s.responseBytes.sum());
+        counter(writer, sorted, "greenmarket_api_response_wire_bytes_total",
+                "Bytes de cuerpos de respuesta en la red, comprimidos si correspondía", s -> s.wireBytes.sum());
+        
+        writer.write("# HELP greenmarket_api_response_decode_seconds_total Tiempo de descompresión de respuestas\n");
+        writer.write("# TYPE greenmarket_api_response_decode_seconds_total counter\n");
+        for (Series s : sorted) {
+            writer.write("greenmarket_api_response_decode_seconds_total{" + labels(s) + "} "
+                    + number(s.decodeNanos.sum() / 1e9) + "\n");
+        }
+    }
+    
+    /**
+     * Escribe las métricas en un archivo .prom (para node_exporter textfile o para adjuntar al build)
+     * @param file Archivo destino (se crean los directorios faltantes)
+     * @throws IOException Si no se puede escribir
+     */
+    public void writePrometheus(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writePrometheus(writer);
+        }
+    }
+    
+    private static void counter(Writer writer, List<Series> sorted, String name, String help,
+                                ToLongFunction<Series> value) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " counter\n");
+        for (Series s : sorted) {
+            writer.write(name + "{" + labels(s) + "} " + value.applyAsLong(s) + "\n");
+        }
+    }
+    
+    private static String labels(Series s) {
+        return "method=\"" + escape(s.method) + "\",endpoint=\"" + escape(s.endpoint) + "\"";
+    }
+    
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+    
+    private static String number(double value) {
+        String text = String.format(Locale.ROOT, "%.6f", value);
+        return text.contains(".") ? text.replaceAll("0+$", "").replaceAll("\\.$", "") : text;
+    }
+}
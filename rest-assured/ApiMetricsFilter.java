@@ -0,0 +1,88 @@
+package com.greenmarket.tests.metrics;
+
+import com.greenmarket.tests.http.CallTimings;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Filtro que mide cada llamada de la suite: emite un ApiCallEvent de JFR (solo si hay una grabación
+ * activa que lo habilite) y acumula contadores e histogramas por endpoint en ApiMetrics
+ * Los tiempos de DNS, conexión y primer byte, los bytes en la red y la descompresión los informa
+ * el transporte a través de CallTimings
+ */
+public class ApiMetricsFilter implements Filter {
+    
+    private final ApiMetrics metrics;
+    
+    /**
+     * @param metrics Registro donde se acumulan las llamadas
+     */
+    public ApiMetricsFilter(ApiMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec,
+                           FilterableResponseSpecification responseSpec,
+                           FilterContext ctx) {
+        String method = requestSpec.getMethod();
+        // La ruta tal como la escribió la prueba, sin la URL base (que puede traer su propio prefijo)
+        String path = requestSpec.getUserDefinedPath();
+        if (path == null || path.isEmpty()) {
+            path = URI.create(requestSpec.getURI()).getRawPath();
+        }
+        String template = EndpointTemplate.of(method, path);
+        String endpoint = template.substring(method.length() + 1);
+        
+        ApiCallEvent event = new ApiCallEvent();
+        event.begin();
+        CallTimings timings = CallTimings.start();
+        long start = System.nanoTime();
+        int status = 0;
+        long responseBytes = 0;
+        try {
+            Response response = ctx.next(requestSpec, responseSpec);
+            status = response.statusCode();
+            responseBytes = response.asByteArray().length;
+            return response;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            CallTimings.finish();
+            long requestBytes = bodyBytes(requestSpec.getBody());
+            metrics.record(method, endpoint, status, elapsed, requestBytes, responseBytes,
+                    timings.getWireBytes() < 0 ? responseBytes : timings.getWireBytes(), Math.max(0, timings.getDecodeNanos()));
+            event.end();
+            if (event.shouldCommit()) {
+                event.testId = ApiMetrics.currentTest();
+                event.method = method;
+                event.endpoint = endpoint;
+                event.status = status;
+                event.requestBytes = requestBytes;
+                event.responseBytes = responseBytes;
+                event.wireBytes = timings.getWireBytes();
+                event.decode = timings.getDecodeNanos();
+                event.cache = timings.getCacheResult() == null ? null : timings.getCacheResult().name();
+                event.dns = timings.getDnsNanos();
+                event.connect = timings.getConnectNanos();
+                event.timeToFirstByte = timings.getFirstByteNanos();
+                event.commit();
+            }
+        }
+    }
+    
+    private static long bodyBytes(Object body) {
+        if (body instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (body instanceof String text) {
+            return text.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return 0;
+    }
+}
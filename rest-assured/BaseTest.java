@@ -1,68 +1,262 @@
 package com.greenmarket.tests.base;
 
+import com.greenmarket.tests.http.HttpTransport;
+import com.greenmarket.tests.http.TransportConfig;
+import com.greenmarket.tests.metrics.ApiMetrics;
+import com.greenmarket.tests.metrics.ApiMetricsFilter;
+import com.greenmarket.tests.metrics.TestIdExtension;
+import com.greenmarket.tests.mock.MockServer;
+import com.greenmarket.tests.perf.LatencyBudgetFilter;
+import com.greenmarket.tests.perf.ParallelSpeedupExtension;
+import com.greenmarket.tests.replay.TrafficRecorder;
+import com.greenmarket.tests.validation.SchemaRegistry;
+import com.greenmarket.tests.validation.SchemaValidationFilter;
+import com.greenmarket.tests.validation.ValidationStats;
 import io.restassured.RestAssured;
-import io.restassured.builder.RequestSpecBuilder;
-import io.restassured.http.ContentType;
+import io.restassured.filter.Filter;
 import io.restassured.specification.RequestSpecification;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Clase base para todas las pruebas de API
  * Contiene configuración común y métodos auxiliares
+ * Si no se indica -Dgreenmarket.baseUrl, las pruebas corren contra el mock server embebido
+ * Cada clase de prueba tiene su propio TestContext, por lo que las clases pueden correr en paralelo
+ * Todas las clases comparten un transporte HTTP (pool keep-alive por defecto, -Dgreenmarket.http.transport)
+ * y una caché de tokens: el usuario de la suite (getSuiteToken) inicia sesión una sola vez aunque ninguna clase haya hecho login
+ * Cada respuesta de users, products, orders y reviews se valida contra su esquema JSON
+ * (-Dgreenmarket.schema.validation=report|strict|off); report solo cuenta las violaciones para no ocultar
+ * los códigos de estado que afirman las pruebas negativas
+ * Con -Dgreenmarket.capture el tráfico de la suite se graba en JSONL para reproducirlo con TrafficReplayer
+ * Cada llamada emite un evento JFR (greenmarket.ApiCall) y se acumula en métricas por endpoint que se escriben
+ * en formato Prometheus al terminar (-Dgreenmarket.metrics=off las desactiva)
  */
+@ExtendWith({ParallelSpeedupExtension.class, TestIdExtension.class})
 public class BaseTest {
     
-    protected static RequestSpecification requestSpec;
-    protected static String baseUrl = "https://api.greenmarket.com/v1";
-    protected static String authToken;
-    protected static String userId;
+    private static final ConcurrentMap<Class<?>, TestContext> CONTEXTS = new ConcurrentHashMap<>();
+    
+    protected static volatile String baseUrl = System.getProperty("greenmarket.baseUrl");
+    protected static MockServer mockServer;
+    protected static HttpTransport transport;
+    
+    /** Usuario de la suite, configurable con -Dgreenmarket.auth.email y -Dgreenmarket.auth.password */
+    protected static final TokenCache.Credentials SUITE_USER = new TokenCache.Credentials(
+            System.getProperty("greenmarket.auth.email", "qa.suite@greenmarket.com"),
+            System.getProperty("greenmarket.auth.password", "Password123!"));
+    
+    private static TokenCache tokens;
+    
+    /** Contadores e histogramas por endpoint de todas las llamadas de la suite */
+    protected static final ApiMetrics API_METRICS = new ApiMetrics();
+    
+    /** Costo y resultado de la validación de esquemas de toda la suite */
+    protected static final ValidationStats SCHEMA_STATS = new ValidationStats();
+    
+    private static Filter[] filters;
+    
+    /** Specification del contexto de la clase, se vuelve a enlazar antes de cada prueba */
+    protected RequestSpecification requestSpec;
     
     @BeforeAll
-    public static void setup() {
+    public static synchronized void setup() {
+        // Mock server embebido cuando no se apunta a una API externa
+        if (baseUrl == null || baseUrl.isBlank()) {
+            baseUrl = startMockServer().getBaseUrl();
+        }
+        
         // Configuración base de REST Assured
         RestAssured.baseURI = baseUrl;
-        
-        // Request Specification común
-        requestSpec = new RequestSpecBuilder()
-                .setBaseUri(baseUrl)
-                .setContentType(ContentType.JSON)
-                .setAccept(ContentType.JSON)
-                .build();
+        transport();
+    }
+    
+    @BeforeEach
+    public void bindContext() {
+        // Request Specification de la clase (incluye el token si ya se autenticó)
+        requestSpec = context().getSpec();
     }
     
     /**
-     * Configura el token de autenticación para las pruebas
+     * Inicia el mock server una sola vez por JVM en un puerto efímero
+     * La ruta de db.json se puede cambiar con -Dgreenmarket.mock.db
+     * @return Mock server en ejecución
+     */
+    protected static synchronized MockServer startMockServer() {
+        if (mockServer == null) {
+            String dbFile = System.getProperty("greenmarket.mock.db", MockServer.DEFAULT_DB_FILE);
+            try {
+                mockServer = MockServer.start(Paths.get(dbFile));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo iniciar el mock server con " + dbFile, e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(mockServer::stop));
+            System.out.printf("Mock server iniciado en %s (listo en %.1f ms)%n",
+                    mockServer.getBaseUrl(), mockServer.getStartupMillis());
+        }
+        return mockServer;
+    }
+    
+    /**
+     * Crea una sola vez el transporte HTTP compartido por la suite
+     * Al terminar la JVM se imprimen sus métricas de conexiones y se cierra el pool
+     * @return Transporte configurado con -Dgreenmarket.http.*
+     */
+    protected static synchronized HttpTransport transport() {
+        if (transport == null) {
+            HttpTransport created = HttpTransport.create(TransportConfig.fromSystemProperties());
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                System.out.println("[http:" + created.getConfig().type().name().toLowerCase() + "] "
+                        + created.summary());
+                created.close();
+            }));
+            transport = created;
+        }
+        return transport;
+    }
+    
+    /**
+     * Filtros comunes a todas las specifications: validación de esquemas, métricas por llamada, si se pide
+     * captura de tráfico y la medición de @LatencyBudget
+     * Los esquemas se compilan una vez y el costo se imprime al terminar la JVM
+     * Con -Dgreenmarket.capture=archivo.jsonl cada intercambio se graba para TrafficReplayer; el grabador y el
+     * filtro de @LatencyBudget van últimos para medir solo el intercambio HTTP
+     * @return Filtros según -Dgreenmarket.schema.validation (report por defecto) y -Dgreenmarket.capture
+     */
+    protected static synchronized Filter[] filters() {
+        if (filters == null) {
+            List<Filter> created = new ArrayList<>();
+            String mode = System.getProperty("greenmarket.schema.validation", "report");
+            if (!"off".equalsIgnoreCase(mode)) {
+                created.add(new SchemaValidationFilter(SchemaRegistry.shared(), SCHEMA_STATS,
+                        "strict".equalsIgnoreCase(mode)));
+                Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                        System.out.println("[schema] " + SCHEMA_STATS.summary())));
+            }
+            if (!"off".equalsIgnoreCase(System.getProperty("greenmarket.metrics", "on"))) {
+                created.add(new ApiMetricsFilter(API_METRICS));
+                Runtime.getRuntime().addShutdownHook(new Thread(BaseTest::writeApiMetrics));
+            }
+            TrafficRecorder recorder = TrafficRecorder.fromSystemProperties();
+            if (recorder != null) {
+                created.add(recorder);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    recorder.close();
+                    System.out.println("[capture] " + recorder.summary());
+                }));
+            }
+            created.add(new LatencyBudgetFilter());
+            filters = created.toArray(new Filter[0]);
+        }
+        return filters;
+    }
+    
+    private static void writeApiMetrics() {
+        Path file = Paths.get(System.getProperty("greenmarket.metrics.file", "target/api-metrics.prom"));
+        try {
+            API_METRICS.writePrometheus(file);
+            System.out.println("[metrics] " + API_METRICS.getRequests() + " llamadas, Prometheus: " + file.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("[metrics] No se pudo escribir " + file + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Caché de tokens compartida por todas las clases de prueba
+     * @return Caché que inicia sesión de forma perezosa contra baseUrl
+     */
+    protected static synchronized TokenCache tokens() {
+        if (tokens == null) {
+            TokenCache created = new TokenCache(
+                    new ApiLogin(new TestContext(baseUrl, transport(), filters()).getBaseSpec(), "QA Suite"));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println("[auth] " + created.summary())));
+            tokens = created;
+        }
+        return tokens;
+    }
+    
+    /**
+     * Contexto aislado de la clase de prueba actual
+     * @return Contexto compartido por los métodos de esta clase
+     */
+    protected TestContext context() {
+        return CONTEXTS.computeIfAbsent(getClass(), type -> new TestContext(baseUrl, transport(), filters()));
+    }
+    
+    /**
+     * Configura el token de autenticación para las pruebas de esta clase
      * @param token Token JWT obtenido del login
      */
-    protected static void setAuthToken(String token) {
-        authToken = token;
-        requestSpec = new RequestSpecBuilder()
-                .addRequestSpecification(requestSpec)
-                .addHeader("Authorization", "Bearer " + token)
-                .build();
+    protected void setAuthToken(String token) {
+        context().setAuthToken(token);
+        requestSpec = context().getSpec();
     }
     
     /**
-     * Obtiene el token de autenticación actual
+     * Obtiene el token con el que inició sesión esta clase
+     * Si la clase no llegó a iniciar sesión (su prueba de login falló o no corrió) la prueba se omite,
+     * en lugar de seguir con otro usuario y ocultar el fallo
      * @return Token JWT
      */
-    protected static String getAuthToken() {
-        return authToken;
+    protected String getAuthToken() {
+        String token = context().getAuthToken();
+        Assumptions.assumeTrue(token != null,
+                "La clase " + getClass().getSimpleName() + " no inició sesión; ver la prueba de login");
+        return token;
+    }
+    
+    /**
+     * Token cacheado del usuario de la suite, renovado antes de expirar
+     * Para las clases que no prueban el login y solo necesitan un usuario autenticado
+     * @return Token JWT
+     */
+    protected String getSuiteToken() {
+        return tokens().get(SUITE_USER);
+    }
+    
+    /**
+     * Guarda en la caché compartida un token obtenido por la propia prueba de login
+     * @param email Email con el que se inició sesión
+     * @param password Contraseña usada
+     * @param token Token JWT devuelto por /users/login
+     */
+    protected void cacheToken(String email, String password, String token) {
+        tokens().put(new TokenCache.Credentials(email, password), token);
     }
     
     /**
      * Establece el ID del usuario para pruebas
      * @param id ID del usuario
      */
-    protected static void setUserId(String id) {
-        userId = id;
+    protected void setUserId(String id) {
+        context().setUserId(id);
     }
     
     /**
      * Obtiene el ID del usuario actual
      * @return ID del usuario
      */
-    protected static String getUserId() {
-        return userId;
+    protected String getUserId() {
+        return context().getUserId();
+    }
+    
+    /**
+     * Registra un recurso creado por esta clase de prueba
+     * @param resource Colección del recurso (users, orders, ...)
+     * @param id Identificador asignado por la API
+     */
+    protected void trackCreated(String resource, String id) {
+        context().addCreatedId(resource, id);
     }
 }
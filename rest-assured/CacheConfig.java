@@ -0,0 +1,44 @@
+package com.greenmarket.tests.http;
+
+import java.time.Duration;
+
+/**
+ * Configuración de la caché HTTP del cliente (ver ResponseCache)
+ *
+ * @param policy OFF (sin caché), LRU o TINYLFU (LRU con admisión por frecuencia)
+ * @param maxEntries Entradas como máximo
+ * @param maxBytes Bytes de cuerpos como máximo
+ * @param maxAge Tiempo en que una entrada se usa sin revalidar si el servidor no manda max-age
+ *               (cero: se revalida en cada uso)
+ */
+public record CacheConfig(Policy policy, int maxEntries, long maxBytes, Duration maxAge) {
+    
+    public enum Policy {
+        OFF,
+        LRU,
+        TINYLFU
+    }
+    
+    public CacheConfig {
+        if (maxEntries <= 0 || maxBytes <= 0 || maxAge.isNegative()) {
+            throw new IllegalArgumentException("La caché necesita maxEntries y maxMb mayores que 0 y maxAgeMs >= 0");
+        }
+    }
+    
+    /**
+     * Lee greenmarket.http.cache (off|lru|tinylfu), greenmarket.http.cache.maxEntries,
+     * greenmarket.http.cache.maxMb y greenmarket.http.cache.maxAgeMs
+     * @return Configuración (sin caché por defecto)
+     */
+    public static CacheConfig fromSystemProperties() {
+        return new CacheConfig(
+                Policy.valueOf(System.getProperty("greenmarket.http.cache", "off").trim().toUpperCase()),
+                Integer.getInteger("greenmarket.http.cache.maxEntries", 10_000),
+                Long.getLong("greenmarket.http.cache.maxMb", 64L) * 1024 * 1024,
+                Duration.ofMillis(Long.getLong("greenmarket.http.cache.maxAgeMs", 0L)));
+    }
+    
+    public boolean isEnabled() {
+        return policy != Policy.OFF;
+    }
+}
@@ -0,0 +1,167 @@
+package com.greenmarket.tests.http;
+
+/**
+ * Tiempos de las fases de una petición HTTP en curso: DNS, conexión y primer byte, más el tamaño del cuerpo
+ * en la red frente al decodificado, lo que costó descomprimirlo y el resultado de la caché del cliente
+ *
+ * REST Assured ejecuta la petición en el hilo que la pide, así que quien mide el total (un filtro)
+ * abre los tiempos con start en su hilo y el transporte los completa desde los interceptores del cliente.
+ * PooledTransport informa todas las fases; Http2Transport solo primer byte y cuerpo, porque java.net.http
+ * no expone DNS ni conexiones. Lo no informado queda en -1.
+ * DNS y conexión valen 0 cuando la petición reutilizó una conexión del pool
+ */
+public final class CallTimings {
+    
+    private static final ThreadLocal<CallTimings> CURRENT = new ThreadLocal<>();
+    
+    private final long startNanos = System.nanoTime();
+    private long dnsNanos = -1;
+    private long connectNanos = -1;
+    private long firstByteNanos = -1;
+    private long wireBytes = -1;
+    private long decodedBytes = -1;
+    private long decodeNanos = -1;
+    private ResponseCache.Result cacheResult;
+    
+    private CallTimings() {
+    }
+    
+    /**
+     * Empieza a medir una petición en el hilo actual
+     * @return Tiempos que el transporte irá completando
+     */
+    public static CallTimings start() {
+        CallTimings timings = new CallTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+    
+    /**
+     * Deja de medir en el hilo actual
+     */
+    public static void finish() {
+        CURRENT.remove();
+    }
+    
+    /**
+     * Tiempos de la petición en curso en el hilo actual, o null si nadie está midiendo
+     */
+    static CallTimings current() {
+        return CURRENT.get();
+    }
+    
+    static void dnsResolved(long nanos) {
+        CallTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.dnsNanos = Math.max(0, timings.dnsNanos) + nanos;
+        }
+    }
+    
+    /**
+     * Se abrió una conexión
+     * @param nanos Duración de la apertura, incluida la resolución DNS que ocurre dentro de ella
+     */
+    static void connected(long nanos) {
+        CallTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.connectNanos = Math.max(0, timings.connectNanos) + Math.max(0, nanos - Math.max(0, timings.dnsNanos));
+        }
+    }
+    
+    /**
+     * Llegaron las cabeceras de la respuesta; si no hizo falta abrir conexión, DNS y conexión valen 0
+     */
+    static void firstByte() {
+        CallTimings timings = CURRENT.get();
+        if (timings != null && timings.firstByteNanos < 0) {
+            timings.firstByteNanos = System.nanoTime() - timings.startNanos;
+            timings.dnsNanos = Math.max(0, timings.dnsNanos);
+            timings.connectNanos = Math.max(0, timings.connectNanos);
+        }
+    }
+    
+    /**
+     * Llegaron las cabeceras de una petición medida en otro hilo (java.net.http las entrega en su executor)
+     * DNS y conexión quedan sin informar
+     * @param timings Tiempos tomados con current en el hilo de la petición, o null
+     */
+    static void firstByte(CallTimings timings) {
+        if (timings != null && timings.firstByteNanos < 0) {
+            timings.firstByteNanos = System.nanoTime() - timings.startNanos;
+        }
+    }
+    
+    /**
+     * Se leyó el cuerpo de la respuesta
+     * @param wire Bytes recibidos por la red
+     * @param decoded Bytes tras descomprimir
+     * @param nanos Tiempo de descompresión (0 si no venía comprimido)
+     */
+    static void bodyReceived(long wire, long decoded, long nanos) {
+        CallTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.wireBytes = wire;
+            timings.decodedBytes = decoded;
+            timings.decodeNanos = nanos;
+        }
+    }
+    
+    /**
+     * La caché del cliente resolvió la petición (ver ResponseCache)
+     */
+    static void cacheResult(ResponseCache.Result result) {
+        CallTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.cacheResult = result;
+        }
+    }
+    
+    /**
+     * Resolución DNS en nanosegundos, o -1 si el transporte no la informa
+     */
+    public long getDnsNanos() {
+        return dnsNanos;
+    }
+    
+    /**
+     * Apertura de la conexión TCP (y TLS) sin contar DNS, o -1 si el transporte no la informa
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+    
+    /**
+     * Tiempo hasta recibir las cabeceras de la respuesta, o -1 si el transporte no lo informa
+     */
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+    
+    /**
+     * Bytes del cuerpo tal como llegaron por la red (comprimidos si correspondía), o -1 si no se informa
+     */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+    
+    /**
+     * Bytes del cuerpo ya descomprimido, o -1 si no se informa
+     */
+    public long getDecodedBytes() {
+        return decodedBytes;
+    }
+    
+    /**
+     * Tiempo de CPU de la descompresión (0 si el cuerpo no venía comprimido), o -1 si no se informa
+     */
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+    
+    /**
+     * Resultado de la caché del cliente, o null si la petición no pasó por ella
+     */
+    public ResponseCache.Result getCacheResult() {
+        return cacheResult;
+    }
+}
@@ -0,0 +1,158 @@
+package com.greenmarket.tests.mock;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Validadores de las lecturas de colecciones del mock server: ETag fuerte y Last-Modified, y 304 para
+ * If-None-Match / If-Modified-Since
+ *
+ * La ETag es la versión de la colección (cambia con cada escritura) precedida por una marca de esta instancia,
+ * para que no se repita entre reinicios; la misma versión valida la lista, con cualquier query, y cada registro.
+ * Se lee antes de consultar la colección, así una escritura concurrente a lo sumo provoca una descarga de más y
+ * nunca un 304 con contenido viejo; un 304 se responde sin consultar ni serializar nada
+ * If-None-Match usa la comparación débil de RFC 9110 e ignora el sufijo -gzip/-deflate que MockServer agrega
+ * a las respuestas comprimidas; If-Modified-Since se evalúa sólo si no hay If-None-Match
+ *
+ * Propiedad: -Dgreenmarket.mock.etag=on (por defecto) u off
+ */
+public class ConditionalRequests {
+    
+    private final boolean enabled;
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final LongAdder validated = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    
+    /**
+     * @param enabled Si es false las lecturas se responden sin validadores, como json-server
+     */
+    public ConditionalRequests(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    /**
+     * Lee -Dgreenmarket.mock.etag
+     * @return Validadores habilitados salvo que la propiedad valga off
+     */
+    public static ConditionalRequests fromSystemProperties() {
+        return new ConditionalRequests(!"off".equalsIgnoreCase(System.getProperty("greenmarket.mock.etag", "on").trim()));
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Responde una lectura de la colección con sus validadores
+     * @param collection Colección leída
+     * @param request Petición GET, con sus cabeceras condicionales
+     * @param read Lectura de la colección; sólo se ejecuta si el cliente no tiene la versión actual
+     * @return 304 sin cuerpo, o la respuesta de read con ETag y Last-Modified si es un 200
+     */
+    public MockResponse respond(MockCollection collection, MockRequest request, Supplier<MockResponse> read) {
+        if (!enabled) {
+            return read.get();
+        }
+        long lastModified = collection.getLastModified();
+        String etag = "\"" + instance + "-" + Long.toString(collection.getVersion(), 36) + "\"";
+        String lastModifiedDate = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                Instant.ofEpochMilli(lastModified).atZone(ZoneOffset.UTC));
+        String ifNoneMatch = request.header("If-None-Match");
+        String matched = ifNoneMatch != null
+                ? match(ifNoneMatch, etag)
+                : notModifiedSince(request.header("If-Modified-Since"), lastModified) ? etag : null;
+        if (matched != null) {
+            notModified.increment();
+            // El 304 repite la etiqueta que tiene el cliente, con el sufijo de su codificación
+            return MockResponse.of(304, null)
+                    .withHeader("ETag", matched)
+                    .withHeader("Last-Modified", lastModifiedDate);
+        }
+        MockResponse response = read.get();
+        if (response.status() == 200) {
+            validated.increment();
+            response.withHeader("ETag", etag).withHeader("Last-Modified", lastModifiedDate);
+        }
+        return response;
+    }
+    
+    /**
+     * ETag de la representación comprimida: la fuerte de la identidad con el sufijo de la codificación
+     * @param etag ETag de la respuesta sin comprimir
+     * @param encoding Codificación aplicada
+     * @return ETag distinta para cada codificación, como exige una etiqueta fuerte
+     */
+    public static String withEncoding(String etag, String encoding) {
+        if (etag.length() < 2 || !etag.startsWith("\"") || !etag.endsWith("\"")) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+    
+    /**
+     * Etiqueta de If-None-Match que coincide con la actual, o null
+     */
+    private static String match(String ifNoneMatch, String etag) {
+        for (String part : ifNoneMatch.split(",")) {
+            String tag = part.trim();
+            String opaque = tag.startsWith("W/") ? tag.substring(2) : tag;
+            for (String encoding : ResponseCompression.SUPPORTED) {
+                String suffix = "-" + encoding + "\"";
+                if (opaque.endsWith(suffix)) {
+                    opaque = opaque.substring(0, opaque.length() - suffix.length()) + "\"";
+                    break;
+                }
+            }
+            if (opaque.equals(etag)) {
+                return tag;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Last-Modified tiene resolución de segundos: dos escrituras en el mismo segundo no se distinguen,
+     * y por eso If-None-Match tiene prioridad cuando viene
+     */
+    private static boolean notModifiedSince(String ifModifiedSince, long lastModified) {
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            ZonedDateTime since = ZonedDateTime.parse(ifModifiedSince.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return lastModified / 1000 <= since.toEpochSecond();
+        } catch (DateTimeParseException e) {
+            // Una fecha inválida se ignora (RFC 9110)
+            return false;
+        }
+    }
+    
+    /**
+     * Lecturas respondidas con validadores (200)
+     */
+    public long getValidated() {
+        return validated.sum();
+    }
+    
+    /**
+     * Lecturas respondidas con 304
+     */
+    public long getNotModified() {
+        return notModified.sum();
+    }
+    
+    /**
+     * Resumen de una línea para el cierre del servidor
+     */
+    public String summary() {
+        long total = getValidated() + getNotModified();
+        return String.format(Locale.ROOT, "Lecturas con ETag: %d | 304 Not Modified: %d (%.1f%%)",
+                total, getNotModified(), total == 0 ? 0 : getNotModified() * 100.0 / total);
+    }
+}
@@ -0,0 +1,165 @@
+package com.greenmarket.tests.http;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de uso de conexiones del transporte HTTP
+ * Una petición que no abrió conexión nueva reutilizó una del pool (keep-alive)
+ */
+public class ConnectionMetrics {
+    
+    private final boolean connectionsObservable;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder tlsHandshakes = new LongAdder();
+    private final LongAdder connectionsEvicted = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> protocolVersions = new ConcurrentHashMap<>();
+    private final LongAdder compressedResponses = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+    
+    /**
+     * @param connectionsObservable Si el cliente permite contar las conexiones que abre
+     */
+    public ConnectionMetrics(boolean connectionsObservable) {
+        this.connectionsObservable = connectionsObservable;
+    }
+    
+    void requestSent() {
+        requests.increment();
+    }
+    
+    void connectionOpened(boolean tls) {
+        connectionsOpened.increment();
+        if (tls) {
+            tlsHandshakes.increment();
+        }
+    }
+    
+    void connectionsEvicted(long count) {
+        connectionsEvicted.add(count);
+    }
+    
+    void responseVersion(String version) {
+        protocolVersions.computeIfAbsent(version, v -> new LongAdder()).increment();
+    }
+    
+    void responseBody(long wire, long decoded, long nanos, boolean compressed) {
+        wireBytes.add(wire);
+        decodedBytes.add(decoded);
+        decodeNanos.add(nanos);
+        if (compressed) {
+            compressedResponses.increment();
+        }
+    }
+    
+    public boolean isConnectionsObservable() {
+        return connectionsObservable;
+    }
+    
+    public long getRequests() {
+        return requests.sum();
+    }
+    
+    /**
+     * Conexiones TCP abiertas (cada una implica un handshake TCP)
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+    
+    /**
+     * Handshakes TLS realizados (conexiones nuevas a hosts https)
+     */
+    public long getTlsHandshakes() {
+        return tlsHandshakes.sum();
+    }
+    
+    /**
+     * Conexiones ociosas o expiradas cerradas por el desalojo del pool
+     */
+    public long getConnectionsEvicted() {
+        return connectionsEvicted.sum();
+    }
+    
+    /**
+     * Fracción de peticiones que reutilizaron una conexión existente
+     * @return Valor entre 0 y 1 (0 si no hubo peticiones, NaN si las conexiones no son observables)
+     */
+    public double getReuseRatio() {
+        if (!connectionsObservable) {
+            return Double.NaN;
+        }
+        long total = getRequests();
+        if (total == 0) {
+            return 0;
+        }
+        return Math.max(0, total - getConnectionsOpened()) / (double) total;
+    }
+    
+    /**
+     * Peticiones por versión de protocolo de la respuesta (HTTP/1.1, HTTP/2)
+     */
+    public Map<String, Long> getProtocolVersions() {
+        Map<String, Long> versions = new TreeMap<>();
+        protocolVersions.forEach((version, count) -> versions.put(version, count.sum()));
+        return versions;
+    }
+    
+    /**
+     * Respuestas que llegaron comprimidas (Content-Encoding gzip o deflate)
+     */
+    public long getCompressedResponses() {
+        return compressedResponses.sum();
+    }
+    
+    /**
+     * Bytes de cuerpos recibidos por la red; 0 si el transporte no los mide
+     */
+    public long getWireBytes() {
+        return wireBytes.sum();
+    }
+    
+    /**
+     * Bytes de cuerpos ya descomprimidos
+     */
+    public long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+    
+    /**
+     * Tiempo total de CPU gastado en descomprimir cuerpos, en nanosegundos
+     */
+    public long getDecodeNanos() {
+        return decodeNanos.sum();
+    }
+    
+    /**
+     * Resumen de una línea para los logs de la suite
+     */
+    public String summary() {
+        String base = connectionsObservable
+                ? String.format(Locale.ROOT,
+                        "Peticiones: %d | Conexiones abiertas: %d | Handshakes TLS: %d | Desalojadas: %d | Reutilización: %.1f%%",
+                        getRequests(), getConnectionsOpened(), getTlsHandshakes(), getConnectionsEvicted(),
+                        getReuseRatio() * 100)
+                : "Peticiones: " + getRequests() + " | Conexiones: no disponibles con este cliente"
+                        + " (no informa conexiones abiertas, handshakes TLS ni reutilización)";
+        Map<String, Long> versions = getProtocolVersions();
+        if (!versions.isEmpty()) {
+            base += " | Versiones: " + versions;
+        }
+        if (getDecodedBytes() > 0) {
+            base += String.format(Locale.ROOT, " | Cuerpos: %.1f KB en la red / %.1f KB decodificados (%d comprimidos, "
+                    + "descompresión %.1f ms)", getWireBytes() / 1024.0, getDecodedBytes() / 1024.0,
+                    getCompressedResponses(), getDecodeNanos() / 1e6);
+        }
+        return base;
+    }
+}
@@ -0,0 +1,63 @@
+package com.greenmarket.tests.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodifica los cuerpos comprimidos (Content-Encoding) que reciben los transportes propios
+ *
+ * El cuerpo ya está completo en memoria, así que el tiempo de decodificación es CPU pura; se mide con
+ * System.nanoTime porque los hilos virtuales no informan tiempo de CPU por hilo. Cada respuesta se anota
+ * en ConnectionMetrics y en los CallTimings de la llamada en curso (bytes en la red vs decodificados)
+ */
+final class ContentDecoder {
+    
+    private ContentDecoder() {
+    }
+    
+    /**
+     * @param encoding Valor de Content-Encoding (null o identity si no vino comprimido)
+     * @param wire Cuerpo tal como llegó por la red
+     * @param metrics Métricas del transporte
+     * @return Cuerpo decodificado; el mismo arreglo si no venía comprimido
+     * @throws IOException Si la codificación no se soporta o el cuerpo está corrupto
+     */
+    static byte[] decode(String encoding, byte[] wire, ConnectionMetrics metrics) throws IOException {
+        String normalized = encoding == null ? "identity" : encoding.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty() || "identity".equals(normalized)) {
+            metrics.responseBody(wire.length, wire.length, 0, false);
+            CallTimings.bodyReceived(wire.length, wire.length, 0);
+            return wire;
+        }
+        long start = System.nanoTime();
+        byte[] decoded;
+        try (InputStream in = open(normalized, wire)) {
+            decoded = in.readAllBytes();
+        }
+        long nanos = System.nanoTime() - start;
+        metrics.responseBody(wire.length, decoded.length, nanos, true);
+        CallTimings.bodyReceived(wire.length, decoded.length, nanos);
+        return decoded;
+    }
+    
+    private static InputStream open(String encoding, byte[] wire) throws IOException {
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(new ByteArrayInputStream(wire));
+            // Algunos servidores mandan deflate crudo en lugar de zlib; el primer byte de zlib indica el método 8
+            case "deflate" -> new InflaterInputStream(new ByteArrayInputStream(wire),
+                    new Inflater(wire.length > 0 && (wire[0] & 0x0F) != 8)) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    inf.end();
+                }
+            };
+            default -> throw new IOException("Content-Encoding no soportado: " + encoding);
+        };
+    }
+}
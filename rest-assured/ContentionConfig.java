@@ -0,0 +1,55 @@
+package com.greenmarket.tests.load;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parámetros del escenario de contención de órdenes sobre el stock de un producto
+ *
+ * @param productId Producto que reciben todas las órdenes
+ * @param stock Stock con el que arranca el escenario (se fija con PATCH), o -1 para usar el actual
+ * @param orders Órdenes que se envían a la vez
+ * @param quantity Unidades por orden
+ * @param maxInFlight Peticiones abiertas como máximo (las demás esperan su turno detrás de la barrera)
+ * @param baseUrl URL de la API, o null para usar el mock server embebido
+ * @param csvFile Archivo CSV con el resumen por endpoint
+ */
+public record ContentionConfig(String productId,
+                               long stock,
+                               int orders,
+                               int quantity,
+                               int maxInFlight,
+                               String baseUrl,
+                               Path csvFile) {
+    
+    /**
+     * Interpreta argumentos con formato --clave=valor
+     * Claves: product, stock, orders, quantity, max-in-flight, base-url, csv
+     * @param args Argumentos de línea de comandos
+     * @return Configuración con valores por defecto para lo que no se indique
+     */
+    public static ContentionConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        ContentionConfig config = new ContentionConfig(
+                options.getOrDefault("product", "1"),
+                Long.parseLong(options.getOrDefault("stock", "50")),
+                Integer.parseInt(options.getOrDefault("orders", "2000")),
+                Integer.parseInt(options.getOrDefault("quantity", "1")),
+                Integer.parseInt(options.getOrDefault("max-in-flight", "512")),
+                options.get("base-url"),
+                Paths.get(options.getOrDefault("csv", "target/contention-report.csv")));
+        if (config.orders() <= 0 || config.quantity() <= 0 || config.maxInFlight() <= 0 || config.stock() < -1) {
+            throw new IllegalArgumentException("orders, quantity y max-in-flight deben ser positivos; stock >= 0 o -1");
+        }
+        return config;
+    }
+}
@@ -0,0 +1,221 @@
+package com.greenmarket.tests.data;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Filas de datos de prueba como Streams perezosos de ObjectNode
+ * Los de archivo mantienen abierto sólo un reader con buffer y se cierran con el Stream
+ */
+public final class DataRows {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    /** Datasets sintéticos disponibles */
+    public static final List<String> DATASETS = List.of("users", "products");
+    
+    private DataRows() {
+    }
+    
+    /**
+     * Filas de un archivo según su extensión: .jsonl/.ndjson o .csv, con o sin .gz
+     * @param file Archivo de datos
+     * @param delimiter Separador de columnas si es CSV
+     * @return Stream que hay que cerrar (JUnit lo cierra al terminar el método parametrizado)
+     * @throws IOException Si no se puede abrir
+     */
+    public static Stream<ObjectNode> file(Path file, char delimiter) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean gzip = name.endsWith(".gz");
+        String base = gzip ? name.substring(0, name.length() - 3) : name;
+        if (!base.endsWith(".jsonl") && !base.endsWith(".ndjson") && !base.endsWith(".csv")) {
+            throw new IllegalArgumentException("Formato no soportado: " + file + " (se espera .jsonl, .ndjson o .csv)");
+        }
+        InputStream in = Files.newInputStream(file);
+        BufferedReader reader;
+        try {
+            reader = new BufferedReader(new InputStreamReader(gzip ? new GZIPInputStream(in, 64 * 1024) : in,
+                    StandardCharsets.UTF_8), 64 * 1024);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        Stream<ObjectNode> rows = base.endsWith(".csv") ? csv(reader, delimiter, file) : jsonl(reader, file);
+        return rows.onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    /**
+     * Filas generadas al vuelo, deterministas para la misma semilla (ver DatasetGenerator)
+     * users: registros nuevos (name, email, password, phone) con emails únicos por corrida
+     * (-Dgreenmarket.data.runTag fija el sufijo; por defecto se deriva de la hora de inicio)
+     * products: id, name y price de los productos de un db.json generado con la misma semilla y tamaño
+     * @param dataset users o products
+     * @param records Cantidad de filas
+     * @param seed Semilla
+     */
+    public static Stream<ObjectNode> synthetic(String dataset, long records, long seed) {
+        DatasetGenerator generator = new DatasetGenerator(
+                new DatasetConfig(records, records, 0, 0, seed, null, null, false), List.of());
+        return switch (dataset) {
+            case "users" -> {
+                String tag = System.getProperty("greenmarket.data.runTag",
+                        Long.toString(System.currentTimeMillis(), 36));
+                yield LongStream.rangeClosed(1, records).mapToObj(u -> {
+                    ObjectNode row = MAPPER.createObjectNode();
+                    row.put("name", generator.userName(u));
+                    row.put("email", "user" + u + "." + tag + "@greenmarket.test");
+                    row.put("password", DatasetGenerator.PASSWORD);
+                    row.put("phone", String.format(Locale.ROOT, "+569%08d", u % 100_000_000));
+                    return row;
+                });
+            }
+            case "products" -> LongStream.rangeClosed(1, records).mapToObj(p -> {
+                ObjectNode row = MAPPER.createObjectNode();
+                row.put("id", Long.toString(p));
+                row.put("name", generator.productName(p));
+                row.put("price", generator.price(p));
+                return row;
+            });
+            default -> throw new IllegalArgumentException("Dataset desconocido: " + dataset + " (opciones: " + DATASETS + ")");
+        };
+    }
+    
+    private static Stream<ObjectNode> jsonl(BufferedReader reader, Path file) {
+        return reader.lines()
+                .filter(line -> !line.isBlank())
+                .map(line -> {
+                    try {
+                        JsonNode node = MAPPER.readTree(line);
+                        if (!node.isObject()) {
+                            throw new IllegalArgumentException(file + ": cada línea debe ser un objeto JSON");
+                        }
+                        return (ObjectNode) node;
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalArgumentException(file + ": línea JSON inválida: " + e.getOriginalMessage(), e);
+                    }
+                });
+    }
+    
+    private static Stream<ObjectNode> csv(BufferedReader reader, char delimiter, Path file) {
+        return StreamSupport.stream(new CsvSpliterator(reader, delimiter, file), false);
+    }
+    
+    /**
+     * Registros CSV (RFC 4180: campos entre comillas con separadores, saltos de línea y "" escapadas)
+     * La primera fila es el encabezado y da los nombres de los campos
+     */
+    private static class CsvSpliterator extends Spliterators.AbstractSpliterator<ObjectNode> {
+        
+        private final BufferedReader reader;
+        private final char delimiter;
+        private final Path file;
+        private List<String> header;
+        private long record;
+        
+        CsvSpliterator(BufferedReader reader, char delimiter, Path file) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.reader = reader;
+            this.delimiter = delimiter;
+            this.file = file;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super ObjectNode> action) {
+            try {
+                if (header == null) {
+                    header = next();
+                    if (header == null) {
+                        return false;
+                    }
+                }
+                List<String> values;
+                do {
+                    values = next();
+                    if (values == null) {
+                        return false;
+                    }
+                } while (values.size() == 1 && values.get(0).isEmpty());
+                record++;
+                if (values.size() > header.size()) {
+                    throw new IllegalArgumentException(file + ": el registro " + record + " tiene " + values.size()
+                            + " columnas y el encabezado " + header.size());
+                }
+                ObjectNode row = MAPPER.createObjectNode();
+                for (int i = 0; i < values.size(); i++) {
+                    row.put(header.get(i), values.get(i));
+                }
+                action.accept(row);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        /**
+         * Siguiente registro, que puede ocupar varias líneas, o null al final del archivo
+         */
+        private List<String> next() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> values = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            values.add(field.toString());
+            return values;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.greenmarket.tests.data;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parámetros del generador de datasets sintéticos
+ *
+ * @param users Cantidad de usuarios
+ * @param products Cantidad de productos
+ * @param orders Cantidad de órdenes
+ * @param reviews Cantidad de reseñas
+ * @param seed Semilla: la misma semilla y tamaños producen el mismo archivo byte a byte
+ * @param categoriesFrom db.json del que se toman las categorías
+ * @param output Archivo de salida en formato json-server
+ * @param pretty Si se indenta la salida
+ */
+public record DatasetConfig(long users,
+                            long products,
+                            long orders,
+                            long reviews,
+                            long seed,
+                            Path categoriesFrom,
+                            Path output,
+                            boolean pretty) {
+    
+    /**
+     * Reparto de --records entre colecciones: 10% usuarios, 20% productos, 30% órdenes, 40% reseñas
+     */
+    private static final double[] SPLIT = {0.10, 0.20, 0.30, 0.40};
+    
+    public long totalRecords() {
+        return users + products + orders + reviews;
+    }
+    
+    /**
+     * Lee argumentos --clave=valor: --records (total repartido entre colecciones) o --users, --products,
+     * --orders y --reviews por separado, --seed, --categories, --out y --pretty
+     * @param args Argumentos de línea de comandos
+     * @return Configuración validada
+     */
+    public static DatasetConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        long records = Long.parseLong(options.getOrDefault("records", "1000"));
+        DatasetConfig config = new DatasetConfig(
+                size(options, "users", records, SPLIT[0]),
+                size(options, "products", records, SPLIT[1]),
+                size(options, "orders", records, SPLIT[2]),
+                size(options, "reviews", records, SPLIT[3]),
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                Paths.get(options.getOrDefault("categories", "../mock-server/db.json")),
+                Paths.get(options.getOrDefault("out", "target/db-" + records + ".json")),
+                Boolean.parseBoolean(options.getOrDefault("pretty", "false")));
+        if (config.users() <= 0 || config.products() <= 0 || config.orders() < 0 || config.reviews() < 0) {
+            throw new IllegalArgumentException("users y products deben ser positivos; orders y reviews no negativos");
+        }
+        return config;
+    }
+    
+    private static long size(Map<String, String> options, String name, long records, double share) {
+        String explicit = options.get(name);
+        return explicit != null ? Long.parseLong(explicit) : Math.max(1, Math.round(records * share));
+    }
+}
@@ -0,0 +1,334 @@
+package com.greenmarket.tests.data;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Genera un db.json sintético con el formato de mock-server/db.json escribiendo en streaming
+ *
+ * Ningún registro se guarda en memoria: cada atributo es una función determinista de (semilla, colección, índice),
+ * así las órdenes pueden leer el precio y nombre de un producto, y los productos conocer el rating y la cantidad
+ * de sus reseñas, sin volver a leer lo ya escrito. Con esto el archivo es referencialmente consistente:
+ * - orders.items apunta a productos existentes con su precio; subtotal = Σ precio × cantidad y total = subtotal + shipping
+ * - reviews.productId/userId/userName apuntan a productos y usuarios existentes
+ * - products.reviewsCount es la cantidad de reseñas del producto y products.rating su promedio
+ * Todos los usuarios comparten la contraseña Password123! (hash en el formato del mock server)
+ *
+ * Uso: java com.greenmarket.tests.data.DatasetGenerator --records=1000000 --seed=42 --out=target/db-1m.json
+ */
+public class DatasetGenerator {
+    
+    public static final String PASSWORD = "Password123!";
+    
+    private static final String[] FIRST_NAMES = {"Juan", "María", "Pedro", "Camila", "Diego", "Valentina",
+            "Matías", "Fernanda", "Tomás", "Javiera", "Benjamín", "Catalina", "Vicente", "Isidora", "Joaquín", "Antonia"};
+    private static final String[] LAST_NAMES = {"Pérez", "González", "Muñoz", "Rojas", "Díaz", "Soto", "Contreras",
+            "Silva", "Martínez", "Sepúlveda", "Morales", "Rodríguez", "López", "Fuentes", "Hernández", "Torres"};
+    private static final String[] CITIES = {"Santiago", "Valparaíso", "Concepción", "La Serena", "Temuco",
+            "Antofagasta", "Puerto Montt", "Rancagua"};
+    private static final String[] STREETS = {"Av. Providencia", "Calle San Antonio", "Av. Principal", "Los Aromos",
+            "Av. Libertad", "Pasaje Las Rosas", "Av. Alemania", "Calle O'Higgins"};
+    private static final String[] PRODUCT_KINDS = {"Bolsa Reutilizable", "Botella Térmica", "Kit de Cubiertos",
+            "Jabón Natural", "Cepillo de Dientes", "Pajitas", "Envoltorio de Cera", "Mochila", "Taza", "Esponja Vegetal"};
+    private static final String[] MATERIALS = {"Bambú", "Algodón Orgánico", "Acero Inoxidable", "Vidrio",
+            "Corcho", "Yute", "Plástico Reciclado", "Cera de Abeja"};
+    private static final String[] COMMENTS = {"Excelente calidad, lo recomiendo", "Cumple lo prometido",
+            "Buen producto pero el envío tardó", "Muy útil en el día a día", "Podría ser más resistente",
+            "Me encantó, volveré a comprar", "Relación precio-calidad correcta", "Llegó en perfecto estado"};
+    private static final String[] STATUSES = {"pending", "processing", "shipped", "delivered", "cancelled"};
+    private static final String[] PAYMENT_METHODS = {"credit_card", "debit_card", "transfer"};
+    
+    /** Envío gratis desde este subtotal, si no se cobra SHIPPING_FEE */
+    private static final long FREE_SHIPPING_FROM = 50_000;
+    private static final long SHIPPING_FEE = 3_000;
+    
+    /** 2025-01-01T00:00:00Z, inicio del rango de fechas generadas */
+    private static final long EPOCH_START = 1_735_689_600L;
+    private static final long DATE_RANGE_SECONDS = 300L * 24 * 3600;
+    
+    /** Flujos independientes de números aleatorios por atributo */
+    private static final long USERS = 1;
+    private static final long PRODUCTS = 2;
+    private static final long ORDERS = 3;
+    private static final long REVIEWS = 4;
+    private static final long RATINGS = 5;
+    private static final long PRICES = 6;
+    private static final long NAMES = 7;
+    private static final long ADDRESSES = 8;
+    
+    private final DatasetConfig config;
+    private final List<JsonNode> categories;
+    private final String passwordHash;
+    
+    /**
+     * @param config Tamaños, semilla y salida
+     * @param categories Categorías de referencia, se copian tal cual y los productos se reparten entre ellas
+     */
+    public DatasetGenerator(DatasetConfig config, List<JsonNode> categories) {
+        this.config = config;
+        this.categories = categories;
+        this.passwordHash = sha256(PASSWORD);
+    }
+    
+    /**
+     * Escribe el dataset completo
+     * @param out Destino; se envuelve en un buffer y no se cierra
+     * @throws IOException Si falla la escritura
+     */
+    public void write(OutputStream out) throws IOException {
+        // writeTree de las categorías necesita un codec
+        JsonGenerator json = new ObjectMapper().getFactory().createGenerator(out, JsonEncoding.UTF8);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (config.pretty()) {
+            json.useDefaultPrettyPrinter();
+        }
+        json.writeStartObject();
+        writeUsers(json);
+        writeProducts(json);
+        writeOrders(json);
+        writeReviews(json);
+        writeCategories(json);
+        json.writeObjectFieldStart("auth");
+        json.writeArrayFieldStart("tokens");
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeEndObject();
+        json.flush();
+    }
+    
+    private void writeUsers(JsonGenerator json) throws IOException {
+        json.writeArrayFieldStart("users");
+        for (long u = 1; u <= config.users(); u++) {
+            SplittableRandom random = random(USERS, u);
+            json.writeStartObject();
+            json.writeStringField("id", Long.toString(u));
+            json.writeStringField("name", userName(u));
+            json.writeStringField("email", "user" + u + "@greenmarket.test");
+            json.writeStringField("password", passwordHash);
+            json.writeStringField("phone", String.format(Locale.ROOT, "+569%08d", random.nextInt(100_000_000)));
+            json.writeStringField("address", address(u));
+            json.writeStringField("createdAt", date(random));
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+    
+    private void writeProducts(JsonGenerator json) throws IOException {
+        json.writeArrayFieldStart("products");
+        for (long p = 1; p <= config.products(); p++) {
+            SplittableRandom random = random(PRODUCTS, p);
+            long reviews = reviewsOf(p);
+            long ratingSum = 0;
+            for (long r = 0; r < reviews; r++) {
+                ratingSum += rating(p, r);
+            }
+            json.writeStartObject();
+            json.writeStringField("id", Long.toString(p));
+            json.writeStringField("name", productName(p));
+            json.writeStringField("description", "Producto sustentable de " + material(p).toLowerCase(Locale.ROOT)
+                    + ", referencia " + p);
+            json.writeNumberField("price", price(p));
+            json.writeStringField("category", categories.get(random.nextInt(categories.size())).path("id").asText());
+            json.writeNumberField("stock", random.nextInt(500));
+            json.writeArrayFieldStart("images");
+            json.writeString("https://picsum.photos/400/400?random=" + p);
+            json.writeEndArray();
+            json.writeNumberField("rating", reviews == 0 ? 0.0 : Math.round(ratingSum * 10.0 / reviews) / 10.0);
+            json.writeNumberField("reviewsCount", reviews);
+            json.writeStringField("createdAt", date(random));
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+    
+    private void writeOrders(JsonGenerator json) throws IOException {
+        json.writeArrayFieldStart("orders");
+        for (long o = 1; o <= config.orders(); o++) {
+            SplittableRandom random = random(ORDERS, o);
+            long userId = 1 + random.nextLong(config.users());
+            int items = 1 + random.nextInt(4);
+            long subtotal = 0;
+            json.writeStartObject();
+            json.writeStringField("id", Long.toString(o));
+            json.writeStringField("userId", Long.toString(userId));
+            json.writeArrayFieldStart("items");
+            for (int i = 0; i < items; i++) {
+                long productId = 1 + random.nextLong(config.products());
+                int quantity = 1 + random.nextInt(5);
+                long price = price(productId);
+                subtotal += price * quantity;
+                json.writeStartObject();
+                json.writeStringField("productId", Long.toString(productId));
+                json.writeStringField("productName", productName(productId));
+                json.writeNumberField("quantity", quantity);
+                json.writeNumberField("price", price);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            long shipping = subtotal >= FREE_SHIPPING_FROM ? 0 : SHIPPING_FEE;
+            String createdAt = date(random);
+            json.writeNumberField("subtotal", subtotal);
+            json.writeNumberField("shipping", shipping);
+            json.writeNumberField("total", subtotal + shipping);
+            json.writeStringField("status", STATUSES[random.nextInt(STATUSES.length)]);
+            json.writeStringField("shippingAddress", address(userId));
+            json.writeStringField("paymentMethod", PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+            json.writeStringField("createdAt", createdAt);
+            json.writeStringField("updatedAt", createdAt);
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+    
+    private void writeReviews(JsonGenerator json) throws IOException {
+        json.writeArrayFieldStart("reviews");
+        long id = 1;
+        // Se recorren en el mismo orden que se usó para calcular rating y reviewsCount de cada producto
+        for (long p = 1; p <= config.products(); p++) {
+            long reviews = reviewsOf(p);
+            for (long r = 0; r < reviews; r++, id++) {
+                SplittableRandom random = random(REVIEWS, id);
+                long userId = 1 + random.nextLong(config.users());
+                json.writeStartObject();
+                json.writeStringField("id", Long.toString(id));
+                json.writeStringField("productId", Long.toString(p));
+                json.writeStringField("userId", Long.toString(userId));
+                json.writeStringField("userName", userName(userId));
+                json.writeNumberField("rating", rating(p, r));
+                json.writeStringField("comment", COMMENTS[random.nextInt(COMMENTS.length)]);
+                json.writeNumberField("helpful", random.nextInt(50));
+                json.writeStringField("createdAt", date(random));
+                json.writeEndObject();
+            }
+        }
+        json.writeEndArray();
+    }
+    
+    private void writeCategories(JsonGenerator json) throws IOException {
+        json.writeArrayFieldStart("categories");
+        for (JsonNode category : categories) {
+            json.writeTree(category);
+        }
+        json.writeEndArray();
+    }
+    
+    /**
+     * Reseñas del producto p: el total se reparte en forma exacta entre los productos
+     */
+    long reviewsOf(long p) {
+        long base = config.reviews() / config.products();
+        return base + (p <= config.reviews() % config.products() ? 1 : 0);
+    }
+    
+    /**
+     * Rating de la reseña r del producto p, sesgado hacia 4 y 5 como en db.json
+     */
+    int rating(long p, long r) {
+        int roll = random(RATINGS, mix(p) + r).nextInt(100);
+        return roll < 50 ? 5 : roll < 80 ? 4 : roll < 92 ? 3 : roll < 97 ? 2 : 1;
+    }
+    
+    /**
+     * Precio en pesos del producto p, entre 990 y 49.990 terminado en 990
+     */
+    long price(long p) {
+        return 990 + 1000L * random(PRICES, p).nextInt(49);
+    }
+    
+    String productName(long p) {
+        return PRODUCT_KINDS[(int) (p % PRODUCT_KINDS.length)] + " de " + material(p) + " " + p;
+    }
+    
+    private static String material(long p) {
+        return MATERIALS[(int) ((p / PRODUCT_KINDS.length) % MATERIALS.length)];
+    }
+    
+    String userName(long u) {
+        SplittableRandom random = random(NAMES, u);
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+    
+    private String address(long u) {
+        SplittableRandom random = random(ADDRESSES, u);
+        return STREETS[random.nextInt(STREETS.length)] + " " + (1 + random.nextInt(9999)) + ", "
+                + CITIES[random.nextInt(CITIES.length)];
+    }
+    
+    private static String date(SplittableRandom random) {
+        return Instant.ofEpochSecond(EPOCH_START + random.nextLong(DATE_RANGE_SECONDS)).toString();
+    }
+    
+    /**
+     * Generador determinista para un registro; no depende del orden en que se pida
+     */
+    private SplittableRandom random(long stream, long index) {
+        return new SplittableRandom(mix(config.seed() ^ mix(stream * 0x9E3779B97F4A7C15L + index)));
+    }
+    
+    /** Función de mezcla de SplitMix64 */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    private static String sha256(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return "sha256:" + HexFormat.of().formatHex(digest.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+    
+    /**
+     * Categorías del db.json de referencia
+     */
+    static List<JsonNode> readCategories(Path dbFile) throws IOException {
+        List<JsonNode> categories = new ArrayList<>();
+        JsonNode root = new ObjectMapper().readTree(dbFile.toFile());
+        for (JsonNode category : root.path("categories")) {
+            if (category.hasNonNull("id")) {
+                categories.add(category);
+            }
+        }
+        if (categories.isEmpty()) {
+            throw new IOException("No hay categorías en " + dbFile);
+        }
+        return categories;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        DatasetConfig config = DatasetConfig.parse(args);
+        List<JsonNode> categories = readCategories(config.categoriesFrom());
+        if (config.output().getParent() != null) {
+            Files.createDirectories(config.output().getParent());
+        }
+        long start = System.nanoTime();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(config.output()), 1 << 16)) {
+            new DatasetGenerator(config, categories).write(out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "Dataset %s: %d usuarios, %d productos, %d órdenes, %d reseñas (semilla %d)%n",
+                config.output(), config.users(), config.products(), config.orders(), config.reviews(), config.seed());
+        System.out.printf(Locale.ROOT, "%d registros, %.1f MB en %.1f s (%.0f registros/s)%n",
+                config.totalRecords(), Files.size(config.output()) / 1e6, seconds, config.totalRecords() / seconds);
+    }
+}
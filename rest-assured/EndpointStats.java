@@ -0,0 +1,70 @@
+package com.greenmarket.tests.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estadísticas de un endpoint durante una corrida de carga
+ * Registra latencias en microsegundos en un histograma concurrente (sin locks al grabar)
+ */
+public class EndpointStats {
+    
+    /** Latencia máxima registrable: 60 s expresados en microsegundos */
+    static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+    
+    private final String endpoint;
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+    
+    public EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+    
+    /**
+     * Registra una petición completada
+     * @param latencyNanos Duración de la petición en nanosegundos
+     * @param success true si el código de estado fue el esperado
+     */
+    public void record(long latencyNanos, boolean success) {
+        long micros = Math.min(MAX_LATENCY_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        latencies.recordValue(micros);
+        if (!success) {
+            errors.increment();
+        }
+    }
+    
+    /**
+     * Suma latencias y errores registrados en otro proceso (ver LoadCoordinator); la suma de histogramas
+     * con la misma precisión no pierde información
+     * No es seguro frente a otras escrituras concurrentes (add relee y reescribe totalCount): quien llama las
+     * serializa
+     * @param interval Latencias en microsegundos
+     * @param errors Errores del mismo intervalo
+     */
+    void add(Histogram interval, long errors) {
+        latencies.add(interval);
+        this.errors.add(errors);
+    }
+    
+    public String getEndpoint() {
+        return endpoint;
+    }
+    
+    public long getCount() {
+        return latencies.getTotalCount();
+    }
+    
+    public long getErrors() {
+        return errors.sum();
+    }
+    
+    /**
+     * Copia del histograma acumulado hasta el momento
+     */
+    public Histogram snapshot() {
+        return latencies.copy();
+    }
+}
@@ -0,0 +1,32 @@
+package com.greenmarket.tests.metrics;
+
+import java.util.Set;
+
+/**
+ * Plantilla de endpoint para agrupar peticiones: los IDs de la ruta se reemplazan por {id}
+ * ("GET /orders/42?expand=items" -> "GET /orders/{id}")
+ */
+public final class EndpointTemplate {
+    
+    /** Rutas fijas bajo un recurso que no son IDs (ver MockRouter) */
+    private static final Set<String> FIXED_ROUTES = Set.of("login", "register", "profile");
+    
+    private EndpointTemplate() {
+    }
+    
+    /**
+     * Plantilla del endpoint, p. ej. "GET /orders/{id}"
+     * @param method Método HTTP
+     * @param rawPath Ruta con query opcional (absoluta o relativa a la URL base)
+     * @return Método y ruta con los IDs reemplazados
+     */
+    public static String of(String method, String rawPath) {
+        int query = rawPath.indexOf('?');
+        String[] segments = (query < 0 ? rawPath : rawPath.substring(0, query)).replaceAll("^/+|/+$", "").split("/");
+        StringBuilder endpoint = new StringBuilder(method).append(' ');
+        for (int i = 0; i < segments.length; i++) {
+            endpoint.append('/').append(i == 0 || FIXED_ROUTES.contains(segments[i]) ? segments[i] : "{id}");
+        }
+        return endpoint.toString();
+    }
+}
@@ -0,0 +1,244 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Inyección de latencia y fallas del mock server según el perfil activo
+ *
+ * Las decisiones son reproducibles: la n-ésima petición que cae en una regla usa un generador
+ * derivado de (semilla, regla, n), así una corrida serial con la misma semilla y el mismo perfil
+ * obtiene exactamente las mismas demoras y fallas. Cambiar de perfil reinicia los contadores
+ *
+ * Archivo de perfiles (-Dgreenmarket.mock.faults):
+ * {"seed": 42, "active": "none", "profiles": {"none": [], "orders-tail": [{"path": "/orders", ...}]}}
+ *
+ * En tiempo de ejecución: GET /__faults (perfil activo y contadores), PUT /__faults/{nombre} (activa un perfil
+ * del archivo), PUT /__faults con un arreglo de reglas (perfil ad hoc) y DELETE /__faults (sin fallas)
+ */
+public class FaultInjector {
+    
+    /** Prefijo de la ruta de administración */
+    public static final String ADMIN_PATH = "__faults";
+    
+    /**
+     * Qué hacer con una petición
+     * @param delayMillis Demora antes de responder
+     * @param errorStatus Código de error a devolver sin procesar la petición, o 0
+     * @param errorMessage Mensaje del error
+     * @param reset Si se cierra la conexión sin responder
+     * @param dripBytesPerSecond Velocidad de envío del cuerpo, o 0
+     */
+    public record Fault(long delayMillis, int errorStatus, String errorMessage, boolean reset, long dripBytesPerSecond) {
+        
+        public static final Fault NONE = new Fault(0, 0, null, false, 0);
+    }
+    
+    /**
+     * Perfil activo con sus contadores por regla
+     */
+    private record Active(FaultProfile profile, AtomicLongArray requests, AtomicLongArray errors,
+                          AtomicLongArray resets) {
+        
+        Active(FaultProfile profile) {
+            this(profile, new AtomicLongArray(profile.rules().size()), new AtomicLongArray(profile.rules().size()),
+                    new AtomicLongArray(profile.rules().size()));
+        }
+    }
+    
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final long seed;
+    private final Map<String, FaultProfile> profiles;
+    private volatile Active active;
+    
+    /**
+     * @param seed Semilla de las decisiones
+     * @param profiles Perfiles disponibles por nombre
+     * @param initial Perfil activo al iniciar
+     */
+    public FaultInjector(long seed, Map<String, FaultProfile> profiles, FaultProfile initial) {
+        this.seed = seed;
+        this.profiles = Map.copyOf(profiles);
+        this.active = new Active(initial);
+    }
+    
+    /**
+     * Inyector sin perfiles: el comportamiento original del mock server
+     */
+    public static FaultInjector disabled() {
+        return new FaultInjector(0, Map.of(FaultProfile.NONE.name(), FaultProfile.NONE), FaultProfile.NONE);
+    }
+    
+    /**
+     * Lee los perfiles desde -Dgreenmarket.mock.faults; -Dgreenmarket.mock.faultProfile elige el perfil inicial
+     * y -Dgreenmarket.mock.faultSeed reemplaza la semilla del archivo
+     * @return Inyector configurado, o deshabilitado si no se indica archivo
+     * @throws IOException Si el archivo no se puede leer
+     */
+    public static FaultInjector fromSystemProperties() throws IOException {
+        String file = System.getProperty("greenmarket.mock.faults");
+        if (file == null || file.isBlank()) {
+            return disabled();
+        }
+        return load(Paths.get(file), System.getProperty("greenmarket.mock.faultProfile"),
+                Long.getLong("greenmarket.mock.faultSeed"));
+    }
+    
+    /**
+     * Carga un archivo de perfiles
+     * @param file Archivo JSON con seed, active y profiles
+     * @param activeOverride Perfil inicial (null para el indicado en el archivo)
+     * @param seedOverride Semilla (null para la del archivo)
+     * @return Inyector con el perfil inicial activo
+     * @throws IOException Si el archivo no se puede leer o un perfil es inválido
+     */
+    public static FaultInjector load(Path file, String activeOverride, Long seedOverride) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(file.toFile());
+        Map<String, FaultProfile> profiles = new LinkedHashMap<>();
+        profiles.put(FaultProfile.NONE.name(), FaultProfile.NONE);
+        Iterator<Map.Entry<String, JsonNode>> fields = root.path("profiles").fields();
+        try {
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                profiles.put(field.getKey(), FaultProfile.parse(field.getKey(), field.getValue()));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Perfil de fallas inválido en " + file + ": " + e.getMessage(), e);
+        }
+        String initial = activeOverride != null ? activeOverride : root.path("active").asText(FaultProfile.NONE.name());
+        if (!profiles.containsKey(initial)) {
+            throw new IOException("El perfil " + initial + " no existe en " + file + " " + profiles.keySet());
+        }
+        long seed = seedOverride != null ? seedOverride : root.path("seed").asLong(42);
+        return new FaultInjector(seed, profiles, profiles.get(initial));
+    }
+    
+    public FaultProfile getActive() {
+        return active.profile();
+    }
+    
+    /**
+     * Activa un perfil del archivo y reinicia los contadores
+     * @param name Nombre del perfil
+     * @return true si el perfil existe
+     */
+    public boolean activate(String name) {
+        FaultProfile profile = profiles.get(name);
+        if (profile == null) {
+            return false;
+        }
+        activate(profile);
+        return true;
+    }
+    
+    /**
+     * Activa un perfil arbitrario y reinicia los contadores
+     * @param profile Perfil a usar
+     */
+    public void activate(FaultProfile profile) {
+        this.active = new Active(profile);
+    }
+    
+    /**
+     * Decide la falla para una petición
+     * @param method Método HTTP
+     * @param segments Segmentos de la ruta
+     * @return Falla a aplicar (Fault.NONE si ninguna regla aplica)
+     */
+    public Fault decide(String method, List<String> segments) {
+        Active current = active;
+        int index = current.profile().ruleFor(method, segments);
+        if (index < 0) {
+            return Fault.NONE;
+        }
+        FaultProfile.Rule rule = current.profile().rules().get(index);
+        long n = current.requests().getAndIncrement(index);
+        SplittableRandom random = new SplittableRandom(mix(seed ^ mix(index + 1L) ^ mix(n + 0x5DEECE66DL)));
+        long delay = rule.latency() == null ? 0 : rule.latency().sample(random.nextGaussian());
+        double draw = random.nextDouble();
+        boolean reset = draw < rule.resetRate();
+        boolean error = !reset && draw < rule.resetRate() + rule.errorRate();
+        if (reset) {
+            current.resets().incrementAndGet(index);
+        } else if (error) {
+            current.errors().incrementAndGet(index);
+        }
+        return new Fault(delay, error ? rule.errorStatus() : 0, rule.errorMessage(), reset, rule.dripBytesPerSecond());
+    }
+    
+    /**
+     * Atiende la ruta de administración /__faults
+     * @param request Petición cuyo primer segmento es ADMIN_PATH
+     * @return Estado del perfil activo, o error con el formato {"error": ...}
+     */
+    public MockResponse handle(MockRequest request) {
+        List<String> segments = request.segments();
+        switch (request.method()) {
+            case "GET" -> {
+                return MockResponse.ok(describe());
+            }
+            case "DELETE" -> {
+                activate(FaultProfile.NONE);
+                return MockResponse.ok(describe());
+            }
+            case "PUT" -> {
+                if (segments.size() == 2) {
+                    return activate(segments.get(1))
+                            ? MockResponse.ok(describe())
+                            : MockResponse.error(404, "Fault profile not found");
+                }
+                try {
+                    activate(FaultProfile.parse("custom", mapper.readTree(request.body())));
+                } catch (IOException | IllegalArgumentException e) {
+                    return MockResponse.error(400, "Invalid fault profile: " + e.getMessage());
+                }
+                return MockResponse.ok(describe());
+            }
+            default -> {
+                return MockResponse.error(405, "Method not allowed");
+            }
+        }
+    }
+    
+    /**
+     * Perfil activo, perfiles disponibles y contadores por regla
+     */
+    public ObjectNode describe() {
+        Active current = active;
+        ObjectNode json = mapper.createObjectNode();
+        json.put("active", current.profile().name());
+        json.put("seed", seed);
+        ArrayNode available = json.putArray("profiles");
+        profiles.keySet().forEach(available::add);
+        ArrayNode rules = current.profile().toJson();
+        for (int i = 0; i < rules.size(); i++) {
+            ObjectNode stats = ((ObjectNode) rules.get(i)).putObject("stats");
+            stats.put("requests", current.requests().get(i));
+            stats.put("errors", current.errors().get(i));
+            stats.put("resets", current.resets().get(i));
+        }
+        json.set("rules", rules);
+        return json;
+    }
+    
+    /**
+     * Mezclador de SplitMix64
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
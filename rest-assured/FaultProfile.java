@@ -0,0 +1,174 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Perfil de inyección de fallas del mock server: lista ordenada de reglas por ruta
+ * Gana la primera regla cuyo método y patrón coinciden con la petición
+ *
+ * Formato JSON de una regla (todos los campos salvo path son opcionales):
+ * {"method": "POST", "path": "/orders/*", "latency": {"p50": 40, "p99": 800, "max": 5000},
+ *  "errorRate": 0.02, "errorStatus": 503, "errorMessage": "Service unavailable",
+ *  "resetRate": 0.01, "dripBytesPerSecond": 2048}
+ * En path, * coincide con un segmento y ** al final con el resto de la ruta (ver RoutePattern)
+ *
+ * @param name Nombre del perfil
+ * @param rules Reglas en orden de prioridad
+ */
+public record FaultProfile(String name, List<Rule> rules) {
+    
+    /** Perfil vacío: el mock responde sin demoras ni fallas */
+    public static final FaultProfile NONE = new FaultProfile("none", List.of());
+    
+    /**
+     * Latencia lognormal definida por dos percentiles
+     * @param p50Millis Mediana en milisegundos
+     * @param p99Millis Percentil 99 en milisegundos (igual a p50 para una demora fija)
+     * @param maxMillis Tope de la demora
+     */
+    public record Latency(double p50Millis, double p99Millis, double maxMillis) {
+        
+        /** z del percentil 99 de la normal estándar */
+        private static final double Z99 = 2.3263478740408408;
+        
+        /**
+         * Demora para una muestra normal estándar
+         * @param gaussian Muestra N(0, 1)
+         * @return Milisegundos de demora
+         */
+        public long sample(double gaussian) {
+            if (p50Millis <= 0) {
+                return 0;
+            }
+            double sigma = p99Millis > p50Millis ? Math.log(p99Millis / p50Millis) / Z99 : 0;
+            return Math.round(Math.min(maxMillis, p50Millis * Math.exp(sigma * gaussian)));
+        }
+    }
+    
+    /**
+     * Regla de una ruta
+     * @param method Método HTTP, o * para cualquiera
+     * @param path Patrón de ruta (/orders, /orders/*, /users/**)
+     * @param latency Demora antes de responder, o null
+     * @param errorRate Probabilidad de responder errorStatus sin procesar la petición
+     * @param errorStatus Código del error inyectado (503 por defecto)
+     * @param errorMessage Mensaje del cuerpo {"error": ...}
+     * @param resetRate Probabilidad de cerrar la conexión sin responder
+     * @param dripBytesPerSecond Velocidad de envío del cuerpo (0 = sin goteo)
+     */
+    public record Rule(String method,
+                       String path,
+                       Latency latency,
+                       double errorRate,
+                       int errorStatus,
+                       String errorMessage,
+                       double resetRate,
+                       long dripBytesPerSecond) {
+        
+        /**
+         * Indica si la regla aplica a una petición
+         * @param requestMethod Método de la petición
+         * @param segments Segmentos decodificados de la ruta
+         * @return true si coinciden método y patrón
+         */
+        public boolean matches(String requestMethod, List<String> segments) {
+            return RoutePattern.matches(method, path, requestMethod, segments);
+        }
+        
+        ObjectNode toJson() {
+            ObjectNode json = JsonNodeFactory.instance.objectNode();
+            json.put("method", method);
+            json.put("path", path);
+            if (latency != null) {
+                ObjectNode latencyJson = json.putObject("latency");
+                latencyJson.put("p50", latency.p50Millis());
+                latencyJson.put("p99", latency.p99Millis());
+                latencyJson.put("max", latency.maxMillis());
+            }
+            json.put("errorRate", errorRate);
+            json.put("errorStatus", errorStatus);
+            json.put("errorMessage", errorMessage);
+            json.put("resetRate", resetRate);
+            json.put("dripBytesPerSecond", dripBytesPerSecond);
+            return json;
+        }
+    }
+    
+    /**
+     * Lee un perfil desde su arreglo de reglas
+     * @param name Nombre del perfil
+     * @param rules Arreglo JSON de reglas
+     * @return Perfil validado
+     * @throws IllegalArgumentException Si una regla no tiene path o trae probabilidades fuera de [0, 1]
+     */
+    public static FaultProfile parse(String name, JsonNode rules) {
+        if (rules == null || !rules.isArray()) {
+            throw new IllegalArgumentException("El perfil " + name + " debe ser un arreglo de reglas");
+        }
+        List<Rule> parsed = new ArrayList<>();
+        for (JsonNode rule : rules) {
+            String path = rule.path("path").asText(null);
+            if (path == null || !path.startsWith("/")) {
+                throw new IllegalArgumentException("Regla sin path válido en el perfil " + name + ": " + rule);
+            }
+            JsonNode latency = rule.get("latency");
+            double p50 = latency == null ? 0 : latency.path("p50").asDouble(0);
+            int status = rule.path("errorStatus").asInt(503);
+            parsed.add(new Rule(
+                    rule.path("method").asText("*"),
+                    path,
+                    latency == null ? null : new Latency(p50, latency.path("p99").asDouble(p50),
+                            latency.path("max").asDouble(30_000)),
+                    probability(name, rule, "errorRate"),
+                    status,
+                    rule.path("errorMessage").asText(defaultMessage(status)),
+                    probability(name, rule, "resetRate"),
+                    rule.path("dripBytesPerSecond").asLong(0)));
+        }
+        return new FaultProfile(name, List.copyOf(parsed));
+    }
+    
+    /**
+     * Índice de la primera regla que aplica
+     * @return Índice en rules, o -1 si ninguna aplica
+     */
+    public int ruleFor(String method, List<String> segments) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).matches(method, segments)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    ArrayNode toJson() {
+        ArrayNode json = JsonNodeFactory.instance.arrayNode();
+        rules.forEach(rule -> json.add(rule.toJson()));
+        return json;
+    }
+    
+    private static double probability(String name, JsonNode rule, String field) {
+        double value = rule.path(field).asDouble(0);
+        if (value < 0 || value > 1) {
+            throw new IllegalArgumentException(field + " fuera de [0, 1] en el perfil " + name + ": " + value);
+        }
+        return value;
+    }
+    
+    private static String defaultMessage(int status) {
+        return switch (status) {
+            case 500 -> "Internal server error";
+            case 502 -> "Bad gateway";
+            case 503 -> "Service unavailable";
+            case 504 -> "Gateway timeout";
+            case 429 -> "Too many requests";
+            default -> "Injected failure";
+        };
+    }
+}
@@ -0,0 +1,225 @@
+package com.greenmarket.tests.load;
+
+import com.greenmarket.tests.base.TestContext;
+import com.greenmarket.tests.base.TokenCache;
+import com.greenmarket.tests.http.AdaptiveThrottle;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Flujo de compra de las suites UserManagementTest, ProductCatalogTest y OrderManagementTest
+ * (registro → login → catálogo → orden) expresado como una iteración de carga
+ * Cada paso se cronometra y se registra bajo la plantilla de su endpoint
+ * Los tokens salen de una TokenCache, así los logins crecen con los usuarios y no con las iteraciones
+ * Con un AdaptiveThrottle cada paso respeta el límite de concurrencia adaptativo y se reintenta ante 429/503;
+ * la latencia registrada incluye las esperas y los reintentos
+ * En el modelo abierto el primer paso de cada iteración se mide desde la llegada programada y no desde el envío,
+ * así el atraso del generador o la espera por un hilo queda en la latencia (sin omisión coordinada); los pasos
+ * siguientes los envía el mismo usuario al terminar el anterior y se miden desde su envío
+ */
+public class GreenMarketFlow {
+    
+    private final LoadReport report;
+    private final RequestSpecification anonymousSpec;
+    private final TokenCache tokens;
+    private final AdaptiveThrottle throttle;
+    
+    /**
+     * @param report Reporte donde se registra cada paso
+     * @param anonymousSpec Specification sin autenticación usada para el login
+     */
+    public GreenMarketFlow(LoadReport report, RequestSpecification anonymousSpec) {
+        this(report, anonymousSpec, null);
+    }
+    
+    /**
+     * @param report Reporte donde se registra cada paso
+     * @param anonymousSpec Specification sin autenticación usada para el login
+     * @param throttle Control de concurrencia y reintentos ante 429/503, o null para enviar directo
+     */
+    public GreenMarketFlow(LoadReport report, RequestSpecification anonymousSpec, AdaptiveThrottle throttle) {
+        this.report = report;
+        this.anonymousSpec = anonymousSpec;
+        this.tokens = new TokenCache(this::login);
+        this.throttle = throttle;
+        report.setTokenCache(tokens);
+        report.setThrottle(throttle);
+    }
+    
+    /**
+     * Ejecuta una iteración del flujo para un usuario virtual
+     * Si el usuario aún no existe se registra primero (CP-001); el token se pide a la caché,
+     * que inicia sesión (CP-003) solo la primera vez o cuando el token está por expirar
+     * @param user Usuario virtual
+     * @return true si todos los pasos respondieron con el código esperado
+     */
+    public boolean run(VirtualUser user) {
+        return run(user, System.nanoTime());
+    }
+    
+    /**
+     * Ejecuta una iteración programada para un instante del modelo abierto
+     * @param user Usuario virtual
+     * @param arrival Llegada programada (System.nanoTime()); el primer paso se mide desde ahí
+     * @return true si todos los pasos respondieron con el código esperado
+     */
+    public boolean run(VirtualUser user, long arrival) {
+        Iteration iteration = new Iteration(arrival);
+        try {
+            TestContext context = user.getContext();
+            if (context.getUserId() == null) {
+                register(user, iteration);
+            }
+            String token = tokens.get(user.getCredentials());
+            if (!token.equals(context.getAuthToken())) {
+                context.setAuthToken(token);
+            }
+            String productId = browse(context, iteration);
+            String orderId = createOrder(context, productId, iteration);
+            call("GET /orders/{id}", 200, iteration.start(), () -> given()
+                    .spec(context.getSpec())
+                .when()
+                    .get("/orders/" + orderId));
+            return true;
+        } catch (StepFailedException e) {
+            return false;
+        }
+    }
+    
+    private void register(VirtualUser user, Iteration iteration) {
+        // Mismo cuerpo que CP-001
+        String requestBody = String.format(
+            "{\"name\":\"%s\",\"email\":\"%s\",\"password\":\"%s\",\"phone\":\"%s\"}",
+            user.getName(), user.getEmail(), user.getPassword(), user.getPhone()
+        );
+        Response response = call("POST /users/register", 201, iteration.start(), () -> given()
+                .spec(user.getContext().getBaseSpec())
+                .body(requestBody)
+            .when()
+                .post("/users/register"));
+        String userId = firstNonNull(response, "userId", "id");
+        user.getContext().setUserId(userId);
+        user.getContext().addCreatedId("users", userId);
+    }
+    
+    private String login(TokenCache.Credentials credentials) {
+        // Mismo cuerpo que CP-003
+        String requestBody = String.format(
+            "{\"email\":\"%s\",\"password\":\"%s\"}",
+            credentials.email(), credentials.password()
+        );
+        Response response = call("POST /users/login", 200, System.nanoTime(), () -> given()
+                .spec(anonymousSpec)
+                .body(requestBody)
+            .when()
+                .post("/users/login"));
+        String token = response.jsonPath().getString("token");
+        if (token == null) {
+            throw new StepFailedException();
+        }
+        return token;
+    }
+    
+    private String browse(TestContext context, Iteration iteration) {
+        // Listado de CP-007 y detalle de CP-008 sobre un producto al azar de la página
+        Response list = call("GET /products", 200, iteration.start(), () -> given()
+                .spec(context.getSpec())
+                .queryParam("limit", 10)
+                .queryParam("page", 1)
+            .when()
+                .get("/products"));
+        List<String> ids = list.jsonPath().getList("id", String.class);
+        if (ids == null || ids.isEmpty()) {
+            throw new StepFailedException();
+        }
+        String productId = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        call("GET /products/{id}", 200, iteration.start(), () -> given()
+                .spec(context.getSpec())
+            .when()
+                .get("/products/" + productId));
+        return productId;
+    }
+    
+    private String createOrder(TestContext context, String productId, Iteration iteration) {
+        // Mismo cuerpo que CP-010
+        String requestBody = String.format(
+            "{\"items\":[{\"productId\":\"%s\",\"quantity\":2}]," +
+            "\"shippingAddress\":\"Av. Principal 123, Santiago, Chile\"}",
+            productId
+        );
+        Response response = call("POST /orders", 201, iteration.start(), () -> given()
+                .spec(context.getSpec())
+                .body(requestBody)
+            .when()
+                .post("/orders"));
+        String orderId = firstNonNull(response, "orderId", "id");
+        context.addCreatedId("orders", orderId);
+        return orderId;
+    }
+    
+    private Response call(String endpoint, int expectedStatus, long start, Supplier<Response> request) {
+        Response response;
+        try {
+            response = throttle == null ? request.get() : throttle.execute(request);
+        } catch (RuntimeException e) {
+            report.endpoint(endpoint).record(System.nanoTime() - start, false);
+            throw new StepFailedException();
+        }
+        boolean success = response.statusCode() == expectedStatus;
+        report.endpoint(endpoint).record(System.nanoTime() - start, success);
+        if (!success) {
+            throw new StepFailedException();
+        }
+        return response;
+    }
+    
+    private static String firstNonNull(Response response, String... paths) {
+        for (String path : paths) {
+            String value = response.jsonPath().getString(path);
+            if (value != null) {
+                return value;
+            }
+        }
+        throw new StepFailedException();
+    }
+    
+    /**
+     * Inicio de la medición de cada paso de una iteración: la llegada programada para el primero,
+     * el momento del envío para los demás
+     */
+    private static class Iteration {
+        
+        private final long arrival;
+        private boolean started;
+        
+        Iteration(long arrival) {
+            this.arrival = arrival;
+        }
+        
+        long start() {
+            if (started) {
+                return System.nanoTime();
+            }
+            started = true;
+            return arrival;
+        }
+    }
+    
+    /**
+     * Corta la iteración cuando un paso falla; la causa ya quedó registrada
+     */
+    private static class StepFailedException extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        StepFailedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.greenmarket.tests.history;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parámetros de la ingesta y el control de regresiones del historial de rendimiento
+ *
+ * @param store Archivo del historial (append-only, se conserva entre builds)
+ * @param surefireDir Directorio con los TEST-*.xml de Surefire
+ * @param newmanDir Directorio con los results_*.xml de Newman o PostmanRunner
+ * @param latencyDir Directorio con los histogramas de @LatencyBudget
+ * @param run Identificador de la corrida que se ingesta
+ * @param ingest Si se leen los resultados del build actual; sin ingesta sólo se analiza el historial
+ * @param baselineRuns Corridas anteriores que forman la línea base de cada serie
+ * @param minSamples Muestras mínimas en la corrida actual y en la línea base para opinar
+ * @param alpha Nivel de significancia de Mann-Whitney (unilateral)
+ * @param minEffect Aumento relativo mínimo de la mediana para considerar regresión (0.10 = 10%)
+ * @param htmlReport Reporte HTML de tendencias
+ * @param failOnRegression Si se termina con código 1 ante una regresión
+ */
+public record HistoryConfig(Path store,
+                            Path surefireDir,
+                            Path newmanDir,
+                            Path latencyDir,
+                            String run,
+                            boolean ingest,
+                            int baselineRuns,
+                            int minSamples,
+                            double alpha,
+                            double minEffect,
+                            Path htmlReport,
+                            boolean failOnRegression) {
+    
+    /**
+     * Interpreta argumentos con formato --clave=valor
+     * Claves: store, surefire, newman, latency, run, ingest, baseline-runs, min-samples, alpha, min-effect,
+     * html, fail
+     * @param args Argumentos de línea de comandos
+     * @return Configuración con valores por defecto para lo que no se indique
+     */
+    public static HistoryConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        HistoryConfig config = new HistoryConfig(
+                Paths.get(options.getOrDefault("store", "perf-history/history.tsv.gz")),
+                Paths.get(options.getOrDefault("surefire", "target/surefire-reports")),
+                Paths.get(options.getOrDefault("newman", "../postman/reports")),
+                Paths.get(options.getOrDefault("latency", System.getProperty("greenmarket.latency.dir", "target/latency"))),
+                options.getOrDefault("run", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"))),
+                Boolean.parseBoolean(options.getOrDefault("ingest", "true")),
+                Integer.parseInt(options.getOrDefault("baseline-runs", "20")),
+                Integer.parseInt(options.getOrDefault("min-samples", "5")),
+                Double.parseDouble(options.getOrDefault("alpha", "0.01")),
+                Double.parseDouble(options.getOrDefault("min-effect", "0.10")),
+                Paths.get(options.getOrDefault("html", "target/perf-history.html")),
+                Boolean.parseBoolean(options.getOrDefault("fail", "true")));
+        if (config.run().isBlank() || config.baselineRuns() <= 0 || config.minSamples() <= 0
+                || config.alpha() <= 0 || config.alpha() >= 1 || config.minEffect() < 0) {
+            throw new IllegalArgumentException("Se necesita run no vacío, baseline-runs y min-samples positivos, "
+                    + "0 < alpha < 1 y min-effect >= 0");
+        }
+        return config;
+    }
+}
@@ -0,0 +1,28 @@
+package com.greenmarket.tests.history;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencias de una serie (prueba o endpoint) en una corrida
+ *
+ * @param run Corrida a la que pertenece
+ * @param timestamp Momento de la corrida
+ * @param source Origen: surefire, newman o latency
+ * @param key Nombre de la serie dentro del origen
+ * @param histogram Latencias en microsegundos
+ */
+public record HistoryRecord(String run, Instant timestamp, String source, String key, Histogram histogram) {
+    
+    /** Latencia máxima registrable: 10 min en microsegundos (hay pruebas de Surefire largas) */
+    static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+    
+    /**
+     * Identificador de la serie, único entre orígenes
+     */
+    public String series() {
+        return source + ":" + key;
+    }
+}
@@ -0,0 +1,267 @@
+package com.greenmarket.tests.history;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Historial de rendimiento en un único archivo local, sólo de agregado
+ *
+ * Cada ingesta agrega un miembro gzip al final del archivo con una línea por serie:
+ * corrida, instante, origen, serie e histograma HdrHistogram comprimido en Base64, separados por tabuladores.
+ * Los miembros concatenados forman un gzip válido (GZIPInputStream los lee seguidos)
+ *
+ * La ingesta escribe el historial anterior más el miembro nuevo en un archivo temporal y lo reemplaza con un
+ * move atómico, así una ingesta interrumpida deja el archivo como estaba. El costo es que cada ingesta copia el
+ * historial completo (O(tamaño del historial)), no solo el miembro nuevo
+ *
+ * Si aun así el último miembro llega truncado (una copia a medias, un disco lleno), load conserva los registros
+ * de los miembros completos y descarta solo ese, y la siguiente ingesta reescribe el historial sin él. Un error
+ * antes del final del archivo es un miembro intermedio corrupto: load y append fallan sin tocar el archivo, para
+ * no perder los miembros sanos que siguen
+ */
+public class HistoryStore {
+    
+    private static final String HEADER = "#greenmarket-perf-history v1";
+    
+    private final Path file;
+    
+    /**
+     * @param file Archivo del historial; se crea con la primera ingesta
+     */
+    public HistoryStore(Path file) {
+        this.file = file;
+    }
+    
+    /**
+     * Contenido legible del archivo
+     * @param records Registros de los miembros completos
+     * @param truncated Si el último miembro estaba truncado y se descartó
+     */
+    private record Contents(List<HistoryRecord> records, boolean truncated) {
+    }
+    
+    /**
+     * Lee todo el historial
+     * Un último miembro truncado se descarta con un aviso en lugar de volver ilegible todo el historial
+     * @return Registros en orden de ingesta, vacío si el archivo no existe
+     * @throws IOException Si el archivo no se puede leer, tiene líneas inválidas o tiene un miembro corrupto
+     *                     antes del final
+     */
+    public List<HistoryRecord> load() throws IOException {
+        Contents contents = read();
+        if (contents.truncated()) {
+            System.err.println("[history] " + file + ": se descartó el último miembro, truncado; se conservan "
+                    + contents.records().size() + " registros");
+        }
+        return contents.records();
+    }
+    
+    private Contents read() throws IOException {
+        List<HistoryRecord> records = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return new Contents(records, false);
+        }
+        // Registros de los miembros ya cerrados: cada miembro empieza con HEADER
+        int complete = 0;
+        CountingInputStream source = new CountingInputStream(Files.newInputStream(file));
+        PositionedGzipInputStream gzip = null;
+        try (source) {
+            gzip = new PositionedGzipInputStream(source);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(gzip, StandardCharsets.UTF_8))) {
+                String line;
+                int number = 0;
+                while ((line = reader.readLine()) != null) {
+                    number++;
+                    if (line.equals(HEADER)) {
+                        complete = records.size();
+                    }
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] fields = line.split("\t", -1);
+                    if (fields.length != 5) {
+                        throw new IOException(file + ":" + number + ": se esperaban 5 campos");
+                    }
+                    try {
+                        records.add(new HistoryRecord(fields[0], Instant.parse(fields[1]), fields[2], fields[3],
+                                decode(fields[4])));
+                    } catch (RuntimeException | DataFormatException e) {
+                        throw new IOException(file + ":" + number + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (EOFException | ZipException e) {
+            long size = Files.size(file);
+            long failedAt = gzip == null ? source.count : gzip.position();
+            if (failedAt < size) {
+                throw new IOException(file + ": miembro gzip corrupto antes del final (leídos " + failedAt + " de " + size
+                        + " bytes); el historial no se modifica", e);
+            }
+            // El gzip terminó a mitad de su último miembro: sus líneas ya leídas pueden estar incompletas
+            return new Contents(new ArrayList<>(records.subList(0, complete)), true);
+        }
+        return new Contents(records, false);
+    }
+    
+    /**
+     * Agrega una corrida al final del historial, reescribiendo el archivo completo
+     * @param records Registros de la corrida
+     * @throws IOException Si no se puede escribir o el historial tiene un miembro corrupto antes del final
+     */
+    public void append(List<HistoryRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = dir.resolve(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                if (Files.exists(file)) {
+                    Contents previous = read();
+                    if (previous.truncated()) {
+                        // Sin el miembro truncado: el nuevo quedaría detrás de bytes que GZIPInputStream no sabe saltar
+                        writeMember(out, previous.records());
+                    } else {
+                        Files.copy(file, out);
+                    }
+                }
+                writeMember(out, records);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private static void writeMember(OutputStream out, List<HistoryRecord> records) throws IOException {
+        // El GZIPOutputStream se cierra para escribir el trailer del miembro, pero sin cerrar out
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+            
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }), StandardCharsets.UTF_8));
+        writer.write(HEADER + "\n");
+        for (HistoryRecord record : records) {
+            writer.write(clean(record.run()) + "\t" + record.timestamp() + "\t" + clean(record.source()) + "\t"
+                    + clean(record.key()) + "\t" + encode(record.histogram()) + "\n");
+        }
+        writer.close();
+    }
+    
+    /**
+     * Ruta del archivo del historial
+     */
+    public Path getFile() {
+        return file;
+    }
+    
+    private static String clean(String value) {
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+    
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+    
+    static Histogram decode(String base64) throws DataFormatException {
+        return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(base64)), 0);
+    }
+    
+    /**
+     * Cuenta los bytes leídos del archivo
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        
+        private long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+    
+    /**
+     * GZIPInputStream que informa hasta qué byte del archivo llegó la descompresión
+     */
+    private static final class PositionedGzipInputStream extends GZIPInputStream {
+        
+        private final CountingInputStream source;
+        
+        PositionedGzipInputStream(CountingInputStream source) throws IOException {
+            super(source);
+            this.source = source;
+        }
+        
+        /**
+         * Bytes leídos del archivo menos los que el Inflater recibió y todavía no consumió
+         */
+        long position() {
+            return source.count - inf.getRemaining();
+        }
+    }
+}
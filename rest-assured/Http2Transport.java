@@ -0,0 +1,135 @@
+package com.greenmarket.tests.http;
+
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+
+/**
+ * Backend java.net.http.HttpClient con HTTP/2 (h2 con TLS, h2c por upgrade en texto plano)
+ * Un filtro de REST Assured envía la petición por este cliente y devuelve la respuesta
+ * sin pasar por Apache HttpClient; si el servidor solo habla HTTP/1.1 el cliente lo usa con keep-alive
+ * El cliente del JDK no expone sus conexiones: se cuentan peticiones, versiones y el primer byte de cada
+ * respuesta, y el resumen indica que las métricas de conexión no están disponibles
+ */
+public class Http2Transport extends HttpTransport implements Filter {
+    
+    /** Cabeceras que gestiona el propio cliente del JDK y no se pueden fijar a mano */
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    
+    static {
+        RESTRICTED_HEADERS.addAll(List.of("Connection", "Content-Length", "Expect", "Host", "Upgrade"));
+    }
+    
+    private final HttpClient client;
+    
+    public Http2Transport(TransportConfig config) {
+        super(config, false);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(config.connectTimeout())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+    
+    @Override
+    public RequestSpecBuilder apply(RequestSpecBuilder builder) {
+        return acceptEncoding(cache(builder).addFilter(this));
+    }
+    
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec,
+                           FilterableResponseSpecification responseSpec,
+                           FilterContext ctx) {
+        long start = System.nanoTime();
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(requestSpec.getURI()))
+                .method(requestSpec.getMethod(), bodyOf(requestSpec));
+        for (Header header : requestSpec.getHeaders()) {
+            if (!RESTRICTED_HEADERS.contains(header.getName())) {
+                request.header(header.getName(), header.getValue());
+            }
+        }
+        
+        // El cliente llama al handler al recibir las cabeceras, en un hilo de su executor
+        CallTimings timings = CallTimings.current();
+        HttpResponse.BodyHandler<byte[]> handler = info -> {
+            CallTimings.firstByte(timings);
+            return HttpResponse.BodySubscribers.ofByteArray();
+        };
+        HttpResponse<byte[]> response;
+        metrics.requestSent();
+        try {
+            response = client.send(request.build(), handler);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falló la petición HTTP/2 a " + requestSpec.getURI(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Petición interrumpida: " + requestSpec.getURI(), e);
+        }
+        
+        String version = response.version() == HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1";
+        metrics.responseVersion(version);
+        
+        List<Header> headers = new ArrayList<>();
+        response.headers().map().forEach((name, values) -> {
+            // Las pseudo-cabeceras de HTTP/2 (:status) no forman parte de la respuesta visible
+            if (!name.startsWith(":")) {
+                values.forEach(value -> headers.add(new Header(name, value)));
+            }
+        });
+        ResponseBuilder builder = new ResponseBuilder()
+                .setStatusCode(response.statusCode())
+                .setStatusLine(version + " " + response.statusCode())
+                .setHeaders(new Headers(headers))
+                .setBody(decode(response));
+        response.headers().firstValue("Content-Type").ifPresent(builder::setContentType);
+        return completed(builder.build(), ctx, start);
+    }
+    
+    /**
+     * java.net.http no descomprime: el cuerpo se decodifica según Content-Encoding antes de entregarlo
+     */
+    private byte[] decode(HttpResponse<byte[]> response) {
+        try {
+            return ContentDecoder.decode(response.headers().firstValue("Content-Encoding").orElse(null), response.body(),
+                    metrics);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo descomprimir la respuesta de " + response.uri(), e);
+        }
+    }
+    
+    private static HttpRequest.BodyPublisher bodyOf(FilterableRequestSpecification requestSpec) {
+        Object body = requestSpec.getBody();
+        if (body == null) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        if (body instanceof byte[] bytes) {
+            return HttpRequest.BodyPublishers.ofByteArray(bytes);
+        }
+        return HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public void close() {
+        client.close();
+    }
+}
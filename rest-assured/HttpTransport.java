@@ -0,0 +1,139 @@
+package com.greenmarket.tests.http;
+
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.time.TimingFilter;
+import io.restassured.internal.RestAssuredResponseImpl;
+import io.restassured.internal.filter.FilterContextImpl;
+import io.restassured.response.Response;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transporte HTTP compartido por las specifications de pruebas y usuarios virtuales
+ * Centraliza cómo se abren y reutilizan las conexiones y expone sus métricas
+ * Con -Dgreenmarket.http.cache las specifications comparten además una caché HTTP con revalidación (ResponseCache)
+ */
+public abstract class HttpTransport implements AutoCloseable {
+    
+    protected final TransportConfig config;
+    protected final ConnectionMetrics metrics;
+    protected final ResponseCache cache;
+    
+    /**
+     * @param config Configuración del transporte
+     * @param connectionsObservable Si la implementación cuenta las conexiones que abre
+     */
+    protected HttpTransport(TransportConfig config, boolean connectionsObservable) {
+        this.config = config;
+        this.metrics = new ConnectionMetrics(connectionsObservable);
+        this.cache = config.cache().isEnabled() ? new ResponseCache(config.cache()) : null;
+    }
+    
+    /**
+     * Crea el transporte indicado por la configuración
+     * @param config Configuración del transporte
+     * @return Transporte listo para aplicarse a las specifications
+     */
+    public static HttpTransport create(TransportConfig config) {
+        return switch (config.type()) {
+            case POOLED -> new PooledTransport(config);
+            case HTTP2 -> new Http2Transport(config);
+            case DEFAULT -> new DefaultTransport(config);
+        };
+    }
+    
+    /**
+     * Aplica el transporte a una specification en construcción
+     * @param builder Builder de la specification
+     * @return El mismo builder
+     */
+    public abstract RequestSpecBuilder apply(RequestSpecBuilder builder);
+    
+    /**
+     * Agrega Accept-Encoding a la specification para los transportes que descomprimen con ContentDecoder
+     * @param builder Builder de la specification
+     * @return El mismo builder
+     */
+    protected RequestSpecBuilder acceptEncoding(RequestSpecBuilder builder) {
+        String encodings = config.acceptEncoding();
+        return encodings == null || encodings.isBlank() ? builder : builder.addHeader("Accept-Encoding", encodings);
+    }
+    
+    /**
+     * Agrega la caché HTTP, si está habilitada; debe quedar antes del filtro que envía la petición
+     * @param builder Builder de la specification
+     * @return El mismo builder
+     */
+    protected RequestSpecBuilder cache(RequestSpecBuilder builder) {
+        return cache == null ? builder : builder.addFilter(cache);
+    }
+    
+    /**
+     * Completa la respuesta de un filtro que envía la petición por su cuenta y corta la cadena
+     * El TimingFilter de REST Assured va después de los filtros del usuario y no llega a correr, y el contexto
+     * solo se enlaza con las respuestas de su propio cliente: sin esto time() vale -1 y
+     * ValidatableResponse.time() falla con "No time was recorded"
+     * @param response Respuesta creada con ResponseBuilder
+     * @param ctx Contexto del filtro que la creó
+     * @param startNanos Instante, con System.nanoTime, en que empezó el envío
+     * @return La misma respuesta
+     */
+    protected static Response completed(Response response, FilterContext ctx, long startNanos) {
+        ctx.setValue(TimingFilter.RESPONSE_TIME_MILLISECONDS,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        if (response instanceof RestAssuredResponseImpl built && ctx instanceof FilterContextImpl context) {
+            built.setFilterContextProperties(context.getProperties());
+        }
+        return response;
+    }
+    
+    public TransportConfig getConfig() {
+        return config;
+    }
+    
+    public ConnectionMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Caché HTTP del cliente
+     * @return Caché compartida por las specifications, o null si está desactivada
+     */
+    public ResponseCache getCache() {
+        return cache;
+    }
+    
+    /**
+     * Métricas de conexiones y, si hay caché, sus resultados en una segunda línea
+     */
+    public String summary() {
+        return cache == null ? metrics.summary() : metrics.summary() + System.lineSeparator() + "  " + cache.summary();
+    }
+    
+    @Override
+    public void close() {
+    }
+    
+    /**
+     * Cliente por defecto de REST Assured (una conexión nueva por petición)
+     * Solo cuenta peticiones, las conexiones no son observables desde fuera del cliente
+     */
+    static class DefaultTransport extends HttpTransport {
+        
+        private final Filter counter = (request, response, ctx) -> {
+            metrics.requestSent();
+            return ctx.next(request, response);
+        };
+        
+        DefaultTransport(TransportConfig config) {
+            super(config, false);
+        }
+        
+        @Override
+        public RequestSpecBuilder apply(RequestSpecBuilder builder) {
+            return cache(builder).addFilter(counter);
+        }
+    }
+}
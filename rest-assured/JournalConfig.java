@@ -0,0 +1,38 @@
+package com.greenmarket.tests.mock;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Configuración de la persistencia del mock server (log de escrituras + snapshots)
+ *
+ * @param dataDir Directorio del log y de los snapshots, o null para un store solo en memoria
+ * @param fsync Si cada lote del log se fuerza a disco antes de responder (group commit)
+ * @param snapshotBytes Bytes de log acumulados tras los cuales se compacta en un snapshot nuevo
+ */
+public record JournalConfig(Path dataDir, boolean fsync, long snapshotBytes) {
+    
+    /** Configuración sin persistencia: el comportamiento original del mock server */
+    public static final JournalConfig IN_MEMORY = new JournalConfig(null, false, 0);
+    
+    public boolean isEnabled() {
+        return dataDir != null;
+    }
+    
+    /**
+     * Lee la configuración desde propiedades del sistema:
+     * greenmarket.mock.dataDir, greenmarket.mock.wal.fsync (true por defecto)
+     * y greenmarket.mock.wal.snapshotMb (64 por defecto)
+     * @return Configuración (en memoria si no se indica directorio)
+     */
+    public static JournalConfig fromSystemProperties() {
+        String dir = System.getProperty("greenmarket.mock.dataDir");
+        if (dir == null || dir.isBlank()) {
+            return IN_MEMORY;
+        }
+        return new JournalConfig(
+                Paths.get(dir),
+                Boolean.parseBoolean(System.getProperty("greenmarket.mock.wal.fsync", "true")),
+                Long.getLong("greenmarket.mock.wal.snapshotMb", 64L) * 1024 * 1024);
+    }
+}
@@ -0,0 +1,43 @@
+package com.greenmarket.tests.perf;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Presupuesto de latencia para un caso de prueba
+ * El método se ejecuta una vez; sus peticiones GET/HEAD se repiten warmup veces sin medir y luego iterations
+ * veces registrando el tiempo HTTP de cada repetición en un histograma; la prueba falla si algún percentil
+ * supera su presupuesto
+ * Los valores están en milisegundos y -1 significa "sin presupuesto"
+ *
+ * Ejemplo: @LatencyBudget(p95 = 200, p99 = 500, max = 2000)
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@ExtendWith(LatencyBudgetExtension.class)
+public @interface LatencyBudget {
+    
+    /** Repeticiones de calentamiento que no se registran */
+    int warmup() default 10;
+    
+    /** Repeticiones medidas */
+    int iterations() default 100;
+    
+    /** Presupuesto de la mediana en ms */
+    double p50() default -1;
+    
+    /** Presupuesto del percentil 95 en ms */
+    double p95() default -1;
+    
+    /** Presupuesto del percentil 99 en ms */
+    double p99() default -1;
+    
+    /** Presupuesto del máximo en ms */
+    double max() default -1;
+}
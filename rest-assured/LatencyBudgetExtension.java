@@ -0,0 +1,171 @@
+package com.greenmarket.tests.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Extensión de JUnit 5 que aplica @LatencyBudget
+ * La prueba se ejecuta una sola vez, con sus aserciones y su salida; LatencyBudgetFilter guarda las peticiones
+ * GET/HEAD que hizo y la extensión las repite warmup + iterations veces, registrando en un HdrHistogram solo
+ * el tiempo del intercambio HTTP de cada repetición (la suma si la prueba hace varias peticiones)
+ * Las peticiones que modifican datos no se repiten. Una repetición que responde un código distinto al de la
+ * ejecución real hace fallar la prueba
+ * El resultado se escribe en target/latency/&lt;Clase&gt;.&lt;metodo&gt;.json para comparar entre builds;
+ * el directorio se puede cambiar con -Dgreenmarket.latency.dir
+ */
+public class LatencyBudgetExtension implements InvocationInterceptor {
+    
+    /** Latencia máxima registrable: 60 s en microsegundos */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+    
+    /** Métodos sin efectos que se pueden repetir */
+    private static final Set<String> REPEATABLE = Set.of("GET", "HEAD", "OPTIONS");
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    @Override
+    public void interceptTestMethod(Invocation<Void> invocation,
+                                    ReflectiveInvocationContext<Method> invocationContext,
+                                    ExtensionContext extensionContext) throws Throwable {
+        Method method = invocationContext.getExecutable();
+        LatencyBudget budget = AnnotationSupport.findAnnotation(method, LatencyBudget.class).orElse(null);
+        if (budget == null) {
+            invocation.proceed();
+            return;
+        }
+        String testId = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        Histogram histogram = new Histogram(MAX_LATENCY_MICROS, 3);
+        int mismatches = 0;
+        LatencyBudgetFilter.Session session = LatencyBudgetFilter.begin();
+        try {
+            // Ejecución real: aserciones, salida y efectos de la prueba una sola vez
+            invocation.proceed();
+            List<LatencyBudgetFilter.Exchange> exchanges = session.captured().stream()
+                    .filter(exchange -> REPEATABLE.contains(exchange.request().getMethod()))
+                    .toList();
+            if (exchanges.isEmpty()) {
+                throw new ExtensionConfigurationException("@LatencyBudget en " + testId
+                        + " necesita al menos una petición GET o HEAD hecha con la specification de BaseTest");
+            }
+            session.replaying();
+            // Calentamiento: JIT, pool de conexiones y caches del servidor
+            for (int i = 0; i < budget.warmup(); i++) {
+                mismatches += replay(exchanges, session);
+            }
+            session.takeElapsedNanos();
+            for (int i = 0; i < budget.iterations(); i++) {
+                mismatches += replay(exchanges, session);
+                long micros = TimeUnit.NANOSECONDS.toMicros(session.takeElapsedNanos());
+                histogram.recordValue(Math.min(MAX_LATENCY_MICROS, Math.max(1, micros)));
+            }
+        } finally {
+            LatencyBudgetFilter.end();
+        }
+        
+        List<String> violations = violations(budget, histogram);
+        if (mismatches > 0) {
+            violations.add(mismatches + " repeticiones respondieron un código distinto al de la ejecución real");
+        }
+        writeResult(testId, budget, histogram, violations.isEmpty());
+        System.out.printf(Locale.ROOT, "  Latencia %s: p50=%.2f ms p95=%.2f ms p99=%.2f ms max=%.2f ms (%d iteraciones)%n",
+                testId, millis(histogram, 50), millis(histogram, 95), millis(histogram, 99),
+                histogram.getMaxValue() / 1000.0, histogram.getTotalCount());
+        if (!violations.isEmpty()) {
+            throw new AssertionFailedError("Presupuesto de latencia excedido en " + testId + ": "
+                    + String.join(", ", violations));
+        }
+    }
+    
+    /**
+     * Repite las peticiones de la prueba sin sus aserciones
+     * @return Cantidad de respuestas con un código distinto al de la ejecución real
+     */
+    private static int replay(List<LatencyBudgetFilter.Exchange> exchanges, LatencyBudgetFilter.Session session) {
+        int mismatches = 0;
+        for (LatencyBudgetFilter.Exchange exchange : exchanges) {
+            given()
+                    .spec(exchange.request())
+                .when()
+                    .request(exchange.request().getMethod(), exchange.request().getUserDefinedPath());
+            if (session.lastStatus() != exchange.status()) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+    
+    private static List<String> violations(LatencyBudget budget, Histogram histogram) {
+        List<String> violations = new ArrayList<>();
+        check(violations, "p50", budget.p50(), millis(histogram, 50));
+        check(violations, "p95", budget.p95(), millis(histogram, 95));
+        check(violations, "p99", budget.p99(), millis(histogram, 99));
+        check(violations, "max", budget.max(), histogram.getMaxValue() / 1000.0);
+        return violations;
+    }
+    
+    private static void check(List<String> violations, String name, double budgetMillis, double actualMillis) {
+        if (budgetMillis >= 0 && actualMillis > budgetMillis) {
+            violations.add(String.format(Locale.ROOT, "%s=%.2f ms > %.2f ms", name, actualMillis, budgetMillis));
+        }
+    }
+    
+    private static void writeResult(String testId, LatencyBudget budget, Histogram histogram, boolean passed)
+            throws IOException {
+        Path dir = Paths.get(System.getProperty("greenmarket.latency.dir", "target/latency"));
+        Files.createDirectories(dir);
+        
+        ObjectNode result = MAPPER.createObjectNode();
+        result.put("test", testId);
+        result.put("timestamp", Instant.now().toString());
+        result.put("warmup", budget.warmup());
+        result.put("iterations", histogram.getTotalCount());
+        result.put("passed", passed);
+        ObjectNode percentiles = result.putObject("latencyMillis");
+        percentiles.put("mean", histogram.getMean() / 1000.0);
+        percentiles.put("p50", millis(histogram, 50));
+        percentiles.put("p90", millis(histogram, 90));
+        percentiles.put("p95", millis(histogram, 95));
+        percentiles.put("p99", millis(histogram, 99));
+        percentiles.put("p999", millis(histogram, 99.9));
+        percentiles.put("max", histogram.getMaxValue() / 1000.0);
+        ObjectNode budgets = result.putObject("budgetMillis");
+        budgets.put("p50", budget.p50());
+        budgets.put("p95", budget.p95());
+        budgets.put("p99", budget.p99());
+        budgets.put("max", budget.max());
+        // Histograma completo comprimido (microsegundos) para comparar distribuciones entre builds
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        result.put("histogram", Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length)));
+        
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(dir.resolve(testId + ".json").toFile(), result);
+    }
+    
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
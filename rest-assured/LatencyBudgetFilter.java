@@ -0,0 +1,103 @@
+package com.greenmarket.tests.perf;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filtro con el que LatencyBudgetExtension mide solo el intercambio HTTP de una prueba con @LatencyBudget
+ * Fuera de esas pruebas no hace nada. Durante la ejecución real de la prueba guarda las peticiones que hace;
+ * cuando la extensión las repite, cronometra solo ctx.next (envío y respuesta), sin las aserciones ni el resto
+ * del cuerpo de la prueba
+ * REST Assured ejecuta los filtros en el hilo de la prueba, así que la medición activa vive en un ThreadLocal
+ * y las clases que corren en paralelo no se mezclan. Va último entre los filtros de BaseTest
+ */
+public class LatencyBudgetFilter implements Filter {
+    
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+    
+    /**
+     * Petición hecha por la prueba y el código que respondió
+     */
+    record Exchange(FilterableRequestSpecification request, int status) {
+    }
+    
+    /**
+     * Medición en curso en el hilo de una prueba
+     */
+    static final class Session {
+        
+        private final List<Exchange> captured = new ArrayList<>();
+        private boolean replaying;
+        private long elapsedNanos;
+        private int lastStatus;
+        
+        /**
+         * Peticiones de la ejecución real, en orden
+         */
+        List<Exchange> captured() {
+            return captured;
+        }
+        
+        /**
+         * Deja de guardar peticiones: las siguientes son repeticiones y se cronometran
+         */
+        void replaying() {
+            replaying = true;
+        }
+        
+        /**
+         * Devuelve el tiempo de red acumulado desde la última llamada y lo pone en cero
+         */
+        long takeElapsedNanos() {
+            long elapsed = elapsedNanos;
+            elapsedNanos = 0;
+            return elapsed;
+        }
+        
+        int lastStatus() {
+            return lastStatus;
+        }
+    }
+    
+    /**
+     * Empieza a medir en el hilo actual
+     */
+    static Session begin() {
+        Session session = new Session();
+        CURRENT.set(session);
+        return session;
+    }
+    
+    /**
+     * Deja de medir en el hilo actual
+     */
+    static void end() {
+        CURRENT.remove();
+    }
+    
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec,
+                           FilterableResponseSpecification responseSpec,
+                           FilterContext ctx) {
+        Session session = CURRENT.get();
+        if (session == null) {
+            return ctx.next(requestSpec, responseSpec);
+        }
+        long start = System.nanoTime();
+        Response response = ctx.next(requestSpec, responseSpec);
+        long elapsed = System.nanoTime() - start;
+        if (session.replaying) {
+            session.elapsedNanos += elapsed;
+            session.lastStatus = response.statusCode();
+        } else {
+            session.captured.add(new Exchange(requestSpec, response.statusCode()));
+        }
+        return response;
+    }
+}
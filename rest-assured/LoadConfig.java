@@ -0,0 +1,81 @@
+package com.greenmarket.tests.load;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parámetros de una corrida de carga
+ *
+ * @param model Modelo de carga: abierto (tasa de llegadas) o cerrado (concurrencia fija)
+ * @param users Usuarios virtuales concurrentes en el modelo cerrado
+ * @param arrivalRate Iteraciones nuevas por segundo en el modelo abierto
+ * @param maxInFlight Tope de iteraciones simultáneas en el modelo abierto (las llegadas sobre el tope se descartan)
+ * @param duration Duración de la corrida
+ * @param baseUrl URL de la API, o null para usar el mock server embebido
+ * @param csvFile Archivo CSV con el resumen por endpoint
+ */
+public record LoadConfig(Model model,
+                         int users,
+                         double arrivalRate,
+                         int maxInFlight,
+                         Duration duration,
+                         String baseUrl,
+                         Path csvFile) {
+    
+    public enum Model {
+        OPEN,
+        CLOSED
+    }
+    
+    /**
+     * Interpreta argumentos con formato --clave=valor
+     * Claves: model (open|closed), users, rate, max-in-flight, duration (segundos), base-url, csv
+     * @param args Argumentos de línea de comandos
+     * @return Configuración con valores por defecto para lo que no se indique
+     */
+    public static LoadConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        LoadConfig config = new LoadConfig(
+                Model.valueOf(options.getOrDefault("model", "closed").toUpperCase()),
+                Integer.parseInt(options.getOrDefault("users", "50")),
+                Double.parseDouble(options.getOrDefault("rate", "100")),
+                Integer.parseInt(options.getOrDefault("max-in-flight", "10000")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30"))),
+                options.get("base-url"),
+                Paths.get(options.getOrDefault("csv", "target/load-report.csv")));
+        if (config.users() <= 0 || config.arrivalRate() <= 0 || config.maxInFlight() <= 0) {
+            throw new IllegalArgumentException("users, rate y max-in-flight deben ser positivos");
+        }
+        return config;
+    }
+    
+    /**
+     * Parte de la carga que le toca a uno de varios procesos: los usuarios se reparten de a uno (los primeros
+     * reciben el resto) y la tasa y el tope de iteraciones en curso en partes iguales
+     * @param index Proceso, desde 0
+     * @param count Procesos en total; no más que los usuarios
+     * @return Configuración del proceso, con la misma duración, URL y CSV
+     */
+    public LoadConfig shard(int index, int count) {
+        if (count <= 0 || index < 0 || index >= count || count > users) {
+            throw new IllegalArgumentException("No se pueden repartir " + users + " usuarios en " + count + " procesos");
+        }
+        return new LoadConfig(model,
+                users / count + (index < users % count ? 1 : 0),
+                arrivalRate / count,
+                Math.max(1, (maxInFlight + count - 1) / count),
+                duration,
+                baseUrl,
+                csvFile);
+    }
+}
@@ -0,0 +1,301 @@
+package com.greenmarket.tests.load;
+
+import com.greenmarket.tests.mock.MockServer;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Corrida de carga repartida entre varias JVM worker en la misma máquina, para cuando una sola JVM se queda
+ * sin sockets o CPU antes que la API
+ *
+ * Abre un ServerSocket en loopback, lanza N procesos LoadWorker (mismo java y classpath, con las opciones -X y las
+ * propiedades greenmarket.* de esta JVM) y espera que todos se conecten. Luego envía a cada uno su parte de la carga
+ * (LoadConfig.shard) y un instante de inicio común, así empiezan juntos aunque hayan tardado distinto en arrancar.
+ * Cada worker informa cada segundo las latencias registradas desde su envío anterior como histogramas HdrHistogram
+ * comprimidos; el coordinador los suma en un LoadReport, sin pérdida porque todos tienen los mismos buckets y
+ * precisión, e imprime una línea por segundo con el throughput y los percentiles del intervalo para toda la carga.
+ * Al terminar imprime el resumen y el CSV como LoadGenerator
+ *
+ * Sin --base-url los workers atacan al mock server embebido del coordinador
+ * Un worker que se cae o no informa durante 30 s se da por perdido: la corrida sigue con los demás, el resumen
+ * incluye lo que alcanzó a enviar y el proceso termina con código 1
+ *
+ * Uso: java com.greenmarket.tests.load.LoadCoordinator --workers=4 --users=400 --duration=60 [opciones de LoadGenerator]
+ */
+public class LoadCoordinator {
+    
+    private static final long CONNECT_TIMEOUT_MILLIS = 60_000;
+    private static final int SILENCE_TIMEOUT_MILLIS = 30_000;
+    /** Margen entre la orden de inicio y el inicio, para que llegue a todos los workers */
+    private static final long START_DELAY_MILLIS = 500;
+    
+    private final LoadConfig config;
+    private final int workers;
+    private final LoadReport report = new LoadReport();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Set<Integer> lost = ConcurrentHashMap.newKeySet();
+    private Map<String, Histogram> interval = new HashMap<>();
+    private long intervalErrors;
+    
+    /**
+     * @param config Carga total, que se reparte entre los workers
+     * @param workers Procesos worker; no más que los usuarios virtuales
+     */
+    public LoadCoordinator(LoadConfig config, int workers) {
+        if (workers <= 0 || workers > config.users()) {
+            throw new IllegalArgumentException("workers debe ser positivo y no mayor que users");
+        }
+        this.config = config;
+        this.workers = workers;
+    }
+    
+    /**
+     * Lanza los workers, ejecuta la corrida y espera que terminen
+     * @param baseUrl URL base de la API
+     * @param out Destino de la línea por segundo
+     * @return Reporte con lo informado por todos los workers
+     * @throws IOException Si no se pueden lanzar los workers o alguno no se conecta
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    public LoadReport run(String baseUrl, PrintStream out) throws IOException, InterruptedException {
+        List<Process> processes = new ArrayList<>();
+        Socket[] sockets = new Socket[workers];
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            for (int i = 0; i < workers; i++) {
+                processes.add(launch(server.getLocalPort(), i));
+            }
+            accept(server, processes, sockets);
+            long startAt = System.currentTimeMillis() + START_DELAY_MILLIS;
+            String runId = Long.toString(System.currentTimeMillis(), 36);
+            LoadConfig target = new LoadConfig(config.model(), config.users(), config.arrivalRate(),
+                    config.maxInFlight(), config.duration(), baseUrl, config.csvFile());
+            for (int i = 0; i < workers; i++) {
+                WorkerProtocol.writeStart(new DataOutputStream(new BufferedOutputStream(sockets[i].getOutputStream())),
+                        new WorkerProtocol.Start(target.shard(i, workers), runId + "w" + i, startAt));
+            }
+            Thread.sleep(Math.max(0, startAt - System.currentTimeMillis()));
+            report.markStart();
+            active.set(workers);
+            ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+            long[] previous = {System.nanoTime()};
+            ticker.scheduleAtFixedRate(() -> {
+                long now = System.nanoTime();
+                printInterval(out, (now - previous[0]) / 1_000_000_000.0);
+                previous[0] = now;
+            }, 1200, 1000, TimeUnit.MILLISECONDS);
+            try (ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < workers; i++) {
+                    int worker = i;
+                    readers.submit(() -> read(worker, sockets[worker], out));
+                }
+            } finally {
+                ticker.shutdownNow();
+            }
+            report.markEnd();
+        } finally {
+            for (Socket socket : sockets) {
+                if (socket != null) {
+                    socket.close();
+                }
+            }
+            for (int i = 0; i < processes.size(); i++) {
+                Process process = processes.get(i);
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                } else if (process.exitValue() != 0) {
+                    System.err.println("El worker " + i + " terminó con código " + process.exitValue());
+                    lost.add(i);
+                }
+            }
+        }
+        return report;
+    }
+    
+    /**
+     * Workers perdidos durante la corrida o que terminaron con error
+     */
+    public int getLost() {
+        return lost.size();
+    }
+    
+    private Process launch(int port, int worker) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+                .orElse(Paths.get(System.getProperty("java.home"), "bin", "java").toString()));
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (option.startsWith("-X")) {
+                command.add(option);
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("greenmarket.")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(LoadWorker.class.getName());
+        command.add("--coordinator=" + port);
+        command.add("--worker=" + worker);
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+    
+    /**
+     * Espera el HELLO de todos los workers; falla enseguida si alguno termina antes de conectarse
+     */
+    private void accept(ServerSocket server, List<Process> processes, Socket[] sockets) throws IOException {
+        server.setSoTimeout(1000);
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        int connected = 0;
+        while (connected < workers) {
+            for (int i = 0; i < workers; i++) {
+                if (sockets[i] == null && !processes.get(i).isAlive()) {
+                    throw new IOException("El worker " + i + " terminó con código " + processes.get(i).exitValue()
+                            + " antes de conectarse");
+                }
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Se conectaron " + connected + " de " + workers + " workers en "
+                        + CONNECT_TIMEOUT_MILLIS / 1000 + " s");
+            }
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketTimeoutException e) {
+                continue;
+            }
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(SILENCE_TIMEOUT_MILLIS);
+            int worker;
+            try {
+                worker = WorkerProtocol.readHello(new DataInputStream(socket.getInputStream()));
+            } catch (IOException e) {
+                socket.close();
+                continue;
+            }
+            if (worker < 0 || worker >= workers || sockets[worker] != null) {
+                socket.close();
+                continue;
+            }
+            sockets[worker] = socket;
+            connected++;
+        }
+    }
+    
+    private void read(int worker, Socket socket, PrintStream out) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            WorkerProtocol.Interval message;
+            do {
+                message = WorkerProtocol.readInterval(in);
+                merge(message);
+            } while (!message.last());
+        } catch (EOFException e) {
+            lost.add(worker);
+            out.println("Worker " + worker + " perdido: cerró la conexión sin terminar");
+        } catch (IOException e) {
+            lost.add(worker);
+            out.println("Worker " + worker + " perdido: " + e.getMessage());
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Suma un intervalo de un worker; hay un hilo lector por worker, así que todo se suma con el lock tomado:
+     * Histogram.add de ConcurrentHistogram no es atómico respecto de otro add y perdería totalCount
+     */
+    private void merge(WorkerProtocol.Interval message) {
+        synchronized (this) {
+            message.endpoints().forEach((endpoint, delta) -> {
+                report.endpoint(endpoint).add(delta.latencies(), delta.errors());
+                interval.computeIfAbsent(endpoint, e -> new Histogram(EndpointStats.MAX_LATENCY_MICROS, 3))
+                        .add(delta.latencies());
+                intervalErrors += delta.errors();
+            });
+            report.add(message.iterations(), message.failedIterations(), message.droppedArrivals());
+        }
+    }
+    
+    private void printInterval(PrintStream out, double seconds) {
+        Map<String, Histogram> taken;
+        long errors;
+        synchronized (this) {
+            taken = interval;
+            errors = intervalErrors;
+            interval = new HashMap<>();
+            intervalErrors = 0;
+        }
+        Histogram all = new Histogram(EndpointStats.MAX_LATENCY_MICROS, 3);
+        taken.values().forEach(all::add);
+        out.printf(Locale.ROOT, "[%4.0f s] workers %d/%d | %8.1f req/s | errores %d | p50 %.2f ms | p99 %.2f ms | max %.2f ms%n",
+                report.getElapsedSeconds(), active.get(), workers, all.getTotalCount() / seconds, errors,
+                all.getValueAtPercentile(50) / 1000.0, all.getValueAtPercentile(99) / 1000.0, all.getMaxValue() / 1000.0);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.parse(args);
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        for (String arg : args) {
+            if (arg.startsWith("--workers=")) {
+                workers = Integer.parseInt(arg.substring("--workers=".length()));
+            }
+        }
+        MockServer mockServer = null;
+        String baseUrl = config.baseUrl();
+        if (baseUrl == null) {
+            mockServer = MockServer.start(Paths.get(System.getProperty("greenmarket.mock.db", MockServer.DEFAULT_DB_FILE)));
+            baseUrl = mockServer.getBaseUrl();
+        }
+        System.out.printf("Carga %s repartida en %d workers contra %s durante %d s%n",
+                config.model() == LoadConfig.Model.CLOSED
+                        ? "cerrada con " + config.users() + " usuarios virtuales"
+                        : "abierta a " + config.arrivalRate() + " iteraciones/s",
+                workers, baseUrl, config.duration().toSeconds());
+        LoadCoordinator coordinator = new LoadCoordinator(config, workers);
+        try {
+            LoadReport report = coordinator.run(baseUrl, System.out);
+            report.print(System.out);
+            Path csv = config.csvFile();
+            try {
+                report.writeCsv(csv);
+                System.out.println("CSV: " + csv.toAbsolutePath());
+            } catch (IOException e) {
+                System.err.println("No se pudo escribir el CSV: " + e.getMessage());
+            }
+        } finally {
+            if (mockServer != null) {
+                mockServer.stop();
+            }
+        }
+        if (coordinator.getLost() > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.greenmarket.tests.load;
+
+import com.greenmarket.tests.base.TestContext;
+import com.greenmarket.tests.http.AdaptiveThrottle;
+import com.greenmarket.tests.http.HttpTransport;
+import com.greenmarket.tests.http.TransportConfig;
+import com.greenmarket.tests.mock.MockServer;
+import com.greenmarket.tests.validation.SchemaRegistry;
+import com.greenmarket.tests.validation.SchemaValidationFilter;
+import io.restassured.filter.Filter;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga con hilos virtuales sobre el flujo de GreenMarketFlow
+ *
+ * Modelo cerrado: N usuarios virtuales repiten el flujo sin pausa (la carga depende de la latencia)
+ * Modelo abierto: llegan iteraciones nuevas a tasa fija sin importar cuántas sigan en curso; el primer paso de
+ * cada una se mide desde su llegada programada, así un generador atrasado no esconde latencia (omisión
+ * coordinada). Cada llegada toma un usuario virtual libre o crea uno si todos están ocupados: los registros y
+ * logins crecen con la concurrencia y no con las llegadas
+ *
+ * Uso: java com.greenmarket.tests.load.LoadGenerator --model=open --rate=200 --duration=60
+ * El transporte HTTP se elige con -Dgreenmarket.http.transport=pooled|http2|default
+ * Las respuestas se validan contra los esquemas JSON (-Dgreenmarket.schema.validation=strict|report|off);
+ * una violación en modo estricto cuenta como error del paso y el costo se reporta aparte
+ * Con -Dgreenmarket.throttle=aimd los 429/503 se manejan con concurrencia adaptativa AIMD y reintentos con jitter;
+ * el reporte compara la carga ofrecida con el goodput
+ * Para repartir la carga entre varias JVM ver LoadCoordinator
+ */
+public class LoadGenerator {
+    
+    private final LoadConfig config;
+    private final HttpTransport transport;
+    
+    /**
+     * @param config Configuración de la corrida
+     * @param transport Transporte HTTP compartido por todos los usuarios virtuales
+     */
+    public LoadGenerator(LoadConfig config, HttpTransport transport) {
+        this.config = config;
+        this.transport = transport;
+    }
+    
+    /**
+     * Ejecuta la corrida contra la URL indicada
+     * @param baseUrl URL base de la API
+     * @return Reporte con las estadísticas por endpoint
+     * @throws InterruptedException Si se interrumpe la espera de las iteraciones en curso
+     */
+    public LoadReport run(String baseUrl) throws InterruptedException {
+        LoadReport report = new LoadReport();
+        run(baseUrl, report, Long.toString(System.currentTimeMillis(), 36));
+        return report;
+    }
+    
+    /**
+     * Ejecuta la corrida registrando en un reporte que otro hilo puede leer mientras avanza (ver LoadWorker)
+     * @param baseUrl URL base de la API
+     * @param report Reporte de la corrida
+     * @param runId Identificador que forma los emails de los usuarios virtuales; distinto en cada proceso
+     * @throws InterruptedException Si se interrumpe la espera de las iteraciones en curso
+     */
+    void run(String baseUrl, LoadReport report, String runId) throws InterruptedException {
+        Filter[] filters = schemaFilters(report);
+        GreenMarketFlow flow = new GreenMarketFlow(report, new TestContext(baseUrl, transport, filters).getBaseSpec(),
+                AdaptiveThrottle.fromSystemProperties());
+        report.markStart();
+        long deadline = System.nanoTime() + config.duration().toNanos();
+        if (config.model() == LoadConfig.Model.CLOSED) {
+            runClosed(flow, report, baseUrl, runId, deadline, filters);
+        } else {
+            runOpen(flow, report, baseUrl, runId, deadline, filters);
+        }
+        report.markEnd();
+    }
+    
+    private void runClosed(GreenMarketFlow flow, LoadReport report, String baseUrl, String runId, long deadline,
+                           Filter[] filters) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.users(); i++) {
+                VirtualUser user = new VirtualUser(runId, i, baseUrl, transport, filters);
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        report.iterationCompleted(flow.run(user));
+                    }
+                });
+            }
+        }
+    }
+    
+    private void runOpen(GreenMarketFlow flow, LoadReport report, String baseUrl, String runId, long deadline,
+                         Filter[] filters) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(config.maxInFlight());
+        AtomicLong sequence = new AtomicLong();
+        Queue<VirtualUser> idle = new ConcurrentLinkedQueue<>();
+        long interval = (long) (1_000_000_000L / config.arrivalRate());
+        long next = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (next < deadline) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (inFlight.tryAcquire()) {
+                    long arrival = next;
+                    VirtualUser pooled = idle.poll();
+                    VirtualUser user = pooled != null
+                            ? pooled : new VirtualUser(runId, sequence.incrementAndGet(), baseUrl, transport, filters);
+                    executor.submit(() -> {
+                        try {
+                            report.iterationCompleted(flow.run(user, arrival));
+                        } finally {
+                            idle.offer(user);
+                            inFlight.release();
+                        }
+                    });
+                } else {
+                    report.arrivalDropped();
+                }
+                // El horario se fija de antemano: si el generador se atrasa, recupera las llegadas pendientes
+                next += interval;
+            }
+        }
+    }
+    
+    private static Filter[] schemaFilters(LoadReport report) {
+        String mode = System.getProperty("greenmarket.schema.validation", "strict");
+        if ("off".equalsIgnoreCase(mode)) {
+            return new Filter[0];
+        }
+        return new Filter[] {
+                new SchemaValidationFilter(SchemaRegistry.shared(), report.getValidationStats(),
+                        !"report".equalsIgnoreCase(mode))
+        };
+    }
+    
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.parse(args);
+        MockServer mockServer = null;
+        String baseUrl = config.baseUrl();
+        if (baseUrl == null) {
+            // -Dgreenmarket.mock.db permite cargar un dataset generado con DatasetGenerator
+            mockServer = MockServer.start(Paths.get(System.getProperty("greenmarket.mock.db", MockServer.DEFAULT_DB_FILE)));
+            baseUrl = mockServer.getBaseUrl();
+        }
+        System.out.printf("Carga %s contra %s durante %d s%n",
+                config.model() == LoadConfig.Model.CLOSED
+                        ? "cerrada con " + config.users() + " usuarios virtuales"
+                        : "abierta a " + config.arrivalRate() + " iteraciones/s",
+                baseUrl, config.duration().toSeconds());
+        try (HttpTransport transport = HttpTransport.create(TransportConfig.fromSystemProperties())) {
+            LoadReport report = new LoadGenerator(config, transport).run(baseUrl);
+            report.print(System.out);
+            System.out.println("Conexiones (" + transport.getConfig().type().name().toLowerCase() + "): "
+                    + transport.summary());
+            report.writeCsv(config.csvFile());
+            System.out.println("CSV: " + config.csvFile().toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("No se pudo escribir el CSV: " + e.getMessage());
+        } finally {
+            if (mockServer != null) {
+                mockServer.stop();
+            }
+        }
+    }
+}
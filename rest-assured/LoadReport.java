@@ -0,0 +1,213 @@
+package com.greenmarket.tests.load;
+
+import com.greenmarket.tests.base.TokenCache;
+import com.greenmarket.tests.http.AdaptiveThrottle;
+import com.greenmarket.tests.validation.ValidationStats;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resultados de una corrida de carga: throughput y percentiles de latencia por endpoint
+ * La carga ofrecida cuenta cada paso que el flujo quiso enviar; el goodput solo los que respondieron
+ * el código esperado, tras los reintentos del throttle si lo hay
+ */
+public class LoadReport {
+    
+    private final ConcurrentMap<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder failedIterations = new LongAdder();
+    private final LongAdder droppedArrivals = new LongAdder();
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    private volatile TokenCache tokens;
+    private volatile AdaptiveThrottle throttle;
+    private final ValidationStats validation = new ValidationStats();
+    
+    /**
+     * Obtiene (o crea) las estadísticas de un endpoint
+     * @param endpoint Plantilla del endpoint, p. ej. "GET /products/{id}"
+     * @return Estadísticas del endpoint
+     */
+    public EndpointStats endpoint(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, EndpointStats::new);
+    }
+    
+    /**
+     * Inicio de la medición; los generadores lo marcan justo antes de enviar la primera petición
+     */
+    public void markStart() {
+        startNanos = System.nanoTime();
+    }
+    
+    public void markEnd() {
+        endNanos = System.nanoTime();
+    }
+    
+    /**
+     * Registra una iteración del flujo, o una petición en una reproducción de tráfico
+     */
+    public void iterationCompleted(boolean success) {
+        iterations.increment();
+        if (!success) {
+            failedIterations.increment();
+        }
+    }
+    
+    void arrivalDropped() {
+        droppedArrivals.increment();
+    }
+    
+    /**
+     * Suma los contadores de iteraciones informados por un worker (ver LoadCoordinator)
+     */
+    void add(long iterations, long failedIterations, long droppedArrivals) {
+        this.iterations.add(iterations);
+        this.failedIterations.add(failedIterations);
+        this.droppedArrivals.add(droppedArrivals);
+    }
+    
+    void setTokenCache(TokenCache tokens) {
+        this.tokens = tokens;
+    }
+    
+    void setThrottle(AdaptiveThrottle throttle) {
+        this.throttle = throttle;
+    }
+    
+    /**
+     * Control de concurrencia usado por la corrida, o null si se envió sin throttle
+     */
+    public AdaptiveThrottle getThrottle() {
+        return throttle;
+    }
+    
+    /**
+     * Peticiones por segundo que el flujo intentó completar (una por paso, sin contar reintentos)
+     */
+    public double getOfferedRate() {
+        long offered = getEndpoints().stream().mapToLong(EndpointStats::getCount).sum();
+        return offered / getElapsedSeconds();
+    }
+    
+    /**
+     * Peticiones por segundo que terminaron con el código esperado
+     */
+    public double getGoodput() {
+        long good = getEndpoints().stream().mapToLong(stats -> stats.getCount() - stats.getErrors()).sum();
+        return good / getElapsedSeconds();
+    }
+    
+    /**
+     * Costo de la validación de esquemas de las respuestas, separado de la latencia de cada endpoint
+     */
+    public ValidationStats getValidationStats() {
+        return validation;
+    }
+    
+    /**
+     * Caché de tokens usada por la corrida (logins, aciertos y renovaciones)
+     */
+    public TokenCache getTokenCache() {
+        return tokens;
+    }
+    
+    /**
+     * Duración de la corrida en segundos (hasta ahora si aún no termina)
+     */
+    public double getElapsedSeconds() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1_000_000_000.0;
+    }
+    
+    public long getIterations() {
+        return iterations.sum();
+    }
+    
+    public long getFailedIterations() {
+        return failedIterations.sum();
+    }
+    
+    public long getDroppedArrivals() {
+        return droppedArrivals.sum();
+    }
+    
+    /**
+     * Estadísticas de todos los endpoints ordenadas por nombre
+     */
+    public List<EndpointStats> getEndpoints() {
+        List<EndpointStats> stats = new ArrayList<>(endpoints.values());
+        stats.sort(Comparator.comparing(EndpointStats::getEndpoint));
+        return stats;
+    }
+    
+    /**
+     * Imprime la tabla de throughput y percentiles
+     * @param out Destino
+     */
+    public void print(PrintStream out) {
+        double seconds = getElapsedSeconds();
+        out.println();
+        out.println("=== Resumen de Carga ===");
+        out.printf(Locale.ROOT, "Duración: %.1f s | Iteraciones: %d (fallidas: %d, descartadas: %d)%n",
+                seconds, getIterations(), getFailedIterations(), getDroppedArrivals());
+        out.printf(Locale.ROOT, "%-26s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Total", "Errores", "req/s", "p50 ms", "p90 ms", "p95 ms", "p99 ms", "max ms");
+        for (EndpointStats stats : getEndpoints()) {
+            Histogram h = stats.snapshot();
+            out.printf(Locale.ROOT, "%-26s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    stats.getEndpoint(), h.getTotalCount(), stats.getErrors(), h.getTotalCount() / seconds,
+                    millis(h, 50), millis(h, 90), millis(h, 95), millis(h, 99), h.getMaxValue() / 1000.0);
+        }
+        double offered = getOfferedRate();
+        double goodput = getGoodput();
+        out.printf(Locale.ROOT, "Carga ofrecida: %.1f req/s | Goodput: %.1f req/s (%.1f%%)%n",
+                offered, goodput, offered == 0 ? 0.0 : goodput * 100 / offered);
+        if (throttle != null) {
+            out.println("Throttle AIMD: " + throttle.summary());
+        }
+        if (validation.getValidated() > 0) {
+            out.println("Validación de esquemas: " + validation.summary());
+        }
+        if (tokens != null) {
+            out.println("Autenticación: " + tokens.summary());
+        }
+    }
+    
+    /**
+     * Escribe los mismos datos de la tabla en formato CSV
+     * @param file Archivo destino (se crean los directorios faltantes)
+     * @throws IOException Si no se puede escribir
+     */
+    public void writeCsv(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        double seconds = getElapsedSeconds();
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("endpoint,count,errors,throughput_rps,p50_ms,p90_ms,p95_ms,p99_ms,max_ms\n");
+            for (EndpointStats stats : getEndpoints()) {
+                Histogram h = stats.snapshot();
+                writer.write(String.format(Locale.ROOT, "\"%s\",%d,%d,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                        stats.getEndpoint(), h.getTotalCount(), stats.getErrors(), h.getTotalCount() / seconds,
+                        millis(h, 50), millis(h, 90), millis(h, 95), millis(h, 99), h.getMaxValue() / 1000.0));
+            }
+        }
+    }
+    
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,135 @@
+package com.greenmarket.tests.load;
+
+import com.greenmarket.tests.http.HttpTransport;
+import com.greenmarket.tests.http.TransportConfig;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proceso worker de una corrida distribuida: ejecuta su parte de la carga con LoadGenerator y cada segundo envía
+ * al coordinador lo registrado desde el envío anterior (ver WorkerProtocol)
+ *
+ * Los intervalos son la diferencia entre el histograma acumulado de cada endpoint y el último enviado, así la
+ * suma de todos los mensajes es exactamente lo que registró el worker, aunque el coordinador los lea con atraso
+ * Si pierde al coordinador termina con código 1
+ *
+ * Lo lanza LoadCoordinator con la misma JVM, classpath y propiedades greenmarket.*
+ * Uso: java com.greenmarket.tests.load.LoadWorker --coordinator=<puerto> --worker=<n>
+ */
+public class LoadWorker {
+    
+    private final int worker;
+    private final DataOutputStream out;
+    private final LoadReport report = new LoadReport();
+    private final Map<String, Histogram> sentLatencies = new HashMap<>();
+    private final Map<String, Long> sentErrors = new HashMap<>();
+    private long sentIterations;
+    private long sentFailed;
+    private long sentDropped;
+    
+    /**
+     * @param worker Número del worker, desde 0
+     * @param out Conexión con el coordinador
+     */
+    public LoadWorker(int worker, DataOutputStream out) {
+        this.worker = worker;
+        this.out = out;
+    }
+    
+    /**
+     * Espera el instante de inicio, ejecuta la carga e informa hasta el mensaje DONE
+     * @param start Orden del coordinador
+     * @param transport Transporte HTTP del worker
+     * @throws IOException Si se pierde la conexión con el coordinador
+     * @throws InterruptedException Si se interrumpe la corrida
+     */
+    void run(WorkerProtocol.Start start, HttpTransport transport) throws IOException, InterruptedException {
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        long delay = start.startEpochMillis() - System.currentTimeMillis();
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                send(false);
+            } catch (IOException e) {
+                System.err.println("[worker " + worker + "] Se perdió el coordinador: " + e.getMessage());
+                System.exit(1);
+            }
+        }, Math.max(0, delay) + 1000, 1000, TimeUnit.MILLISECONDS);
+        try {
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            new LoadGenerator(start.shard(), transport).run(start.shard().baseUrl(), report, start.runId());
+        } finally {
+            ticker.shutdownNow();
+            ticker.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        send(true);
+    }
+    
+    private synchronized void send(boolean last) throws IOException {
+        Map<String, WorkerProtocol.EndpointDelta> endpoints = new LinkedHashMap<>();
+        for (EndpointStats stats : report.getEndpoints()) {
+            Histogram current = stats.snapshot();
+            long errors = stats.getErrors();
+            Histogram delta = current.copy();
+            Histogram previous = sentLatencies.put(stats.getEndpoint(), current);
+            if (previous != null) {
+                delta.subtract(previous);
+            }
+            long errorDelta = errors - sentErrors.getOrDefault(stats.getEndpoint(), 0L);
+            sentErrors.put(stats.getEndpoint(), errors);
+            if (delta.getTotalCount() > 0 || errorDelta > 0) {
+                endpoints.put(stats.getEndpoint(), new WorkerProtocol.EndpointDelta(delta, errorDelta));
+            }
+        }
+        long iterations = report.getIterations();
+        long failed = report.getFailedIterations();
+        long dropped = report.getDroppedArrivals();
+        WorkerProtocol.writeInterval(out, new WorkerProtocol.Interval(last, endpoints,
+                iterations - sentIterations, failed - sentFailed, dropped - sentDropped));
+        sentIterations = iterations;
+        sentFailed = failed;
+        sentDropped = dropped;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int port = -1;
+        int worker = -1;
+        for (String arg : args) {
+            if (arg.startsWith("--coordinator=")) {
+                port = Integer.parseInt(arg.substring("--coordinator=".length()));
+            } else if (arg.startsWith("--worker=")) {
+                worker = Integer.parseInt(arg.substring("--worker=".length()));
+            } else {
+                throw new IllegalArgumentException("Argumento inválido: " + arg);
+            }
+        }
+        if (port <= 0 || worker < 0) {
+            throw new IllegalArgumentException("Se necesitan --coordinator=<puerto> y --worker=<n>");
+        }
+        try (HttpTransport transport = HttpTransport.create(TransportConfig.fromSystemProperties());
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            WorkerProtocol.writeHello(out, worker);
+            WorkerProtocol.Start start = WorkerProtocol.readStart(in);
+            new LoadWorker(worker, out).run(start, transport);
+            System.out.println("[worker " + worker + "] Conexiones (" + transport.getConfig().type().name().toLowerCase()
+                    + "): " + transport.summary());
+        }
+    }
+}
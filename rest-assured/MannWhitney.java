@@ -0,0 +1,111 @@
+package com.greenmarket.tests.history;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import java.util.Iterator;
+
+/**
+ * Prueba U de Mann-Whitney entre dos histogramas de latencia
+ *
+ * No asume normalidad (las latencias rara vez lo son) y trabaja directo sobre los buckets de HdrHistogram:
+ * los valores de un mismo bucket son empates y reciben el rango promedio, así el costo depende de la cantidad
+ * de buckets y no de las muestras. El p-valor usa la aproximación normal con corrección por empates y
+ * por continuidad, razonable desde unas 5 muestras por lado
+ */
+public final class MannWhitney {
+    
+    private MannWhitney() {
+    }
+    
+    /**
+     * Resultado de la prueba
+     * @param u Estadístico U de la muestra actual
+     * @param z Estadístico normalizado; positivo si la muestra actual tiende a ser más lenta
+     * @param pSlower p-valor unilateral de que la muestra actual sea más lenta que la base
+     * @param pFaster p-valor unilateral de que sea más rápida
+     */
+    public record Result(double u, double z, double pSlower, double pFaster) {
+    }
+    
+    /**
+     * Compara la muestra actual contra la línea base
+     * @param current Latencias actuales
+     * @param baseline Latencias de referencia
+     * @return Resultado; con algún histograma vacío los p-valores son 1
+     */
+    public static Result test(Histogram current, Histogram baseline) {
+        double n1 = current.getTotalCount();
+        double n2 = baseline.getTotalCount();
+        if (n1 == 0 || n2 == 0) {
+            return new Result(0, 0, 1, 1);
+        }
+        Iterator<HistogramIterationValue> a = current.recordedValues().iterator();
+        Iterator<HistogramIterationValue> b = baseline.recordedValues().iterator();
+        long[] nextA = next(a, current);
+        long[] nextB = next(b, baseline);
+        double rankSum = 0;
+        double ranked = 0;
+        double ties = 0;
+        while (nextA != null || nextB != null) {
+            long value = Math.min(nextA == null ? Long.MAX_VALUE : nextA[0], nextB == null ? Long.MAX_VALUE : nextB[0]);
+            double countA = 0;
+            double countB = 0;
+            if (nextA != null && nextA[0] == value) {
+                countA = nextA[1];
+                nextA = next(a, current);
+            }
+            if (nextB != null && nextB[0] == value) {
+                countB = nextB[1];
+                nextB = next(b, baseline);
+            }
+            double tied = countA + countB;
+            rankSum += countA * (ranked + (tied + 1) / 2);
+            ranked += tied;
+            ties += tied * tied * tied - tied;
+        }
+        double n = n1 + n2;
+        double u = rankSum - n1 * (n1 + 1) / 2;
+        double mean = n1 * n2 / 2;
+        double variance = n1 * n2 / 12 * ((n + 1) - ties / (n * (n - 1)));
+        if (variance <= 0) {
+            return new Result(u, 0, 1, 1);
+        }
+        double sd = Math.sqrt(variance);
+        double z = (u - mean) / sd;
+        double pSlower = upperTail((u - mean - 0.5) / sd);
+        double pFaster = upperTail((mean - u - 0.5) / sd);
+        return new Result(u, z, pSlower, pFaster);
+    }
+    
+    /**
+     * Siguiente bucket como {valor equivalente más bajo, cantidad}; los dos histogramas usan los mismos límites
+     * de bucket si comparten precisión, por eso se compara el inicio del rango y no el valor iterado
+     */
+    private static long[] next(Iterator<HistogramIterationValue> values, Histogram histogram) {
+        if (!values.hasNext()) {
+            return null;
+        }
+        HistogramIterationValue value = values.next();
+        return new long[] {histogram.lowestEquivalentValue(value.getValueIteratedTo()), value.getCountAtValueIteratedTo()};
+    }
+    
+    /**
+     * P(Z > z) de la normal estándar
+     */
+    static double upperTail(double z) {
+        return 0.5 * erfc(z / Math.sqrt(2));
+    }
+    
+    /**
+     * Función de error complementaria (aproximación de Chebyshev, error relativo menor a 1.2e-7)
+     */
+    private static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double r = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? r : 2 - r;
+    }
+}
@@ -0,0 +1,212 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Rutas de autenticación de GreenMarket que json-server no provee:
+ * POST /users/register, POST /users/login y GET /users/profile
+ * Emite JWT HS256 firmados con una clave aleatoria por instancia del servidor
+ */
+public class MockAuth {
+    
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64_DECODER = Base64.getUrlDecoder();
+    private static final String JWT_HEADER = B64.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+    
+    private final MockStore store;
+    private final ObjectMapper mapper;
+    private final byte[] secret = new byte[32];
+    private final long tokenTtlSeconds;
+    
+    public MockAuth(MockStore store, long tokenTtlSeconds) {
+        this.store = store;
+        this.mapper = store.getMapper();
+        this.tokenTtlSeconds = tokenTtlSeconds;
+        new SecureRandom().nextBytes(secret);
+    }
+    
+    /**
+     * POST /users/register
+     * Los usuarios de db.json traen un hash de ejemplo que no corresponde a ninguna contraseña: el primer
+     * registro con su email les asigna la contraseña (201, conservando id y datos) y desde ahí pueden iniciar sesión
+     * @param body Cuerpo con name, email, password y phone
+     * @return 201 con el usuario creado, 400 si faltan datos o 409 si el email existe
+     */
+    public MockResponse register(JsonNode body) {
+        String email = text(body, "email");
+        String password = text(body, "password");
+        if (email == null || password == null) {
+            return MockResponse.error(400, "Email and password are required");
+        }
+        MockCollection users = store.collection("users");
+        ObjectNode user = mapper.createObjectNode();
+        user.put("name", text(body, "name"));
+        user.put("email", email);
+        user.put("password", hash(password));
+        user.put("phone", text(body, "phone"));
+        ObjectNode stored;
+        // Evita que dos registros concurrentes con el mismo email pasen la verificación
+        synchronized (this) {
+            Optional<ObjectNode> existing = findByEmail(email);
+            if (existing.isPresent() && hasPassword(existing.get())) {
+                return MockResponse.error(409, "Email already registered");
+            }
+            if (existing.isPresent()) {
+                stored = users.patch(existing.get().get("id").asText(), user).orElseThrow();
+            } else {
+                user.put("createdAt", Instant.now().toString());
+                stored = users.insert(user).orElseThrow();
+            }
+        }
+        return MockResponse.created(publicView(stored));
+    }
+    
+    /**
+     * POST /users/login
+     * @param body Cuerpo con email y password
+     * @return 200 con token, userId y expiresIn, o 401 si las credenciales no coinciden
+     */
+    public MockResponse login(JsonNode body) {
+        String email = text(body, "email");
+        String password = text(body, "password");
+        Optional<ObjectNode> user = email == null ? Optional.empty() : findByEmail(email);
+        if (user.isEmpty() || password == null || !hash(password).equals(text(user.get(), "password"))) {
+            return MockResponse.error(401, "Invalid credentials");
+        }
+        String userId = user.get().get("id").asText();
+        ObjectNode response = mapper.createObjectNode();
+        response.put("token", issueToken(userId, email));
+        response.put("userId", userId);
+        response.put("expiresIn", tokenTtlSeconds);
+        return MockResponse.ok(response);
+    }
+    
+    /**
+     * GET /users/profile
+     * @param authorization Cabecera Authorization recibida
+     * @return 200 con el perfil o 401 si el token falta, es inválido o expiró
+     */
+    public MockResponse profile(String authorization) {
+        Optional<String> userId = authenticate(authorization);
+        Optional<ObjectNode> user = userId.flatMap(id -> store.collection("users").find(id));
+        if (user.isEmpty()) {
+            return MockResponse.error(401, "Authentication required");
+        }
+        return MockResponse.ok(publicView(user.get()));
+    }
+    
+    /**
+     * Valida una cabecera "Bearer <jwt>"
+     * @param authorization Cabecera Authorization
+     * @return userId del token si la firma es válida y no expiró
+     */
+    public Optional<String> authenticate(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return Optional.empty();
+        }
+        String[] parts = authorization.substring(7).trim().split("\\.");
+        if (parts.length != 3) {
+            return Optional.empty();
+        }
+        byte[] expected = sign(parts[0] + "." + parts[1]);
+        byte[] actual;
+        try {
+            actual = B64_DECODER.decode(parts[2]);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return Optional.empty();
+        }
+        try {
+            JsonNode claims = mapper.readTree(B64_DECODER.decode(parts[1]));
+            if (claims.path("exp").asLong() <= Instant.now().getEpochSecond()) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(text(claims, "sub"));
+        } catch (IOException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+    
+    private String issueToken(String userId, String email) {
+        long now = Instant.now().getEpochSecond();
+        ObjectNode claims = mapper.createObjectNode();
+        claims.put("sub", userId);
+        claims.put("email", email);
+        claims.put("iat", now);
+        claims.put("exp", now + tokenTtlSeconds);
+        String payload;
+        try {
+            payload = B64.encodeToString(mapper.writeValueAsBytes(claims));
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo serializar el token", e);
+        }
+        String unsigned = JWT_HEADER + "." + payload;
+        return unsigned + "." + B64.encodeToString(sign(unsigned));
+    }
+    
+    private Optional<ObjectNode> findByEmail(String email) {
+        List<ObjectNode> matches = store.collection("users")
+                .query(MockQuery.parse(Map.of("email", List.of(email))))
+                .items();
+        return matches.isEmpty() ? Optional.empty() : Optional.of(matches.get(0));
+    }
+    
+    /**
+     * Si el usuario tiene una contraseña verificable por el mock (no el hash de ejemplo de db.json)
+     */
+    private static boolean hasPassword(ObjectNode user) {
+        String stored = text(user, "password");
+        return stored != null && stored.startsWith("sha256:");
+    }
+    
+    private ObjectNode publicView(ObjectNode user) {
+        ObjectNode view = user.deepCopy();
+        view.remove("password");
+        view.put("userId", user.get("id").asText());
+        return view;
+    }
+    
+    private byte[] sign(String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+    
+    private static String hash(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return "sha256:" + HexFormat.of().formatHex(digest.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+    
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node == null ? null : node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+}
@@ -0,0 +1,475 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Colección en memoria del mock server (users, products, orders, ...)
+ * Conserva el orden de inserción como json-server y es segura para acceso concurrente:
+ * los registros nunca se modifican en sitio, cada escritura publica una copia nueva
+ *
+ * Índices: hash por id, índices de igualdad sobre category, productId y userId, y acceso por posición
+ * (SlotList), de modo que una página sin filtros o filtrada por un campo indexado cuesta O(tamaño de página)
+ * en vez de recorrer la colección. Los índices se actualizan en cada escritura
+ * Cada escritura aumenta además la versión de la colección, que ConditionalRequests usa como ETag
+ */
+public class MockCollection {
+    
+    /** Campos indexados por defecto: filtros usados por la API (products?category, reviews?productId, orders?userId) */
+    public static final Set<String> DEFAULT_INDEXED_FIELDS = Set.of("category", "productId", "userId");
+    
+    private final String name;
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private final SlotList slots = new SlotList();
+    private final Map<String, SecondaryIndex> indexes = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile MockJournal journal;
+    private volatile long version;
+    private volatile Listener listener;
+    private volatile long lastModified = System.currentTimeMillis();
+    
+    public MockCollection(String name) {
+        this(name, DEFAULT_INDEXED_FIELDS);
+    }
+    
+    /**
+     * @param name Nombre de la colección
+     * @param indexedFields Campos de primer nivel con índice de igualdad
+     */
+    public MockCollection(String name, Set<String> indexedFields) {
+        this.name = name;
+        for (String field : indexedFields) {
+            indexes.put(field, new SecondaryIndex(field));
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Versión de la colección: aumenta con cada escritura, también con las reaplicadas desde el log
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Momento de la última escritura (o de la creación de la colección), en milisegundos epoch
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+    
+    /**
+     * Recibe cada escritura de la colección después de aplicarla, con el lock de escritura todavía tomado:
+     * las notificaciones llegan en el mismo orden que las escrituras. No debe escribir en esta colección
+     */
+    public interface Listener {
+        
+        /**
+         * @param previous Registro anterior, o null si fue una inserción
+         * @param current Registro nuevo, o null si fue un borrado
+         */
+        void changed(ObjectNode previous, ObjectNode current);
+    }
+    
+    /**
+     * Notifica desde ahora cada escritura al listener (reemplaza al anterior; null deja de notificar)
+     */
+    public void listen(Listener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Como listen, pero antes entrega los registros actuales a initial, todo con el lock de escritura tomado:
+     * cada escritura está en la copia inicial o se notifica al listener, nunca en ambas ni en ninguna
+     * @param listener Listener que recibirá las escrituras posteriores
+     * @param initial Recibe la copia de los registros antes de la primera notificación
+     */
+    public void listen(Listener listener, Consumer<List<ObjectNode>> initial) {
+        lock.writeLock().lock();
+        try {
+            initial.accept(snapshot());
+            this.listener = listener;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Registra desde ahora cada escritura de la colección en el log del store
+     */
+    void attach(MockJournal journal) {
+        this.journal = journal;
+    }
+    
+    /**
+     * Página de resultados de una consulta
+     * @param items Registros de la página
+     * @param total Total de registros que cumplen los filtros
+     */
+    public record Page(List<ObjectNode> items, int total) {
+    }
+    
+    /**
+     * Ejecuta una consulta con semántica de json-server
+     * Sin filtros o con un único filtro de igualdad indexado la página se arma en O(tamaño de página);
+     * con otros filtros se recorren solo los candidatos del índice más selectivo, o toda la colección si no hay
+     * @param query Filtros y paginación
+     * @return Página resultante
+     */
+    public Page query(MockQuery query) {
+        lock.readLock().lock();
+        try {
+            Map<String, List<String>> filters = query.getFilters();
+            if (filters.isEmpty()) {
+                return pageOfAll(query);
+            }
+            List<SecondaryIndex.Postings> candidates = candidates(filters);
+            if (candidates == null) {
+                return scan(query);
+            }
+            if (filters.size() == 1 && candidates.size() == 1) {
+                return pageOf(candidates.get(0), query);
+            }
+            return scan(query, merge(candidates));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Busca un registro por su id
+     * @param id Identificador
+     * @return Registro si existe
+     */
+    public Optional<ObjectNode> find(String id) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotsById.get(id);
+            return slot == null ? Optional.empty() : Optional.of(slots.get(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Inserta un registro, asignando un id correlativo si no trae uno
+     * @param record Registro a insertar
+     * @return Registro almacenado, o vacío si el id ya existía
+     */
+    public Optional<ObjectNode> insert(ObjectNode record) {
+        ObjectNode stored = record.deepCopy();
+        lock.writeLock().lock();
+        try {
+            String id = stored.hasNonNull("id") ? stored.get("id").asText() : null;
+            if (id == null) {
+                do {
+                    id = Long.toString(sequence.incrementAndGet());
+                } while (slotsById.containsKey(id));
+                stored.put("id", id);
+            } else if (slotsById.containsKey(id)) {
+                return Optional.empty();
+            }
+            trackSequence(id);
+            int slot = slots.append(stored);
+            slotsById.put(id, slot);
+            for (SecondaryIndex index : indexes.values()) {
+                index.add(stored, slot);
+            }
+            log(id, stored);
+            modified(null, stored);
+            return Optional.of(stored);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Reemplaza un registro completo (PUT), conservando su id
+     * @param id Identificador
+     * @param record Nuevo contenido
+     * @return Registro almacenado, o vacío si no existía
+     */
+    public Optional<ObjectNode> replace(String id, ObjectNode record) {
+        ObjectNode stored = record.deepCopy();
+        stored.put("id", id);
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.get(id);
+            if (slot == null) {
+                return Optional.empty();
+            }
+            ObjectNode previous = slots.get(slot);
+            store(slot, stored);
+            log(id, stored);
+            modified(previous, stored);
+            return Optional.of(stored);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Actualiza parcialmente un registro (PATCH) mezclando los campos de primer nivel
+     * @param id Identificador
+     * @param changes Campos a modificar
+     * @return Registro almacenado, o vacío si no existía
+     */
+    public Optional<ObjectNode> patch(String id, ObjectNode changes) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.get(id);
+            if (slot == null) {
+                return Optional.empty();
+            }
+            ObjectNode previous = slots.get(slot);
+            ObjectNode stored = previous.deepCopy();
+            Iterator<Map.Entry<String, JsonNode>> fields = changes.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!"id".equals(field.getKey())) {
+                    stored.set(field.getKey(), field.getValue().deepCopy());
+                }
+            }
+            store(slot, stored);
+            log(id, stored);
+            modified(previous, stored);
+            return Optional.of(stored);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Elimina un registro
+     * @param id Identificador
+     * @return Registro eliminado, o vacío si no existía
+     */
+    public Optional<ObjectNode> remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.remove(id);
+            if (slot == null) {
+                return Optional.empty();
+            }
+            ObjectNode removed = slots.get(slot);
+            for (SecondaryIndex index : indexes.values()) {
+                index.remove(removed, slot);
+            }
+            slots.clear(slot);
+            if (slots.needsCompaction()) {
+                compact();
+            }
+            MockJournal current = journal;
+            if (current != null) {
+                current.delete(name, id);
+            }
+            modified(removed, null);
+            return Optional.of(removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Inserta o reemplaza un registro al reaplicar el log, sin volver a registrarlo
+     * @param record Estado final del registro, con su id
+     */
+    void restore(ObjectNode record) {
+        if (insert(record).isEmpty()) {
+            replace(record.get("id").asText(), record);
+        }
+    }
+    
+    /**
+     * Copia de todos los registros en orden de inserción
+     */
+    public List<ObjectNode> snapshot() {
+        lock.readLock().lock();
+        try {
+            List<ObjectNode> copy = new ArrayList<>(slots.live());
+            for (int slot = 0; slot < slots.size(); slot++) {
+                ObjectNode record = slots.get(slot);
+                if (record != null) {
+                    copy.add(record);
+                }
+            }
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.live();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void store(int slot, ObjectNode stored) {
+        ObjectNode previous = slots.get(slot);
+        for (SecondaryIndex index : indexes.values()) {
+            index.update(previous, stored, slot);
+        }
+        slots.set(slot, stored);
+    }
+    
+    /**
+     * Publica la nueva versión y avisa al listener; se llama con el lock de escritura tomado, después de aplicar
+     * el cambio
+     */
+    private void modified(ObjectNode previous, ObjectNode current) {
+        lastModified = System.currentTimeMillis();
+        version++;
+        Listener observer = listener;
+        if (observer != null) {
+            observer.changed(previous, current);
+        }
+    }
+    
+    private void log(String id, ObjectNode stored) {
+        MockJournal current = journal;
+        if (current != null) {
+            current.put(name, id, stored);
+        }
+    }
+    
+    private void compact() {
+        int[] remap = slots.compact();
+        slotsById.replaceAll((id, slot) -> remap[slot]);
+        for (SecondaryIndex index : indexes.values()) {
+            index.remap(remap);
+        }
+    }
+    
+    private Page pageOfAll(MockQuery query) {
+        int total = slots.live();
+        int limit = Math.min(query.getEnd(), total) - query.getStart();
+        List<ObjectNode> items = new ArrayList<>(Math.max(0, Math.min(limit, 1024)));
+        for (int slot = slots.slotOfRank(query.getStart()); items.size() < limit && slot < slots.size(); slot++) {
+            ObjectNode record = slots.get(slot);
+            if (record != null) {
+                items.add(record);
+            }
+        }
+        return new Page(items, total);
+    }
+    
+    private Page pageOf(SecondaryIndex.Postings postings, MockQuery query) {
+        int total = postings.size();
+        int end = Math.min(query.getEnd(), total);
+        List<ObjectNode> items = new ArrayList<>(Math.max(0, Math.min(end - query.getStart(), 1024)));
+        for (int i = query.getStart(); i < end; i++) {
+            items.add(slots.get(postings.get(i)));
+        }
+        return new Page(items, total);
+    }
+    
+    /**
+     * Listas de candidatos del filtro indexado más selectivo
+     * @return Una lista por valor pedido, o null si ningún filtro usa un campo indexado
+     */
+    private List<SecondaryIndex.Postings> candidates(Map<String, List<String>> filters) {
+        List<SecondaryIndex.Postings> best = null;
+        int bestSize = Integer.MAX_VALUE;
+        for (Map.Entry<String, List<String>> filter : filters.entrySet()) {
+            SecondaryIndex index = indexes.get(filter.getKey());
+            if (index == null) {
+                continue;
+            }
+            List<SecondaryIndex.Postings> lists = new ArrayList<>();
+            int size = 0;
+            for (String value : new LinkedHashSet<>(filter.getValue())) {
+                SecondaryIndex.Postings postings = index.get(value);
+                lists.add(postings);
+                size += postings.size();
+            }
+            if (size < bestSize) {
+                best = lists;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Une listas de slots disjuntas manteniendo el orden de la colección
+     */
+    private static int[] merge(List<SecondaryIndex.Postings> lists) {
+        int total = 0;
+        for (SecondaryIndex.Postings list : lists) {
+            total += list.size();
+        }
+        int[] merged = new int[total];
+        int offset = 0;
+        for (SecondaryIndex.Postings list : lists) {
+            for (int i = 0; i < list.size(); i++) {
+                merged[offset++] = list.get(i);
+            }
+        }
+        if (lists.size() > 1) {
+            Arrays.sort(merged);
+        }
+        return merged;
+    }
+    
+    private Page scan(MockQuery query, int[] candidates) {
+        List<ObjectNode> items = new ArrayList<>();
+        int total = 0;
+        for (int slot : candidates) {
+            ObjectNode record = slots.get(slot);
+            if (!query.matches(record)) {
+                continue;
+            }
+            if (total >= query.getStart() && total < query.getEnd()) {
+                items.add(record);
+            }
+            total++;
+        }
+        return new Page(items, total);
+    }
+    
+    private Page scan(MockQuery query) {
+        List<ObjectNode> items = new ArrayList<>();
+        int total = 0;
+        for (int slot = 0; slot < slots.size(); slot++) {
+            ObjectNode record = slots.get(slot);
+            if (record == null || !query.matches(record)) {
+                continue;
+            }
+            if (total >= query.getStart() && total < query.getEnd()) {
+                items.add(record);
+            }
+            total++;
+        }
+        return new Page(items, total);
+    }
+    
+    private void trackSequence(String id) {
+        try {
+            long numeric = Long.parseLong(id);
+            sequence.accumulateAndGet(numeric, Math::max);
+        } catch (NumberFormatException ignored) {
+            // Los ids no numéricos no afectan la secuencia
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log de escrituras (write-ahead log) del mock server
+ * Cada POST/PUT/PATCH/DELETE agrega una línea con el estado final del registro, en vez de reescribir
+ * todo db.json como json-server --watch; el costo de una escritura no depende del tamaño de la base
+ *
+ * Group commit: un único hilo escribe todo lo acumulado desde el lote anterior y hace un solo fsync,
+ * y las peticiones esperan en sync() a que su entrada sea durable. Con muchos escritores concurrentes
+ * los lotes crecen y los fsync por petición bajan
+ *
+ * Cuando el log supera JournalConfig.snapshotBytes se abre un segmento nuevo y en segundo plano se escribe
+ * snapshot-&lt;seq&gt;.json (formato db.json); al terminar se borran los segmentos cubiertos.
+ * Al arrancar se carga el último snapshot y se reaplican las entradas posteriores; una última línea
+ * incompleta (caída a mitad de escritura) se descarta por su CRC
+ *
+ * Formato de línea: crc32 en hex, espacio y {"seq":n,"op":"put"|"delete","collection":...,"id":...,"record":{...}}
+ */
+public class MockJournal implements AutoCloseable {
+    
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".json";
+    
+    private final JournalConfig config;
+    private final MockStore store;
+    private final ObjectMapper mapper;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder snapshots = new LongAdder();
+    private final Thread flusher;
+    
+    // Protegidos por lock
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private long appendedSeq;
+    private long durableSeq;
+    private IOException failure;
+    private boolean closed;
+    
+    // Solo los usa el hilo de escritura (y close, después de detenerlo)
+    private FileChannel segment;
+    private long logBytes;
+    private long drainedSeq;
+    
+    private MockJournal(JournalConfig config, MockStore store, Recovery recovery) throws IOException {
+        this.config = config;
+        this.store = store;
+        this.mapper = store.getMapper();
+        this.appendedSeq = recovery.lastSeq();
+        this.durableSeq = recovery.lastSeq();
+        this.logBytes = recovery.logBytes();
+        this.drainedSeq = recovery.lastSeq();
+        this.segment = openSegment(recovery.lastSeq() + 1);
+        this.flusher = Thread.ofPlatform().daemon().name("mock-journal").start(this::flushLoop);
+    }
+    
+    /**
+     * Recupera el store desde el directorio de datos y empieza a registrar sus escrituras
+     * Sin snapshot previo se parte de dbFile; db.json nunca se modifica
+     * @param dbFile db.json inicial
+     * @param config Configuración con el directorio de datos
+     * @return Store recuperado, con el log ya enganchado a sus colecciones
+     * @throws IOException Si el snapshot o el log no se pueden leer, o hay una entrada corrupta antes del final
+     */
+    static MockStore open(Path dbFile, JournalConfig config) throws IOException {
+        Files.createDirectories(config.dataDir());
+        OptionalLong snapshotSeq = latest(config.dataDir(), SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        MockStore store = snapshotSeq.isPresent()
+                ? MockStore.load(config.dataDir().resolve(SNAPSHOT_PREFIX + snapshotSeq.getAsLong() + SNAPSHOT_SUFFIX))
+                : MockStore.load(dbFile);
+        Recovery recovery = replay(config.dataDir(), store, snapshotSeq.orElse(0));
+        if (recovery.replayed() > 0 || recovery.truncatedBytes() > 0) {
+            System.out.printf("[mock-journal] Recuperadas %d entradas del log (snapshot %d, descartados %d bytes)%n",
+                    recovery.replayed(), snapshotSeq.orElse(0), recovery.truncatedBytes());
+        }
+        MockJournal journal = new MockJournal(config, store, recovery);
+        store.attach(journal);
+        return store;
+    }
+    
+    /**
+     * Registra el estado final de un registro insertado o modificado
+     * Se llama con el lock de escritura de la colección tomado, así el orden del log es el de aplicación
+     */
+    void put(String collection, String id, ObjectNode record) {
+        append("put", collection, id, record);
+    }
+    
+    /**
+     * Registra el borrado de un registro
+     */
+    void delete(String collection, String id) {
+        append("delete", collection, id, null);
+    }
+    
+    /**
+     * Espera a que todas las entradas agregadas hasta ahora sean durables
+     * @throws UncheckedIOException Si el log no se pudo escribir
+     */
+    void sync() {
+        lock.lock();
+        try {
+            long target = appendedSeq;
+            while (durableSeq < target && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("No se pudo escribir el log del mock server", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getEntries() {
+        return entries.sum();
+    }
+    
+    /**
+     * Lotes escritos; con fsync activo es también la cantidad de fsync
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+    
+    public long getSnapshots() {
+        return snapshots.sum();
+    }
+    
+    /**
+     * Resumen de una línea para los logs del mock server
+     */
+    public String summary() {
+        long written = getBatches();
+        return String.format(Locale.ROOT, "Entradas: %d | Lotes: %d (%.1f entradas/lote, fsync: %s) | Snapshots: %d",
+                getEntries(), written, written == 0 ? 0.0 : getEntries() / (double) written,
+                config.fsync() ? "sí" : "no", getSnapshots());
+    }
+    
+    /**
+     * Escribe lo pendiente, detiene el hilo de escritura y deja un snapshot con todo el log compactado
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            pending.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (!snapshotting.compareAndSet(false, true)) {
+            Thread.onSpinWait();
+        }
+        if (failure == null && appendedSeq > 0 && logBytes > 0) {
+            long seq = appendedSeq;
+            segment.close();
+            segment = openSegment(seq + 1);
+            writeSnapshot(seq);
+        }
+        segment.close();
+    }
+    
+    private void append(String op, String collection, String id, ObjectNode record) {
+        byte[] recordBytes;
+        try {
+            recordBytes = record == null ? null : mapper.writeValueAsBytes(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("El log del mock server ya está cerrado");
+            }
+            long seq = ++appendedSeq;
+            byte[] line = encode(seq, op, collection, id, recordBytes);
+            buffer.write(line, 0, line.length);
+            pending.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private byte[] encode(long seq, String op, String collection, String id, byte[] recordBytes) {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(64 + (recordBytes == null ? 0 : recordBytes.length));
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(json)) {
+            generator.writeStartObject();
+            generator.writeNumberField("seq", seq);
+            generator.writeStringField("op", op);
+            generator.writeStringField("collection", collection);
+            generator.writeStringField("id", id);
+            if (recordBytes != null) {
+                generator.writeFieldName("record");
+                generator.writeRawValue(new String(recordBytes, StandardCharsets.UTF_8));
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = json.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        byte[] prefix = String.format("%08x ", crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+        byte[] line = new byte[prefix.length + payload.length + 1];
+        System.arraycopy(prefix, 0, line, 0, prefix.length);
+        System.arraycopy(payload, 0, line, prefix.length, payload.length);
+        line[line.length - 1] = '\n';
+        return line;
+    }
+    
+    private void flushLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long upTo;
+            lock.lock();
+            try {
+                while (buffer.size() == 0 && !closed) {
+                    pending.awaitUninterruptibly();
+                }
+                if (buffer.size() == 0) {
+                    return;
+                }
+                batch = buffer;
+                buffer = new ByteArrayOutputStream(Math.max(256, batch.size()));
+                upTo = appendedSeq;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(batch.toByteArray());
+                while (bytes.hasRemaining()) {
+                    segment.write(bytes);
+                }
+                if (config.fsync()) {
+                    segment.force(false);
+                }
+                logBytes += batch.size();
+            } catch (IOException e) {
+                error = e;
+            }
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSeq = upTo;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) {
+                return;
+            }
+            batches.increment();
+            entries.add(upTo - drainedSeq);
+            drainedSeq = upTo;
+            if (logBytes >= config.snapshotBytes() && snapshotting.compareAndSet(false, true)) {
+                rotateAndSnapshot(upTo);
+            }
+        }
+    }
+    
+    /**
+     * Abre un segmento nuevo a partir de seq + 1 y compacta en segundo plano todo lo anterior
+     * Corre en el hilo de escritura: el segmento viejo ya tiene todas las entradas hasta seq
+     */
+    private void rotateAndSnapshot(long seq) {
+        try {
+            segment.close();
+            segment = openSegment(seq + 1);
+            logBytes = 0;
+        } catch (IOException e) {
+            snapshotting.set(false);
+            lock.lock();
+            try {
+                failure = e;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        Thread.ofVirtual().name("mock-snapshot-" + seq).start(() -> {
+            try {
+                writeSnapshot(seq);
+            } catch (IOException e) {
+                System.err.println("[mock-journal] No se pudo escribir el snapshot " + seq + ": " + e.getMessage());
+                snapshotting.set(false);
+            }
+        });
+    }
+    
+    /**
+     * Escribe snapshot-seq.json de forma atómica y borra los segmentos y snapshots que cubre
+     * Las colecciones pueden incluir escrituras posteriores a seq: al reaplicar el log son idempotentes
+     */
+    private void writeSnapshot(long seq) throws IOException {
+        try {
+            Path dir = config.dataDir();
+            Path target = dir.resolve(SNAPSHOT_PREFIX + seq + SNAPSHOT_SUFFIX);
+            Path temp = dir.resolve(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                store.writeTo(out);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (Path file : list(dir)) {
+                String name = file.getFileName().toString();
+                OptionalLong number = numberOf(name, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+                OptionalLong snapshot = numberOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                if ((number.isPresent() && number.getAsLong() <= seq)
+                        || (snapshot.isPresent() && snapshot.getAsLong() < seq)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            snapshots.increment();
+        } finally {
+            snapshotting.set(false);
+        }
+    }
+    
+    private FileChannel openSegment(long firstSeq) throws IOException {
+        return FileChannel.open(config.dataDir().resolve(SEGMENT_PREFIX + firstSeq + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    
+    /**
+     * Resultado de reaplicar el log al arrancar
+     * @param lastSeq Última secuencia válida encontrada (o la del snapshot)
+     * @param replayed Entradas posteriores al snapshot que se aplicaron
+     * @param logBytes Bytes de log que siguen en disco
+     * @param truncatedBytes Bytes descartados al final del último segmento
+     */
+    record Recovery(long lastSeq, long replayed, long logBytes, long truncatedBytes) {
+    }
+    
+    private static Recovery replay(Path dir, MockStore store, long snapshotSeq) throws IOException {
+        List<Path> segments = list(dir).stream()
+                .filter(file -> numberOf(file.getFileName().toString(), SEGMENT_PREFIX, SEGMENT_SUFFIX).isPresent())
+                .sorted(Comparator.comparingLong(MockJournal::startOf))
+                .toList();
+        long lastSeq = snapshotSeq;
+        long replayed = 0;
+        long logBytes = 0;
+        long truncated = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            if (i < segments.size() - 1 && startOf(segments.get(i + 1)) - 1 <= snapshotSeq) {
+                // Segmento cubierto por el snapshot que quedó sin borrar (p. ej. caída durante la compactación)
+                Files.deleteIfExists(segment);
+                continue;
+            }
+            long valid = 0;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(segment))) {
+                byte[] line;
+                while ((line = readLine(in)) != null) {
+                    JsonNode entry = decode(store.getMapper(), line);
+                    if (entry == null) {
+                        break;
+                    }
+                    valid += line.length + 1;
+                    long seq = entry.path("seq").asLong();
+                    if (seq > lastSeq) {
+                        apply(store, entry);
+                        lastSeq = seq;
+                        replayed++;
+                    }
+                }
+            }
+            long size = Files.size(segment);
+            if (valid < size) {
+                if (i < segments.size() - 1) {
+                    throw new IOException("Entrada corrupta en " + segment + " (byte " + valid + ")");
+                }
+                // Última línea a medio escribir: se descarta para que el próximo arranque no la vea
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+                truncated = size - valid;
+            }
+            logBytes += valid;
+        }
+        return new Recovery(lastSeq, replayed, logBytes, truncated);
+    }
+    
+    private static void apply(MockStore store, JsonNode entry) {
+        MockCollection collection = store.collection(entry.path("collection").asText());
+        if (collection == null) {
+            return;
+        }
+        String id = entry.path("id").asText();
+        if ("delete".equals(entry.path("op").asText())) {
+            collection.remove(id);
+        } else if (entry.path("record").isObject()) {
+            collection.restore((ObjectNode) entry.get("record"));
+        }
+    }
+    
+    /**
+     * Decodifica una línea verificando su CRC
+     * @return Entrada, o null si la línea está incompleta o dañada
+     */
+    private static JsonNode decode(ObjectMapper mapper, byte[] line) {
+        if (line.length < 10 || line[8] != ' ') {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(line, 9, line.length - 9);
+        try {
+            long expected = Long.parseLong(new String(line, 0, 8, StandardCharsets.US_ASCII), 16);
+            if (expected != crc.getValue()) {
+                return null;
+            }
+            return mapper.readTree(line, 9, line.length - 9);
+        } catch (NumberFormatException | IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Lee una línea terminada en \n
+     * @return Bytes sin el salto de línea, o null al final del archivo o si la última línea no terminó
+     */
+    private static byte[] readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return line.toByteArray();
+            }
+            line.write(b);
+        }
+        return null;
+    }
+    
+    private static OptionalLong latest(Path dir, String prefix, String suffix) throws IOException {
+        return list(dir).stream()
+                .map(file -> numberOf(file.getFileName().toString(), prefix, suffix))
+                .filter(OptionalLong::isPresent)
+                .mapToLong(OptionalLong::getAsLong)
+                .max();
+    }
+    
+    private static long startOf(Path segment) {
+        return numberOf(segment.getFileName().toString(), SEGMENT_PREFIX, SEGMENT_SUFFIX).orElse(0);
+    }
+    
+    private static OptionalLong numberOf(String fileName, String prefix, String suffix) {
+        if (!fileName.startsWith(prefix) || !fileName.endsWith(suffix)) {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(Long.parseLong(
+                    fileName.substring(prefix.length(), fileName.length() - suffix.length())));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+    
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return new ArrayList<>(files.toList());
+        }
+    }
+}
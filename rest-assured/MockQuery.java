@@ -0,0 +1,157 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consulta sobre una colección con la semántica de json-server
+ * Soporta filtros por campo (campo=valor, campo_ne, campo_gte, campo_lte),
+ * paginación con _page/_limit y cortes con _start/_end/_limit
+ * La API de GreenMarket usa page/limit sin guion bajo, por eso se aceptan como alias
+ */
+public class MockQuery {
+    
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    
+    private final Map<String, List<String>> filters;
+    private final int start;
+    private final int end;
+    private final boolean sliced;
+    
+    private MockQuery(Map<String, List<String>> filters, int start, int end, boolean sliced) {
+        this.filters = filters;
+        this.start = start;
+        this.end = end;
+        this.sliced = sliced;
+    }
+    
+    /**
+     * Interpreta los query params de una petición de listado
+     * @param params Query params decodificados
+     * @return Consulta lista para aplicarse a una colección
+     */
+    public static MockQuery parse(Map<String, List<String>> params) {
+        Map<String, List<String>> filters = new LinkedHashMap<>();
+        Integer page = null;
+        Integer limit = null;
+        Integer start = null;
+        Integer end = null;
+        for (Map.Entry<String, List<String>> entry : params.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue().get(0);
+            switch (key) {
+                case "_page", "page" -> page = parsePositive(value);
+                case "_limit", "limit" -> limit = parsePositive(value);
+                case "_start" -> start = parsePositive(value);
+                case "_end" -> end = parsePositive(value);
+                // Parámetros de JSONP y de cache-busting que json-server ignora
+                case "callback", "_" -> { }
+                default -> filters.put(key, entry.getValue());
+            }
+        }
+        if (page != null) {
+            int size = limit != null ? limit : DEFAULT_PAGE_SIZE;
+            int from = saturatedAdd((Math.max(page, 1) - 1) * (long) size, 0);
+            return new MockQuery(filters, from, saturatedAdd(from, size), true);
+        }
+        if (start != null || end != null || limit != null) {
+            int from = start != null ? start : 0;
+            int to = end != null ? end : (limit != null ? saturatedAdd(from, limit) : Integer.MAX_VALUE);
+            return new MockQuery(filters, from, to, true);
+        }
+        return new MockQuery(filters, 0, Integer.MAX_VALUE, false);
+    }
+    
+    public Map<String, List<String>> getFilters() {
+        return filters;
+    }
+    
+    /**
+     * Índice del primer elemento de la página (inclusive)
+     */
+    public int getStart() {
+        return start;
+    }
+    
+    /**
+     * Índice final de la página (exclusivo)
+     */
+    public int getEnd() {
+        return end;
+    }
+    
+    /**
+     * Indica si la consulta pide una página o corte, en cuyo caso se informa X-Total-Count
+     */
+    public boolean isSliced() {
+        return sliced;
+    }
+    
+    /**
+     * Evalúa los filtros por campo sobre un registro
+     * Los valores repetidos de un mismo campo se combinan con OR y los campos distintos con AND
+     * @param record Registro de la colección
+     * @return true si el registro cumple todos los filtros
+     */
+    public boolean matches(JsonNode record) {
+        for (Map.Entry<String, List<String>> filter : filters.entrySet()) {
+            if (!matchesAny(record, filter.getKey(), filter.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean matchesAny(JsonNode record, String key, List<String> values) {
+        String operator = operatorOf(key);
+        String field = operator.isEmpty() ? key : key.substring(0, key.length() - operator.length());
+        JsonNode value = record.at("/" + field.replace('.', '/'));
+        if (value.isMissingNode() || value.isNull()) {
+            return false;
+        }
+        for (String expected : values) {
+            boolean matched = switch (operator) {
+                case "_ne" -> !value.asText().equals(expected);
+                case "_gte" -> compare(value, expected) >= 0;
+                case "_lte" -> compare(value, expected) <= 0;
+                default -> value.asText().equals(expected);
+            };
+            if (matched) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String operatorOf(String key) {
+        for (String operator : List.of("_ne", "_gte", "_lte")) {
+            if (key.endsWith(operator) && key.length() > operator.length()) {
+                return operator;
+            }
+        }
+        return "";
+    }
+    
+    private static int compare(JsonNode value, String expected) {
+        try {
+            return Double.compare(value.asDouble(), Double.parseDouble(expected));
+        } catch (NumberFormatException e) {
+            return value.asText().compareTo(expected);
+        }
+    }
+    
+    private static int saturatedAdd(long a, long b) {
+        return (int) Math.min(Integer.MAX_VALUE, a + b);
+    }
+    
+    private static Integer parsePositive(String value) {
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
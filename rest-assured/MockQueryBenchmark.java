@@ -0,0 +1,106 @@
+package com.greenmarket.tests.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greenmarket.tests.mock.MockCollection;
+import com.greenmarket.tests.mock.MockQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de las consultas del mock server según el tamaño de la colección, con y sin índices
+ *
+ * Con indexed=false la colección no tiene índices secundarios y cada consulta filtrada recorre todos los registros;
+ * con índices, la primera página, una página profunda y un filtro por category deberían mantenerse planos
+ * al crecer la colección. nonIndexedFilter (price_gte) recorre siempre la colección y sirve de referencia
+ *
+ * Uso: mvn -Pbenchmarks package -DskipTests
+ *      java -cp target/benchmarks.jar com.greenmarket.tests.bench.MockQueryBenchmark [regex JMH]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class MockQueryBenchmark {
+    
+    private static final List<String> CATEGORIES = List.of("organic", "recycled", "local", "zero-waste", "fair-trade");
+    
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int records;
+    
+    @Param({"true", "false"})
+    public boolean indexed;
+    
+    private MockCollection products;
+    private MockQuery firstPage;
+    private MockQuery deepPage;
+    private MockQuery categoryPage;
+    private MockQuery nonIndexedFilter;
+    
+    @Setup
+    public void setup() {
+        ObjectMapper mapper = new ObjectMapper();
+        products = indexed ? new MockCollection("products") : new MockCollection("products", Set.of());
+        for (int i = 1; i <= records; i++) {
+            ObjectNode product = mapper.createObjectNode();
+            product.put("name", "Producto " + i);
+            product.put("price", 990 + i % 9000);
+            product.put("category", CATEGORIES.get(i % CATEGORIES.size()));
+            product.put("stock", i % 100);
+            products.insert(product);
+        }
+        // Huecos como los que dejan los DELETE del flujo de carga
+        for (int i = 7; i <= records; i += 97) {
+            products.remove(Integer.toString(i));
+        }
+        firstPage = MockQuery.parse(Map.of("_page", List.of("1"), "_limit", List.of("20")));
+        deepPage = MockQuery.parse(Map.of("_start", List.of(Integer.toString(records * 9 / 10)), "_limit", List.of("20")));
+        categoryPage = MockQuery.parse(Map.of("category", List.of("local"), "_page", List.of("3"), "_limit", List.of("20")));
+        nonIndexedFilter = MockQuery.parse(Map.of("price_gte", List.of("9000"), "_limit", List.of("20")));
+    }
+    
+    @Benchmark
+    public Object firstPage() {
+        return products.query(firstPage);
+    }
+    
+    @Benchmark
+    public Object deepPage() {
+        return products.query(deepPage);
+    }
+    
+    @Benchmark
+    public Object categoryPage() {
+        return products.query(categoryPage);
+    }
+    
+    @Benchmark
+    public Object nonIndexedFilter() {
+        return products.query(nonIndexedFilter);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : MockQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
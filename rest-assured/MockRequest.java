@@ -0,0 +1,88 @@
+package com.greenmarket.tests.mock;
+
+import com.sun.net.httpserver.Headers;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Petición HTTP recibida por el mock server, ya decodificada
+ * Separa la ruta en segmentos y los query params en listas (json-server admite repetidos)
+ *
+ * @param method Método HTTP en mayúsculas
+ * @param path Ruta sin query string
+ * @param segments Segmentos no vacíos de la ruta
+ * @param params Query params decodificados, en orden de aparición
+ * @param headers Cabeceras de la petición
+ * @param body Cuerpo crudo (vacío si no hay)
+ */
+public record MockRequest(String method,
+                          String path,
+                          List<String> segments,
+                          Map<String, List<String>> params,
+                          Headers headers,
+                          byte[] body) {
+    
+    /**
+     * Construye la petición a partir de la URI cruda
+     * @param method Método HTTP
+     * @param rawPath Ruta sin decodificar
+     * @param rawQuery Query string sin decodificar (puede ser null)
+     * @param headers Cabeceras
+     * @param body Cuerpo
+     * @return Petición decodificada
+     */
+    public static MockRequest of(String method, String rawPath, String rawQuery, Headers headers, byte[] body) {
+        String path = rawPath == null || rawPath.isEmpty() ? "/" : decode(rawPath);
+        List<String> segments = Arrays.stream(path.split("/"))
+                .filter(segment -> !segment.isEmpty())
+                .toList();
+        return new MockRequest(method.toUpperCase(), path, segments, parseQuery(rawQuery), headers, body);
+    }
+    
+    /**
+     * Obtiene el primer valor de un query param
+     * @param name Nombre del parámetro
+     * @return Valor o null si no viene
+     */
+    public String param(String name) {
+        List<String> values = params.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+    
+    /**
+     * Obtiene el valor de una cabecera
+     * @param name Nombre de la cabecera (sin distinguir mayúsculas)
+     * @return Valor o null si no viene
+     */
+    public String header(String name) {
+        return headers == null ? null : headers.getFirst(name);
+    }
+    
+    private static Map<String, List<String>> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String key = decode(eq < 0 ? pair : pair.substring(0, eq));
+            String value = eq < 0 ? "" : decode(pair.substring(eq + 1));
+            params.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return params;
+    }
+    
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Respuesta producida por el router del mock server antes de serializarse
+ *
+ * @param status Código HTTP
+ * @param body Cuerpo JSON (null para respuestas sin cuerpo)
+ * @param headers Cabeceras adicionales
+ */
+public record MockResponse(int status, JsonNode body, Map<String, String> headers) {
+    
+    public static MockResponse of(int status, JsonNode body) {
+        return new MockResponse(status, body, new LinkedHashMap<>());
+    }
+    
+    public static MockResponse ok(JsonNode body) {
+        return of(200, body);
+    }
+    
+    public static MockResponse created(JsonNode body) {
+        return of(201, body);
+    }
+    
+    /**
+     * Respuesta de error con el formato que esperan las pruebas: {"error": "..."}
+     * @param status Código HTTP
+     * @param message Mensaje de error
+     * @return Respuesta de error
+     */
+    public static MockResponse error(int status, String message) {
+        ObjectNode body = JsonNodeFactory.instance.objectNode();
+        body.put("error", message);
+        return of(status, body);
+    }
+    
+    /**
+     * Agrega una cabecera a la respuesta
+     * @param name Nombre de la cabecera
+     * @param value Valor
+     * @return La misma respuesta, para encadenar
+     */
+    public MockResponse withHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+}
@@ -0,0 +1,278 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Enrutador del mock server
+ * Replica las rutas CRUD de json-server para cada colección de db.json
+ * y agrega las rutas de autenticación de GreenMarket bajo /users
+ * Con el contrato de órdenes (por defecto) /orders exige un token Bearer, POST /orders valida los ítems (400)
+ * y calcula precios, totales, estado y fechas, y las órdenes se responden con orderId además de id
+ */
+public class MockRouter {
+    
+    /** Costo de envío de las órdenes de db.json */
+    static final double SHIPPING = 3000;
+    
+    private final MockStore store;
+    private final MockAuth auth;
+    private final StockLedger stock;
+    private final ConditionalRequests conditional;
+    private final boolean orderContract;
+    
+    public MockRouter(MockStore store, MockAuth auth) {
+        this(store, auth, null);
+    }
+    
+    /**
+     * @param store Base de datos en memoria
+     * @param auth Autenticación de /users
+     * @param stock Reserva de stock para POST /orders, o null para crear órdenes como json-server
+     */
+    public MockRouter(MockStore store, MockAuth auth, StockLedger stock) {
+        this(store, auth, stock, new ConditionalRequests(false));
+    }
+    
+    /**
+     * @param store Base de datos en memoria
+     * @param auth Autenticación de /users
+     * @param stock Reserva de stock para POST /orders, o null para crear órdenes como json-server
+     * @param conditional ETag, Last-Modified y 304 de las lecturas de colecciones
+     */
+    public MockRouter(MockStore store, MockAuth auth, StockLedger stock, ConditionalRequests conditional) {
+        this(store, auth, stock, conditional, true);
+    }
+    
+    /**
+     * @param store Base de datos en memoria
+     * @param auth Autenticación de /users y /orders
+     * @param stock Reserva de stock para POST /orders, o null para crear órdenes sin descontar stock
+     * @param conditional ETag, Last-Modified y 304 de las lecturas de colecciones
+     * @param orderContract true para aplicar el contrato de órdenes de la API, false para tratar /orders como
+     *                      json-server (sin autenticación y guardando el cuerpo tal cual)
+     */
+    public MockRouter(MockStore store, MockAuth auth, StockLedger stock, ConditionalRequests conditional,
+                      boolean orderContract) {
+        this.store = store;
+        this.auth = auth;
+        this.stock = stock;
+        this.conditional = conditional;
+        this.orderContract = orderContract;
+    }
+    
+    /**
+     * Resuelve una petición contra el store
+     * @param request Petición decodificada
+     * @return Respuesta a serializar
+     */
+    public MockResponse route(MockRequest request) {
+        List<String> segments = request.segments();
+        if (segments.isEmpty()) {
+            ArrayNode resources = store.getMapper().createArrayNode();
+            store.collectionNames().forEach(resources::add);
+            ObjectNode index = store.getMapper().createObjectNode();
+            index.set("resources", resources);
+            return MockResponse.ok(index);
+        }
+        if (segments.size() == 2 && "users".equals(segments.get(0))) {
+            Optional<MockResponse> authResponse = routeAuth(request, segments.get(1));
+            if (authResponse.isPresent()) {
+                return authResponse.get();
+            }
+        }
+        MockCollection collection = store.collection(segments.get(0));
+        if (collection == null) {
+            JsonNode singular = store.singular(segments.get(0));
+            if (singular != null && segments.size() == 1 && "GET".equals(request.method())) {
+                return MockResponse.ok(singular);
+            }
+            return MockResponse.error(404, "Not found");
+        }
+        boolean orders = orderContract && "orders".equals(collection.getName());
+        Optional<String> userId = orders ? auth.authenticate(request.header("Authorization")) : Optional.empty();
+        if (orders && userId.isEmpty()) {
+            return MockResponse.error(401, "Authentication required");
+        }
+        if (segments.size() == 1) {
+            return switch (request.method()) {
+                case "GET" -> conditional.respond(collection, request, () -> list(collection, request));
+                case "POST" -> orders
+                        ? withBody(request, body -> createOrder(collection, (ObjectNode) body, userId.get()))
+                        : create(collection, request);
+                default -> MockResponse.error(405, "Method not allowed");
+            };
+        }
+        if (segments.size() == 2) {
+            String id = segments.get(1);
+            return switch (request.method()) {
+                case "GET" -> conditional.respond(collection, request, () -> found(collection, collection.find(id)));
+                case "PUT" -> update(collection, request, true, id);
+                case "PATCH" -> update(collection, request, false, id);
+                case "DELETE" -> collection.remove(id)
+                        .map(removed -> MockResponse.ok(store.getMapper().createObjectNode()))
+                        .orElseGet(() -> notFound(collection));
+                default -> MockResponse.error(405, "Method not allowed");
+            };
+        }
+        return MockResponse.error(404, "Not found");
+    }
+    
+    private Optional<MockResponse> routeAuth(MockRequest request, String action) {
+        return switch (action + " " + request.method()) {
+            case "register POST" -> Optional.of(withBody(request, auth::register));
+            case "login POST" -> Optional.of(withBody(request, auth::login));
+            case "profile GET" -> Optional.of(auth.profile(request.header("Authorization")));
+            default -> Optional.empty();
+        };
+    }
+    
+    private MockResponse list(MockCollection collection, MockRequest request) {
+        MockQuery query = MockQuery.parse(request.params());
+        MockCollection.Page page = collection.query(query);
+        ArrayNode items = store.getMapper().createArrayNode();
+        page.items().forEach(item -> items.add(view(collection, item)));
+        MockResponse response = MockResponse.ok(items);
+        if (query.isSliced()) {
+            response.withHeader("X-Total-Count", Integer.toString(page.total()))
+                    .withHeader("Access-Control-Expose-Headers", "X-Total-Count");
+        }
+        return response;
+    }
+    
+    private MockResponse create(MockCollection collection, MockRequest request) {
+        if (stock != null && "orders".equals(collection.getName())) {
+            return withBody(request, body -> createOrder(collection, (ObjectNode) body, null));
+        }
+        return withBody(request, body -> collection.insert((ObjectNode) body)
+                .map(MockResponse::created)
+                .orElseGet(() -> MockResponse.error(500, "Insert failed, duplicate id")));
+    }
+    
+    /**
+     * Crea una orden solo si hay stock para todas sus líneas (409 si no alcanza)
+     * @param userId Usuario del token con el contrato de órdenes; null para guardar el cuerpo como json-server
+     */
+    private MockResponse createOrder(MockCollection orders, ObjectNode body, String userId) {
+        List<StockLedger.Line> lines = StockLedger.linesOf(body.get("items"));
+        if (lines == null || (userId != null && lines.isEmpty())) {
+            return MockResponse.error(400, "Each order item needs a productId and a positive integer quantity");
+        }
+        ObjectNode order = userId == null ? body : price(body, lines, userId);
+        if (stock != null) {
+            StockLedger.Outcome outcome = stock.reserve(lines);
+            if (!outcome.accepted()) {
+                return MockResponse.error(409, "Insufficient stock for product " + outcome.productId()
+                        + " (available: " + outcome.available() + ")");
+            }
+        }
+        Optional<ObjectNode> created = orders.insert(order);
+        if (created.isEmpty()) {
+            if (stock != null) {
+                stock.release(lines);
+            }
+            return MockResponse.error(500, "Insert failed, duplicate id");
+        }
+        return MockResponse.created(view(orders, created.get()));
+    }
+    
+    /**
+     * Orden con los campos que completa la API: ítems con nombre y precio del catálogo, subtotal, envío,
+     * total, estado pending y fechas
+     * Los montos van como decimales (3000.0), que es como los lee CP-010 (greaterThan(0.0f))
+     * Un producto que no está en el catálogo queda con precio 0, como json-server guardaría la línea
+     */
+    private ObjectNode price(ObjectNode body, List<StockLedger.Line> lines, String userId) {
+        MockCollection products = store.collection("products");
+        ObjectNode order = store.getMapper().createObjectNode();
+        order.put("userId", userId);
+        ArrayNode items = order.putArray("items");
+        double subtotal = 0;
+        for (StockLedger.Line line : lines) {
+            Optional<ObjectNode> product = products == null ? Optional.empty() : products.find(line.productId());
+            double price = product.map(p -> p.path("price").asDouble()).orElse(0.0);
+            ObjectNode item = items.addObject();
+            item.put("productId", line.productId());
+            product.ifPresent(p -> item.set("productName", p.get("name")));
+            item.put("quantity", line.quantity());
+            item.put("price", price);
+            subtotal += price * line.quantity();
+        }
+        String now = Instant.now().toString();
+        order.put("subtotal", subtotal);
+        order.put("shipping", SHIPPING);
+        order.put("total", subtotal + SHIPPING);
+        order.put("status", "pending");
+        for (String field : List.of("shippingAddress", "paymentMethod")) {
+            if (body.hasNonNull(field)) {
+                order.set(field, body.get(field));
+            }
+        }
+        order.put("createdAt", now);
+        order.put("updatedAt", now);
+        return order;
+    }
+    
+    /**
+     * Registro tal como se responde: con el contrato de órdenes, las órdenes llevan orderId además de id
+     */
+    private ObjectNode view(MockCollection collection, ObjectNode record) {
+        if (!orderContract || !"orders".equals(collection.getName())) {
+            return record;
+        }
+        ObjectNode view = record.deepCopy();
+        view.set("orderId", record.get("id"));
+        return view;
+    }
+    
+    private MockResponse update(MockCollection collection, MockRequest request, boolean replace, String id) {
+        if (stock != null && "products".equals(collection.getName())) {
+            // El stock de un producto solo se escribe bajo la franja de StockLedger
+            return withBody(request, body -> found(collection, stock.update(id, (ObjectNode) body, replace)));
+        }
+        return withBody(request, body -> found(collection, replace
+                ? collection.replace(id, (ObjectNode) body)
+                : collection.patch(id, (ObjectNode) body)));
+    }
+    
+    private MockResponse found(MockCollection collection, Optional<ObjectNode> record) {
+        return record.map(r -> MockResponse.ok(view(collection, r))).orElseGet(() -> notFound(collection));
+    }
+    
+    private MockResponse withBody(MockRequest request, Function<JsonNode, MockResponse> handler) {
+        JsonNode body;
+        try {
+            body = request.body().length == 0 ? null : store.getMapper().readTree(request.body());
+        } catch (IOException e) {
+            return MockResponse.error(400, "Invalid JSON body");
+        }
+        if (body == null || !body.isObject()) {
+            return MockResponse.error(400, "Request body must be a JSON object");
+        }
+        return handler.apply(body);
+    }
+    
+    /**
+     * 404 con el mensaje que esperan las pruebas, p. ej. {"error": "Order not found"}
+     */
+    static MockResponse notFound(MockCollection collection) {
+        return MockResponse.error(404, singularOf(collection.getName()) + " not found");
+    }
+    
+    static String singularOf(String collectionName) {
+        String singular = switch (collectionName) {
+            case "categories" -> "category";
+            default -> collectionName.endsWith("s")
+                    ? collectionName.substring(0, collectionName.length() - 1)
+                    : collectionName;
+        };
+        return Character.toUpperCase(singular.charAt(0)) + singular.substring(1);
+    }
+}
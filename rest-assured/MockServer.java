@@ -0,0 +1,360 @@
+package com.greenmarket.tests.mock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mock server embebido de GreenMarket, reemplazo en la JVM de json-server
+ * Carga mock-server/db.json una sola vez, atiende cada petición en un hilo virtual
+ * y mide el tiempo desde el arranque hasta la primera petición atendida
+ * Con -Dgreenmarket.mock.dataDir las escrituras se persisten en un log con group commit y snapshots
+ * (ver MockJournal); una escritura se responde recién cuando su entrada es durable
+ * Con -Dgreenmarket.mock.faults se inyectan latencia, errores, cortes de conexión y cuerpos lentos por ruta
+ * (ver FaultInjector), cambiables en caliente con /__faults
+ * Con -Dgreenmarket.mock.rateLimits se aplican token buckets por token y por ruta que responden 429 con Retry-After
+ * /orders sigue el contrato de la API que validan las suites (token Bearer, 400 con ítems inválidos, totales
+ * calculados y orderId); -Dgreenmarket.mock.orders=json-server lo trata como una colección más
+ * Con -Dgreenmarket.mock.stock=reserve POST /orders descuenta el stock de los productos y responde 409 si no alcanza
+ * (ver StockLedger)
+ * rating y reviewsCount de cada producto se mantienen con agregados incrementales de sus reseñas
+ * (ver ReviewAggregates, -Dgreenmarket.mock.reviewAggregates=off lo desactiva)
+ * Las respuestas de 1 KB o más se comprimen con gzip o deflate según Accept-Encoding (ver ResponseCompression,
+ * -Dgreenmarket.mock.compression=off lo desactiva)
+ * Las lecturas de colecciones llevan ETag y Last-Modified y responden 304 a If-None-Match / If-Modified-Since
+ * (ver ConditionalRequests, -Dgreenmarket.mock.etag=off lo desactiva)
+ *
+ * Uso standalone: java com.greenmarket.tests.mock.MockServer [puerto] [ruta/db.json]
+ */
+public class MockServer implements AutoCloseable {
+    
+    /** Ruta de db.json relativa al directorio rest-assured */
+    public static final String DEFAULT_DB_FILE = "../mock-server/db.json";
+    
+    /** Vigencia de los tokens emitidos por /users/login */
+    public static final long TOKEN_TTL_SECONDS = 3600;
+    
+    private static final int BACKLOG = 4096;
+    
+    static {
+        // Sin TCP_NODELAY, Nagle más el ACK diferido del cliente agregan ~40 ms a cada respuesta
+        // (cabeceras y cuerpo van en escrituras separadas) y taparían la latencia inyectada
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final MockStore store;
+    private final MockRouter router;
+    private final StockLedger stock;
+    private final ReviewAggregates reviews;
+    private final FaultInjector faults;
+    private final RateLimiter rateLimiter;
+    private final ResponseCompression compression;
+    private final ConditionalRequests conditional;
+    private final long startNanos;
+    private final long loadNanos;
+    private final long readyNanos;
+    private final AtomicLong firstRequestNanos = new AtomicLong();
+    
+    private MockServer(Path dbFile, int port) throws IOException {
+        this.startNanos = System.nanoTime();
+        this.store = MockStore.open(dbFile, JournalConfig.fromSystemProperties());
+        this.loadNanos = System.nanoTime();
+        this.stock = StockLedger.fromSystemProperties(store);
+        this.reviews = ReviewAggregates.fromSystemProperties(store);
+        this.conditional = ConditionalRequests.fromSystemProperties();
+        this.router = new MockRouter(store, new MockAuth(store, TOKEN_TTL_SECONDS), stock, conditional,
+                !"json-server".equalsIgnoreCase(System.getProperty("greenmarket.mock.orders", "api").trim()));
+        this.faults = FaultInjector.fromSystemProperties();
+        this.rateLimiter = RateLimiter.fromSystemProperties();
+        this.compression = ResponseCompression.fromSystemProperties();
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        this.readyNanos = System.nanoTime();
+    }
+    
+    /**
+     * Inicia el servidor en un puerto efímero
+     * @param dbFile Ruta a db.json
+     * @return Servidor aceptando conexiones
+     * @throws IOException Si db.json no se puede leer o el puerto no se puede abrir
+     */
+    public static MockServer start(Path dbFile) throws IOException {
+        return start(dbFile, 0);
+    }
+    
+    /**
+     * Inicia el servidor en un puerto específico (0 = efímero)
+     * @param dbFile Ruta a db.json
+     * @param port Puerto TCP
+     * @return Servidor aceptando conexiones
+     * @throws IOException Si db.json no se puede leer o el puerto no se puede abrir
+     */
+    public static MockServer start(Path dbFile, int port) throws IOException {
+        return new MockServer(dbFile, port);
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + getPort();
+    }
+    
+    public MockStore getStore() {
+        return store;
+    }
+    
+    /**
+     * Control de stock de POST /orders
+     * @return Control de stock, o null si las órdenes se crean como en json-server
+     */
+    public StockLedger getStock() {
+        return stock;
+    }
+    
+    /**
+     * Agregados de reseñas por producto
+     * @return Agregados, o null si rating y reviewsCount quedan como en db.json
+     */
+    public ReviewAggregates getReviewAggregates() {
+        return reviews;
+    }
+    
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+    
+    /**
+     * Compresión de respuestas y sus contadores
+     */
+    public ResponseCompression getCompression() {
+        return compression;
+    }
+    
+    /**
+     * Validadores de lectura (ETag, Last-Modified) y sus contadores
+     */
+    public ConditionalRequests getConditional() {
+        return conditional;
+    }
+    
+    /**
+     * Inyector de fallas, para cambiar de perfil desde las pruebas
+     */
+    public FaultInjector getFaults() {
+        return faults;
+    }
+    
+    /**
+     * Tiempo de carga de db.json en milisegundos
+     */
+    public double getLoadMillis() {
+        return (loadNanos - startNanos) / 1_000_000.0;
+    }
+    
+    /**
+     * Tiempo desde el arranque hasta que el servidor acepta conexiones, en milisegundos
+     */
+    public double getStartupMillis() {
+        return (readyNanos - startNanos) / 1_000_000.0;
+    }
+    
+    /**
+     * Tiempo desde el arranque hasta completar la primera respuesta, en milisegundos
+     * @return Tiempo medido, o -1 si aún no se atiende ninguna petición
+     */
+    public double getTimeToFirstRequestMillis() {
+        long first = firstRequestNanos.get();
+        return first == 0 ? -1 : (first - startNanos) / 1_000_000.0;
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            MockRequest request = MockRequest.of(
+                    exchange.getRequestMethod(),
+                    exchange.getRequestURI().getRawPath(),
+                    exchange.getRequestURI().getRawQuery(),
+                    exchange.getRequestHeaders(),
+                    exchange.getRequestBody().readAllBytes());
+            if (!request.segments().isEmpty() && FaultInjector.ADMIN_PATH.equals(request.segments().get(0))) {
+                write(exchange, request, faults.handle(request), 0);
+                return;
+            }
+            MockResponse limited = rateLimiter.check(request);
+            if (limited != null) {
+                write(exchange, request, limited, 0);
+                return;
+            }
+            FaultInjector.Fault fault = faults.decide(request.method(), request.segments());
+            if (fault.delayMillis() > 0) {
+                sleep(fault.delayMillis());
+            }
+            if (fault.reset()) {
+                // Cerrar el intercambio sin enviar cabeceras cierra la conexión TCP: el cliente no recibe respuesta
+                return;
+            }
+            MockResponse response;
+            if (fault.errorStatus() > 0) {
+                // Como un balanceador delante de la API: la petición no llega a procesarse
+                response = MockResponse.error(fault.errorStatus(), fault.errorMessage());
+            } else {
+                try {
+                    response = router.route(request);
+                    if (!"GET".equals(request.method())) {
+                        store.sync();
+                    }
+                } catch (RuntimeException e) {
+                    response = MockResponse.error(500, "Internal mock error: " + e.getMessage());
+                }
+            }
+            write(exchange, request, response, fault.dripBytesPerSecond());
+        }
+        if (firstRequestNanos.compareAndSet(0, System.nanoTime())) {
+            System.out.printf("[mock-server] Primera petición atendida a %.1f ms del arranque "
+                    + "(carga db.json: %.1f ms, listo: %.1f ms)%n",
+                    getTimeToFirstRequestMillis(), getLoadMillis(), getStartupMillis());
+        }
+    }
+    
+    /**
+     * Serializa la respuesta, comprimida si el cliente lo acepta y el cuerpo supera el umbral
+     * @param dripBytesPerSecond Si es mayor que 0, el cuerpo se envía sin comprimir en trozos a esa velocidad
+     */
+    private void write(HttpExchange exchange, MockRequest request, MockResponse response, long dripBytesPerSecond)
+            throws IOException {
+        byte[] body = response.body() == null ? new byte[0] : store.getMapper().writeValueAsBytes(response.body());
+        for (Map.Entry<String, String> header : response.headers().entrySet()) {
+            exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+        }
+        if (response.body() != null) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        }
+        String encoding = dripBytesPerSecond > 0 || "HEAD".equals(request.method())
+                ? null
+                : compression.negotiate(request.header("Accept-Encoding"), body.length);
+        if (compression.isEnabled()) {
+            exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+        }
+        if (encoding != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+            String etag = response.headers().get("ETag");
+            if (etag != null) {
+                exchange.getResponseHeaders().set("ETag", ConditionalRequests.withEncoding(etag, encoding));
+            }
+            // Largo 0: chunked, el tamaño comprimido se conoce recién al terminar
+            exchange.sendResponseHeaders(response.status(), 0);
+            compression.write(encoding, body, exchange.getResponseBody());
+            return;
+        }
+        exchange.sendResponseHeaders(response.status(), body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (dripBytesPerSecond <= 0) {
+                    out.write(body);
+                    return;
+                }
+                // Trozos cada 100 ms
+                int chunk = (int) Math.max(1, Math.min(body.length, dripBytesPerSecond / 10));
+                for (int offset = 0; offset < body.length; offset += chunk) {
+                    out.write(body, offset, Math.min(chunk, body.length - offset));
+                    out.flush();
+                    if (offset + chunk < body.length) {
+                        sleep(100);
+                    }
+                }
+            }
+        }
+    }
+    
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido durante la demora inyectada", e);
+        }
+    }
+    
+    /**
+     * Detiene el servidor y los hilos virtuales en curso
+     * Con persistencia, compacta el log en un snapshot antes de salir
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (rateLimiter.isEnabled()) {
+            System.out.println("[mock-rate-limit] " + rateLimiter.summary());
+        }
+        if (compression.getCompressed() > 0) {
+            System.out.println("[mock-compression] " + compression.summary());
+        }
+        if (reviews != null && (reviews.getUpdates() > 0 || reviews.getCorrected() > 0)) {
+            System.out.println("[mock-reviews] Ajustes incrementales: " + reviews.getUpdates()
+                    + " | Productos corregidos al arrancar: " + reviews.getCorrected());
+        }
+        if (conditional.getNotModified() > 0) {
+            System.out.println("[mock-etag] " + conditional.summary());
+        }
+        MockJournal journal = store.getJournal();
+        if (journal != null) {
+            try {
+                store.close();
+                System.out.println("[mock-journal] " + journal.summary());
+            } catch (IOException e) {
+                System.err.println("[mock-journal] No se pudo cerrar el log: " + e.getMessage());
+            }
+        }
+    }
+    
+    @Override
+    public void close() {
+        stop();
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        Path dbFile = Paths.get(args.length > 1 ? args[1] : DEFAULT_DB_FILE);
+        MockServer mock = start(dbFile, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(mock::stop));
+        System.out.println("======================================");
+        System.out.println("  GreenMarket Mock API Server (JVM)");
+        System.out.println("======================================");
+        System.out.println("API disponible en: " + mock.getBaseUrl());
+        System.out.printf("Registros cargados: %d (%.1f ms), servidor listo en %.1f ms%n",
+                mock.getStore().recordCount(), mock.getLoadMillis(), mock.getStartupMillis());
+        JournalConfig journal = JournalConfig.fromSystemProperties();
+        System.out.println("Perfil de fallas: " + mock.getFaults().getActive().name()
+                + " (GET/PUT/DELETE " + mock.getBaseUrl() + "/" + FaultInjector.ADMIN_PATH + ")");
+        System.out.println(journal.isEnabled()
+                ? "Persistencia: log + snapshots en " + journal.dataDir().toAbsolutePath()
+                : "Persistencia: solo en memoria (-Dgreenmarket.mock.dataDir para habilitarla)");
+        for (String name : mock.getStore().collectionNames()) {
+            System.out.println("  GET    " + mock.getBaseUrl() + "/" + name);
+        }
+        System.out.println("Presiona Ctrl+C para detener el servidor");
+    }
+}
@@ -0,0 +1,188 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base de datos en memoria del mock server
+ * Se carga una sola vez desde mock-server/db.json: cada arreglo de primer nivel
+ * es una colección y el resto de las claves se sirven como recursos singulares
+ * Con JournalConfig habilitado las escrituras se persisten en un log y se recuperan al reiniciar (ver MockJournal)
+ */
+public class MockStore {
+    
+    private final ObjectMapper mapper;
+    private final Map<String, MockCollection> collections;
+    private final Map<String, JsonNode> singulars;
+    private volatile MockJournal journal;
+    
+    private MockStore(ObjectMapper mapper, Map<String, MockCollection> collections, Map<String, JsonNode> singulars) {
+        this.mapper = mapper;
+        this.collections = collections;
+        this.singulars = singulars;
+    }
+    
+    /**
+     * Carga la base de datos desde un archivo con el formato de json-server
+     * @param dbFile Ruta a db.json
+     * @return Store listo para usarse
+     * @throws IOException Si el archivo no existe o no es JSON válido
+     */
+    public static MockStore load(Path dbFile) throws IOException {
+        try (InputStream in = Files.newInputStream(dbFile)) {
+            return load(in);
+        }
+    }
+    
+    /**
+     * Abre la base de datos según la configuración de persistencia
+     * @param dbFile Ruta a db.json (con persistencia, solo se usa si aún no hay snapshot)
+     * @param config Configuración del log; JournalConfig.IN_MEMORY equivale a load(dbFile)
+     * @return Store listo para usarse
+     * @throws IOException Si db.json, el snapshot o el log no se pueden leer
+     */
+    public static MockStore open(Path dbFile, JournalConfig config) throws IOException {
+        return config.isEnabled() ? MockJournal.open(dbFile, config) : load(dbFile);
+    }
+    
+    /**
+     * Carga la base de datos desde un stream con el formato de json-server
+     * Se lee en streaming, un registro a la vez, así que el archivo nunca está completo en memoria como árbol;
+     * los registros sí quedan en memoria como ObjectNode, unos 1,6 KB de heap por registro de DatasetGenerator
+     * (10⁶ registros caben en -Xmx2g; 10⁷ necesitan del orden de 16 GB)
+     * @param in Contenido de db.json
+     * @return Store listo para usarse
+     * @throws IOException Si el contenido no es un objeto JSON válido
+     */
+    public static MockStore load(InputStream in) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, MockCollection> collections = new LinkedHashMap<>();
+        Map<String, JsonNode> singulars = new LinkedHashMap<>();
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("db.json debe contener un objeto JSON en la raíz");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY) {
+                    MockCollection collection = new MockCollection(name);
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        JsonNode record = mapper.readTree(parser);
+                        if (record != null && record.isObject()) {
+                            collection.insert((ObjectNode) record);
+                        }
+                    }
+                    collections.put(name, collection);
+                } else {
+                    singulars.put(name, mapper.readTree(parser));
+                }
+            }
+        }
+        return new MockStore(mapper, Collections.unmodifiableMap(collections), Collections.unmodifiableMap(singulars));
+    }
+    
+    void attach(MockJournal journal) {
+        this.journal = journal;
+        collections.values().forEach(collection -> collection.attach(journal));
+    }
+    
+    /**
+     * Log de escrituras del store
+     * @return Log, o null si el store es solo en memoria
+     */
+    public MockJournal getJournal() {
+        return journal;
+    }
+    
+    /**
+     * Espera a que las escrituras hechas hasta ahora sean durables; sin persistencia no hace nada
+     */
+    public void sync() {
+        MockJournal current = journal;
+        if (current != null) {
+            current.sync();
+        }
+    }
+    
+    /**
+     * Cierra el log dejando un snapshot compactado; sin persistencia no hace nada
+     * @throws IOException Si el snapshot no se pudo escribir
+     */
+    public void close() throws IOException {
+        MockJournal current = journal;
+        if (current != null) {
+            current.close();
+        }
+    }
+    
+    /**
+     * Escribe el contenido actual con el formato de db.json, registro por registro
+     * @param out Destino; no se cierra
+     * @throws IOException Si falla la escritura
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            for (MockCollection collection : collections.values()) {
+                generator.writeArrayFieldStart(collection.getName());
+                for (ObjectNode record : collection.snapshot()) {
+                    generator.writeTree(record);
+                }
+                generator.writeEndArray();
+            }
+            for (Map.Entry<String, JsonNode> singular : singulars.entrySet()) {
+                generator.writeFieldName(singular.getKey());
+                generator.writeTree(singular.getValue());
+            }
+            generator.writeEndObject();
+        }
+    }
+    
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+    
+    /**
+     * Obtiene una colección por nombre
+     * @param name Nombre de la colección (users, products, ...)
+     * @return Colección o null si no existe
+     */
+    public MockCollection collection(String name) {
+        return collections.get(name);
+    }
+    
+    /**
+     * Obtiene un recurso singular (clave de db.json que no es arreglo)
+     * @param name Nombre del recurso
+     * @return Contenido o null si no existe
+     */
+    public JsonNode singular(String name) {
+        return singulars.get(name);
+    }
+    
+    public Set<String> collectionNames() {
+        return collections.keySet();
+    }
+    
+    /**
+     * Cantidad total de registros en todas las colecciones
+     */
+    public int recordCount() {
+        return collections.values().stream().mapToInt(MockCollection::size).sum();
+    }
+}
@@ -1,8 +1,18 @@
 package com.greenmarket.tests;
 
 import com.greenmarket.tests.base.BaseTest;
+import com.greenmarket.tests.data.StreamingSource;
+import com.greenmarket.tests.validation.SchemaRegistry;
+import io.restassured.http.ContentType;
 import io.restassured.response.Response;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import static io.restassured.RestAssured.*;
 import static org.hamcrest.Matchers.*;
 
@@ -19,10 +29,9 @@ public class OrderManagementTest extends BaseTest {
     
     @BeforeAll
     public static void setupOrders() {
-        // Nota: Este test asume que ya existe un token de autenticación
-        // En un ambiente real, se ejecutaría después de UserManagementTest
+        // Usa el token del usuario de la suite (getSuiteToken): no depende de que UserManagementTest haya corrido antes
         System.out.println("=== Iniciando pruebas de Órdenes ===");
-        System.out.println("Token requerido para pruebas autenticadas");
+        System.out.println("Token requerido para pruebas autenticadas (usuario de la suite)");
     }
     
     /**
@@ -42,7 +51,7 @@ public class OrderManagementTest extends BaseTest {
         
         Response response = given()
                 .spec(requestSpec)
-                .header("Authorization", "Bearer " + getAuthToken())
+                .header("Authorization", "Bearer " + getSuiteToken())
                 .body(requestBody)
             .when()
                 .post("/orders")
@@ -59,6 +68,7 @@ public class OrderManagementTest extends BaseTest {
         
         // Guardar orderId para pruebas posteriores
         testOrderId = response.jsonPath().getString("orderId");
+        trackCreated("orders", testOrderId);
         
         System.out.println("✓ CP-010 Pasó: Orden creada exitosamente");
         System.out.println("  Order ID: " + testOrderId);
@@ -75,15 +85,15 @@ public class OrderManagementTest extends BaseTest {
     public void testGetOrderById() {
         given()
             .spec(requestSpec)
-            .header("Authorization", "Bearer " + getAuthToken())
+            .header("Authorization", "Bearer " + getSuiteToken())
         .when()
             .get("/orders/" + testOrderId)
         .then()
             .statusCode(200)
             .contentType(ContentType.JSON)
             .body("orderId", equalTo(testOrderId))
-            .body("items", notNullValue())
-            .body("items", isA(java.util.List.class))
+            // Estructura de la orden e ítems según schemas/orders.json
+            .body(SchemaRegistry.shared().matcher("orders"))
             .body("total", notNullValue())
             .body("status", notNullValue())
             .body("shippingAddress", notNullValue());
@@ -132,7 +142,7 @@ public class OrderManagementTest extends BaseTest {
         
         given()
             .spec(requestSpec)
-            .header("Authorization", "Bearer " + getAuthToken())
+            .header("Authorization", "Bearer " + getSuiteToken())
             .body(requestBody)
         .when()
             .post("/orders")
@@ -161,7 +171,7 @@ public class OrderManagementTest extends BaseTest {
         
         given()
             .spec(requestSpec)
-            .header("Authorization", "Bearer " + getAuthToken())
+            .header("Authorization", "Bearer " + getSuiteToken())
             .body(requestBody)
         .when()
             .post("/orders")
@@ -185,7 +195,7 @@ public class OrderManagementTest extends BaseTest {
         
         given()
             .spec(requestSpec)
-            .header("Authorization", "Bearer " + getAuthToken())
+            .header("Authorization", "Bearer " + getSuiteToken())
         .when()
             .get("/orders/" + nonExistentOrderId)
         .then()
@@ -196,6 +206,159 @@ public class OrderManagementTest extends BaseTest {
         System.out.println("✓ CP-015 Pasó: Orden inexistente manejada correctamente");
     }
     
+    /**
+     * CP-010 con datos: Crear Órdenes desde Archivo
+     * Crea una orden por cada línea de data/order-lines.csv, leído en streaming
+     */
+    @ParameterizedTest(name = "CP-010 [{index}]: Producto {0} x {1}")
+    @Order(7)
+    @StreamingSource(file = "data/order-lines.csv", fields = {"productId", "quantity"})
+    public void testCreateOrderFromDataset(String productId, int quantity) {
+        String requestBody = String.format(
+            "{\"items\":[{\"productId\":\"%s\",\"quantity\":%d}]," +
+            "\"shippingAddress\":\"Av. Principal 123, Santiago, Chile\"}",
+            productId, quantity
+        );
+        
+        String orderId = given()
+                .spec(requestSpec)
+                .header("Authorization", "Bearer " + getSuiteToken())
+                .body(requestBody)
+            .when()
+                .post("/orders")
+            .then()
+                .statusCode(201)
+                .contentType(ContentType.JSON)
+                .body("items[0].productId", equalTo(productId))
+                .body("items[0].quantity", equalTo(quantity))
+            .extract()
+                .path("id");
+        
+        trackCreated("orders", orderId);
+    }
+    
+    /**
+     * CP-017: Descuento de Stock al Crear Órdenes
+     * Con la reserva de stock del mock (greenmarket.mock.stock=reserve) una orden descuenta sus unidades,
+     * una orden mayor al stock responde 409 sin tocarlo y un PATCH del stock fija el nuevo punto de partida
+     */
+    @Test
+    @Order(8)
+    @DisplayName("CP-017: Descuento de Stock al Crear Órdenes")
+    public void testOrderReservesStock() {
+        Assumptions.assumeTrue(mockServer != null && mockServer.getStock() != null,
+                "Requiere el mock server embebido con -Dgreenmarket.mock.stock=reserve");
+        String productId = createStockProduct(5);
+        
+        createOrder(productId, 2).then().statusCode(201);
+        Assertions.assertEquals(3, stockOf(productId), "stock tras una orden de 2 unidades");
+        
+        createOrder(productId, 4).then()
+                .statusCode(409)
+                .body("error", containsString(productId));
+        Assertions.assertEquals(3, stockOf(productId), "una orden rechazada no descuenta stock");
+        
+        given()
+                .spec(requestSpec)
+                .body(Map.of("stock", 1))
+            .when()
+                .patch("/products/" + productId)
+            .then()
+                .statusCode(200)
+                .body("stock", equalTo(1));
+        createOrder(productId, 1).then().statusCode(201);
+        createOrder(productId, 1).then().statusCode(409);
+        Assertions.assertEquals(0, stockOf(productId), "stock tras agotar el valor del PATCH");
+        
+        System.out.println("✓ CP-017 Pasó: el stock baja con cada orden y nunca queda negativo");
+    }
+    
+    /**
+     * CP-018: Stock sin Sobreventa bajo Concurrencia
+     * Lanza más órdenes simultáneas que unidades disponibles: deben aceptarse exactamente tantas como
+     * unidades había, el resto recibe 409 y el stock termina en 0, nunca negativo
+     */
+    @Test
+    @Order(9)
+    @DisplayName("CP-018: Stock sin Sobreventa bajo Concurrencia")
+    public void testOrdersDoNotOversellUnderConcurrency() throws Exception {
+        Assumptions.assumeTrue(mockServer != null && mockServer.getStock() != null,
+                "Requiere el mock server embebido con -Dgreenmarket.mock.stock=reserve");
+        int initialStock = 5;
+        int orders = 20;
+        String productId = createStockProduct(initialStock);
+        
+        List<Integer> statuses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> sent = new ArrayList<>();
+            for (int i = 0; i < orders; i++) {
+                sent.add(executor.submit(() -> createOrder(productId, 1).statusCode()));
+            }
+            for (Future<Integer> status : sent) {
+                statuses.add(status.get());
+            }
+        }
+        
+        long accepted = statuses.stream().filter(status -> status == 201).count();
+        long rejected = statuses.stream().filter(status -> status == 409).count();
+        Assertions.assertEquals(initialStock, accepted, "órdenes aceptadas: " + statuses);
+        Assertions.assertEquals(orders - initialStock, rejected, "órdenes rechazadas por stock: " + statuses);
+        int finalStock = stockOf(productId);
+        Assertions.assertTrue(finalStock >= 0, "stock negativo: " + finalStock);
+        Assertions.assertEquals(initialStock - accepted, finalStock, "stock final");
+        
+        System.out.println("✓ CP-018 Pasó: " + accepted + " de " + orders + " órdenes aceptadas con stock "
+                + initialStock + ", stock final " + finalStock);
+    }
+    
+    /**
+     * Crea un producto propio de la prueba, así las órdenes del resto de la suite no mueven su stock
+     */
+    private String createStockProduct(int stock) {
+        String productId = given()
+                .spec(requestSpec)
+                .body(Map.of("name", "QA Stock", "description", "Producto de prueba de stock", "price", 1000,
+                        "category", "QA", "stock", stock))
+            .when()
+                .post("/products")
+            .then()
+                .statusCode(201)
+            .extract()
+                .path("id");
+        trackCreated("products", productId);
+        return productId;
+    }
+    
+    /**
+     * Envía una orden de un solo producto con el token de la suite
+     */
+    private Response createOrder(String productId, int quantity) {
+        Response response = given()
+                .spec(requestSpec)
+                .header("Authorization", "Bearer " + getSuiteToken())
+                .body(String.format(
+                    "{\"items\":[{\"productId\":\"%s\",\"quantity\":%d}]," +
+                    "\"shippingAddress\":\"Av. Principal 123, Santiago, Chile\"}",
+                    productId, quantity))
+            .when()
+                .post("/orders");
+        if (response.statusCode() == 201) {
+            trackCreated("orders", response.path("id"));
+        }
+        return response;
+    }
+    
+    private int stockOf(String productId) {
+        return given()
+                .spec(requestSpec)
+            .when()
+                .get("/products/" + productId)
+            .then()
+                .statusCode(200)
+            .extract()
+                .path("stock");
+    }
+    
     @AfterAll
     public static void tearDown() {
         System.out.println("\n=== Resumen de Pruebas de Órdenes ===");
@@ -0,0 +1,203 @@
+package com.greenmarket.tests.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mide el tiempo de pared de la suite y lo compara con una corrida serial real
+ *
+ * Una corrida de la suite completa con el paralelismo apagado explícitamente (mvn test -Djunit.parallel=false)
+ * guarda su tiempo de pared en target/serial-suite.json (-Dgreenmarket.speedup.serialFile); las corridas en
+ * paralelo con las mismas clases calculan el speedup contra ese tiempo. Una clase suelta desde el IDE o un
+ * -Dtest=... no reemplazan la referencia. La suma de los tiempos por clase dividida por el tiempo de pared se informa aparte como
+ * solapamiento: con CPU compartida cada clase se alarga al correr junto a otras, así que ese cociente no es
+ * un speedup. El resumen se escribe al terminar la suite en target/parallel-speedup.json
+ */
+public class ParallelSpeedupExtension implements BeforeAllCallback, AfterAllCallback {
+    
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(ParallelSpeedupExtension.class);
+    
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        timing(context).classStarted(context.getRequiredTestClass());
+    }
+    
+    @Override
+    public void afterAll(ExtensionContext context) {
+        timing(context).classFinished(context.getRequiredTestClass());
+    }
+    
+    private static SuiteTiming timing(ExtensionContext context) {
+        // El store raíz vive hasta el final de la suite y cierra el recurso una sola vez
+        return context.getRoot().getStore(NAMESPACE).getOrComputeIfAbsent(
+                SuiteTiming.class,
+                key -> new SuiteTiming(context.getConfigurationParameter("junit.jupiter.execution.parallel.enabled"),
+                        context.getRequiredTestClass()),
+                SuiteTiming.class);
+    }
+    
+    /**
+     * Tiempos por clase acumulados durante la suite
+     */
+    static class SuiteTiming implements ExtensionContext.Store.CloseableResource {
+        
+        private final Optional<String> parallelEnabled;
+        private final Class<?> firstClass;
+        private final AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong lastEnd = new AtomicLong(Long.MIN_VALUE);
+        private final ConcurrentMap<String, Long> starts = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Long> durations = new ConcurrentHashMap<>();
+        
+        SuiteTiming(Optional<String> parallelEnabled, Class<?> firstClass) {
+            this.parallelEnabled = parallelEnabled;
+            this.firstClass = firstClass;
+        }
+        
+        void classStarted(Class<?> testClass) {
+            long now = System.nanoTime();
+            firstStart.accumulateAndGet(now, Math::min);
+            starts.put(testClass.getName(), now);
+        }
+        
+        void classFinished(Class<?> testClass) {
+            long now = System.nanoTime();
+            lastEnd.accumulateAndGet(now, Math::max);
+            Long start = starts.get(testClass.getName());
+            if (start != null) {
+                durations.put(testClass.getSimpleName(), now - start);
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (durations.isEmpty()) {
+                return;
+            }
+            boolean parallel = parallelEnabled.map(Boolean::parseBoolean).orElse(false);
+            boolean explicitSerial = parallelEnabled.filter("false"::equalsIgnoreCase).isPresent();
+            double wallMillis = (lastEnd.get() - firstStart.get()) / 1_000_000.0;
+            double classMillis = durations.values().stream().mapToLong(Long::longValue).sum() / 1_000_000.0;
+            double overlap = wallMillis > 0 ? classMillis / wallMillis : 1.0;
+            
+            ObjectMapper mapper = new ObjectMapper();
+            Path serialFile = Paths.get(System.getProperty("greenmarket.speedup.serialFile", "target/serial-suite.json"));
+            ObjectNode report = mapper.createObjectNode();
+            report.put("parallelEnabled", parallel);
+            report.put("wallClockMillis", wallMillis);
+            report.put("classTimeSumMillis", classMillis);
+            report.put("classTimeOverlap", overlap);
+            ObjectNode classes = report.putObject("classMillis");
+            Map<String, Long> sorted = new TreeMap<>(durations);
+            sorted.forEach((name, nanos) -> classes.put(name, nanos / 1_000_000.0));
+            Set<String> ran = sorted.keySet();
+            
+            String speedup;
+            if (!parallel) {
+                Set<String> suite = suiteClasses();
+                if (explicitSerial && ran.equals(suite)) {
+                    write(mapper, serialFile, report);
+                    speedup = "referencia serial guardada en " + serialFile;
+                } else if (explicitSerial) {
+                    speedup = "referencia serial no guardada: corrieron " + ran + " de " + suite;
+                } else {
+                    speedup = "referencia serial no guardada: el paralelismo no se apagó con -Djunit.parallel=false";
+                }
+            } else if (Files.exists(serialFile)) {
+                ObjectNode serial = (ObjectNode) mapper.readTree(serialFile.toFile());
+                Set<String> serialClasses = new TreeSet<>();
+                serial.path("classMillis").fieldNames().forEachRemaining(serialClasses::add);
+                if (serialClasses.equals(ran)) {
+                    double serialMillis = serial.path("wallClockMillis").asDouble();
+                    report.put("serialWallClockMillis", serialMillis);
+                    report.put("speedup", serialMillis / wallMillis);
+                    speedup = String.format(Locale.ROOT, "%.2fx (serial %.0f ms)", serialMillis / wallMillis,
+                            serialMillis);
+                } else {
+                    speedup = "la referencia serial cubre " + serialClasses + ", esta corrida " + ran;
+                }
+            } else {
+                speedup = "sin corrida serial de referencia (mvn test -Djunit.parallel=false)";
+            }
+            
+            System.out.println("\n=== Tiempo de la Suite ===");
+            System.out.printf(Locale.ROOT, "Paralelo: %s | Pared: %.0f ms | Suma por clase: %.0f ms | "
+                    + "Solapamiento: %.2fx | Speedup: %s%n", parallel, wallMillis, classMillis, overlap, speedup);
+            write(mapper, Paths.get(System.getProperty("greenmarket.speedup.file", "target/parallel-speedup.json")), report);
+        }
+        
+        /**
+         * Clases *Test / *Tests compiladas junto a la primera clase de la corrida que usan esta extensión,
+         * es decir, las que corre mvn test sin filtros
+         */
+        private Set<String> suiteClasses() throws IOException {
+            Set<String> suite = new TreeSet<>();
+            URL location = firstClass.getResource(firstClass.getSimpleName() + ".class");
+            if (location == null || !"file".equals(location.getProtocol())) {
+                return suite;
+            }
+            Path directory;
+            try {
+                directory = Paths.get(location.toURI()).getParent();
+            } catch (URISyntaxException e) {
+                throw new IOException("Ubicación inválida de " + firstClass.getName(), e);
+            }
+            String packagePrefix = firstClass.getPackageName().isEmpty() ? "" : firstClass.getPackageName() + ".";
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (!name.matches("[^$]+Tests?\\.class")) {
+                        continue;
+                    }
+                    String simpleName = name.substring(0, name.length() - ".class".length());
+                    try {
+                        Class<?> candidate = Class.forName(packagePrefix + simpleName, false,
+                                firstClass.getClassLoader());
+                        if (!Modifier.isAbstract(candidate.getModifiers()) && timed(candidate)) {
+                            suite.add(simpleName);
+                        }
+                    } catch (ClassNotFoundException | LinkageError e) {
+                        // No es una clase de la suite
+                    }
+                }
+            }
+            return suite;
+        }
+        
+        private static boolean timed(Class<?> candidate) {
+            return AnnotationSupport.findRepeatableAnnotations(candidate, ExtendWith.class).stream()
+                    .flatMap(extendWith -> Arrays.stream(extendWith.value()))
+                    .anyMatch(ParallelSpeedupExtension.class::equals);
+        }
+        
+        private static void write(ObjectMapper mapper, Path file, ObjectNode report) throws IOException {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+        }
+    }
+}
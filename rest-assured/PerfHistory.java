@@ -0,0 +1,73 @@
+package com.greenmarket.tests.history;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ingesta los resultados del build en el historial de rendimiento y falla ante regresiones de latencia
+ *
+ * Lee Surefire (target/surefire-reports), los reportes JUnit de Newman/PostmanRunner (../postman/reports)
+ * y los histogramas de @LatencyBudget (target/latency), los agrega al historial local (ver HistoryStore),
+ * compara cada prueba y endpoint contra sus corridas anteriores (ver RegressionDetector) y escribe
+ * el reporte HTML de tendencias
+ *
+ * Uso, después de mvn test: java com.greenmarket.tests.history.PerfHistory [--baseline-runs=20] [--alpha=0.01]
+ * Termina con código 1 si alguna serie de esta corrida tiene una regresión significativa
+ */
+public class PerfHistory {
+    
+    public static void main(String[] args) throws IOException {
+        HistoryConfig config = HistoryConfig.parse(args);
+        HistoryStore store = new HistoryStore(config.store());
+        List<HistoryRecord> history = new ArrayList<>(store.load());
+        Set<String> ingestedRuns = new LinkedHashSet<>();
+        
+        if (config.ingest()) {
+            if (history.stream().anyMatch(r -> r.run().equals(config.run()))) {
+                throw new IllegalArgumentException("La corrida " + config.run() + " ya está en el historial");
+            }
+            Instant now = Instant.now();
+            Set<String> newmanRuns = history.stream()
+                    .filter(r -> "newman".equals(r.source()))
+                    .map(HistoryRecord::run)
+                    .collect(Collectors.toSet());
+            List<HistoryRecord> records = new ArrayList<>();
+            records.addAll(ResultIngester.surefire(config.surefireDir(), config.run(), now));
+            records.addAll(ResultIngester.latency(config.latencyDir(), config.run(), now));
+            records.addAll(ResultIngester.newman(config.newmanDir(), newmanRuns));
+            store.append(records);
+            history.addAll(records);
+            records.forEach(r -> ingestedRuns.add(r.run()));
+            System.out.printf("Historial: %d series agregadas de %d corrida(s) a %s%n", records.size(),
+                    ingestedRuns.size(), store.getFile().toAbsolutePath());
+            if (records.isEmpty()) {
+                System.out.println("Historial: no se encontraron resultados nuevos; no hay nada que controlar");
+                return;
+            }
+        }
+        
+        List<RegressionDetector.Trend> trends = new RegressionDetector(config).analyze(history, ingestedRuns);
+        TrendReport.write(config.htmlReport(), trends, config);
+        List<RegressionDetector.Trend> regressions = trends.stream()
+                .filter(t -> t.gated() && t.status() == RegressionDetector.Status.REGRESSION)
+                .toList();
+        for (RegressionDetector.Trend trend : regressions) {
+            System.out.printf(Locale.ROOT, "  REGRESIÓN %s:%s mediana %.2f ms -> %.2f ms (%+.1f%%, p=%.4f)%n",
+                    trend.source(), trend.key(), trend.baselineMedianMillis(), trend.currentMedianMillis(),
+                    trend.change() * 100, trend.test().pSlower());
+        }
+        long insufficient = trends.stream().filter(t -> t.status() == RegressionDetector.Status.INSUFFICIENT).count();
+        System.out.printf("Historial: %d series analizadas, %d regresiones, %d sin historia suficiente%n",
+                trends.size(), regressions.size(), insufficient);
+        System.out.println("Reporte: " + config.htmlReport().toAbsolutePath());
+        if (!regressions.isEmpty() && config.failOnRegression()) {
+            System.exit(1);
+        }
+    }
+}
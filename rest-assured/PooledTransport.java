@@ -0,0 +1,300 @@
+package com.greenmarket.tests.http;
+
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.config.Lookup;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpClientConnectionOperator;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.DefaultHttpClientConnectionOperator;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Apache HttpClient con pool de conexiones keep-alive compartido por todas las specifications
+ * REST Assured crea por defecto un cliente por petición y cierra su conexión al terminar;
+ * aquí un cliente de HttpClientBuilder sobre un PoolingHttpClientConnectionManager se reutiliza
+ * y las conexiones vuelven al pool tras leer la respuesta
+ *
+ * REST Assured 5 solo acepta clientes AbstractHttpClient (la API deprecada), así que, como en Http2Transport,
+ * un filtro de REST Assured envía la petición por este cliente y devuelve la respuesta
+ *
+ * El pool de HttpCore 4 espera una conexión libre dentro de un bloque synchronized, que fija el hilo virtual a su
+ * carrier: con todos los carriers esperando, las respuestas que liberarían conexiones no se procesan nunca. Por eso
+ * cada petición toma antes un permiso de su ruta y del total (semáforos del mismo tamaño que el pool), que sí
+ * liberan el carrier mientras esperan, y el pool siempre tiene una conexión para entregar
+ */
+public class PooledTransport extends HttpTransport implements Filter {
+    
+    /** Cabeceras que calcula el propio cliente a partir de la petición y la conexión */
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    
+    static {
+        RESTRICTED_HEADERS.addAll(List.of("Connection", "Content-Length", "Host", "Transfer-Encoding"));
+    }
+    
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private final ScheduledExecutorService evictor;
+    private final Semaphore totalLeases;
+    private final ConcurrentMap<String, Semaphore> routeLeases = new ConcurrentHashMap<>();
+    
+    public PooledTransport(TransportConfig config) {
+        super(config, true);
+        Lookup<ConnectionSocketFactory> sockets = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                .build();
+        this.connectionManager = new PoolingHttpClientConnectionManager(
+                new CountingConnectionOperator(sockets, metrics), null, -1, TimeUnit.MILLISECONDS);
+        connectionManager.setDefaultMaxPerRoute(config.maxPerRoute());
+        connectionManager.setMaxTotal(config.maxTotal());
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom().setTcpNoDelay(true).build());
+        // Revisa si la conexión sigue viva antes de reutilizarla cuando estuvo ociosa más de un segundo
+        connectionManager.setValidateAfterInactivity(1000);
+        
+        this.totalLeases = new Semaphore(config.maxTotal(), true);
+        
+        HttpRequestInterceptor sent = (request, context) -> metrics.requestSent();
+        HttpResponseInterceptor received = (response, context) -> {
+            CallTimings.firstByte();
+            metrics.responseVersion(response.getStatusLine().getProtocolVersion().toString());
+        };
+        // Sin cookies, como REST Assured por defecto; la descompresión la hace ContentDecoder
+        this.client = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) config.connectTimeout().toMillis())
+                        .build())
+                .disableCookieManagement()
+                .disableContentCompression()
+                .addInterceptorLast(sent)
+                .addInterceptorFirst(received)
+                .build();
+        
+        // Desalojo periódico de conexiones expiradas u ociosas
+        long idleMillis = config.idleTimeout().toMillis();
+        long period = Math.max(1000, idleMillis / 2);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "greenmarket-http-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(() -> evictIdle(idleMillis), period, period, TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public RequestSpecBuilder apply(RequestSpecBuilder builder) {
+        return acceptEncoding(cache(builder).addFilter(this));
+    }
+    
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec,
+                           FilterableResponseSpecification responseSpec,
+                           FilterContext ctx) {
+        long start = System.nanoTime();
+        RequestBuilder request = RequestBuilder.create(requestSpec.getMethod()).setUri(requestSpec.getURI());
+        for (io.restassured.http.Header header : requestSpec.getHeaders()) {
+            if (!RESTRICTED_HEADERS.contains(header.getName())) {
+                request.addHeader(header.getName(), header.getValue());
+            }
+        }
+        HttpEntity body = bodyOf(requestSpec);
+        if (body != null) {
+            request.setEntity(body);
+        }
+        
+        Semaphore route = routeLeases.computeIfAbsent(routeOf(requestSpec.getURI()),
+                key -> new Semaphore(config.maxPerRoute(), true));
+        try {
+            route.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando una conexión a " + requestSpec.getURI(), e);
+        }
+        try {
+            totalLeases.acquire();
+        } catch (InterruptedException e) {
+            route.release();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando una conexión a " + requestSpec.getURI(), e);
+        }
+        try {
+            return execute(request, requestSpec, ctx, start);
+        } finally {
+            totalLeases.release();
+            route.release();
+        }
+    }
+    
+    private Response execute(RequestBuilder request, FilterableRequestSpecification requestSpec, FilterContext ctx,
+                             long start) {
+        // El cuerpo se lee completo antes de cerrar la respuesta, así la conexión vuelve al pool en el acto
+        // aunque la prueba nunca lo lea. Se descomprime acá (y no en REST Assured) para medir bytes en la red
+        // y costo de CPU
+        try (CloseableHttpResponse response = client.execute(request.build())) {
+            HttpEntity entity = response.getEntity();
+            byte[] decoded = new byte[0];
+            if (entity != null) {
+                Header encoding = entity.getContentEncoding();
+                decoded = ContentDecoder.decode(encoding == null ? null : encoding.getValue(),
+                        EntityUtils.toByteArray(entity), metrics);
+            }
+            
+            List<io.restassured.http.Header> headers = new ArrayList<>();
+            for (Header header : response.getAllHeaders()) {
+                headers.add(new io.restassured.http.Header(header.getName(), header.getValue()));
+            }
+            ResponseBuilder builder = new ResponseBuilder()
+                    .setStatusCode(response.getStatusLine().getStatusCode())
+                    .setStatusLine(response.getStatusLine().toString())
+                    .setHeaders(new Headers(headers))
+                    .setBody(decoded);
+            Header contentType = response.getFirstHeader("Content-Type");
+            if (contentType != null) {
+                builder.setContentType(contentType.getValue());
+            }
+            return completed(builder.build(), ctx, start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falló la petición a " + requestSpec.getURI(), e);
+        }
+    }
+    
+    /**
+     * Ruta del pool (esquema, host y puerto) de una URI
+     */
+    private static String routeOf(String uri) {
+        URI parsed = URI.create(uri);
+        return parsed.getScheme() + "://" + parsed.getHost() + ":" + parsed.getPort();
+    }
+    
+    private static HttpEntity bodyOf(FilterableRequestSpecification requestSpec) {
+        Object body = requestSpec.getBody();
+        if (body == null) {
+            return null;
+        }
+        if (body instanceof byte[] bytes) {
+            return new ByteArrayEntity(bytes);
+        }
+        return new ByteArrayEntity(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Conexiones abiertas y disponibles en el pool en este momento
+     */
+    public int getAvailableConnections() {
+        return connectionManager.getTotalStats().getAvailable();
+    }
+    
+    /**
+     * Conexiones prestadas a peticiones en curso
+     */
+    public int getLeasedConnections() {
+        return connectionManager.getTotalStats().getLeased();
+    }
+    
+    private void evictIdle(long idleMillis) {
+        int before = connectionManager.getTotalStats().getAvailable();
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleMillis, TimeUnit.MILLISECONDS);
+        int after = connectionManager.getTotalStats().getAvailable();
+        if (before > after) {
+            metrics.connectionsEvicted(before - after);
+        }
+    }
+    
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        connectionManager.shutdown();
+    }
+    
+    /**
+     * Operador del pool que cuenta las conexiones físicas que abre y mide DNS y conexión de cada una
+     */
+    static class CountingConnectionOperator implements HttpClientConnectionOperator {
+        
+        private final HttpClientConnectionOperator delegate;
+        private final ConnectionMetrics metrics;
+        
+        CountingConnectionOperator(Lookup<ConnectionSocketFactory> sockets, ConnectionMetrics metrics) {
+            this.delegate = new DefaultHttpClientConnectionOperator(sockets, null, new TimedDnsResolver());
+            this.metrics = metrics;
+        }
+        
+        @Override
+        public void connect(ManagedHttpClientConnection connection, HttpHost host, InetSocketAddress localAddress,
+                            int connectTimeout, SocketConfig socketConfig, HttpContext context) throws IOException {
+            long start = System.nanoTime();
+            delegate.connect(connection, host, localAddress, connectTimeout, socketConfig, context);
+            CallTimings.connected(System.nanoTime() - start);
+            metrics.connectionOpened("https".equalsIgnoreCase(host.getSchemeName()));
+        }
+        
+        @Override
+        public void upgrade(ManagedHttpClientConnection connection, HttpHost host, HttpContext context)
+                throws IOException {
+            delegate.upgrade(connection, host, context);
+        }
+    }
+    
+    /**
+     * Resolución del sistema con el tiempo informado a CallTimings
+     */
+    static class TimedDnsResolver implements DnsResolver {
+        
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            long start = System.nanoTime();
+            try {
+                return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            } finally {
+                CallTimings.dnsResolved(System.nanoTime() - start);
+            }
+        }
+    }
+}
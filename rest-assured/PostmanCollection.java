@@ -0,0 +1,205 @@
+package com.greenmarket.tests.postman;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Colección de Postman (formato v2.1) lista para ejecutar
+ *
+ * Cada carpeta de primer nivel es un grupo independiente; las subcarpetas se aplanan en orden dentro de su grupo
+ * y cada petición hereda los scripts de la colección y de sus carpetas (se ejecutan de afuera hacia adentro).
+ * Las peticiones sueltas en la raíz forman un grupo sin nombre que corre antes que las carpetas
+ *
+ * @param name Nombre de la colección
+ * @param id _postman_id
+ * @param folders Grupos de peticiones en el orden de la colección
+ * @param variables Variables de la colección con su valor inicial
+ */
+public record PostmanCollection(String name, String id, List<Folder> folders, Map<String, String> variables) {
+    
+    /**
+     * Grupo de peticiones que se ejecutan en orden
+     * @param name Nombre de la carpeta, o null para las peticiones de la raíz
+     * @param items Peticiones, incluidas las de subcarpetas
+     */
+    public record Folder(String name, List<Item> items) {
+    }
+    
+    /**
+     * Petición de la colección
+     * @param id Identificador de Postman (puede ser null)
+     * @param name Nombre de la petición
+     * @param path Carpetas y nombre separados por " / ", como en los reportes de Newman
+     * @param request Petición con variables {{...}} sin resolver
+     * @param prerequest Scripts prerequest heredados y propios
+     * @param tests Scripts test heredados y propios
+     */
+    public record Item(String id, String name, String path, Request request, List<String> prerequest, List<String> tests) {
+    }
+    
+    /**
+     * @param method Método HTTP
+     * @param url URL cruda ({{base_url}}/users/{{user_id}})
+     * @param headers Cabeceras habilitadas
+     * @param body Cuerpo (raw, o urlencoded ya codificado), o null
+     */
+    public record Request(String method, String url, Map<String, String> headers, String body) {
+    }
+    
+    /**
+     * Lee una colección exportada desde Postman
+     * @param file Archivo .postman_collection.json
+     * @return Colección aplanada
+     * @throws IOException Si el archivo no se puede leer o usa algo no soportado (form-data, archivos)
+     */
+    public static PostmanCollection load(Path file) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(file.toFile());
+        JsonNode info = root.path("info");
+        Map<String, String> variables = new LinkedHashMap<>();
+        for (JsonNode variable : root.path("variable")) {
+            if (!variable.path("disabled").asBoolean(false)) {
+                variables.put(variable.path("key").asText(), variable.path("value").asText(""));
+            }
+        }
+        
+        List<String> prerequest = scripts(root, "prerequest", List.of());
+        List<String> tests = scripts(root, "test", List.of());
+        List<Folder> folders = new ArrayList<>();
+        List<Item> rootItems = new ArrayList<>();
+        for (JsonNode node : root.path("item")) {
+            if (node.has("item")) {
+                List<Item> items = new ArrayList<>();
+                flatten(file, node, node.path("name").asText(), scripts(node, "prerequest", prerequest),
+                        scripts(node, "test", tests), items);
+                folders.add(new Folder(node.path("name").asText(), List.copyOf(items)));
+            } else {
+                rootItems.add(item(file, node, null, prerequest, tests));
+            }
+        }
+        if (!rootItems.isEmpty()) {
+            folders.add(0, new Folder(null, List.copyOf(rootItems)));
+        }
+        return new PostmanCollection(info.path("name").asText(file.getFileName().toString()),
+                info.path("_postman_id").asText(null), List.copyOf(folders), Map.copyOf(variables));
+    }
+    
+    /**
+     * Cantidad total de peticiones
+     */
+    public int size() {
+        return folders.stream().mapToInt(folder -> folder.items().size()).sum();
+    }
+    
+    private static void flatten(Path file, JsonNode folder, String path, List<String> prerequest, List<String> tests,
+                                List<Item> out) throws IOException {
+        for (JsonNode node : folder.path("item")) {
+            if (node.has("item")) {
+                flatten(file, node, path + " / " + node.path("name").asText(), scripts(node, "prerequest", prerequest),
+                        scripts(node, "test", tests), out);
+            } else {
+                out.add(item(file, node, path, prerequest, tests));
+            }
+        }
+    }
+    
+    private static Item item(Path file, JsonNode node, String folderPath, List<String> prerequest, List<String> tests)
+            throws IOException {
+        String name = node.path("name").asText();
+        JsonNode request = node.path("request");
+        // Una petición puede ser solo la URL como texto
+        if (request.isTextual()) {
+            return new Item(node.path("id").asText(null), name, folderPath == null ? name : folderPath + " / " + name,
+                    new Request("GET", request.asText(), Map.of(), null),
+                    scripts(node, "prerequest", prerequest), scripts(node, "test", tests));
+        }
+        JsonNode url = request.path("url");
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (JsonNode header : request.path("header")) {
+            if (!header.path("disabled").asBoolean(false)) {
+                headers.put(header.path("key").asText(), header.path("value").asText(""));
+            }
+        }
+        String body = body(file, name, request.path("body"), headers);
+        return new Item(node.path("id").asText(null), name, folderPath == null ? name : folderPath + " / " + name,
+                new Request(request.path("method").asText("GET"), url.isTextual() ? url.asText() : url.path("raw").asText(),
+                        Collections.unmodifiableMap(headers), body),
+                scripts(node, "prerequest", prerequest), scripts(node, "test", tests));
+    }
+    
+    private static String body(Path file, String name, JsonNode body, Map<String, String> headers) throws IOException {
+        if (body.isMissingNode() || body.path("disabled").asBoolean(false)) {
+            return null;
+        }
+        String mode = body.path("mode").asText("raw");
+        switch (mode) {
+            case "raw" -> {
+                return body.path("raw").asText("");
+            }
+            case "urlencoded" -> {
+                StringBuilder form = new StringBuilder();
+                for (JsonNode field : body.path("urlencoded")) {
+                    if (field.path("disabled").asBoolean(false)) {
+                        continue;
+                    }
+                    if (!form.isEmpty()) {
+                        form.append('&');
+                    }
+                    // {{variables}} sin codificar para poder resolverlas después
+                    form.append(encodeKeepingVariables(field.path("key").asText()))
+                            .append('=').append(encodeKeepingVariables(field.path("value").asText("")));
+                }
+                headers.putIfAbsent("Content-Type", "application/x-www-form-urlencoded");
+                return form.toString();
+            }
+            default -> throw new IOException("Modo de cuerpo no soportado (" + mode + ") en " + name + " de " + file);
+        }
+    }
+    
+    private static String encodeKeepingVariables(String value) {
+        StringBuilder out = new StringBuilder();
+        int from = 0;
+        int open;
+        while ((open = value.indexOf("{{", from)) >= 0) {
+            int close = value.indexOf("}}", open);
+            if (close < 0) {
+                break;
+            }
+            out.append(URLEncoder.encode(value.substring(from, open), StandardCharsets.UTF_8))
+                    .append(value, open, close + 2);
+            from = close + 2;
+        }
+        return out.append(URLEncoder.encode(value.substring(from), StandardCharsets.UTF_8)).toString();
+    }
+    
+    /**
+     * Scripts heredados más los del nodo para un evento
+     */
+    private static List<String> scripts(JsonNode node, String listen, List<String> inherited) {
+        List<String> scripts = new ArrayList<>(inherited);
+        for (JsonNode event : node.path("event")) {
+            if (listen.equals(event.path("listen").asText()) && !event.path("disabled").asBoolean(false)) {
+                JsonNode exec = event.path("script").path("exec");
+                StringBuilder source = new StringBuilder();
+                if (exec.isArray()) {
+                    exec.forEach(line -> source.append(line.asText()).append('\n'));
+                } else {
+                    source.append(exec.asText(""));
+                }
+                if (!source.toString().isBlank()) {
+                    scripts.add(source.toString());
+                }
+            }
+        }
+        return List.copyOf(scripts);
+    }
+}
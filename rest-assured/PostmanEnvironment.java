@@ -0,0 +1,43 @@
+package com.greenmarket.tests.postman;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Entorno de Postman (.postman_environment.json)
+ *
+ * Los valores vacíos se descartan: en el entorno de GreenMarket user_id, product_id y order_id vienen vacíos
+ * y, con la precedencia de Postman (entorno sobre colección), taparían los valores que los scripts guardan
+ * con pm.collectionVariables.set
+ *
+ * @param name Nombre del entorno
+ * @param values Variables habilitadas con valor
+ */
+public record PostmanEnvironment(String name, Map<String, String> values) {
+    
+    /** Sin entorno: solo variables de la colección */
+    public static final PostmanEnvironment NONE = new PostmanEnvironment("(sin entorno)", Map.of());
+    
+    /**
+     * Lee un entorno exportado desde Postman
+     * @param file Archivo .postman_environment.json
+     * @return Entorno con las variables habilitadas y no vacías
+     * @throws IOException Si el archivo no se puede leer
+     */
+    public static PostmanEnvironment load(Path file) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(file.toFile());
+        Map<String, String> values = new LinkedHashMap<>();
+        for (JsonNode value : root.path("values")) {
+            String text = value.path("value").asText("");
+            if (value.path("enabled").asBoolean(true) && !text.isEmpty()) {
+                values.put(value.path("key").asText(), text);
+            }
+        }
+        return new PostmanEnvironment(root.path("name").asText(file.getFileName().toString()), Map.copyOf(values));
+    }
+}
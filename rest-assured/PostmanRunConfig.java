@@ -0,0 +1,52 @@
+package com.greenmarket.tests.postman;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parámetros de una ejecución de la colección de Postman en la JVM
+ *
+ * @param collection Archivo .postman_collection.json
+ * @param environment Archivo .postman_environment.json, o null para ejecutar sin entorno
+ * @param baseUrl URL de la API (reemplaza a {{base_url}}), o null para usar el mock server embebido
+ * @param parallel Si las carpetas de primer nivel corren a la vez, cada una con sus propias variables
+ * @param junitFile Reporte JUnit XML con el mismo formato que el de Newman
+ */
+public record PostmanRunConfig(Path collection,
+                               Path environment,
+                               String baseUrl,
+                               boolean parallel,
+                               Path junitFile) {
+    
+    /**
+     * Interpreta argumentos con formato --clave=valor
+     * Claves: collection, environment (none para no usar entorno), base-url, parallel (true/false), junit
+     * @param args Argumentos de línea de comandos
+     * @return Configuración con valores por defecto para lo que no se indique
+     */
+    public static PostmanRunConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String environment = options.getOrDefault("environment",
+                "../postman/GreenMarket_Environment.postman_environment.json");
+        // Mismo nombre que los reportes de run-newman-with-reports.sh: results_20250101_120000.xml
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        return new PostmanRunConfig(
+                Paths.get(options.getOrDefault("collection",
+                        "../postman/GreenMarket_JsonServer_Compatible.postman_collection.json")),
+                "none".equalsIgnoreCase(environment) ? null : Paths.get(environment),
+                options.get("base-url"),
+                Boolean.parseBoolean(options.getOrDefault("parallel", "true")),
+                Paths.get(options.getOrDefault("junit", "../postman/reports/results_" + timestamp + ".xml")));
+    }
+}
@@ -0,0 +1,348 @@
+package com.greenmarket.tests.postman;
+
+import com.greenmarket.tests.http.HttpTransport;
+import com.greenmarket.tests.http.TransportConfig;
+import com.greenmarket.tests.mock.MockServer;
+import com.greenmarket.tests.postman.PostmanCollection.Folder;
+import com.greenmarket.tests.postman.PostmanCollection.Item;
+import com.greenmarket.tests.postman.PostmanSandbox.ScriptResponse;
+import com.greenmarket.tests.postman.PostmanSandbox.ScriptRun;
+import com.greenmarket.tests.postman.PostmanSandbox.TestResult;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.Header;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Ejecuta la colección de Postman dentro de la JVM, sin Node ni Newman
+ *
+ * Resuelve las variables {{...}} con la precedencia de Postman, corre los scripts pre-request y test
+ * con PostmanSandbox y escribe un reporte JUnit XML con el mismo formato que --reporter-junit-export de Newman,
+ * así el pipeline de CI lo publica igual que antes
+ *
+ * Las carpetas de primer nivel son independientes (cada una crea lo que consulta), por eso corren a la vez
+ * en hilos virtuales, cada una con su copia de las variables. Dentro de una carpeta las peticiones van en orden,
+ * porque CP-010 usa el order_id que guardó CP-009. Con --parallel=false todo corre en orden compartiendo
+ * las variables, igual que Newman
+ *
+ * Uso: java com.greenmarket.tests.postman.PostmanRunner --base-url=http://localhost:3000 --parallel=true
+ */
+public class PostmanRunner {
+    
+    /**
+     * Resultado de una petición de la colección
+     * @param item Petición ejecutada
+     * @param timestamp Momento en que empezó
+     * @param timeMillis Duración del intercambio HTTP
+     * @param status Código HTTP, o 0 si la petición no obtuvo respuesta
+     * @param tests pm.test registrados por los scripts
+     * @param errors Errores fuera de los pm.test (conexión, sintaxis, excepción no capturada)
+     */
+    public record ItemResult(Item item, Instant timestamp, double timeMillis, int status, List<TestResult> tests,
+                             List<String> errors) {
+        
+        public long failures() {
+            return tests.stream().filter(test -> !test.passed()).count();
+        }
+    }
+    
+    private final PostmanCollection collection;
+    private final HttpTransport transport;
+    private final PostmanSandbox sandbox = new PostmanSandbox();
+    
+    /**
+     * @param collection Colección a ejecutar
+     * @param transport Transporte HTTP compartido por todas las peticiones
+     */
+    public PostmanRunner(PostmanCollection collection, HttpTransport transport) {
+        this.collection = collection;
+        this.transport = transport;
+    }
+    
+    /**
+     * Ejecuta la colección completa
+     * @param variables Variables iniciales (colección, entorno y reemplazos)
+     * @param parallel Si las carpetas de primer nivel corren a la vez
+     * @param out Destino del progreso; cada carpeta se imprime completa al terminar
+     * @return Resultados en el orden de la colección
+     * @throws InterruptedException Si se interrumpe la espera de las carpetas
+     */
+    public List<ItemResult> run(PostmanVariables variables, boolean parallel, Appendable out) throws InterruptedException {
+        List<ItemResult> results = new ArrayList<>();
+        if (!parallel) {
+            for (Folder folder : collection.folders()) {
+                results.addAll(runFolder(folder, variables, out));
+            }
+            return results;
+        }
+        List<Future<List<ItemResult>>> folders = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Folder folder : collection.folders()) {
+                PostmanVariables copy = variables.copy();
+                folders.add(executor.submit(() -> runFolder(folder, copy, out)));
+            }
+            for (Future<List<ItemResult>> folder : folders) {
+                results.addAll(folder.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error inesperado ejecutando una carpeta", e.getCause());
+        }
+        return results;
+    }
+    
+    private List<ItemResult> runFolder(Folder folder, PostmanVariables variables, Appendable out) {
+        List<ItemResult> results = new ArrayList<>();
+        StringBuilder log = new StringBuilder();
+        log.append('\n').append(folder.name() == null ? collection.name() : folder.name()).append('\n');
+        for (Item item : folder.items()) {
+            ItemResult result = runItem(item, variables);
+            results.add(result);
+            log.append(String.format(Locale.ROOT, "  %s [%s, %.0f ms]%n", item.name(),
+                    result.status() == 0 ? "sin respuesta" : result.status(), result.timeMillis()));
+            for (TestResult test : result.tests()) {
+                log.append(test.skipped() ? "    - " : test.passed() ? "    ✓ " : "    ✗ ").append(test.name());
+                log.append(test.passed() ? "" : ": " + test.message()).append('\n');
+            }
+            result.errors().forEach(error -> log.append("    ! ").append(error).append('\n'));
+        }
+        // Un bloque por carpeta para que las que corren en paralelo no se mezclen en la consola
+        synchronized (out) {
+            try {
+                out.append(log);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return results;
+    }
+    
+    private ItemResult runItem(Item item, PostmanVariables variables) {
+        Instant timestamp = Instant.now();
+        List<TestResult> tests = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (String script : item.prerequest()) {
+            collect(sandbox.run(script, item.name(), "prerequest", variables, null), tests, errors);
+        }
+        
+        PostmanCollection.Request template = item.request();
+        RequestSpecification request = given().spec(transport.apply(new RequestSpecBuilder()).build())
+                .urlEncodingEnabled(false);
+        template.headers().forEach((name, value) -> request.header(name, variables.resolve(value)));
+        if (template.body() != null && !template.body().isEmpty()) {
+            request.body(variables.resolve(template.body()));
+        }
+        String url = variables.resolve(template.url());
+        
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = request.request(template.method(), url);
+        } catch (RuntimeException e) {
+            errors.add(template.method() + " " + url + ": " + e);
+            return new ItemResult(item, timestamp, (System.nanoTime() - start) / 1_000_000.0, 0, tests, errors);
+        }
+        double timeMillis = (System.nanoTime() - start) / 1_000_000.0;
+        
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Header header : response.headers()) {
+            headers.putIfAbsent(header.getName(), header.getValue());
+        }
+        ScriptResponse scriptResponse = new ScriptResponse(response.statusCode(), reason(response.statusLine()),
+                headers, response.asString(), timeMillis);
+        for (String script : item.tests()) {
+            collect(sandbox.run(script, item.name(), "test", variables, scriptResponse), tests, errors);
+        }
+        return new ItemResult(item, timestamp, timeMillis, response.statusCode(), tests, errors);
+    }
+    
+    private static void collect(ScriptRun run, List<TestResult> tests, List<String> errors) {
+        tests.addAll(run.tests());
+        if (run.error() != null) {
+            errors.add(run.error());
+        }
+    }
+    
+    /**
+     * Texto del código en la línea de estado ("HTTP/1.1 201 Created" -> "Created")
+     */
+    private static String reason(String statusLine) {
+        String[] parts = statusLine == null ? new String[0] : statusLine.split(" ", 3);
+        return parts.length == 3 ? parts[2] : "";
+    }
+    
+    /**
+     * Escribe el reporte JUnit XML con la estructura de Newman: una testsuite por petición y un testcase por pm.test
+     * @param file Archivo de destino (se crean los directorios que falten)
+     * @param results Resultados en el orden de la colección
+     * @param seconds Duración total de la ejecución
+     * @throws IOException Si el archivo no se puede escribir
+     */
+    public void writeJUnit(Path file, List<ItemResult> results, double seconds) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            XMLStreamWriter xml = XMLOutputFactory.newFactory().createXMLStreamWriter(out, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("testsuites");
+            xml.writeAttribute("name", collection.name());
+            xml.writeAttribute("tests", Integer.toString(results.size()));
+            xml.writeAttribute("time", seconds(seconds * 1000));
+            for (ItemResult result : results) {
+                String time = seconds(result.timeMillis());
+                String classname = classname(result.item().path());
+                xml.writeCharacters("\n  ");
+                xml.writeStartElement("testsuite");
+                xml.writeAttribute("name", result.item().path());
+                xml.writeAttribute("id", result.item().id() != null ? result.item().id() : UUID.randomUUID().toString());
+                xml.writeAttribute("timestamp", result.timestamp().truncatedTo(ChronoUnit.MILLIS).toString());
+                xml.writeAttribute("tests", Integer.toString(result.tests().size()));
+                xml.writeAttribute("failures", Long.toString(result.failures()));
+                xml.writeAttribute("errors", Integer.toString(result.errors().size()));
+                xml.writeAttribute("time", time);
+                for (TestResult test : result.tests()) {
+                    xml.writeCharacters("\n    ");
+                    if (test.passed() && !test.skipped()) {
+                        xml.writeEmptyElement("testcase");
+                        testcase(xml, test.name(), time, classname);
+                        continue;
+                    }
+                    xml.writeStartElement("testcase");
+                    testcase(xml, test.name(), time, classname);
+                    xml.writeCharacters("\n      ");
+                    if (test.skipped()) {
+                        xml.writeEmptyElement("skipped");
+                    } else {
+                        xml.writeStartElement("failure");
+                        xml.writeAttribute("type", "AssertionFailure");
+                        xml.writeAttribute("message", test.message());
+                        xml.writeCData("Failed 1 times.\nCollection JSON ID: " + collection.id()
+                                + ".\nCollection name: " + collection.name() + ".\nRequest name: " + result.item().name()
+                                + ".\nTest description: " + test.name() + ".\nError message: " + test.message() + ".");
+                        xml.writeEndElement();
+                    }
+                    xml.writeCharacters("\n    ");
+                    xml.writeEndElement();
+                }
+                for (String error : result.errors()) {
+                    xml.writeCharacters("\n    ");
+                    xml.writeStartElement("testcase");
+                    testcase(xml, result.item().name(), time, classname);
+                    xml.writeCharacters("\n      ");
+                    xml.writeStartElement("error");
+                    xml.writeAttribute("type", "Error");
+                    xml.writeAttribute("message", error);
+                    xml.writeCData(error);
+                    xml.writeEndElement();
+                    xml.writeCharacters("\n    ");
+                    xml.writeEndElement();
+                }
+                xml.writeCharacters("\n  ");
+                xml.writeEndElement();
+            }
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.writeEndDocument();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("No se pudo escribir " + file, e);
+        }
+    }
+    
+    private static void testcase(XMLStreamWriter xml, String name, String time, String classname)
+            throws XMLStreamException {
+        xml.writeAttribute("name", name);
+        xml.writeAttribute("time", time);
+        xml.writeAttribute("classname", classname);
+    }
+    
+    private static String seconds(double millis) {
+        return String.format(Locale.ROOT, "%.3f", millis / 1000);
+    }
+    
+    /**
+     * Nombre de clase como lo arma Newman: sin acentos y en CamelCase
+     * ("1. Gestión de Usuarios / CP-001: Crear Usuario (POST)" -> "1GestionDeUsuariosCp001CrearUsuarioPost")
+     */
+    static String classname(String path) {
+        String ascii = Normalizer.normalize(path, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        StringBuilder out = new StringBuilder();
+        for (String word : ascii.split("[^A-Za-z0-9]+")) {
+            if (!word.isEmpty()) {
+                out.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1).toLowerCase(Locale.ROOT));
+            }
+        }
+        return out.toString();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        PostmanRunConfig config = PostmanRunConfig.parse(args);
+        PostmanCollection collection = PostmanCollection.load(config.collection());
+        PostmanEnvironment environment = config.environment() == null
+                ? PostmanEnvironment.NONE : PostmanEnvironment.load(config.environment());
+        MockServer mockServer = null;
+        String baseUrl = config.baseUrl();
+        if (baseUrl == null) {
+            // La colección está escrita para json-server: crea órdenes sin token y con los totales en el cuerpo
+            if (System.getProperty("greenmarket.mock.orders") == null) {
+                System.setProperty("greenmarket.mock.orders", "json-server");
+            }
+            mockServer = MockServer.start(Paths.get(System.getProperty("greenmarket.mock.db", MockServer.DEFAULT_DB_FILE)));
+            baseUrl = mockServer.getBaseUrl();
+        }
+        System.out.printf("Ejecutando %s (%d peticiones, entorno %s) contra %s%s%n", collection.name(), collection.size(),
+                environment.name(), baseUrl, config.parallel() ? " con carpetas en paralelo" : "");
+        
+        long failures;
+        long errors;
+        try (HttpTransport transport = HttpTransport.create(TransportConfig.fromSystemProperties())) {
+            PostmanRunner runner = new PostmanRunner(collection, transport);
+            PostmanVariables variables = new PostmanVariables(collection.variables(), environment.values(),
+                    Map.of("base_url", baseUrl));
+            long start = System.nanoTime();
+            List<ItemResult> results = runner.run(variables, config.parallel(), System.out);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            
+            long tests = results.stream().mapToLong(result -> result.tests().size()).sum();
+            failures = results.stream().mapToLong(ItemResult::failures).sum();
+            errors = results.stream().mapToLong(result -> result.errors().size()).sum();
+            System.out.printf(Locale.ROOT, "%nPeticiones: %d | Tests: %d | Fallidos: %d | Errores: %d | Tiempo: %.2f s%n",
+                    results.size(), tests, failures, errors, seconds);
+            runner.writeJUnit(config.junitFile(), results, seconds);
+            System.out.println("JUnit: " + config.junitFile().toAbsolutePath().normalize());
+        } finally {
+            if (mockServer != null) {
+                mockServer.stop();
+            }
+        }
+        if (failures > 0 || errors > 0) {
+            System.exit(1);
+        }
+    }
+}
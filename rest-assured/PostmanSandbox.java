@@ -0,0 +1,455 @@
+package com.greenmarket.tests.postman;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.EcmaError;
+import org.mozilla.javascript.EvaluatorException;
+import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ejecuta los scripts pre-request y test de una colección de Postman con Rhino
+ *
+ * Implementa el subconjunto de la API pm que usan las colecciones de GreenMarket:
+ * pm.test, pm.expect (aserciones estilo chai: equal, eql, include, property, a/an, above, below, within,
+ * lengthOf, oneOf, match, ok, true, false, null, undefined, exist, empty y not/deep), pm.response
+ * (code, status, responseTime, headers.get, json(), text() y to.have.status/header/body, to.be.ok/success/json),
+ * pm.environment, pm.collectionVariables, pm.globals, pm.variables, pm.info y console
+ *
+ * Las funciones comunes se compilan una vez en un ámbito sellado compartido; cada script corre
+ * en un ámbito propio, así varias carpetas pueden ejecutar scripts a la vez en hilos distintos
+ */
+public class PostmanSandbox {
+    
+    /** Prelude en JavaScript (ES5 + arrow functions y const, lo que soporta Rhino 1.7.7) */
+    private static final String PRELUDE = """
+            function AssertionError(message) { this.name = 'AssertionError'; this.message = message; }
+            AssertionError.prototype = Object.create(Error.prototype);
+            AssertionError.prototype.constructor = AssertionError;
+            AssertionError.prototype.toString = function () { return this.name + ': ' + this.message; };
+
+            if (!Array.prototype.includes) {
+                Object.defineProperty(Array.prototype, 'includes', { value: function (v) { return this.indexOf(v) >= 0; } });
+            }
+            if (!String.prototype.includes) {
+                Object.defineProperty(String.prototype, 'includes', { value: function (v) { return this.indexOf(v) >= 0; } });
+            }
+
+            function __fmt(v) {
+                if (typeof v === 'string') { return "'" + v + "'"; }
+                if (v === undefined) { return 'undefined'; }
+                if (typeof v === 'function') { return '[Function]'; }
+                try {
+                    var s = JSON.stringify(v);
+                    if (s === undefined) { return String(v); }
+                    return s.length > 120 ? s.substring(0, 117) + '...' : s;
+                } catch (e) {
+                    return String(v);
+                }
+            }
+
+            function __typeOf(v) {
+                if (v === null) { return 'null'; }
+                if (Array.isArray(v)) { return 'array'; }
+                return typeof v;
+            }
+
+            function __deepEqual(a, b) {
+                if (a === b) { return true; }
+                if (typeof a !== 'object' || typeof b !== 'object' || a === null || b === null) { return a !== a && b !== b; }
+                if (Array.isArray(a) !== Array.isArray(b)) { return false; }
+                var ka = Object.keys(a), kb = Object.keys(b);
+                if (ka.length !== kb.length) { return false; }
+                for (var i = 0; i < ka.length; i++) {
+                    if (!Object.prototype.hasOwnProperty.call(b, ka[i]) || !__deepEqual(a[ka[i]], b[ka[i]])) { return false; }
+                }
+                return true;
+            }
+
+            function Assertion(obj) { this._obj = obj; this._negate = false; this._deep = false; }
+            ['to', 'be', 'been', 'is', 'that', 'which', 'and', 'has', 'have', 'with', 'at', 'of', 'same', 'does', 'but', 'still']
+                .forEach(function (word) {
+                    Object.defineProperty(Assertion.prototype, word, { get: function () { return this; } });
+                });
+            Object.defineProperty(Assertion.prototype, 'not', { get: function () { this._negate = !this._negate; return this; } });
+            Object.defineProperty(Assertion.prototype, 'deep', { get: function () { this._deep = true; return this; } });
+
+            Assertion.prototype._assert = function (ok, message, negated) {
+                if (this._negate ? ok : !ok) { throw new AssertionError(this._negate ? negated : message); }
+                return this;
+            };
+            Assertion.prototype._same = function (a, b) { return this._deep ? __deepEqual(a, b) : a === b; };
+
+            Assertion.prototype.equal = function (v) {
+                return this._assert(this._same(this._obj, v),
+                    'expected ' + __fmt(this._obj) + ' to ' + (this._deep ? 'deeply ' : '') + 'equal ' + __fmt(v),
+                    'expected ' + __fmt(this._obj) + ' to not ' + (this._deep ? 'deeply ' : '') + 'equal ' + __fmt(v));
+            };
+            Assertion.prototype.equals = Assertion.prototype.eq = Assertion.prototype.equal;
+            Assertion.prototype.eql = function (v) { this._deep = true; return this.equal(v); };
+
+            Assertion.prototype.include = function (v) {
+                var o = this._obj, self = this, ok = false;
+                if (typeof o === 'string') {
+                    ok = o.indexOf(v) >= 0;
+                } else if (Array.isArray(o)) {
+                    ok = o.some(function (x) { return self._same(x, v); });
+                } else if (o !== null && typeof o === 'object' && v !== null && typeof v === 'object') {
+                    ok = Object.keys(v).every(function (k) { return self._same(o[k], v[k]); });
+                }
+                return this._assert(ok, 'expected ' + __fmt(o) + ' to include ' + __fmt(v),
+                    'expected ' + __fmt(o) + ' to not include ' + __fmt(v));
+            };
+            Assertion.prototype.includes = Assertion.prototype.contain = Assertion.prototype.contains = Assertion.prototype.include;
+
+            Assertion.prototype.property = function (name, value) {
+                var o = this._obj;
+                var has = o !== null && o !== undefined && Object(o)[name] !== undefined;
+                if (arguments.length > 1) {
+                    return this._assert(has && this._same(o[name], value),
+                        'expected ' + __fmt(o) + " to have property '" + name + "' of " + __fmt(value)
+                            + ', but got ' + __fmt(has ? o[name] : undefined),
+                        'expected ' + __fmt(o) + " to not have property '" + name + "' of " + __fmt(value));
+                }
+                this._assert(has, 'expected ' + __fmt(o) + " to have property '" + name + "'",
+                    'expected ' + __fmt(o) + " to not have property '" + name + "'");
+                return this._negate ? this : new Assertion(o[name]);
+            };
+
+            Assertion.prototype.a = function (type) {
+                var article = /^[aeiou]/i.test(type) ? 'an ' : 'a ';
+                return this._assert(__typeOf(this._obj) === String(type).toLowerCase(),
+                    'expected ' + __fmt(this._obj) + ' to be ' + article + type,
+                    'expected ' + __fmt(this._obj) + ' not to be ' + article + type);
+            };
+            Assertion.prototype.an = Assertion.prototype.a;
+
+            Assertion.prototype._compare = function (ok, relation, n) {
+                return this._assert(ok, 'expected ' + __fmt(this._obj) + ' to be ' + relation + ' ' + n,
+                    'expected ' + __fmt(this._obj) + ' to not be ' + relation + ' ' + n);
+            };
+            Assertion.prototype.above = function (n) { return this._compare(this._obj > n, 'above', n); };
+            Assertion.prototype.gt = Assertion.prototype.greaterThan = Assertion.prototype.above;
+            Assertion.prototype.below = function (n) { return this._compare(this._obj < n, 'below', n); };
+            Assertion.prototype.lt = Assertion.prototype.lessThan = Assertion.prototype.below;
+            Assertion.prototype.least = function (n) { return this._compare(this._obj >= n, 'at least', n); };
+            Assertion.prototype.gte = Assertion.prototype.least;
+            Assertion.prototype.most = function (n) { return this._compare(this._obj <= n, 'at most', n); };
+            Assertion.prototype.lte = Assertion.prototype.most;
+            Assertion.prototype.within = function (min, max) {
+                return this._compare(this._obj >= min && this._obj <= max, 'within', min + '..' + max);
+            };
+
+            Assertion.prototype.lengthOf = function (n) {
+                var length = this._obj === null || this._obj === undefined ? undefined : this._obj.length;
+                return this._assert(length === n,
+                    'expected ' + __fmt(this._obj) + ' to have a length of ' + n + ' but got ' + length,
+                    'expected ' + __fmt(this._obj) + ' to not have a length of ' + n);
+            };
+            Assertion.prototype.length = Assertion.prototype.lengthOf;
+
+            Assertion.prototype.oneOf = function (list) {
+                var self = this;
+                return this._assert(list.some(function (x) { return self._same(x, self._obj); }),
+                    'expected ' + __fmt(this._obj) + ' to be one of ' + __fmt(list),
+                    'expected ' + __fmt(this._obj) + ' to not be one of ' + __fmt(list));
+            };
+            Assertion.prototype.match = function (re) {
+                return this._assert(re.test(this._obj), 'expected ' + __fmt(this._obj) + ' to match ' + re,
+                    'expected ' + __fmt(this._obj) + ' not to match ' + re);
+            };
+
+            [['ok', function (o) { return !!o; }, 'truthy'],
+             ['true', function (o) { return o === true; }, 'true'],
+             ['false', function (o) { return o === false; }, 'false'],
+             ['null', function (o) { return o === null; }, 'null'],
+             ['undefined', function (o) { return o === undefined; }, 'undefined'],
+             ['exist', function (o) { return o !== null && o !== undefined; }, 'exist'],
+             ['empty', function (o) {
+                 if (o === null || o === undefined) { return false; }
+                 return typeof o === 'object' && !Array.isArray(o) ? Object.keys(o).length === 0 : o.length === 0;
+             }, 'empty']].forEach(function (check) {
+                Object.defineProperty(Assertion.prototype, check[0], { get: function () {
+                    var verb = check[2] === 'exist' ? ' to ' : ' to be ';
+                    var negatedVerb = check[2] === 'exist' ? ' to not ' : ' to not be ';
+                    return this._assert(check[1](this._obj), 'expected ' + __fmt(this._obj) + verb + check[2],
+                        'expected ' + __fmt(this._obj) + negatedVerb + check[2]);
+                } });
+            });
+
+            function __makePm(host) {
+                function scope(name) {
+                    return {
+                        get: function (key) { var v = host.get(name, key); return v === null ? undefined : v; },
+                        set: function (key, value) {
+                            host.set(name, key, value !== null && typeof value === 'object' ? JSON.stringify(value) : value);
+                        },
+                        unset: function (key) { host.unset(name, key); },
+                        has: function (key) { return host.has(name, key); }
+                    };
+                }
+
+                var pm = {
+                    info: { requestName: host.requestName(), eventName: host.eventName(), iteration: 0 },
+                    environment: scope('environment'),
+                    collectionVariables: scope('collection'),
+                    globals: scope('globals'),
+                    variables: scope('local'),
+                    expect: function (value) { return new Assertion(value); },
+                    test: function (name, fn) {
+                        try {
+                            fn();
+                            host.pass(name);
+                        } catch (e) {
+                            var message = e instanceof AssertionError ? e.message
+                                : (e && e.name ? e.name + ': ' + e.message : String(e));
+                            host.fail(name, message);
+                        }
+                    }
+                };
+                pm.test.skip = function (name) { host.skip(name); };
+
+                if (host.hasResponse()) {
+                    var response = {
+                        code: host.status(),
+                        status: host.reason(),
+                        responseTime: host.responseTime(),
+                        headers: {
+                            get: function (name) { var v = host.header(name); return v === null ? undefined : v; },
+                            has: function (name) { return host.header(name) !== null; }
+                        },
+                        text: function () { return host.body(); },
+                        json: function () { return JSON.parse(host.body()); }
+                    };
+                    function check(ok, message) { if (!ok) { throw new AssertionError(message); } }
+                    var have = {
+                        status: function (expected) {
+                            if (typeof expected === 'number') {
+                                check(response.code === expected,
+                                    'expected response to have status code ' + expected + ' but got ' + response.code);
+                            } else {
+                                check(response.status === expected,
+                                    "expected response to have status reason '" + expected + "' but got '" + response.status + "'");
+                            }
+                        },
+                        header: function (name, value) {
+                            var actual = response.headers.get(name);
+                            check(actual !== undefined, "expected response to have header with key '" + name + "'");
+                            if (arguments.length > 1) {
+                                check(actual === value, "expected '" + name + "' response header to be '" + value
+                                    + "' but got '" + actual + "'");
+                            }
+                        },
+                        body: function (expected) {
+                            check(response.text() === expected, 'expected response body to equal ' + __fmt(expected));
+                        }
+                    };
+                    var be = {};
+                    Object.defineProperty(be, 'ok', { get: function () {
+                        check(response.code === 200, 'expected response code to be 200 but found ' + response.code);
+                    } });
+                    Object.defineProperty(be, 'success', { get: function () {
+                        check(response.code >= 200 && response.code < 300,
+                            'expected response code to be 2XX but found ' + response.code);
+                    } });
+                    Object.defineProperty(be, 'json', { get: function () {
+                        var type = response.headers.get('Content-Type') || '';
+                        check(type.indexOf('json') >= 0, "expected response to be json but got '" + type + "'");
+                    } });
+                    response.to = { have: have, be: be };
+                    pm.response = response;
+                }
+
+                function log() {
+                    host.log(Array.prototype.map.call(arguments, function (a) {
+                        return typeof a === 'string' ? a : __fmt(a);
+                    }).join(' '));
+                }
+                pm.__console = { log: log, info: log, warn: log, error: log };
+                return pm;
+            }
+            """;
+    
+    /** Ámbito compartido con el prelude, sellado tras inicializarlo */
+    private final ScriptableObject shared;
+    
+    public PostmanSandbox() {
+        Context cx = enter();
+        try {
+            ScriptableObject scope = cx.initStandardObjects(null, false);
+            cx.evaluateString(scope, PRELUDE, "pm-prelude.js", 1, null);
+            scope.sealObject();
+            this.shared = scope;
+        } finally {
+            Context.exit();
+        }
+    }
+    
+    /**
+     * Resultado de un pm.test
+     * @param name Nombre del test
+     * @param passed Si pasó
+     * @param skipped Si se declaró con pm.test.skip
+     * @param message Mensaje de la aserción fallida, o null
+     */
+    public record TestResult(String name, boolean passed, boolean skipped, String message) {
+    }
+    
+    /**
+     * Respuesta visible para los scripts test
+     * @param status Código HTTP
+     * @param reason Texto del código (Created, Not Found...)
+     * @param headers Cabeceras de la respuesta
+     * @param body Cuerpo como texto
+     * @param timeMillis Duración del intercambio
+     */
+    public record ScriptResponse(int status, String reason, Map<String, String> headers, String body, double timeMillis) {
+    }
+    
+    /**
+     * Objeto Java que el prelude envuelve como pm; sus métodos públicos se llaman desde JavaScript
+     */
+    public static class Host {
+        
+        private final String requestName;
+        private final String eventName;
+        private final PostmanVariables variables;
+        private final ScriptResponse response;
+        private final List<TestResult> tests = new ArrayList<>();
+        private final List<String> console = new ArrayList<>();
+        
+        Host(String requestName, String eventName, PostmanVariables variables, ScriptResponse response) {
+            this.requestName = requestName;
+            this.eventName = eventName;
+            this.variables = variables;
+            this.response = response;
+        }
+        
+        public String requestName() {
+            return requestName;
+        }
+        
+        public String eventName() {
+            return eventName;
+        }
+        
+        public Object get(String scope, String name) {
+            return variables.get(scope, name);
+        }
+        
+        public void set(String scope, String name, Object value) {
+            variables.set(scope, name, value instanceof CharSequence text ? text.toString() : value);
+        }
+        
+        public void unset(String scope, String name) {
+            variables.unset(scope, name);
+        }
+        
+        public boolean has(String scope, String name) {
+            return variables.has(scope, name);
+        }
+        
+        public boolean hasResponse() {
+            return response != null;
+        }
+        
+        public int status() {
+            return response.status();
+        }
+        
+        public String reason() {
+            return response.reason();
+        }
+        
+        public double responseTime() {
+            return Math.round(response.timeMillis());
+        }
+        
+        /**
+         * Cabecera sin distinguir mayúsculas, o null
+         */
+        public String header(String name) {
+            for (Map.Entry<String, String> header : response.headers().entrySet()) {
+                if (header.getKey().equalsIgnoreCase(name)) {
+                    return header.getValue();
+                }
+            }
+            return null;
+        }
+        
+        public String body() {
+            return response.body();
+        }
+        
+        public void pass(String name) {
+            tests.add(new TestResult(name, true, false, null));
+        }
+        
+        public void fail(String name, String message) {
+            tests.add(new TestResult(name, false, false, message));
+        }
+        
+        public void skip(String name) {
+            tests.add(new TestResult(name, true, true, null));
+        }
+        
+        public void log(String message) {
+            console.add(message);
+        }
+    }
+    
+    /**
+     * Resultado de un script
+     * @param tests pm.test registrados en orden
+     * @param console Líneas escritas con console.log
+     * @param error Error fuera de un pm.test (sintaxis, excepción no capturada), o null
+     */
+    public record ScriptRun(List<TestResult> tests, List<String> console, String error) {
+    }
+    
+    /**
+     * Ejecuta un script
+     * @param source Código del script
+     * @param requestName Nombre de la petición (pm.info.requestName)
+     * @param eventName prerequest o test
+     * @param variables Variables del grupo; los set del script se aplican aquí
+     * @param response Respuesta para pm.response, o null en un script prerequest
+     * @return Tests registrados y error del script si lo hubo
+     */
+    public ScriptRun run(String source, String requestName, String eventName, PostmanVariables variables,
+                         ScriptResponse response) {
+        Host host = new Host(requestName, eventName, variables, response);
+        Context cx = enter();
+        String error = null;
+        try {
+            Scriptable scope = cx.newObject(shared);
+            scope.setPrototype(shared);
+            scope.setParentScope(null);
+            ScriptableObject.putProperty(scope, "__host", Context.javaToJS(host, scope));
+            cx.evaluateString(scope, "var pm = __makePm(__host); var console = pm.__console;", "pm-init.js", 1, null);
+            cx.evaluateString(scope, source, requestName + " (" + eventName + ")", 1, null);
+        } catch (JavaScriptException | EcmaError | EvaluatorException e) {
+            error = e.details() + " (línea " + e.lineNumber() + ")";
+        } catch (RhinoException e) {
+            error = e.getMessage();
+        } finally {
+            Context.exit();
+        }
+        return new ScriptRun(List.copyOf(host.tests), List.copyOf(host.console), error);
+    }
+    
+    private static Context enter() {
+        Context cx = Context.enter();
+        cx.setLanguageVersion(Context.VERSION_ES6);
+        // Scripts cortos que corren una vez: el intérprete evita generar clases
+        cx.setOptimizationLevel(-1);
+        // Strings y números de Java llegan a JavaScript como primitivos
+        cx.getWrapFactory().setJavaPrimitiveWrap(false);
+        return cx;
+    }
+}
@@ -0,0 +1,121 @@
+package com.greenmarket.tests.postman;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Variables visibles para un grupo de peticiones, con la precedencia de Postman:
+ * locales (pm.variables) > reemplazos de línea de comandos > entorno > colección > globales
+ *
+ * Cada carpeta que corre en paralelo recibe su propia copia (ver copy), así lo que guarda un script
+ * con pm.collectionVariables.set en una carpeta no aparece a medias en otra
+ */
+public class PostmanVariables {
+    
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{([^{}]+)}}");
+    
+    private final Map<String, Object> local;
+    private final Map<String, Object> overrides;
+    private final Map<String, Object> environment;
+    private final Map<String, Object> collection;
+    private final Map<String, Object> globals;
+    
+    /**
+     * @param collection Variables iniciales de la colección
+     * @param environment Variables del entorno
+     * @param overrides Valores que reemplazan a todos los demás (p. ej. base_url del mock server embebido)
+     */
+    public PostmanVariables(Map<String, String> collection, Map<String, String> environment, Map<String, String> overrides) {
+        this(new HashMap<>(), new HashMap<>(overrides), new HashMap<>(environment), new HashMap<>(collection),
+                new HashMap<>());
+    }
+    
+    private PostmanVariables(Map<String, Object> local, Map<String, Object> overrides, Map<String, Object> environment,
+                             Map<String, Object> collection, Map<String, Object> globals) {
+        this.local = local;
+        this.overrides = overrides;
+        this.environment = environment;
+        this.collection = collection;
+        this.globals = globals;
+    }
+    
+    /**
+     * Copia independiente para otra carpeta
+     */
+    public synchronized PostmanVariables copy() {
+        return new PostmanVariables(new HashMap<>(local), new HashMap<>(overrides), new HashMap<>(environment),
+                new HashMap<>(collection), new HashMap<>(globals));
+    }
+    
+    /**
+     * Valor de una variable
+     * @param scope local (resuelve con toda la precedencia), environment, collection o globals
+     * @param name Nombre de la variable
+     * @return Valor (String, Number o Boolean), o null si no existe
+     */
+    public synchronized Object get(String scope, String name) {
+        if (!"local".equals(scope)) {
+            return scope(scope).get(name);
+        }
+        for (Map<String, Object> values : List.of(local, overrides, environment, collection, globals)) {
+            if (values.containsKey(name)) {
+                return values.get(name);
+            }
+        }
+        return null;
+    }
+    
+    public synchronized void set(String scope, String name, Object value) {
+        scope(scope).put(name, value);
+    }
+    
+    public synchronized void unset(String scope, String name) {
+        scope(scope).remove(name);
+    }
+    
+    public synchronized boolean has(String scope, String name) {
+        return "local".equals(scope) ? get(scope, name) != null : scope(scope).containsKey(name);
+    }
+    
+    /**
+     * Reemplaza {{variable}} por su valor; las variables desconocidas quedan tal cual, como en Newman
+     * @param template Texto con variables
+     * @return Texto resuelto, o null si template es null
+     */
+    public String resolve(String template) {
+        if (template == null || !template.contains("{{")) {
+            return template;
+        }
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        StringBuilder out = new StringBuilder(template.length());
+        while (matcher.find()) {
+            Object value = get("local", matcher.group(1).trim());
+            matcher.appendReplacement(out, Matcher.quoteReplacement(value == null ? matcher.group() : text(value)));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+    
+    /**
+     * Texto de un valor como lo escribe Postman en una plantilla (los enteros sin ".0")
+     */
+    static String text(Object value) {
+        if (value instanceof Double number && number == Math.rint(number) && !Double.isInfinite(number)) {
+            return Long.toString(number.longValue());
+        }
+        return String.valueOf(value);
+    }
+    
+    private Map<String, Object> scope(String scope) {
+        return switch (scope) {
+            case "local" -> local;
+            case "environment" -> environment;
+            case "collection" -> collection;
+            case "globals" -> globals;
+            default -> throw new IllegalArgumentException("Ámbito de variables desconocido: " + scope);
+        };
+    }
+}
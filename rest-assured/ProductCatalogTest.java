@@ -1,8 +1,21 @@
 package com.greenmarket.tests;
 
 import com.greenmarket.tests.base.BaseTest;
+import com.greenmarket.tests.mock.ReviewAggregates;
+import com.greenmarket.tests.perf.LatencyBudget;
+import com.greenmarket.tests.validation.SchemaRegistry;
+import com.greenmarket.tests.validation.StreamingValidator;
+import io.restassured.http.ContentType;
 import io.restassured.response.Response;
 import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static io.restassured.RestAssured.*;
 import static org.hamcrest.Matchers.*;
 
@@ -15,6 +28,15 @@ public class ProductCatalogTest extends BaseTest {
     
     private static String testProductId;
     
+    /** Reglas de cada producto del listado, validadas en una sola pasada sin construir el árbol JSON */
+    private static final StreamingValidator PRODUCT_LIST = StreamingValidator.forArray()
+            .elements(1, Long.MAX_VALUE)
+            .required("id", "name", "description", "price", "category")
+            .type("price", StreamingValidator.JsonType.NUMBER)
+            .greaterThan("price", 0)
+            .capture("id")
+            .build();
+    
     /**
      * CP-007: Listar Productos
      * Verifica que se pueden obtener todos los productos disponibles
@@ -22,6 +44,7 @@ public class ProductCatalogTest extends BaseTest {
     @Test
     @Order(1)
     @DisplayName("CP-007: Listar Productos")
+    @LatencyBudget(warmup = 20, iterations = 200, p50 = 100, p95 = 300, p99 = 800, max = 2000)
     public void testListProducts() {
         Response response = given()
                 .spec(requestSpec)
@@ -32,23 +55,19 @@ public class ProductCatalogTest extends BaseTest {
             .then()
                 .statusCode(200)
                 .contentType(ContentType.JSON)
-                .body("$", isA(java.util.List.class))
-                .body("size()", greaterThan(0))
-                .body("[0].id", notNullValue())
-                .body("[0].name", notNullValue())
-                .body("[0].description", notNullValue())
-                .body("[0].price", notNullValue())
-                .body("[0].category", notNullValue())
-                .body("[0].price", greaterThan(0.0f))
                 .time(lessThan(2000L))
             .extract()
                 .response();
         
+        // Arreglo no vacío y campos obligatorios con precio positivo en todos los productos
+        StreamingValidator.Result result = PRODUCT_LIST.validate(response.asByteArray());
+        Assertions.assertTrue(result.isValid(), () -> "Productos inválidos: " + result.violations());
+        
         // Guardar el ID del primer producto para pruebas posteriores
-        testProductId = response.jsonPath().getString("[0].id");
+        testProductId = result.get("id");
         
         System.out.println("✓ CP-007 Pasó: Productos listados correctamente");
-        System.out.println("  Total productos en respuesta: " + response.jsonPath().getList("$").size());
+        System.out.println("  Total productos en respuesta: " + result.elements());
         System.out.println("  Primer Product ID: " + testProductId);
     }
     
@@ -82,6 +101,7 @@ public class ProductCatalogTest extends BaseTest {
     @Test
     @Order(3)
     @DisplayName("CP-008: Obtener Producto por ID")
+    @LatencyBudget(warmup = 20, iterations = 200, p50 = 100, p95 = 300, p99 = 800, max = 2000)
     public void testGetProductById() {
         given()
             .spec(requestSpec)
@@ -91,13 +111,8 @@ public class ProductCatalogTest extends BaseTest {
             .statusCode(200)
             .contentType(ContentType.JSON)
             .body("id", equalTo(testProductId))
-            .body("name", notNullValue())
-            .body("description", notNullValue())
-            .body("price", notNullValue())
-            .body("category", notNullValue())
-            .body("stock", notNullValue())
-            .body("price", greaterThan(0.0f))
-            .body("stock", greaterThanOrEqualTo(0));
+            // Campos requeridos, precio > 0 y stock >= 0 según schemas/products.json
+            .body(SchemaRegistry.shared().matcher("products"));
         
         System.out.println("✓ CP-008 Pasó: Producto obtenido por ID correctamente");
         System.out.println("  Product ID consultado: " + testProductId);
@@ -149,6 +164,114 @@ public class ProductCatalogTest extends BaseTest {
         System.out.println("  Status code: " + response.statusCode());
     }
     
+    /**
+     * CP-016: Rating y cantidad de reseñas consistentes bajo concurrencia
+     * Crea, modifica y borra reseñas de un producto en paralelo y verifica que rating y reviewsCount
+     * del producto coincidan en todo momento con sus reseñas reales
+     */
+    @Test
+    @Order(6)
+    @DisplayName("CP-016: Agregados de Reseñas bajo Concurrencia")
+    public void testReviewAggregatesUnderConcurrency() throws Exception {
+        Assumptions.assumeTrue(mockServer != null && mockServer.getReviewAggregates() != null,
+                "Requiere el mock server embebido con agregados de reseñas");
+        String productId = testProductId != null ? testProductId : "1";
+        int reviews = 40;
+        
+        List<String> ids = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> created = new ArrayList<>();
+            for (int i = 0; i < reviews; i++) {
+                int rating = i % 5 + 1;
+                created.add(executor.submit(() -> given()
+                        .spec(requestSpec)
+                        .body(Map.of("productId", productId, "userId", "1", "userName", "QA Concurrencia",
+                                "rating", rating, "comment", "Reseña concurrente", "helpful", 0))
+                    .when()
+                        .post("/reviews")
+                    .then()
+                        .statusCode(201)
+                    .extract()
+                        .path("id")));
+            }
+            for (Future<String> id : created) {
+                ids.add(id.get());
+            }
+            assertReviewAggregates(productId);
+            
+            // Modificaciones y bajas concurrentes: la mitad pasa a 1 estrella y un cuarto se borra
+            List<Future<?>> changes = new ArrayList<>();
+            for (int i = 0; i < reviews / 2; i++) {
+                String id = ids.get(i);
+                changes.add(executor.submit(() -> given()
+                        .spec(requestSpec)
+                        .body(Map.of("rating", 1))
+                    .when()
+                        .patch("/reviews/" + id)
+                    .then()
+                        .statusCode(200)));
+            }
+            for (int i = reviews / 2; i < reviews * 3 / 4; i++) {
+                String id = ids.get(i);
+                changes.add(executor.submit(() -> given()
+                        .spec(requestSpec)
+                    .when()
+                        .delete("/reviews/" + id)
+                    .then()
+                        .statusCode(200)));
+            }
+            for (Future<?> change : changes) {
+                change.get();
+            }
+        }
+        assertReviewAggregates(productId);
+        
+        for (String id : ids.subList(0, reviews / 2)) {
+            given().spec(requestSpec).when().delete("/reviews/" + id).then().statusCode(200);
+        }
+        for (String id : ids.subList(reviews * 3 / 4, reviews)) {
+            given().spec(requestSpec).when().delete("/reviews/" + id).then().statusCode(200);
+        }
+        assertReviewAggregates(productId);
+        
+        System.out.println("✓ CP-016 Pasó: rating y reviewsCount consistentes tras " + reviews
+                + " altas, modificaciones y bajas concurrentes");
+    }
+    
+    /**
+     * Compara rating y reviewsCount del producto con sus reseñas y con el histograma del mock
+     */
+    private void assertReviewAggregates(String productId) {
+        List<Integer> ratings = given()
+                .spec(requestSpec)
+                .queryParam("productId", productId)
+            .when()
+                .get("/reviews")
+            .then()
+                .statusCode(200)
+            .extract()
+                .path("rating");
+        Response product = given()
+                .spec(requestSpec)
+            .when()
+                .get("/products/" + productId)
+            .then()
+                .statusCode(200)
+            .extract()
+                .response();
+        
+        long sum = ratings.stream().mapToLong(Integer::longValue).sum();
+        double expected = ratings.isEmpty() ? 0.0 : Math.round(sum * 10.0 / ratings.size()) / 10.0;
+        Assertions.assertEquals(ratings.size(), product.jsonPath().getInt("reviewsCount"), "reviewsCount");
+        Assertions.assertEquals(expected, product.jsonPath().getDouble("rating"), 1e-9, "rating");
+        ReviewAggregates.Aggregate aggregate = mockServer.getReviewAggregates().get(productId);
+        for (int stars = 1; stars <= 5; stars++) {
+            int s = stars;
+            Assertions.assertEquals(ratings.stream().filter(r -> r == s).count(), aggregate.stars(stars),
+                    "reseñas de " + stars + " estrellas");
+        }
+    }
+    
     /**
      * Test auxiliar para obtener el productId guardado
      */
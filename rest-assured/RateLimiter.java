@@ -0,0 +1,214 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Límites de tasa del mock server, como el rate limiter que está delante de la API en producción
+ * Cada regla tiene un token bucket por token de autenticación (las peticiones anónimas comparten uno)
+ * y/o un token bucket para toda la ruta; al agotarse se responde 429 con Retry-After
+ *
+ * Archivo (-Dgreenmarket.mock.rateLimits):
+ * {"rules": [{"method": "POST", "path": "/orders", "perToken": {"rate": 5, "burst": 10},
+ *             "perRoute": {"rate": 200, "burst": 400}}]}
+ * rate en peticiones por segundo; gana la primera regla que coincide (ver RoutePattern)
+ */
+public class RateLimiter {
+    
+    /**
+     * Capacidad de un token bucket
+     * @param rate Tokens repuestos por segundo
+     * @param burst Tokens máximos acumulables
+     */
+    public record Limit(double rate, int burst) {
+    }
+    
+    /**
+     * Regla de una ruta
+     * @param method Método HTTP, o * para cualquiera
+     * @param path Patrón de ruta
+     * @param perToken Límite por token de autenticación, o null
+     * @param perRoute Límite compartido por todos los clientes, o null
+     */
+    public record Rule(String method, String path, Limit perToken, Limit perRoute) {
+    }
+    
+    /**
+     * Token bucket con reposición perezosa según el tiempo transcurrido
+     */
+    static final class Bucket {
+        
+        private final Limit limit;
+        private double tokens;
+        private long refilledAt;
+        
+        Bucket(Limit limit, long now) {
+            this.limit = limit;
+            this.tokens = limit.burst();
+            this.refilledAt = now;
+        }
+        
+        /**
+         * Consume un token si hay
+         * @param now System.nanoTime()
+         * @return 0 si se consumió, o los nanosegundos hasta que haya un token
+         */
+        synchronized long tryAcquire(long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(limit.burst(), tokens + (now - refilledAt) * limit.rate() / 1e9);
+                refilledAt = now;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / limit.rate() * 1e9);
+        }
+        
+        synchronized void refund() {
+            tokens = Math.min(limit.burst(), tokens + 1);
+        }
+    }
+    
+    private final List<Rule> rules;
+    private final List<Bucket> routeBuckets = new ArrayList<>();
+    private final List<ConcurrentMap<String, Bucket>> tokenBuckets = new ArrayList<>();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+    
+    public RateLimiter(List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+        long now = System.nanoTime();
+        for (Rule rule : this.rules) {
+            routeBuckets.add(rule.perRoute() == null ? null : new Bucket(rule.perRoute(), now));
+            tokenBuckets.add(new ConcurrentHashMap<>());
+        }
+    }
+    
+    /**
+     * Limitador sin reglas: el comportamiento original del mock server
+     */
+    public static RateLimiter disabled() {
+        return new RateLimiter(List.of());
+    }
+    
+    /**
+     * Lee las reglas desde -Dgreenmarket.mock.rateLimits
+     * @return Limitador configurado, o sin reglas si no se indica archivo
+     * @throws IOException Si el archivo no se puede leer o una regla es inválida
+     */
+    public static RateLimiter fromSystemProperties() throws IOException {
+        String file = System.getProperty("greenmarket.mock.rateLimits");
+        return file == null || file.isBlank() ? disabled() : load(Paths.get(file));
+    }
+    
+    /**
+     * Carga un archivo de reglas
+     * @param file Archivo JSON con el arreglo rules
+     * @return Limitador configurado
+     * @throws IOException Si el archivo no se puede leer o una regla es inválida
+     */
+    public static RateLimiter load(Path file) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(file.toFile());
+        List<Rule> rules = new ArrayList<>();
+        for (JsonNode rule : root.path("rules")) {
+            String path = rule.path("path").asText(null);
+            if (path == null || !path.startsWith("/")) {
+                throw new IOException("Regla sin path válido en " + file + ": " + rule);
+            }
+            rules.add(new Rule(rule.path("method").asText("*"), path,
+                    limitOf(file, rule.get("perToken")), limitOf(file, rule.get("perRoute"))));
+        }
+        return new RateLimiter(rules);
+    }
+    
+    /**
+     * Aplica los límites a una petición
+     * @param request Petición entrante
+     * @return 429 con Retry-After si se excede un límite, o null si la petición puede seguir
+     */
+    public MockResponse check(MockRequest request) {
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            if (!RoutePattern.matches(rule.method(), rule.path(), request.method(), request.segments())) {
+                continue;
+            }
+            long now = System.nanoTime();
+            Bucket tokenBucket = null;
+            if (rule.perToken() != null) {
+                String authorization = request.header("Authorization");
+                tokenBucket = tokenBuckets.get(i).computeIfAbsent(authorization == null ? "" : authorization,
+                        key -> new Bucket(rule.perToken(), now));
+                long wait = tokenBucket.tryAcquire(now);
+                if (wait > 0) {
+                    return tooManyRequests(wait, "token");
+                }
+            }
+            Bucket routeBucket = routeBuckets.get(i);
+            if (routeBucket != null) {
+                long wait = routeBucket.tryAcquire(now);
+                if (wait > 0) {
+                    if (tokenBucket != null) {
+                        tokenBucket.refund();
+                    }
+                    return tooManyRequests(wait, "route");
+                }
+            }
+            break;
+        }
+        allowed.increment();
+        return null;
+    }
+    
+    public boolean isEnabled() {
+        return !rules.isEmpty();
+    }
+    
+    public long getAllowed() {
+        return allowed.sum();
+    }
+    
+    public long getLimited() {
+        return limited.sum();
+    }
+    
+    /**
+     * Resumen de una línea para los logs del mock server
+     */
+    public String summary() {
+        long total = getAllowed() + getLimited();
+        return String.format(Locale.ROOT, "Reglas: %d | Permitidas: %d | 429: %d (%.1f%%)",
+                rules.size(), getAllowed(), getLimited(), total == 0 ? 0.0 : getLimited() * 100.0 / total);
+    }
+    
+    private MockResponse tooManyRequests(long waitNanos, String scope) {
+        limited.increment();
+        long seconds = Math.max(1, (long) Math.ceil(waitNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+        return MockResponse.error(429, "Too many requests")
+                .withHeader("Retry-After", Long.toString(seconds))
+                .withHeader("X-RateLimit-Scope", scope);
+    }
+    
+    private static Limit limitOf(Path file, JsonNode limit) throws IOException {
+        if (limit == null) {
+            return null;
+        }
+        double rate = limit.path("rate").asDouble(0);
+        int burst = limit.path("burst").asInt((int) Math.max(1, Math.ceil(rate)));
+        if (rate <= 0 || burst < 1) {
+            throw new IOException("rate y burst deben ser positivos en " + file + ": " + limit);
+        }
+        return new Limit(rate, burst);
+    }
+}
@@ -0,0 +1,149 @@
+package com.greenmarket.tests.history;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Busca regresiones de latencia por serie comparando las corridas recientes contra las anteriores
+ *
+ * La muestra actual es la última corrida de la serie; si trae menos de min-samples muestras (una prueba de
+ * Surefire aporta una por corrida) se suman las corridas previas hasta alcanzarlas, de modo que en esas
+ * series una regresión se confirma recién cuando persiste unas corridas. La línea base son las baseline-runs
+ * corridas anteriores a la muestra actual. Es regresión si Mann-Whitney la da como más lenta con p &lt; alpha
+ * y además la mediana subió al menos min-effect: con histogramas de miles de muestras cualquier diferencia
+ * mínima es significativa y no vale la pena romper el build por ella
+ */
+public class RegressionDetector {
+    
+    private final HistoryConfig config;
+    
+    /**
+     * Veredicto de una serie
+     */
+    public enum Status {
+        REGRESSION, IMPROVEMENT, STABLE, INSUFFICIENT
+    }
+    
+    /**
+     * Mediana de una serie en una corrida
+     * @param run Corrida
+     * @param timestamp Momento de la corrida
+     * @param medianMillis Mediana de las muestras de la corrida
+     * @param count Cantidad de muestras
+     */
+    public record Point(String run, Instant timestamp, double medianMillis, long count) {
+    }
+    
+    /**
+     * Resultado del análisis de una serie
+     * @param source Origen (surefire, newman, latency)
+     * @param key Nombre de la serie
+     * @param points Medianas por corrida, de la más antigua a la más reciente
+     * @param currentRuns Corridas que forman la muestra actual
+     * @param currentMedianMillis Mediana de la muestra actual
+     * @param baselineMedianMillis Mediana de la línea base, o NaN sin línea base
+     * @param change Cambio relativo de la mediana (0.25 = 25% más lenta)
+     * @param test Prueba de Mann-Whitney, o null si no hubo muestras suficientes
+     * @param status Veredicto
+     * @param gated Si la serie pertenece a la corrida que se está controlando y puede romper el build
+     */
+    public record Trend(String source, String key, List<Point> points, int currentRuns, double currentMedianMillis,
+                        double baselineMedianMillis, double change, MannWhitney.Result test, Status status,
+                        boolean gated) {
+    }
+    
+    /**
+     * @param config Umbrales del análisis
+     */
+    public RegressionDetector(HistoryConfig config) {
+        this.config = config;
+    }
+    
+    /**
+     * Analiza todas las series del historial
+     * @param records Historial completo
+     * @param gateRuns Corridas recién ingestadas; sólo sus series cuentan para el resultado del build
+     *                 (vacío: todas las series cuentan)
+     * @return Una tendencia por serie, ordenadas por origen y nombre
+     */
+    public List<Trend> analyze(List<HistoryRecord> records, Set<String> gateRuns) {
+        Map<String, Map<String, List<HistoryRecord>>> bySeries = new TreeMap<>();
+        for (HistoryRecord record : records) {
+            bySeries.computeIfAbsent(record.series(), s -> new LinkedHashMap<>())
+                    .computeIfAbsent(record.run(), r -> new ArrayList<>())
+                    .add(record);
+        }
+        List<Trend> trends = new ArrayList<>();
+        for (Map<String, List<HistoryRecord>> runs : bySeries.values()) {
+            trends.add(analyze(runs, gateRuns));
+        }
+        return trends;
+    }
+    
+    private Trend analyze(Map<String, List<HistoryRecord>> runs, Set<String> gateRuns) {
+        List<Run> ordered = new ArrayList<>();
+        runs.forEach((run, records) -> ordered.add(Run.merge(run, records)));
+        ordered.sort(Comparator.comparing(Run::timestamp).thenComparing(Run::run));
+        HistoryRecord first = runs.values().iterator().next().get(0);
+        List<Point> points = ordered.stream()
+                .map(r -> new Point(r.run(), r.timestamp(), millis(r.histogram()), r.histogram().getTotalCount()))
+                .toList();
+        
+        Histogram current = new Histogram(HistoryRecord.MAX_LATENCY_MICROS, 3);
+        int index = ordered.size() - 1;
+        int currentRuns = 0;
+        while (index >= 0 && current.getTotalCount() < config.minSamples() && currentRuns < config.minSamples()) {
+            current.add(ordered.get(index--).histogram());
+            currentRuns++;
+        }
+        Histogram baseline = new Histogram(HistoryRecord.MAX_LATENCY_MICROS, 3);
+        for (int i = index; i >= 0 && index - i < config.baselineRuns(); i--) {
+            baseline.add(ordered.get(i).histogram());
+        }
+        
+        String latestRun = ordered.get(ordered.size() - 1).run();
+        boolean gated = gateRuns.isEmpty() || gateRuns.contains(latestRun);
+        double currentMedian = millis(current);
+        if (current.getTotalCount() < config.minSamples() || baseline.getTotalCount() < config.minSamples()) {
+            double baselineMedian = baseline.getTotalCount() == 0 ? Double.NaN : millis(baseline);
+            return new Trend(first.source(), first.key(), points, currentRuns, currentMedian, baselineMedian,
+                    baselineMedian > 0 ? currentMedian / baselineMedian - 1 : Double.NaN, null, Status.INSUFFICIENT,
+                    gated);
+        }
+        double baselineMedian = millis(baseline);
+        double change = currentMedian / baselineMedian - 1;
+        MannWhitney.Result test = MannWhitney.test(current, baseline);
+        Status status = Status.STABLE;
+        if (test.pSlower() < config.alpha() && change >= config.minEffect()) {
+            status = Status.REGRESSION;
+        } else if (test.pFaster() < config.alpha() && change <= -config.minEffect()) {
+            status = Status.IMPROVEMENT;
+        }
+        return new Trend(first.source(), first.key(), points, currentRuns, currentMedian, baselineMedian, change, test,
+                status, gated);
+    }
+    
+    private static double millis(Histogram histogram) {
+        return histogram.getTotalCount() == 0 ? Double.NaN : histogram.getValueAtPercentile(50) / 1000.0;
+    }
+    
+    /**
+     * Registros de una serie en una corrida, ya combinados
+     */
+    private record Run(String run, Instant timestamp, Histogram histogram) {
+        
+        static Run merge(String run, List<HistoryRecord> records) {
+            Histogram histogram = new Histogram(HistoryRecord.MAX_LATENCY_MICROS, 3);
+            records.forEach(record -> histogram.add(record.histogram()));
+            return new Run(run, records.get(0).timestamp(), histogram);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.greenmarket.tests.replay;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parámetros de una reproducción de tráfico
+ *
+ * @param trace Traza JSONL grabada por TrafficRecorder
+ * @param speed Multiplicador de velocidad respecto de la captura (1 = tiempo real), o 0 para enviar sin esperas
+ * @param maxInFlight Peticiones simultáneas como máximo; al llegar al tope la lectura de la traza espera
+ * @param maxBindings Variables {{vN}} recordadas a la vez; las más antiguas se olvidan
+ * @param bindingTimeout Espera máxima por la respuesta que define una variable
+ * @param baseUrl URL de la API, o null para usar el mock server embebido
+ * @param csvFile Archivo CSV con el resumen por endpoint
+ */
+public record ReplayConfig(Path trace,
+                           double speed,
+                           int maxInFlight,
+                           int maxBindings,
+                           Duration bindingTimeout,
+                           String baseUrl,
+                           Path csvFile) {
+    
+    /**
+     * Interpreta argumentos con formato --clave=valor
+     * Claves: trace, speed (1, 10, max...), max-in-flight, max-bindings, binding-timeout (segundos), base-url, csv
+     * @param args Argumentos de línea de comandos
+     * @return Configuración con valores por defecto para lo que no se indique
+     */
+    public static ReplayConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        // 10 y 10x son equivalentes
+        String speed = options.getOrDefault("speed", "1").toLowerCase();
+        if (!"max".equals(speed) && speed.endsWith("x")) {
+            speed = speed.substring(0, speed.length() - 1);
+        }
+        ReplayConfig config = new ReplayConfig(
+                Paths.get(options.getOrDefault("trace", "target/traffic.jsonl")),
+                "max".equals(speed) ? 0 : Double.parseDouble(speed),
+                Integer.parseInt(options.getOrDefault("max-in-flight", "256")),
+                Integer.parseInt(options.getOrDefault("max-bindings", "100000")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("binding-timeout", "30"))),
+                options.get("base-url"),
+                Paths.get(options.getOrDefault("csv", "target/replay-report.csv")));
+        if (config.speed() < 0 || config.maxInFlight() <= 0 || config.maxBindings() <= 0) {
+            throw new IllegalArgumentException("speed no puede ser negativo; max-in-flight y max-bindings deben ser positivos");
+        }
+        return config;
+    }
+    
+    /**
+     * Indica si la traza se envía sin respetar los tiempos grabados
+     */
+    public boolean isMaxSpeed() {
+        return speed == 0;
+    }
+}
@@ -0,0 +1,387 @@
+package com.greenmarket.tests.http;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.time.TimingFilter;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.internal.RestAssuredResponseOptionsImpl;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché HTTP privada del cliente, compartida por todas las specifications de un transporte
+ *
+ * Guarda las respuestas 200 de GET que traen ETag o Last-Modified (salvo Cache-Control: no-store) con la URL
+ * completa como clave, y al volver a pedirlas manda If-None-Match / If-Modified-Since: un 304 se entrega a la
+ * prueba como el 200 guardado, sin cuerpo en la red. Durante max-age (del servidor o de la configuración) la
+ * entrada se usa sin consultar. Un POST, PUT, PATCH o DELETE exitoso invalida su URL
+ *
+ * La capacidad se acota en entradas y en bytes de cuerpos. LRU desaloja la entrada usada hace más tiempo;
+ * TINYLFU además admite una entrada nueva sólo si su frecuencia estimada supera la de las víctimas, así un
+ * barrido de URLs que no se repiten no vacía la caché de las que sí
+ *
+ * Cada GET termina en acierto (sin red), 304 (revalidada), fallo (sin entrada) o cambio (había entrada pero
+ * el servidor mandó otra); el resultado queda en CallTimings y los bytes ahorrados son los cuerpos que no viajaron
+ */
+public class ResponseCache implements Filter {
+    
+    /** Resultado de un GET en la caché */
+    public enum Result {
+        HIT,
+        REVALIDATED,
+        MISS,
+        CHANGED
+    }
+    
+    /** Cabeceras del cuerpo tal como viajó, que no aplican al cuerpo decodificado que se guarda */
+    private static final Set<String> TRANSFER_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    
+    static {
+        TRANSFER_HEADERS.addAll(List.of("Content-Encoding", "Content-Length", "Transfer-Encoding", "Connection"));
+    }
+    
+    private final CacheConfig config;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long bytes;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder changed = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    
+    /**
+     * @param config Política y capacidad
+     */
+    public ResponseCache(CacheConfig config) {
+        if (!config.isEnabled()) {
+            throw new IllegalArgumentException("ResponseCache necesita una política LRU o TINYLFU");
+        }
+        this.config = config;
+        this.sketch = config.policy() == CacheConfig.Policy.TINYLFU ? new FrequencySketch(config.maxEntries()) : null;
+    }
+    
+    /**
+     * Respuesta guardada; sólo se actualiza su vigencia
+     */
+    private static final class Entry {
+        
+        final byte[] body;
+        final String statusLine;
+        final Headers headers;
+        final String contentType;
+        final String etag;
+        final String lastModified;
+        volatile long freshUntilNanos;
+        
+        Entry(Response response, byte[] body, long freshUntilNanos) {
+            List<Header> kept = new ArrayList<>();
+            for (Header header : response.getHeaders()) {
+                if (!TRANSFER_HEADERS.contains(header.getName())) {
+                    kept.add(header);
+                }
+            }
+            this.body = body;
+            this.statusLine = response.getStatusLine();
+            this.headers = new Headers(kept);
+            this.contentType = response.getContentType();
+            this.etag = response.getHeader("ETag");
+            this.lastModified = response.getHeader("Last-Modified");
+            this.freshUntilNanos = freshUntilNanos;
+        }
+        
+        Response toResponse() {
+            ResponseBuilder builder = new ResponseBuilder()
+                    .setStatusCode(200)
+                    .setStatusLine(statusLine)
+                    .setHeaders(headers)
+                    .setBody(body);
+            if (contentType != null && !contentType.isEmpty()) {
+                builder.setContentType(contentType);
+            }
+            return builder.build();
+        }
+    }
+    
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec,
+                           FilterableResponseSpecification responseSpec,
+                           FilterContext ctx) {
+        String method = requestSpec.getMethod();
+        String key = requestSpec.getURI();
+        if (!"GET".equals(method)) {
+            Response response = ctx.next(requestSpec, responseSpec);
+            if (!"HEAD".equals(method) && !"OPTIONS".equals(method) && response.statusCode() < 400) {
+                invalidate(key);
+            }
+            return response;
+        }
+        Headers requestHeaders = requestSpec.getHeaders();
+        if (requestHeaders.hasHeaderWithName("If-None-Match") || requestHeaders.hasHeaderWithName("If-Modified-Since")) {
+            // La prueba arma sus propias peticiones condicionales
+            return ctx.next(requestSpec, responseSpec);
+        }
+        
+        long start = System.nanoTime();
+        Entry entry = lookup(key);
+        if (entry != null && entry.freshUntilNanos - start > 0) {
+            hits.increment();
+            return served(entry, Result.HIT, start);
+        }
+        if (entry != null) {
+            if (entry.etag != null) {
+                requestSpec.header("If-None-Match", entry.etag);
+            }
+            if (entry.lastModified != null) {
+                requestSpec.header("If-Modified-Since", entry.lastModified);
+            }
+        }
+        
+        Response response = ctx.next(requestSpec, responseSpec);
+        if (entry != null && response.statusCode() == 304) {
+            revalidated.increment();
+            entry.freshUntilNanos = freshUntil(response.getHeader("Cache-Control"), System.nanoTime());
+            return served(entry, Result.REVALIDATED, start);
+        }
+        (entry == null ? misses : changed).increment();
+        CallTimings.cacheResult(entry == null ? Result.MISS : Result.CHANGED);
+        String cacheControl = response.getHeader("Cache-Control");
+        boolean cacheable = response.statusCode() == 200
+                && (response.getHeader("ETag") != null || response.getHeader("Last-Modified") != null)
+                && (cacheControl == null || !cacheControl.toLowerCase(Locale.ROOT).contains("no-store"));
+        if (cacheable) {
+            put(key, new Entry(response, response.asByteArray(), freshUntil(cacheControl, System.nanoTime())));
+        } else if (entry != null) {
+            invalidate(key);
+        }
+        return response;
+    }
+    
+    /**
+     * Respuesta armada desde la caché, con el tiempo de la llamada: REST Assured sólo asigna el de TimingFilter
+     * a la respuesta que construye él, y sin tiempo fallarían las aserciones de time()
+     */
+    private Response served(Entry entry, Result result, long start) {
+        savedBytes.add(entry.body.length);
+        CallTimings.cacheResult(result);
+        CallTimings.bodyReceived(0, entry.body.length, 0);
+        Response response = entry.toResponse();
+        if (response instanceof RestAssuredResponseOptionsImpl<?> options) {
+            options.setFilterContextProperties(Map.of(TimingFilter.RESPONSE_TIME_MILLISECONDS,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }
+        return response;
+    }
+    
+    /**
+     * Vigencia sin revalidar: max-age del servidor, cero con no-cache, si no maxAge de la configuración
+     */
+    private long freshUntil(String cacheControl, long now) {
+        long maxAgeNanos = config.maxAge().toNanos();
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                String value = directive.trim();
+                if (value.equals("no-cache")) {
+                    return now;
+                }
+                if (value.startsWith("max-age=")) {
+                    try {
+                        maxAgeNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(value.substring(8).trim()));
+                    } catch (NumberFormatException e) {
+                        // Se conserva el valor configurado
+                    }
+                }
+            }
+        }
+        return now + maxAgeNanos;
+    }
+    
+    private Entry lookup(String key) {
+        synchronized (entries) {
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+            return entries.get(key);
+        }
+    }
+    
+    private void invalidate(String key) {
+        synchronized (entries) {
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                bytes -= removed.body.length;
+                invalidations.increment();
+            }
+        }
+    }
+    
+    /**
+     * Guarda una respuesta desalojando en orden LRU lo necesario; con TINYLFU una clave nueva que no es más
+     * frecuente que todas sus víctimas se descarta y la caché queda como estaba
+     */
+    private void put(String key, Entry entry) {
+        long size = entry.body.length;
+        if (size > config.maxBytes()) {
+            rejected.increment();
+            return;
+        }
+        synchronized (entries) {
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                bytes -= previous.body.length;
+            }
+            List<String> victims = new ArrayList<>();
+            long freed = 0;
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while ((entries.size() - victims.size() >= config.maxEntries() || bytes - freed + size > config.maxBytes())
+                    && eldest.hasNext()) {
+                Map.Entry<String, Entry> victim = eldest.next();
+                victims.add(victim.getKey());
+                freed += victim.getValue().body.length;
+            }
+            if (previous == null && sketch != null && !victims.isEmpty()) {
+                int frequency = sketch.frequency(key);
+                for (String victim : victims) {
+                    if (sketch.frequency(victim) >= frequency) {
+                        rejected.increment();
+                        return;
+                    }
+                }
+            }
+            for (String victim : victims) {
+                entries.remove(victim);
+                evictions.increment();
+            }
+            bytes -= freed;
+            entries.put(key, entry);
+            bytes += size;
+        }
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getRevalidated() {
+        return revalidated.sum();
+    }
+    
+    /**
+     * GET sin entrada guardada
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    /**
+     * GET con entrada guardada que el servidor reemplazó por una respuesta nueva
+     */
+    public long getChanged() {
+        return changed.sum();
+    }
+    
+    /**
+     * Bytes de cuerpos (decodificados) que se entregaron desde la caché sin viajar por la red
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+    
+    /**
+     * Resumen de una línea para el cierre del transporte
+     */
+    public String summary() {
+        long lookups = getHits() + getRevalidated() + getMisses() + getChanged();
+        double total = Math.max(1, lookups);
+        int size;
+        long stored;
+        synchronized (entries) {
+            size = entries.size();
+            stored = bytes;
+        }
+        return String.format(Locale.ROOT,
+                "Caché %s: %d GET | Aciertos: %.1f%% | 304: %.1f%% | Fallos: %.1f%% (%d con cambios) | "
+                        + "Ahorro: %.1f KB | Entradas: %d (%.1f KB) | Desalojos: %d | Rechazadas: %d | Invalidadas: %d",
+                config.policy().name().toLowerCase(Locale.ROOT), lookups, getHits() * 100 / total,
+                getRevalidated() * 100 / total, (getMisses() + getChanged()) * 100 / total, getChanged(),
+                getSavedBytes() / 1024.0, size, stored / 1024.0, evictions.sum(), rejected.sum(), invalidations.sum());
+    }
+    
+    /**
+     * Frecuencia aproximada de las claves para la admisión TinyLFU: count-min sketch de 4 filas con contadores
+     * saturados en 15; cada 10 accesos por entrada de capacidad todos se dividen por dos para olvidar
+     * la popularidad vieja
+     */
+    private static final class FrequencySketch {
+        
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+        private static final int MAX_WIDTH = 1 << 22;
+        
+        private final byte[][] rows = new byte[SEEDS.length][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+        
+        FrequencySketch(int capacity) {
+            int width = MAX_WIDTH;
+            while (width > 16 && width / 2 >= capacity) {
+                width /= 2;
+            }
+            for (int row = 0; row < rows.length; row++) {
+                rows[row] = new byte[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * capacity);
+        }
+        
+        void increment(String key) {
+            int hash = key.hashCode();
+            for (int row = 0; row < rows.length; row++) {
+                int index = index(hash, row);
+                if (rows[row][index] < 15) {
+                    rows[row][index]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                for (byte[] counters : rows) {
+                    for (int i = 0; i < counters.length; i++) {
+                        counters[i] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+        
+        int frequency(String key) {
+            int hash = key.hashCode();
+            int min = 15;
+            for (int row = 0; row < rows.length; row++) {
+                min = Math.min(min, rows[row][index(hash, row)]);
+            }
+            return min;
+        }
+        
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.greenmarket.tests.mock;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresión de respuestas del mock server negociada con Accept-Encoding, como el middleware compression
+ * de json-server
+ *
+ * Se comprimen los cuerpos de al menos threshold bytes con la codificación aceptada de mayor q (a igual q,
+ * la primera de la lista configurada). El cuerpo se comprime en streaming hacia la conexión con
+ * Transfer-Encoding chunked, sin armar antes el resultado comprimido en memoria. El tiempo de compresión
+ * se mide como el tiempo de escritura menos el tiempo bloqueado en el socket
+ *
+ * Propiedades: -Dgreenmarket.mock.compression=gzip,deflate (por defecto; off la desactiva),
+ * -Dgreenmarket.mock.compressionThreshold=1024 y -Dgreenmarket.mock.compressionLevel=1..9
+ * zstd no está disponible: el JDK no lo trae y exigiría una biblioteca nativa
+ */
+public class ResponseCompression {
+    
+    /** Codificaciones soportadas por el JDK */
+    public static final List<String> SUPPORTED = List.of("gzip", "deflate");
+    
+    private static final int BUFFER_SIZE = 8192;
+    
+    private final List<String> encodings;
+    private final int threshold;
+    private final int level;
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    
+    /**
+     * @param encodings Codificaciones ofrecidas, en orden de preferencia (vacía: sin compresión)
+     * @param threshold Tamaño mínimo del cuerpo para comprimirlo
+     * @param level Nivel de Deflater (1 rápido a 9 máximo, -1 por defecto)
+     */
+    public ResponseCompression(List<String> encodings, int threshold, int level) {
+        for (String encoding : encodings) {
+            if (!SUPPORTED.contains(encoding)) {
+                throw new IllegalArgumentException("Codificación no soportada: " + encoding + " (opciones: " + SUPPORTED + ")");
+            }
+        }
+        if (threshold < 0 || level < -1 || level > 9) {
+            throw new IllegalArgumentException("compressionThreshold debe ser >= 0 y compressionLevel entre -1 y 9");
+        }
+        this.encodings = List.copyOf(encodings);
+        this.threshold = threshold;
+        this.level = level;
+    }
+    
+    /**
+     * Lee -Dgreenmarket.mock.compression, compressionThreshold y compressionLevel
+     * @return Compresión configurada (gzip y deflate desde 1 KB por defecto)
+     */
+    public static ResponseCompression fromSystemProperties() {
+        String value = System.getProperty("greenmarket.mock.compression", "gzip,deflate").trim().toLowerCase(Locale.ROOT);
+        List<String> encodings = "off".equals(value) || value.isEmpty()
+                ? List.of()
+                : Arrays.stream(value.split(",")).map(String::trim).filter(e -> !e.isEmpty()).toList();
+        return new ResponseCompression(encodings,
+                Integer.getInteger("greenmarket.mock.compressionThreshold", 1024),
+                Integer.getInteger("greenmarket.mock.compressionLevel", Deflater.DEFAULT_COMPRESSION));
+    }
+    
+    public boolean isEnabled() {
+        return !encodings.isEmpty();
+    }
+    
+    /**
+     * Elige la codificación de una respuesta
+     * @param acceptEncoding Cabecera Accept-Encoding de la petición (puede ser null)
+     * @param bodyLength Tamaño del cuerpo sin comprimir
+     * @return Codificación a usar, o null para enviarlo tal cual
+     */
+    public String negotiate(String acceptEncoding, int bodyLength) {
+        if (encodings.isEmpty() || acceptEncoding == null || bodyLength == 0) {
+            return null;
+        }
+        String chosen = null;
+        double best = 0;
+        List<String[]> accepted = parse(acceptEncoding);
+        for (String encoding : encodings) {
+            double q = quality(accepted, encoding);
+            if (q > best) {
+                best = q;
+                chosen = encoding;
+            }
+        }
+        if (chosen != null && bodyLength < threshold) {
+            skipped.increment();
+            return null;
+        }
+        return chosen;
+    }
+    
+    /**
+     * Escribe el cuerpo comprimido en streaming
+     * @param encoding Codificación elegida con negotiate
+     * @param body Cuerpo sin comprimir
+     * @param connection Cuerpo de la respuesta HTTP; se cierra al terminar
+     * @throws IOException Si falla la escritura
+     */
+    public void write(String encoding, byte[] body, OutputStream connection) throws IOException {
+        TimedOutputStream wire = new TimedOutputStream(connection);
+        long start = System.nanoTime();
+        try (DeflaterOutputStream out = open(encoding, wire)) {
+            for (int offset = 0; offset < body.length; offset += BUFFER_SIZE) {
+                out.write(body, offset, Math.min(BUFFER_SIZE, body.length - offset));
+            }
+            out.finish();
+        }
+        compressed.increment();
+        rawBytes.add(body.length);
+        wireBytes.add(wire.bytes);
+        compressNanos.add(Math.max(0, System.nanoTime() - start - wire.nanos));
+    }
+    
+    private DeflaterOutputStream open(String encoding, OutputStream wire) throws IOException {
+        if ("gzip".equals(encoding)) {
+            return new GZIPOutputStream(wire, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        // deflate en HTTP es el formato zlib (RFC 1950), no deflate crudo
+        return new DeflaterOutputStream(wire, new Deflater(level), BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    def.end();
+                }
+            }
+        };
+    }
+    
+    /**
+     * Respuestas comprimidas
+     */
+    public long getCompressed() {
+        return compressed.sum();
+    }
+    
+    /**
+     * Relación bytes enviados / bytes sin comprimir de las respuestas comprimidas
+     */
+    public double getRatio() {
+        long raw = rawBytes.sum();
+        return raw == 0 ? 1 : wireBytes.sum() / (double) raw;
+    }
+    
+    /**
+     * Resumen de una línea para el cierre del servidor
+     */
+    public String summary() {
+        return String.format(Locale.ROOT,
+                "Comprimidas: %d (%s) | Bajo el umbral de %d B: %d | %.1f KB -> %.1f KB (%.1f%%) | Compresión: %.1f ms",
+                getCompressed(), String.join(",", encodings), threshold, skipped.sum(), rawBytes.sum() / 1024.0,
+                wireBytes.sum() / 1024.0, getRatio() * 100, compressNanos.sum() / 1e6);
+    }
+    
+    /**
+     * Pares {codificación, q} de Accept-Encoding
+     */
+    private static List<String[]> parse(String header) {
+        List<String[]> accepted = new ArrayList<>();
+        for (String part : header.split(",")) {
+            String[] params = part.trim().split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            String q = "1";
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    q = param.substring(2).trim();
+                }
+            }
+            accepted.add(new String[] {name, q});
+        }
+        return accepted;
+    }
+    
+    /**
+     * q de una codificación: la mención explícita, si no la de *, si no 0
+     */
+    private static double quality(List<String[]> accepted, String encoding) {
+        String wildcard = null;
+        for (String[] entry : accepted) {
+            if (entry[0].equals(encoding)) {
+                return parseQ(entry[1]);
+            }
+            if ("*".equals(entry[0])) {
+                wildcard = entry[1];
+            }
+        }
+        return wildcard == null ? 0 : parseQ(wildcard);
+    }
+    
+    private static double parseQ(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Cuenta los bytes que llegan a la conexión y el tiempo bloqueado escribiéndolos
+     */
+    private static final class TimedOutputStream extends FilterOutputStream {
+        
+        long bytes;
+        long nanos;
+        
+        TimedOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            nanos += System.nanoTime() - start;
+            bytes += len;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            out.write(b);
+            nanos += System.nanoTime() - start;
+            bytes++;
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            out.flush();
+            nanos += System.nanoTime() - start;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            long start = System.nanoTime();
+            out.close();
+            nanos += System.nanoTime() - start;
+        }
+    }
+}
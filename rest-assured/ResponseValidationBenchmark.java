@@ -0,0 +1,126 @@
+package com.greenmarket.tests.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greenmarket.tests.validation.StreamingValidator;
+import io.restassured.path.json.JsonPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la validación de GET /products de CP-007 con JsonPath frente al StreamingValidator
+ *
+ * jsonPathFirstItem reproduce las aserciones originales (solo [0] y el tamaño, dos parseos del cuerpo),
+ * jsonPathAllItems aplica las mismas reglas a todos los productos y streamingAllItems hace lo mismo
+ * en una sola pasada sin árbol
+ *
+ * Uso: mvn -Pbenchmarks package -DskipTests
+ *      java -cp target/benchmarks.jar com.greenmarket.tests.bench.ResponseValidationBenchmark [regex JMH]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseValidationBenchmark {
+    
+    private static final StreamingValidator PRODUCT_LIST = StreamingValidator.forArray()
+            .elements(1, Long.MAX_VALUE)
+            .required("id", "name", "description", "price", "category")
+            .type("price", StreamingValidator.JsonType.NUMBER)
+            .greaterThan("price", 0)
+            .capture("id")
+            .build();
+    
+    @Param({"10", "1000", "10000"})
+    public int products;
+    
+    private String body;
+    private byte[] bytes;
+    
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        ArrayNode array = mapper.createArrayNode();
+        for (int i = 1; i <= products; i++) {
+            ObjectNode product = array.addObject();
+            product.put("id", Integer.toString(i));
+            product.put("name", "Producto " + i);
+            product.put("description", "Descripción del producto sustentable número " + i);
+            product.put("price", 990 + i % 9000);
+            product.put("category", i % 2 == 0 ? "organic" : "recycled");
+            product.put("stock", i % 100);
+            product.putArray("images").add("https://picsum.photos/400/400?random=" + i);
+            product.put("rating", 4.5);
+            product.put("reviewsCount", i % 50);
+            product.put("createdAt", "2025-10-15T08:00:00Z");
+        }
+        body = mapper.writeValueAsString(array);
+        bytes = body.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Benchmark
+    public Object jsonPathFirstItem() {
+        JsonPath json = JsonPath.from(body);
+        check(json.getList("$").size() > 0);
+        check(json.get("[0].id") != null);
+        check(json.get("[0].name") != null);
+        check(json.get("[0].description") != null);
+        check(json.get("[0].price") != null);
+        check(json.get("[0].category") != null);
+        String id = json.getString("[0].id");
+        // El test vuelve a pedir el tamaño a un JsonPath nuevo
+        check(JsonPath.from(body).getList("$").size() > 0);
+        return id;
+    }
+    
+    @Benchmark
+    public Object jsonPathAllItems() {
+        List<Map<String, Object>> items = JsonPath.from(body).getList("$");
+        check(!items.isEmpty());
+        for (Map<String, Object> item : items) {
+            check(item.get("id") != null && item.get("name") != null && item.get("description") != null
+                    && item.get("category") != null);
+            check(item.get("price") instanceof Number price && price.doubleValue() > 0);
+        }
+        return items.get(0).get("id");
+    }
+    
+    @Benchmark
+    public Object streamingAllItems() {
+        StreamingValidator.Result result = PRODUCT_LIST.validate(bytes);
+        check(result.isValid());
+        return result.get("id");
+    }
+    
+    private static void check(boolean condition) {
+        if (!condition) {
+            throw new AssertionError("Cuerpo de prueba inválido");
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ResponseValidationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,204 @@
+package com.greenmarket.tests.history;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+
+/**
+ * Convierte los resultados de un build en registros del historial
+ *
+ * Surefire (TEST-*.xml): una muestra por testcase con el tiempo de la prueba
+ * Newman o PostmanRunner (results_*.xml): una muestra por request (testsuite); cada archivo es una corrida propia
+ * identificada por su nombre, porque el directorio de reportes acumula corridas de días distintos
+ * @LatencyBudget (target/latency/*.json): el histograma completo de las iteraciones de la prueba
+ */
+public class ResultIngester {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private static final XMLInputFactory XML = XMLInputFactory.newFactory();
+    
+    static {
+        XML.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+    
+    private ResultIngester() {
+    }
+    
+    /**
+     * Tiempos de cada testcase de Surefire, omitiendo los saltados
+     * @param dir Directorio target/surefire-reports (puede no existir)
+     * @param run Corrida actual
+     * @param timestamp Momento de la corrida actual
+     */
+    public static List<HistoryRecord> surefire(Path dir, String run, Instant timestamp) throws IOException {
+        Map<String, Histogram> series = new LinkedHashMap<>();
+        for (Path file : files(dir, "TEST-*.xml")) {
+            try (InputStream in = Files.newInputStream(file)) {
+                XMLStreamReader reader = XML.createXMLStreamReader(in);
+                String key = null;
+                double seconds = 0;
+                boolean skipped = false;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        if ("testcase".equals(reader.getLocalName())) {
+                            String className = reader.getAttributeValue(null, "classname");
+                            String simpleName = className == null ? "" : className.substring(className.lastIndexOf('.') + 1);
+                            key = simpleName + "." + reader.getAttributeValue(null, "name");
+                            seconds = seconds(reader.getAttributeValue(null, "time"));
+                            skipped = false;
+                        } else if (key != null && "skipped".equals(reader.getLocalName())) {
+                            skipped = true;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && key != null
+                            && "testcase".equals(reader.getLocalName())) {
+                        if (!skipped) {
+                            record(series, key, seconds);
+                        }
+                        key = null;
+                    }
+                }
+                reader.close();
+            } catch (XMLStreamException e) {
+                throw new IOException("No se pudo leer " + file + ": " + e.getMessage(), e);
+            }
+        }
+        return toRecords(series, run, timestamp, "surefire");
+    }
+    
+    /**
+     * Tiempos de cada request de los reportes JUnit de Newman que aún no están en el historial
+     * @param dir Directorio de reportes (puede no existir)
+     * @param ingested Corridas de Newman ya ingestadas
+     */
+    public static List<HistoryRecord> newman(Path dir, Set<String> ingested) throws IOException {
+        List<HistoryRecord> records = new ArrayList<>();
+        for (Path file : files(dir, "results_*.xml")) {
+            String run = file.getFileName().toString().replaceFirst("\\.xml$", "");
+            if (ingested.contains(run)) {
+                continue;
+            }
+            Map<String, Histogram> series = new LinkedHashMap<>();
+            Instant timestamp = null;
+            try (InputStream in = Files.newInputStream(file)) {
+                XMLStreamReader reader = XML.createXMLStreamReader(in);
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "testsuite".equals(reader.getLocalName())) {
+                        if (timestamp == null) {
+                            timestamp = instant(reader.getAttributeValue(null, "timestamp"));
+                        }
+                        record(series, reader.getAttributeValue(null, "name"),
+                                seconds(reader.getAttributeValue(null, "time")));
+                    }
+                }
+                reader.close();
+            } catch (XMLStreamException e) {
+                throw new IOException("No se pudo leer " + file + ": " + e.getMessage(), e);
+            }
+            if (timestamp == null) {
+                timestamp = Files.getLastModifiedTime(file).toInstant();
+            }
+            records.addAll(toRecords(series, run, timestamp, "newman"));
+        }
+        return records;
+    }
+    
+    /**
+     * Histogramas escritos por LatencyBudgetExtension
+     * @param dir Directorio target/latency (puede no existir)
+     * @param run Corrida actual
+     * @param timestamp Momento de la corrida actual
+     */
+    public static List<HistoryRecord> latency(Path dir, String run, Instant timestamp) throws IOException {
+        List<HistoryRecord> records = new ArrayList<>();
+        for (Path file : files(dir, "*.json")) {
+            JsonNode result = MAPPER.readTree(file.toFile());
+            if (!result.hasNonNull("test") || !result.hasNonNull("histogram")) {
+                continue;
+            }
+            try {
+                records.add(new HistoryRecord(run, timestamp, "latency", result.get("test").asText(),
+                        HistoryStore.decode(result.get("histogram").asText())));
+            } catch (DataFormatException | IllegalArgumentException e) {
+                throw new IOException("Histograma inválido en " + file + ": " + e.getMessage(), e);
+            }
+        }
+        return records;
+    }
+    
+    private static List<Path> files(Path dir, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+    
+    /**
+     * Agrega una muestra; las pruebas repetidas o parametrizadas con el mismo nombre se acumulan en la serie
+     */
+    private static void record(Map<String, Histogram> series, String key, double seconds) {
+        if (key == null) {
+            return;
+        }
+        long micros = Math.round(seconds * 1_000_000);
+        series.computeIfAbsent(key, k -> new Histogram(HistoryRecord.MAX_LATENCY_MICROS, 3))
+                .recordValue(Math.min(HistoryRecord.MAX_LATENCY_MICROS, Math.max(1, micros)));
+    }
+    
+    private static List<HistoryRecord> toRecords(Map<String, Histogram> series, String run, Instant timestamp,
+                                                 String source) {
+        List<HistoryRecord> records = new ArrayList<>();
+        series.forEach((key, histogram) -> records.add(new HistoryRecord(run, timestamp, source, key, histogram)));
+        return records;
+    }
+    
+    /**
+     * Segundos de un atributo time; Surefire usa separador de miles en pruebas largas
+     */
+    private static double seconds(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value.replace(",", ""));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private static Instant instant(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
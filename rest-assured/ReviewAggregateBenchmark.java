@@ -0,0 +1,149 @@
+package com.greenmarket.tests.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greenmarket.tests.mock.MockCollection;
+import com.greenmarket.tests.mock.MockQuery;
+import com.greenmarket.tests.mock.ReviewAggregates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rating de un producto con agregados incrementales frente a recalcularlo desde las reseñas
+ *
+ * aggregateRead es la lectura sin locks de ReviewAggregates; recomputeIndexed suma las reseñas del producto
+ * usando el índice de productId (lo que cuesta recalcular en cada alta) y recomputeScan recorre toda la
+ * colección, como hace json-server. incrementalUpdate mide una modificación de rating con el ajuste del
+ * agregado y el PATCH del producto incluidos; recomputeUpdate la misma modificación seguida del recálculo
+ * por índice que reemplaza
+ *
+ * Uso: mvn -Pbenchmarks package -DskipTests
+ *      java -cp target/benchmarks.jar com.greenmarket.tests.bench.ReviewAggregateBenchmark [regex JMH]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ReviewAggregateBenchmark {
+    
+    private static final int PRODUCTS = 1000;
+    
+    @Param({"10000", "1000000"})
+    public int reviews;
+    
+    private MockCollection reviewCollection;
+    private MockCollection plainReviews;
+    private ReviewAggregates aggregates;
+    private ObjectNode[] ratings;
+    
+    @Setup
+    public void setup() {
+        ObjectMapper mapper = new ObjectMapper();
+        MockCollection products = new MockCollection("products");
+        for (int p = 1; p <= PRODUCTS; p++) {
+            ObjectNode product = mapper.createObjectNode();
+            product.put("name", "Producto " + p);
+            product.put("price", 990 + p);
+            product.put("stock", 100);
+            products.insert(product);
+        }
+        reviewCollection = new MockCollection("reviews");
+        plainReviews = new MockCollection("reviews");
+        for (int r = 1; r <= reviews; r++) {
+            ObjectNode review = mapper.createObjectNode();
+            review.put("productId", Integer.toString(r % PRODUCTS + 1));
+            review.put("userId", Integer.toString(r % 5000 + 1));
+            review.put("rating", r % 5 + 1);
+            review.put("comment", "Reseña " + r);
+            reviewCollection.insert(review);
+            plainReviews.insert(review);
+        }
+        aggregates = ReviewAggregates.create(reviewCollection, products);
+        ratings = new ObjectNode[5];
+        for (int stars = 1; stars <= 5; stars++) {
+            ratings[stars - 1] = mapper.createObjectNode().put("rating", stars);
+        }
+    }
+    
+    @Benchmark
+    public double aggregateRead() {
+        return aggregates.get(randomProduct()).rating();
+    }
+    
+    @Benchmark
+    public double recomputeIndexed() {
+        return recompute(plainReviews, randomProduct());
+    }
+    
+    @Benchmark
+    public double recomputeScan() {
+        String productId = randomProduct();
+        long count = 0;
+        long sum = 0;
+        for (ObjectNode review : plainReviews.snapshot()) {
+            if (productId.equals(review.path("productId").asText())) {
+                count++;
+                sum += review.path("rating").asInt();
+            }
+        }
+        return count == 0 ? 0.0 : Math.round(sum * 10.0 / count) / 10.0;
+    }
+    
+    @Benchmark
+    public Object incrementalUpdate() {
+        return reviewCollection.patch(randomReview(), randomRating());
+    }
+    
+    @Benchmark
+    public double recomputeUpdate() {
+        String id = randomReview();
+        ObjectNode updated = plainReviews.patch(id, randomRating()).orElseThrow();
+        return recompute(plainReviews, updated.path("productId").asText());
+    }
+    
+    private static double recompute(MockCollection reviews, String productId) {
+        MockCollection.Page page = reviews.query(MockQuery.parse(Map.of("productId", List.of(productId))));
+        long sum = 0;
+        for (ObjectNode review : page.items()) {
+            sum += review.path("rating").asInt();
+        }
+        return page.total() == 0 ? 0.0 : Math.round(sum * 10.0 / page.total()) / 10.0;
+    }
+    
+    private String randomProduct() {
+        return Integer.toString(ThreadLocalRandom.current().nextInt(PRODUCTS) + 1);
+    }
+    
+    private String randomReview() {
+        return Integer.toString(ThreadLocalRandom.current().nextInt(reviews) + 1);
+    }
+    
+    private ObjectNode randomRating() {
+        return ratings[ThreadLocalRandom.current().nextInt(5)];
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ReviewAggregateBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,231 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agregados de reseñas por producto (cantidad, suma e histograma de 1 a 5 estrellas) que mantienen rating y
+ * reviewsCount de products iguales a las reseñas reales
+ *
+ * Cada alta, modificación o baja de una reseña ajusta el agregado de su producto en O(1), sin recorrer reviews.
+ * El ajuste corre con el lock de escritura de reviews tomado (ver MockCollection.Listener), así las
+ * actualizaciones quedan serializadas, y publica un Aggregate inmutable en un ConcurrentHashMap: las lecturas
+ * no toman locks y siempre ven cantidad, suma e histograma coherentes entre sí. Luego rating y reviewsCount se
+ * escriben en el producto con un PATCH, que también cambia la ETag de products. Una reseña que pasa a otro
+ * producto se descuenta de uno y se suma al otro en dos publicaciones
+ *
+ * Al crearse (create) recalcula todo con un recorrido de reviews y corrige los productos cuyos valores guardados
+ * no coinciden (los de db.json no incluyen las reseñas creadas después). El recorrido y el registro del listener
+ * ocurren con el lock de escritura de reviews tomado, así ninguna reseña se pierde ni se cuenta dos veces
+ * Se desactiva con -Dgreenmarket.mock.reviewAggregates=off y rating/reviewsCount quedan como en db.json
+ */
+public class ReviewAggregates implements MockCollection.Listener {
+    
+    private final MockCollection products;
+    private final ConcurrentMap<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private final LongAdder updates = new LongAdder();
+    private volatile int corrected;
+    
+    /**
+     * Agregado inmutable de las reseñas de un producto
+     * @param count Reseñas con un rating entero de 1 a 5
+     * @param sum Suma de sus ratings
+     * @param histogram Reseñas por estrella; histogram[0] son las de 1 estrella
+     */
+    public record Aggregate(long count, long sum, long[] histogram) {
+        
+        public static final Aggregate EMPTY = new Aggregate(0, 0, new long[5]);
+        
+        public Aggregate {
+            histogram = histogram.clone();
+        }
+        
+        @Override
+        public long[] histogram() {
+            return histogram.clone();
+        }
+        
+        /**
+         * Reseñas con la cantidad de estrellas indicada
+         * @param stars De 1 a 5
+         */
+        public long stars(int stars) {
+            return histogram[stars - 1];
+        }
+        
+        /**
+         * Promedio redondeado a un decimal, como rating en db.json y en DatasetGenerator (0 sin reseñas)
+         */
+        public double rating() {
+            return count == 0 ? 0.0 : Math.round(sum * 10.0 / count) / 10.0;
+        }
+        
+        /**
+         * @param removed Estrellas de la reseña que sale, 0 si ninguna
+         * @param added Estrellas de la reseña que entra, 0 si ninguna
+         */
+        Aggregate with(int removed, int added) {
+            long[] stars = histogram.clone();
+            long count = this.count;
+            long sum = this.sum;
+            if (removed > 0) {
+                stars[removed - 1]--;
+                count--;
+                sum -= removed;
+            }
+            if (added > 0) {
+                stars[added - 1]++;
+                count++;
+                sum += added;
+            }
+            return new Aggregate(count, sum, stars);
+        }
+    }
+    
+    private ReviewAggregates(MockCollection products) {
+        this.products = products;
+    }
+    
+    /**
+     * Calcula los agregados, corrige los productos y empieza a seguir las escrituras de reviews
+     * @param reviews Colección reviews
+     * @param products Colección products
+     * @return Agregados ya registrados como listener de reviews
+     */
+    public static ReviewAggregates create(MockCollection reviews, MockCollection products) {
+        ReviewAggregates aggregates = new ReviewAggregates(products);
+        reviews.listen(aggregates, aggregates::initialize);
+        return aggregates;
+    }
+    
+    /**
+     * Recorrido inicial; corre con el lock de escritura de reviews tomado, antes de la primera notificación
+     */
+    private void initialize(List<ObjectNode> reviews) {
+        Map<String, long[]> stars = new HashMap<>();
+        for (ObjectNode review : reviews) {
+            String productId = productOf(review);
+            int rating = starsOf(review);
+            if (productId != null && rating > 0) {
+                stars.computeIfAbsent(productId, id -> new long[5])[rating - 1]++;
+            }
+        }
+        stars.forEach((productId, histogram) -> {
+            long count = 0;
+            long sum = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                count += histogram[i];
+                sum += histogram[i] * (i + 1);
+            }
+            aggregates.put(productId, new Aggregate(count, sum, histogram));
+        });
+        int fixed = 0;
+        for (ObjectNode product : products.snapshot()) {
+            String productId = product.path("id").asText();
+            Aggregate aggregate = get(productId);
+            if (product.path("reviewsCount").asLong(-1) != aggregate.count()
+                    || product.path("rating").asDouble(-1) != aggregate.rating()) {
+                write(productId, aggregate);
+                fixed++;
+            }
+        }
+        this.corrected = fixed;
+    }
+    
+    /**
+     * Crea los agregados según -Dgreenmarket.mock.reviewAggregates (on por defecto)
+     * @param store Store del mock server
+     * @return Agregados, o null si están desactivados o falta reviews o products
+     */
+    public static ReviewAggregates fromSystemProperties(MockStore store) {
+        MockCollection reviews = store.collection("reviews");
+        MockCollection products = store.collection("products");
+        if ("off".equalsIgnoreCase(System.getProperty("greenmarket.mock.reviewAggregates", "on").trim())
+                || reviews == null || products == null) {
+            return null;
+        }
+        return create(reviews, products);
+    }
+    
+    /**
+     * Agregado actual de un producto, sin locks
+     * @param productId Producto
+     * @return Agregado, o EMPTY si no tiene reseñas
+     */
+    public Aggregate get(String productId) {
+        return aggregates.getOrDefault(productId, Aggregate.EMPTY);
+    }
+    
+    @Override
+    public void changed(ObjectNode previous, ObjectNode current) {
+        String before = productOf(previous);
+        String after = productOf(current);
+        int removed = before == null ? 0 : starsOf(previous);
+        int added = after == null ? 0 : starsOf(current);
+        if (Objects.equals(before, after)) {
+            if (removed != added) {
+                apply(before, removed, added);
+            }
+            return;
+        }
+        if (removed > 0) {
+            apply(before, removed, 0);
+        }
+        if (added > 0) {
+            apply(after, 0, added);
+        }
+    }
+    
+    private void apply(String productId, int removed, int added) {
+        Aggregate updated = aggregates.compute(productId,
+                (id, aggregate) -> (aggregate == null ? Aggregate.EMPTY : aggregate).with(removed, added));
+        updates.increment();
+        write(productId, updated);
+    }
+    
+    private void write(String productId, Aggregate aggregate) {
+        ObjectNode change = JsonNodeFactory.instance.objectNode();
+        change.put("rating", aggregate.rating());
+        change.put("reviewsCount", aggregate.count());
+        products.patch(productId, change);
+    }
+    
+    /**
+     * Ajustes incrementales aplicados desde el arranque
+     */
+    public long getUpdates() {
+        return updates.sum();
+    }
+    
+    /**
+     * Productos cuyo rating o reviewsCount guardado se corrigió al arrancar
+     */
+    public int getCorrected() {
+        return corrected;
+    }
+    
+    private static String productOf(ObjectNode review) {
+        JsonNode productId = review == null ? null : review.get("productId");
+        return productId == null || !productId.isValueNode() || productId.asText().isEmpty() ? null : productId.asText();
+    }
+    
+    /**
+     * Estrellas de una reseña, o 0 si su rating no es un entero de 1 a 5 (no cuenta)
+     */
+    private static int starsOf(ObjectNode review) {
+        JsonNode rating = review == null ? null : review.get("rating");
+        if (rating == null || !rating.isIntegralNumber() || rating.intValue() < 1 || rating.intValue() > 5) {
+            return 0;
+        }
+        return rating.intValue();
+    }
+}
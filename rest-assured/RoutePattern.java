@@ -0,0 +1,42 @@
+package com.greenmarket.tests.mock;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Coincidencia de método y ruta para las reglas por endpoint del mock server (fallas, límites de tasa)
+ * En el patrón de ruta, * coincide con un segmento y ** al final con el resto de la ruta
+ */
+final class RoutePattern {
+    
+    private RoutePattern() {
+    }
+    
+    /**
+     * @param methodPattern Método HTTP, o * para cualquiera
+     * @param pathPattern Patrón de ruta (/orders, /orders/*, /users/**)
+     * @param method Método de la petición
+     * @param segments Segmentos decodificados de la ruta de la petición
+     * @return true si coinciden método y ruta
+     */
+    static boolean matches(String methodPattern, String pathPattern, String method, List<String> segments) {
+        if (!"*".equals(methodPattern) && !methodPattern.equalsIgnoreCase(method)) {
+            return false;
+        }
+        List<String> pattern = segmentsOf(pathPattern);
+        for (int i = 0; i < pattern.size(); i++) {
+            String expected = pattern.get(i);
+            if ("**".equals(expected) && i == pattern.size() - 1) {
+                return true;
+            }
+            if (i >= segments.size() || !("*".equals(expected) || expected.equals(segments.get(i)))) {
+                return false;
+            }
+        }
+        return pattern.size() == segments.size();
+    }
+    
+    private static List<String> segmentsOf(String path) {
+        return Arrays.stream(path.split("/")).filter(segment -> !segment.isEmpty()).toList();
+    }
+}
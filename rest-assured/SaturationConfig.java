@@ -0,0 +1,87 @@
+package com.greenmarket.tests.load;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parámetros de la búsqueda de saturación
+ *
+ * @param endpoints Endpoints a medir: products (GET /products), orders (POST /orders), login (POST /users/login)
+ * @param startRate Primera tasa probada en peticiones por segundo
+ * @param maxRate Tasa máxima que se llega a probar
+ * @param probeDuration Duración de cada prueba a tasa fija
+ * @param warmup Calentamiento descartado antes de la primera prueba de cada endpoint
+ * @param precision Ancho relativo del intervalo en que se detiene la búsqueda binaria (0.05 = 5%)
+ * @param p99Slo Latencia p99 máxima admitida
+ * @param maxErrorRate Proporción máxima de errores y llegadas descartadas (0.01 = 1%)
+ * @param maxInFlight Peticiones abiertas como máximo; las llegadas sobre el tope cuentan como error
+ * @param baseUrl URL de la API, o null para usar el mock server embebido
+ * @param curveCsv Archivo CSV con cada prueba (curva latencia-throughput)
+ * @param capacityCsv Archivo CSV con la capacidad encontrada por endpoint
+ */
+public record SaturationConfig(List<String> endpoints,
+                               double startRate,
+                               double maxRate,
+                               Duration probeDuration,
+                               Duration warmup,
+                               double precision,
+                               Duration p99Slo,
+                               double maxErrorRate,
+                               int maxInFlight,
+                               String baseUrl,
+                               Path curveCsv,
+                               Path capacityCsv) {
+    
+    /** Endpoints soportados, en el orden en que se miden por defecto */
+    public static final List<String> ENDPOINTS = List.of("products", "orders", "login");
+    
+    /**
+     * Interpreta argumentos con formato --clave=valor
+     * Claves: endpoints (lista separada por comas), start-rate, max-rate, probe (segundos), warmup (segundos),
+     * precision, p99-ms, max-error-rate, max-in-flight, base-url, csv, capacity-csv
+     * @param args Argumentos de línea de comandos
+     * @return Configuración con valores por defecto para lo que no se indique
+     */
+    public static SaturationConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        List<String> endpoints = options.containsKey("endpoints")
+                ? Arrays.stream(options.get("endpoints").split(",")).map(String::trim).filter(e -> !e.isEmpty()).toList()
+                : ENDPOINTS;
+        for (String endpoint : endpoints) {
+            if (!ENDPOINTS.contains(endpoint)) {
+                throw new IllegalArgumentException("Endpoint desconocido: " + endpoint + " (opciones: " + ENDPOINTS + ")");
+            }
+        }
+        SaturationConfig config = new SaturationConfig(
+                endpoints,
+                Double.parseDouble(options.getOrDefault("start-rate", "25")),
+                Double.parseDouble(options.getOrDefault("max-rate", "5000")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("probe", "10"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5"))),
+                Double.parseDouble(options.getOrDefault("precision", "0.05")),
+                Duration.ofMillis(Long.parseLong(options.getOrDefault("p99-ms", "250"))),
+                Double.parseDouble(options.getOrDefault("max-error-rate", "0.01")),
+                Integer.parseInt(options.getOrDefault("max-in-flight", "1000")),
+                options.get("base-url"),
+                Paths.get(options.getOrDefault("csv", "target/saturation-curve.csv")),
+                Paths.get(options.getOrDefault("capacity-csv", "target/saturation-capacity.csv")));
+        if (endpoints.isEmpty() || config.startRate() <= 0 || config.maxRate() < config.startRate()
+                || config.probeDuration().isZero() || config.precision() <= 0 || config.maxInFlight() <= 0) {
+            throw new IllegalArgumentException("Se necesita al menos un endpoint, 0 < start-rate <= max-rate, "
+                    + "probe, precision y max-in-flight positivos");
+        }
+        return config;
+    }
+}
@@ -0,0 +1,396 @@
+package com.greenmarket.tests.load;
+
+import com.greenmarket.tests.base.TestContext;
+import com.greenmarket.tests.http.HttpTransport;
+import com.greenmarket.tests.http.TransportConfig;
+import com.greenmarket.tests.mock.MockServer;
+import io.restassured.response.Response;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Búsqueda automática del throughput máximo sostenible por endpoint
+ *
+ * Para cada endpoint corre pruebas de tasa fija (modelo abierto) con la misma petición que la suite:
+ * GET /products de CP-007, POST /orders de CP-010 y POST /users/login de CP-003. Duplica la tasa desde
+ * start-rate hasta que una prueba incumple los SLO (p99 y proporción de errores) y después busca en forma
+ * binaria entre la última tasa que cumplió y la primera que no, hasta que el intervalo sea menor que precision.
+ * La capacidad es la mayor tasa probada que cumplió
+ *
+ * La latencia se mide desde el instante programado de cada llegada, no desde el envío real: si el cliente
+ * se atrasa, la espera cuenta (sin omisión coordinada). Las llegadas sobre max-in-flight se descartan y
+ * cuentan como error, porque el sistema ya no sostiene esa tasa
+ *
+ * Uso: java com.greenmarket.tests.load.SaturationSearch --endpoints=products,orders,login --p99-ms=250
+ * Escribe la curva latencia-throughput (una fila por prueba) y la tabla de capacidad en CSV
+ */
+public class SaturationSearch {
+    
+    /**
+     * Resultado de una prueba a tasa fija
+     * @param endpoint Endpoint medido
+     * @param offeredRate Tasa de llegadas programada (req/s)
+     * @param throughput Respuestas exitosas por segundo
+     * @param count Peticiones completadas
+     * @param errors Peticiones con código inesperado o sin respuesta
+     * @param dropped Llegadas descartadas por superar max-in-flight
+     * @param p50Millis Latencia p50
+     * @param p99Millis Latencia p99
+     * @param maxMillis Latencia máxima
+     * @param passed Si cumplió los SLO
+     */
+    public record Probe(String endpoint, double offeredRate, double throughput, long count, long errors, long dropped,
+                        double p50Millis, double p99Millis, double maxMillis, boolean passed) {
+        
+        /**
+         * Proporción de llegadas que no obtuvieron la respuesta esperada (errores más descartadas)
+         */
+        public double errorRate() {
+            long arrivals = count + dropped;
+            return arrivals == 0 ? 0 : (double) (errors + dropped) / arrivals;
+        }
+    }
+    
+    /**
+     * Capacidad encontrada para un endpoint
+     * @param endpoint Endpoint medido
+     * @param maxRate Mayor tasa que cumplió los SLO, o 0 si ni start-rate los cumple
+     * @param atMax Prueba de esa tasa, o null
+     * @param firstFailing Menor tasa que no cumplió, o 0 si se llegó a max-rate sin incumplir
+     * @param probes Pruebas realizadas
+     */
+    public record Capacity(String endpoint, double maxRate, Probe atMax, double firstFailing, int probes) {
+    }
+    
+    /**
+     * Petición que se repite en una prueba
+     */
+    private record Target(String endpoint, int expectedStatus, Supplier<Response> request) {
+    }
+    
+    private final SaturationConfig config;
+    private final HttpTransport transport;
+    private final List<Probe> curve = new ArrayList<>();
+    
+    /**
+     * @param config Configuración de la búsqueda
+     * @param transport Transporte HTTP compartido por todas las pruebas
+     */
+    public SaturationSearch(SaturationConfig config, HttpTransport transport) {
+        this.config = config;
+        this.transport = transport;
+    }
+    
+    /**
+     * Busca la capacidad de cada endpoint configurado, uno a la vez
+     * @param baseUrl URL base de la API
+     * @param out Destino del progreso (una línea por prueba)
+     * @return Capacidad por endpoint
+     * @throws InterruptedException Si se interrumpe una prueba
+     */
+    public List<Capacity> run(String baseUrl, PrintStream out) throws InterruptedException {
+        TestContext context = new TestContext(baseUrl, transport);
+        List<Capacity> capacities = new ArrayList<>();
+        for (String name : config.endpoints()) {
+            Target target = target(name, context);
+            if (!config.warmup().isZero()) {
+                probe(target, config.startRate(), config.warmup().toNanos());
+            }
+            capacities.add(search(target, out));
+        }
+        return capacities;
+    }
+    
+    /**
+     * Todas las pruebas realizadas, en orden
+     */
+    public List<Probe> getCurve() {
+        return List.copyOf(curve);
+    }
+    
+    private Capacity search(Target target, PrintStream out) throws InterruptedException {
+        Probe best = null;
+        double failing = 0;
+        int probes = 0;
+        // Fase 1: duplicar hasta incumplir o llegar al máximo
+        double rate = config.startRate();
+        while (true) {
+            Probe probe = measure(target, rate, out);
+            probes++;
+            if (!probe.passed()) {
+                failing = rate;
+                break;
+            }
+            best = probe;
+            if (rate >= config.maxRate()) {
+                break;
+            }
+            rate = Math.min(config.maxRate(), rate * 2);
+        }
+        // Fase 2: búsqueda binaria entre la última tasa buena y la primera mala
+        if (best != null && failing > 0) {
+            double low = best.offeredRate();
+            double high = failing;
+            while ((high - low) / low > config.precision()) {
+                double middle = (low + high) / 2;
+                Probe probe = measure(target, middle, out);
+                probes++;
+                if (probe.passed()) {
+                    best = probe;
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            failing = high;
+        }
+        return new Capacity(target.endpoint(), best == null ? 0 : best.offeredRate(), best, failing, probes);
+    }
+    
+    private Probe measure(Target target, double rate, PrintStream out) throws InterruptedException {
+        Probe probe = probe(target, rate, config.probeDuration().toNanos());
+        curve.add(probe);
+        out.printf(Locale.ROOT, "  %-20s %8.1f req/s -> %8.1f ok/s | p99 %8.2f ms | errores %5.2f%% | %s%n",
+                target.endpoint(), rate, probe.throughput(), probe.p99Millis(), probe.errorRate() * 100,
+                probe.passed() ? "cumple" : "no cumple");
+        return probe;
+    }
+    
+    /**
+     * Corre una prueba de tasa fija
+     */
+    private Probe probe(Target target, double rate, long durationNanos) throws InterruptedException {
+        EndpointStats stats = new EndpointStats(target.endpoint());
+        LongAdder dropped = new LongAdder();
+        Semaphore inFlight = new Semaphore(config.maxInFlight());
+        long interval = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        long next = start;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (next < deadline) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long scheduled = next;
+                if (inFlight.tryAcquire()) {
+                    executor.submit(() -> {
+                        try {
+                            stats.record(System.nanoTime() - scheduled, send(target));
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } else {
+                    dropped.increment();
+                }
+                next += interval;
+            }
+        }
+        double seconds = Math.max(durationNanos, System.nanoTime() - start) / 1_000_000_000.0;
+        Histogram h = stats.snapshot();
+        long count = h.getTotalCount();
+        long errors = stats.getErrors();
+        long arrivals = count + dropped.sum();
+        double errorRate = arrivals == 0 ? 0 : (double) (errors + dropped.sum()) / arrivals;
+        double p99 = h.getValueAtPercentile(99) / 1000.0;
+        boolean passed = count > 0 && p99 <= config.p99Slo().toMillis() && errorRate <= config.maxErrorRate();
+        return new Probe(target.endpoint(), rate, (count - errors) / seconds, count, errors, dropped.sum(),
+                h.getValueAtPercentile(50) / 1000.0, p99, h.getMaxValue() / 1000.0, passed);
+    }
+    
+    private static boolean send(Target target) {
+        try {
+            return target.request().get().statusCode() == target.expectedStatus();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Petición de la suite para un endpoint; registra un usuario propio para login y órdenes
+     */
+    private static Target target(String name, TestContext context) {
+        return switch (name) {
+            // Listado de CP-007
+            case "products" -> new Target("GET /products", 200, () -> given()
+                    .spec(context.getBaseSpec())
+                    .queryParam("limit", 10)
+                    .queryParam("page", 1)
+                .when()
+                    .get("/products"));
+            case "orders" -> {
+                TestContext user = authenticated(context);
+                String productId = given().spec(user.getSpec()).queryParam("limit", 1).get("/products")
+                        .jsonPath().getString("[0].id");
+                // Mismo cuerpo que CP-010
+                String requestBody = String.format(
+                    "{\"items\":[{\"productId\":\"%s\",\"quantity\":2}]," +
+                    "\"shippingAddress\":\"Av. Principal 123, Santiago, Chile\"}",
+                    productId
+                );
+                yield new Target("POST /orders", 201, () -> given()
+                        .spec(user.getSpec())
+                        .body(requestBody)
+                    .when()
+                        .post("/orders"));
+            }
+            case "login" -> {
+                String[] credentials = register(context);
+                // Mismo cuerpo que CP-003
+                String requestBody = String.format("{\"email\":\"%s\",\"password\":\"%s\"}",
+                        credentials[0], credentials[1]);
+                yield new Target("POST /users/login", 200, () -> given()
+                        .spec(context.getBaseSpec())
+                        .body(requestBody)
+                    .when()
+                        .post("/users/login"));
+            }
+            default -> throw new IllegalArgumentException("Endpoint desconocido: " + name);
+        };
+    }
+    
+    /**
+     * Registra un usuario propio de la búsqueda (mismo cuerpo que CP-001)
+     * @return Email y contraseña
+     */
+    private static String[] register(TestContext context) {
+        String email = "saturation." + Long.toString(System.nanoTime(), 36) + "@greenmarket.test";
+        String password = "Password123!";
+        given()
+                .spec(context.getBaseSpec())
+                .body(String.format("{\"name\":\"Saturation\",\"email\":\"%s\",\"password\":\"%s\",\"phone\":\"+56900000000\"}",
+                        email, password))
+            .when()
+                .post("/users/register");
+        return new String[] {email, password};
+    }
+    
+    private static TestContext authenticated(TestContext anonymous) {
+        String[] credentials = register(anonymous);
+        Response login = given()
+                .spec(anonymous.getBaseSpec())
+                .body(String.format("{\"email\":\"%s\",\"password\":\"%s\"}", credentials[0], credentials[1]))
+            .when()
+                .post("/users/login");
+        String token = login.statusCode() == 200 ? login.jsonPath().getString("token") : null;
+        if (token == null) {
+            throw new IllegalStateException("No se pudo iniciar sesión para medir POST /orders (HTTP "
+                    + login.statusCode() + ")");
+        }
+        anonymous.setAuthToken(token);
+        return anonymous;
+    }
+    
+    /**
+     * Imprime la tabla de capacidad
+     * @param capacities Resultado de run
+     * @param out Destino
+     */
+    public void print(List<Capacity> capacities, PrintStream out) {
+        out.println();
+        out.printf(Locale.ROOT, "=== Capacidad (SLO: p99 <= %d ms, errores <= %.2f%%) ===%n",
+                config.p99Slo().toMillis(), config.maxErrorRate() * 100);
+        out.printf(Locale.ROOT, "%-20s %12s %12s %9s %9s %12s %7s%n",
+                "Endpoint", "Máx. req/s", "ok/s", "p50 ms", "p99 ms", "Falla en", "Pruebas");
+        for (Capacity capacity : capacities) {
+            Probe probe = capacity.atMax();
+            out.printf(Locale.ROOT, "%-20s %12.1f %12.1f %9.2f %9.2f %12s %7d%n",
+                    capacity.endpoint(), capacity.maxRate(), probe == null ? 0.0 : probe.throughput(),
+                    probe == null ? 0.0 : probe.p50Millis(), probe == null ? 0.0 : probe.p99Millis(),
+                    capacity.firstFailing() == 0 ? "> máx." : String.format(Locale.ROOT, "%.1f", capacity.firstFailing()),
+                    capacity.probes());
+        }
+    }
+    
+    /**
+     * Escribe la curva latencia-throughput, una fila por prueba
+     * @param file Archivo destino (se crean los directorios faltantes)
+     * @throws IOException Si no se puede escribir
+     */
+    public void writeCurveCsv(Path file) throws IOException {
+        try (Writer writer = open(file)) {
+            writer.write("endpoint,offered_rps,throughput_rps,count,errors,dropped,error_rate,p50_ms,p99_ms,max_ms,passed\n");
+            for (Probe probe : curve) {
+                writer.write(String.format(Locale.ROOT, "\"%s\",%.2f,%.2f,%d,%d,%d,%.5f,%.3f,%.3f,%.3f,%s%n",
+                        probe.endpoint(), probe.offeredRate(), probe.throughput(), probe.count(), probe.errors(),
+                        probe.dropped(),
+                        probe.errorRate(), probe.p50Millis(), probe.p99Millis(), probe.maxMillis(), probe.passed()));
+            }
+        }
+    }
+    
+    /**
+     * Escribe la tabla de capacidad
+     * @param file Archivo destino (se crean los directorios faltantes)
+     * @param capacities Resultado de run
+     * @throws IOException Si no se puede escribir
+     */
+    public void writeCapacityCsv(Path file, List<Capacity> capacities) throws IOException {
+        try (Writer writer = open(file)) {
+            writer.write("endpoint,max_rps,throughput_rps,p50_ms,p99_ms,first_failing_rps,probes,p99_slo_ms,max_error_rate\n");
+            for (Capacity capacity : capacities) {
+                Probe probe = capacity.atMax();
+                writer.write(String.format(Locale.ROOT, "\"%s\",%.2f,%.2f,%.3f,%.3f,%.2f,%d,%d,%.4f%n",
+                        capacity.endpoint(), capacity.maxRate(), probe == null ? 0.0 : probe.throughput(),
+                        probe == null ? 0.0 : probe.p50Millis(), probe == null ? 0.0 : probe.p99Millis(),
+                        capacity.firstFailing(), capacity.probes(), config.p99Slo().toMillis(), config.maxErrorRate()));
+            }
+        }
+    }
+    
+    private static Writer open(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        SaturationConfig config = SaturationConfig.parse(args);
+        MockServer mockServer = null;
+        String baseUrl = config.baseUrl();
+        if (baseUrl == null) {
+            mockServer = MockServer.start(Paths.get(System.getProperty("greenmarket.mock.db", MockServer.DEFAULT_DB_FILE)));
+            baseUrl = mockServer.getBaseUrl();
+        }
+        System.out.printf(Locale.ROOT, "Búsqueda de saturación de %s contra %s (pruebas de %d s, p99 <= %d ms)%n",
+                config.endpoints(), baseUrl, config.probeDuration().toSeconds(), config.p99Slo().toMillis());
+        try (HttpTransport transport = HttpTransport.create(TransportConfig.fromSystemProperties())) {
+            SaturationSearch search = new SaturationSearch(config, transport);
+            List<Capacity> capacities = search.run(baseUrl, System.out);
+            search.print(capacities, System.out);
+            System.out.println("Conexiones (" + transport.getConfig().type().name().toLowerCase() + "): "
+                    + transport.summary());
+            search.writeCurveCsv(config.curveCsv());
+            search.writeCapacityCsv(config.capacityCsv(), capacities);
+            System.out.println("CSV: " + config.curveCsv().toAbsolutePath() + ", " + config.capacityCsv().toAbsolutePath());
+        } finally {
+            if (mockServer != null) {
+                mockServer.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.greenmarket.tests.validation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.main.JsonSchema;
+import com.github.fge.jsonschema.main.JsonSchemaFactory;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeMatcher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Esquemas JSON de los recursos de la API (users, products, orders, reviews), compilados una sola vez por JVM
+ *
+ * Los esquemas viven en schemas/<recurso>.json y describen los registros de mock-server/db.json.
+ * Por cada recurso se compila el esquema del registro y el de un arreglo de registros (listados),
+ * así validar una respuesta no vuelve a leer ni a procesar el esquema
+ */
+public class SchemaRegistry {
+    
+    /** Carpeta de esquemas relativa a rest-assured/, configurable con -Dgreenmarket.schema.dir */
+    public static final String DEFAULT_SCHEMA_DIR = "schemas";
+    
+    public static final Set<String> RESOURCES = Set.of("users", "products", "orders", "reviews");
+    
+    private static volatile SchemaRegistry shared;
+    
+    /**
+     * Esquemas compilados de un recurso
+     */
+    private record Compiled(JsonSchema item, JsonSchema list) {
+    }
+    
+    /**
+     * Resultado de validar una respuesta
+     * @param valid true si cumple el esquema
+     * @param messages Mensajes del validador (vacío si es válida)
+     */
+    public record Outcome(boolean valid, List<String> messages) {
+    }
+    
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Compiled> schemas = new ConcurrentHashMap<>();
+    
+    /**
+     * Carga y compila todos los esquemas de una carpeta
+     * @param directory Carpeta con <recurso>.json
+     */
+    public SchemaRegistry(Path directory) {
+        JsonSchemaFactory factory = JsonSchemaFactory.byDefault();
+        for (String resource : RESOURCES) {
+            Path file = directory.resolve(resource + ".json");
+            try {
+                JsonNode item = mapper.readTree(Files.readAllBytes(file));
+                ObjectNode list = mapper.createObjectNode();
+                list.put("$schema", item.path("$schema").asText());
+                list.put("type", "array");
+                list.set("items", item);
+                schemas.put(resource, new Compiled(factory.getJsonSchema(item), factory.getJsonSchema(list)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el esquema " + file, e);
+            } catch (ProcessingException e) {
+                throw new IllegalStateException("Esquema inválido " + file + ": " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * Registro compartido por la JVM, cargado la primera vez que se usa
+     * @return Registro con los esquemas de -Dgreenmarket.schema.dir
+     */
+    public static SchemaRegistry shared() {
+        SchemaRegistry registry = shared;
+        if (registry == null) {
+            synchronized (SchemaRegistry.class) {
+                registry = shared;
+                if (registry == null) {
+                    registry = new SchemaRegistry(Paths.get(System.getProperty("greenmarket.schema.dir", DEFAULT_SCHEMA_DIR)));
+                    shared = registry;
+                }
+            }
+        }
+        return registry;
+    }
+    
+    public boolean hasSchema(String resource) {
+        return schemas.containsKey(resource);
+    }
+    
+    /**
+     * Valida un registro o un listado de un recurso
+     * @param resource Recurso (users, products, orders, reviews)
+     * @param body Cuerpo ya parseado; si es arreglo se valida con el esquema de listado
+     * @return Resultado con los mensajes de error
+     */
+    public Outcome validate(String resource, JsonNode body) {
+        Compiled compiled = schemas.get(resource);
+        if (compiled == null) {
+            throw new IllegalArgumentException("Sin esquema para " + resource);
+        }
+        ProcessingReport report = (body.isArray() ? compiled.list() : compiled.item()).validateUnchecked(body);
+        if (report.isSuccess()) {
+            return new Outcome(true, List.of());
+        }
+        List<String> messages = new ArrayList<>();
+        for (ProcessingMessage message : report) {
+            JsonNode json = message.asJson();
+            messages.add(json.path("instance").path("pointer").asText() + ": " + message.getMessage());
+        }
+        return new Outcome(false, messages);
+    }
+    
+    /**
+     * Valida un cuerpo JSON en texto
+     * @param resource Recurso
+     * @param body Cuerpo de la respuesta
+     * @return Resultado con los mensajes de error
+     */
+    public Outcome validate(String resource, String body) {
+        try {
+            return validate(resource, mapper.readTree(body));
+        } catch (IOException e) {
+            return new Outcome(false, List.of("JSON mal formado: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Matcher de Hamcrest para then().body(...) que usa el esquema ya compilado
+     * @param resource Recurso
+     * @return Matcher sobre el cuerpo como texto
+     */
+    public Matcher<String> matcher(String resource) {
+        return new TypeSafeMatcher<>() {
+            
+            @Override
+            protected boolean matchesSafely(String body) {
+                return validate(resource, body).valid();
+            }
+            
+            @Override
+            public void describeTo(Description description) {
+                description.appendText("cuerpo que cumple el esquema de " + resource);
+            }
+            
+            @Override
+            protected void describeMismatchSafely(String body, Description description) {
+                description.appendValueList("", "; ", "", validate(resource, body).messages());
+            }
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package com.greenmarket.tests.validation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filtro de REST Assured que valida cada respuesta 2xx de /users, /products, /orders y /reviews
+ * (y de /<recurso>/{id}) contra su esquema precompilado; DELETE no se valida porque, como json-server,
+ * responde {} en lugar del registro
+ *
+ * El costo se registra en ValidationStats. En modo estricto una violación lanza SchemaViolationException,
+ * lo que marca el paso como error en una corrida de carga. En una prueba la excepción sale del filtro antes
+ * de sus aserciones y reemplazaría, por ejemplo, el "esperaba 400 y fue 201" de una prueba negativa; por eso
+ * las suites usan el modo report y validan el contrato como aserción explícita con SchemaRegistry.matcher
+ */
+public class SchemaValidationFilter implements Filter {
+    
+    /** Rutas de autenticación bajo /users que no devuelven un usuario */
+    private static final Set<String> NON_RECORD_ROUTES = Set.of("login", "register", "profile");
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private final SchemaRegistry registry;
+    private final ValidationStats stats;
+    private final boolean strict;
+    
+    /**
+     * @param registry Esquemas compilados
+     * @param stats Métricas donde se acumula el costo de validación
+     * @param strict Si una violación debe lanzar excepción
+     */
+    public SchemaValidationFilter(SchemaRegistry registry, ValidationStats stats, boolean strict) {
+        this.registry = registry;
+        this.stats = stats;
+        this.strict = strict;
+    }
+    
+    /**
+     * Violación de contrato de una respuesta
+     */
+    public static class SchemaViolationException extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        public SchemaViolationException(String message) {
+            super(message);
+        }
+    }
+    
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec,
+                           FilterableResponseSpecification responseSpec,
+                           FilterContext ctx) {
+        Response response = ctx.next(requestSpec, responseSpec);
+        String resource = resourceOf(requestSpec.getDerivedPath());
+        String contentType = response.getContentType();
+        if (resource == null || "DELETE".equals(requestSpec.getMethod()) || response.statusCode() / 100 != 2
+                || contentType == null || !contentType.contains("json")) {
+            return response;
+        }
+        
+        long start = System.nanoTime();
+        SchemaRegistry.Outcome outcome;
+        try {
+            JsonNode body = MAPPER.readTree(response.asByteArray());
+            outcome = registry.validate(resource, body);
+        } catch (IOException e) {
+            outcome = new SchemaRegistry.Outcome(false, List.of("JSON mal formado: " + e.getMessage()));
+        }
+        stats.record(System.nanoTime() - start, outcome.valid());
+        
+        if (strict && !outcome.valid()) {
+            throw new SchemaViolationException(requestSpec.getMethod() + " " + requestSpec.getDerivedPath()
+                    + " no cumple el esquema de " + resource + ": " + outcome.messages());
+        }
+        return response;
+    }
+    
+    /**
+     * Recurso de una ruta /<recurso> o /<recurso>/{id}
+     * @param path Ruta sin base ni query
+     * @return Recurso con esquema, o null si la ruta no corresponde a registros
+     */
+    static String resourceOf(String path) {
+        if (path == null) {
+            return null;
+        }
+        String[] segments = path.replaceAll("^/+|/+$", "").split("/");
+        if (segments.length == 0 || segments.length > 2 || !SchemaRegistry.RESOURCES.contains(segments[0])) {
+            return null;
+        }
+        if (segments.length == 2 && NON_RECORD_ROUTES.contains(segments[1])) {
+            return null;
+        }
+        return segments[0];
+    }
+}
@@ -0,0 +1,134 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índice de igualdad sobre un campo de primer nivel (category, productId, userId)
+ * Por cada valor guarda los slots de los registros que lo tienen, ordenados como la colección,
+ * así una página filtrada se lee directo de la lista sin recorrer el resto
+ * No es thread-safe: MockCollection lo protege con su lock
+ */
+final class SecondaryIndex {
+    
+    private final String field;
+    private final Map<String, Postings> postings = new HashMap<>();
+    
+    SecondaryIndex(String field) {
+        this.field = field;
+    }
+    
+    String getField() {
+        return field;
+    }
+    
+    /**
+     * Clave de índice de un registro, con el mismo criterio que MockQuery (asText del valor)
+     * @return Clave, o null si el campo falta o es null
+     */
+    String keyOf(ObjectNode record) {
+        JsonNode value = record.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+    
+    void add(ObjectNode record, int slot) {
+        String key = keyOf(record);
+        if (key != null) {
+            postings.computeIfAbsent(key, k -> new Postings()).add(slot);
+        }
+    }
+    
+    void remove(ObjectNode record, int slot) {
+        String key = keyOf(record);
+        Postings list = key == null ? null : postings.get(key);
+        if (list != null) {
+            list.remove(slot);
+            if (list.size() == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+    
+    /**
+     * Actualiza el índice si el campo cambió entre dos versiones del registro (PUT/PATCH)
+     */
+    void update(ObjectNode previous, ObjectNode current, int slot) {
+        String before = keyOf(previous);
+        String after = keyOf(current);
+        if (before == null ? after != null : !before.equals(after)) {
+            remove(previous, slot);
+            add(current, slot);
+        }
+    }
+    
+    /**
+     * Slots con el valor indicado
+     * @return Lista ordenada, vacía si ningún registro tiene ese valor
+     */
+    Postings get(String value) {
+        Postings list = postings.get(value);
+        return list != null ? list : Postings.EMPTY;
+    }
+    
+    /**
+     * Traduce los slots tras compactar la colección; el remapeo es creciente y no altera el orden
+     */
+    void remap(int[] remap) {
+        for (Postings list : postings.values()) {
+            list.remap(remap);
+        }
+    }
+    
+    /**
+     * Lista creciente de slots
+     */
+    static final class Postings {
+        
+        static final Postings EMPTY = new Postings();
+        
+        private int[] slots = new int[4];
+        private int size;
+        
+        int size() {
+            return size;
+        }
+        
+        int get(int index) {
+            return slots[index];
+        }
+        
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            // Lo habitual es insertar al final (slots nuevos); si no, se mantiene el orden
+            int position = size == 0 || slots[size - 1] < slot ? size : insertionPoint(slot);
+            System.arraycopy(slots, position, slots, position + 1, size - position);
+            slots[position] = slot;
+            size++;
+        }
+        
+        void remove(int slot) {
+            int position = Arrays.binarySearch(slots, 0, size, slot);
+            if (position >= 0) {
+                System.arraycopy(slots, position + 1, slots, position, size - position - 1);
+                size--;
+            }
+        }
+        
+        void remap(int[] remap) {
+            for (int i = 0; i < size; i++) {
+                slots[i] = remap[slots[i]];
+            }
+        }
+        
+        private int insertionPoint(int slot) {
+            int position = Arrays.binarySearch(slots, 0, size, slot);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Arrays;
+
+/**
+ * Registros de una colección en orden de inserción, con acceso por posición lógica en O(log n)
+ *
+ * Cada registro ocupa un slot; al eliminarlo el slot queda vacío (tombstone) y un árbol de Fenwick
+ * sobre los slots vivos permite saltar directo al elemento número k sin recorrer los anteriores.
+ * Cuando los slots vacíos superan a los vivos la lista se compacta
+ * No es thread-safe: MockCollection la protege con su lock
+ */
+final class SlotList {
+    
+    private static final int MIN_COMPACTION = 1024;
+    
+    private ObjectNode[] slots = new ObjectNode[16];
+    private int[] tree = new int[17];
+    private int size;
+    private int live;
+    
+    /**
+     * Agrega un registro al final
+     * @return Slot asignado
+     */
+    int append(ObjectNode record) {
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+            rebuildTree();
+        }
+        slots[size] = record;
+        add(size, 1);
+        live++;
+        return size++;
+    }
+    
+    ObjectNode get(int slot) {
+        return slots[slot];
+    }
+    
+    void set(int slot, ObjectNode record) {
+        slots[slot] = record;
+    }
+    
+    /**
+     * Vacía un slot (DELETE)
+     */
+    void clear(int slot) {
+        if (slots[slot] != null) {
+            slots[slot] = null;
+            add(slot, -1);
+            live--;
+        }
+    }
+    
+    int live() {
+        return live;
+    }
+    
+    /**
+     * Slots usados, vivos o vacíos; los slots válidos van de 0 a size() - 1
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Slot del registro vivo número rank (base 0) en orden de inserción
+     * @return Slot, o size() si rank >= live()
+     */
+    int slotOfRank(int rank) {
+        if (rank >= live) {
+            return size;
+        }
+        // Búsqueda binaria sobre el árbol de Fenwick: mayor prefijo con suma <= rank
+        int position = 0;
+        int remaining = rank;
+        for (int step = Integer.highestOneBit(slots.length); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= slots.length && tree[next] <= remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position;
+    }
+    
+    boolean needsCompaction() {
+        return size - live > Math.max(MIN_COMPACTION, live);
+    }
+    
+    /**
+     * Elimina los slots vacíos conservando el orden
+     * @return Mapa slot viejo → slot nuevo (-1 para los eliminados), creciente para los vivos
+     */
+    int[] compact() {
+        int[] remap = new int[size];
+        int target = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (slots[slot] != null) {
+                slots[target] = slots[slot];
+                remap[slot] = target++;
+            } else {
+                remap[slot] = -1;
+            }
+        }
+        Arrays.fill(slots, target, size, null);
+        size = target;
+        rebuildTree();
+        return remap;
+    }
+    
+    private void add(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+    
+    private void rebuildTree() {
+        tree = new int[slots.length + 1];
+        // Construcción en O(n): cada nodo suma su valor y lo propaga a su padre
+        for (int i = 1; i <= slots.length; i++) {
+            if (i - 1 < size && slots[i - 1] != null) {
+                tree[i] += 1;
+            }
+            int parent = i + (i & -i);
+            if (parent <= slots.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
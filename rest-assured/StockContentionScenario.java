@@ -0,0 +1,237 @@
+package com.greenmarket.tests.load;
+
+import com.greenmarket.tests.base.TestContext;
+import com.greenmarket.tests.http.HttpTransport;
+import com.greenmarket.tests.http.TransportConfig;
+import com.greenmarket.tests.mock.MockServer;
+import io.restassured.response.Response;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Escenario de contención: miles de POST /orders simultáneos sobre un producto con poco stock
+ *
+ * Todas las órdenes esperan detrás de una barrera y salen a la vez (con un tope de peticiones abiertas),
+ * de modo que compiten por las mismas unidades. Mide throughput y latencia de POST /orders bajo contención
+ * y al final verifica que no hubo sobreventa: las unidades aceptadas (201) no superan el stock inicial,
+ * el stock final no es negativo y coincide con el inicial menos lo aceptado. Un 409 por falta de stock
+ * es una respuesta correcta; cualquier otro código cuenta como error
+ *
+ * Contra el mock server embebido activa la reserva de stock (-Dgreenmarket.mock.stock=reserve, ver StockLedger)
+ *
+ * Uso: java com.greenmarket.tests.load.StockContentionScenario --product=1 --stock=50 --orders=5000
+ * Termina con código 1 si detecta sobreventa
+ */
+public class StockContentionScenario {
+    
+    private static final String ENDPOINT = "POST /orders";
+    
+    private final ContentionConfig config;
+    private final HttpTransport transport;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private long initialStock;
+    private long finalStock;
+    
+    /**
+     * @param config Configuración del escenario
+     * @param transport Transporte HTTP compartido por todas las órdenes
+     */
+    public StockContentionScenario(ContentionConfig config, HttpTransport transport) {
+        this.config = config;
+        this.transport = transport;
+    }
+    
+    /**
+     * Ejecuta el escenario contra la URL indicada
+     * @param baseUrl URL base de la API
+     * @return Reporte con la latencia de POST /orders (una iteración por orden)
+     * @throws InterruptedException Si se interrumpe la espera de las órdenes
+     */
+    public LoadReport run(String baseUrl) throws InterruptedException {
+        TestContext context = new TestContext(baseUrl, transport);
+        authenticate(context);
+        initialStock = prepareStock(context);
+        
+        // Mismo cuerpo que CP-010, con la cantidad del escenario
+        String requestBody = String.format(
+            "{\"items\":[{\"productId\":\"%s\",\"quantity\":%d}]," +
+            "\"shippingAddress\":\"Av. Principal 123, Santiago, Chile\"}",
+            config.productId(), config.quantity()
+        );
+        LoadReport report = new LoadReport();
+        CountDownLatch gate = new CountDownLatch(1);
+        Semaphore inFlight = new Semaphore(config.maxInFlight());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.orders(); i++) {
+                executor.submit(() -> {
+                    gate.await();
+                    inFlight.acquire();
+                    try {
+                        report.iterationCompleted(placeOrder(context, requestBody, report));
+                    } finally {
+                        inFlight.release();
+                    }
+                    return null;
+                });
+            }
+            report.markStart();
+            gate.countDown();
+        }
+        report.markEnd();
+        finalStock = readStock(context);
+        return report;
+    }
+    
+    /**
+     * Indica si se aceptaron más unidades de las que había o el stock quedó inconsistente
+     */
+    public boolean isOversold() {
+        long acceptedUnits = accepted.sum() * config.quantity();
+        return acceptedUnits > initialStock || finalStock < 0 || finalStock != initialStock - acceptedUnits;
+    }
+    
+    /**
+     * Resumen de una línea con el resultado de la contención
+     */
+    public String summary() {
+        return String.format(Locale.ROOT,
+                "Stock inicial: %d | Aceptadas: %d (%d unidades) | Sin stock (409): %d | Errores: %d | "
+                        + "Stock final: %d | Sobreventa: %s",
+                initialStock, accepted.sum(), accepted.sum() * config.quantity(), rejected.sum(), failed.sum(),
+                finalStock, isOversold() ? "SÍ" : "no");
+    }
+    
+    private boolean placeOrder(TestContext context, String requestBody, LoadReport report) {
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = given()
+                    .spec(context.getSpec())
+                    .body(requestBody)
+                .when()
+                    .post("/orders");
+        } catch (RuntimeException e) {
+            report.endpoint(ENDPOINT).record(System.nanoTime() - start, false);
+            failed.increment();
+            return false;
+        }
+        long latency = System.nanoTime() - start;
+        switch (response.statusCode()) {
+            case 201 -> accepted.increment();
+            case 409 -> rejected.increment();
+            default -> {
+                report.endpoint(ENDPOINT).record(latency, false);
+                failed.increment();
+                return false;
+            }
+        }
+        report.endpoint(ENDPOINT).record(latency, true);
+        return true;
+    }
+    
+    /**
+     * Registra un usuario propio del escenario e inicia sesión (mismos cuerpos que CP-001 y CP-003)
+     */
+    private static void authenticate(TestContext context) {
+        String email = "contention." + Long.toString(System.nanoTime(), 36) + "@greenmarket.test";
+        String password = "Password123!";
+        given()
+                .spec(context.getBaseSpec())
+                .body(String.format("{\"name\":\"Contention\",\"email\":\"%s\",\"password\":\"%s\",\"phone\":\"+56900000000\"}",
+                        email, password))
+            .when()
+                .post("/users/register");
+        Response login = given()
+                .spec(context.getBaseSpec())
+                .body(String.format("{\"email\":\"%s\",\"password\":\"%s\"}", email, password))
+            .when()
+                .post("/users/login");
+        String token = login.statusCode() == 200 ? login.jsonPath().getString("token") : null;
+        if (token == null) {
+            throw new IllegalStateException("No se pudo iniciar sesión para el escenario (HTTP " + login.statusCode() + ")");
+        }
+        context.setAuthToken(token);
+    }
+    
+    /**
+     * Fija el stock inicial si se indicó uno y devuelve el stock con el que arranca el escenario
+     */
+    private long prepareStock(TestContext context) {
+        if (config.stock() >= 0) {
+            int status = given()
+                    .spec(context.getSpec())
+                    .body("{\"stock\":" + config.stock() + "}")
+                .when()
+                    .patch("/products/" + config.productId())
+                    .statusCode();
+            if (status != 200) {
+                throw new IllegalStateException("No se pudo fijar el stock del producto " + config.productId()
+                        + " (HTTP " + status + ")");
+            }
+        }
+        return readStock(context);
+    }
+    
+    private long readStock(TestContext context) {
+        Response response = given()
+                .spec(context.getSpec())
+            .when()
+                .get("/products/" + config.productId());
+        Long stock = response.statusCode() == 200 ? response.jsonPath().getObject("stock", Long.class) : null;
+        if (stock == null) {
+            throw new IllegalStateException("El producto " + config.productId() + " no existe o no tiene stock (HTTP "
+                    + response.statusCode() + ")");
+        }
+        return stock;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        ContentionConfig config = ContentionConfig.parse(args);
+        MockServer mockServer = null;
+        String baseUrl = config.baseUrl();
+        if (baseUrl == null) {
+            // El escenario no tiene sentido si el mock crea órdenes sin mirar el stock
+            if (System.getProperty("greenmarket.mock.stock") == null) {
+                System.setProperty("greenmarket.mock.stock", "reserve");
+            }
+            mockServer = MockServer.start(Paths.get(System.getProperty("greenmarket.mock.db", MockServer.DEFAULT_DB_FILE)));
+            baseUrl = mockServer.getBaseUrl();
+        }
+        System.out.printf("Contención: %d órdenes simultáneas de %d unidad(es) del producto %s contra %s%n",
+                config.orders(), config.quantity(), config.productId(), baseUrl);
+        boolean oversold;
+        try (HttpTransport transport = HttpTransport.create(TransportConfig.fromSystemProperties())) {
+            StockContentionScenario scenario = new StockContentionScenario(config, transport);
+            LoadReport report = scenario.run(baseUrl);
+            report.print(System.out);
+            System.out.println("Contención: " + scenario.summary());
+            System.out.println("Conexiones (" + transport.getConfig().type().name().toLowerCase() + "): "
+                    + transport.summary());
+            oversold = scenario.isOversold();
+            try {
+                report.writeCsv(config.csvFile());
+                System.out.println("CSV: " + config.csvFile().toAbsolutePath());
+            } catch (IOException e) {
+                System.err.println("No se pudo escribir el CSV: " + e.getMessage());
+            }
+        } finally {
+            if (mockServer != null) {
+                mockServer.stop();
+            }
+        }
+        if (oversold) {
+            System.exit(1);
+        }
+    }
+}
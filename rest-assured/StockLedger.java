@@ -0,0 +1,241 @@
+package com.greenmarket.tests.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reserva de stock de productos al crear órdenes, como la API real
+ *
+ * Cada orden descuenta la cantidad pedida del campo stock de cada producto o se rechaza completa si alguno
+ * no alcanza; nunca queda stock negativo ni se acepta más de lo que había. La verificación y el descuento
+ * ocurren bajo un lock por franja de productos (lock striping): órdenes del mismo producto se serializan
+ * y las de productos distintos avanzan en paralelo. Una orden con varios productos toma sus franjas
+ * en orden ascendente, así dos órdenes cruzadas no se bloquean mutuamente. Los PUT y PATCH de productos
+ * pasan por update y toman la misma franja, así un stock escrito a mano no se pierde bajo una reserva en curso
+ *
+ * Los productos inexistentes o sin stock numérico no se controlan (como json-server, la orden se acepta)
+ * Se activa con -Dgreenmarket.mock.stock=reserve; sin eso el mock sigue el comportamiento de json-server
+ */
+public class StockLedger {
+    
+    /** Franjas por defecto; más franjas que núcleos basta para que dos productos rara vez compartan lock */
+    public static final int DEFAULT_STRIPES = 64;
+    
+    private final MockCollection products;
+    private final ReentrantLock[] stripes;
+    private final LongAdder reservedUnits = new LongAdder();
+    private final LongAdder rejectedOrders = new LongAdder();
+    
+    /**
+     * Línea de una orden
+     * @param productId Producto pedido
+     * @param quantity Cantidad, mayor que 0
+     */
+    public record Line(String productId, int quantity) {
+    }
+    
+    /**
+     * Resultado de una reserva
+     * @param accepted Si se descontó el stock de todas las líneas
+     * @param productId Primer producto sin stock suficiente, o null si se aceptó
+     * @param available Stock de ese producto al momento del rechazo
+     */
+    public record Outcome(boolean accepted, String productId, long available) {
+        
+        static final Outcome ACCEPTED = new Outcome(true, null, 0);
+    }
+    
+    /**
+     * @param products Colección products del store
+     * @param stripes Cantidad de locks entre los que se reparten los productos
+     */
+    public StockLedger(MockCollection products, int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes debe ser positivo");
+        }
+        this.products = products;
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+    
+    /**
+     * Crea el control de stock según -Dgreenmarket.mock.stock (reserve u off, por defecto off)
+     * y -Dgreenmarket.mock.stockStripes
+     * @param store Store del mock server
+     * @return Control de stock, o null si está desactivado o el store no tiene colección products
+     */
+    public static StockLedger fromSystemProperties(MockStore store) {
+        String mode = System.getProperty("greenmarket.mock.stock", "off");
+        MockCollection products = store.collection("products");
+        if (!"reserve".equalsIgnoreCase(mode) || products == null) {
+            return null;
+        }
+        return new StockLedger(products, Integer.getInteger("greenmarket.mock.stockStripes", DEFAULT_STRIPES));
+    }
+    
+    /**
+     * Líneas del arreglo items de una orden
+     * @param items Campo items del cuerpo (puede faltar)
+     * @return Líneas, o null si alguna no tiene productId o una cantidad entera positiva
+     */
+    public static List<Line> linesOf(JsonNode items) {
+        List<Line> lines = new ArrayList<>();
+        if (items == null || items.isMissingNode() || items.isNull()) {
+            return lines;
+        }
+        if (!items.isArray()) {
+            return null;
+        }
+        for (JsonNode item : items) {
+            JsonNode productId = item.get("productId");
+            JsonNode quantity = item.get("quantity");
+            if (productId == null || !productId.isValueNode() || productId.asText().isEmpty()
+                    || quantity == null || !quantity.canConvertToInt() || !quantity.isIntegralNumber()
+                    || quantity.intValue() <= 0) {
+                return null;
+            }
+            lines.add(new Line(productId.asText(), quantity.intValue()));
+        }
+        return lines;
+    }
+    
+    /**
+     * Descuenta el stock de todas las líneas, o de ninguna si alguna no alcanza
+     * @param lines Líneas de la orden (un producto repetido suma sus cantidades)
+     * @return Resultado; si se rechazó, el producto que no alcanzó y su stock
+     */
+    public Outcome reserve(List<Line> lines) {
+        Map<String, Long> quantities = totals(lines);
+        TreeSet<Integer> held = lock(quantities.keySet());
+        try {
+            Map<String, Long> stock = new TreeMap<>();
+            for (Map.Entry<String, Long> line : quantities.entrySet()) {
+                Long available = stockOf(line.getKey());
+                if (available == null) {
+                    continue;
+                }
+                if (available < line.getValue()) {
+                    rejectedOrders.increment();
+                    return new Outcome(false, line.getKey(), available);
+                }
+                stock.put(line.getKey(), available - line.getValue());
+            }
+            stock.forEach(this::write);
+            quantities.forEach((productId, quantity) -> {
+                if (stock.containsKey(productId)) {
+                    reservedUnits.add(quantity);
+                }
+            });
+            return Outcome.ACCEPTED;
+        } finally {
+            unlock(held);
+        }
+    }
+    
+    /**
+     * Reemplaza o modifica un producto bajo la franja de su stock
+     * Sin el lock, una reserva que ya leyó el stock anterior escribiría encima del valor nuevo
+     * @param productId Producto
+     * @param body Cuerpo del PUT o PATCH
+     * @param replace true para reemplazar el registro (PUT), false para combinar los campos (PATCH)
+     * @return Producto actualizado, o vacío si no existe
+     */
+    public Optional<ObjectNode> update(String productId, ObjectNode body, boolean replace) {
+        TreeSet<Integer> held = lock(List.of(productId));
+        try {
+            return replace ? products.replace(productId, body) : products.patch(productId, body);
+        } finally {
+            unlock(held);
+        }
+    }
+    
+    /**
+     * Devuelve el stock de una reserva que no llegó a convertirse en orden
+     * @param lines Líneas reservadas con reserve
+     */
+    public void release(List<Line> lines) {
+        Map<String, Long> quantities = totals(lines);
+        TreeSet<Integer> held = lock(quantities.keySet());
+        try {
+            for (Map.Entry<String, Long> line : quantities.entrySet()) {
+                Long available = stockOf(line.getKey());
+                if (available != null) {
+                    write(line.getKey(), available + line.getValue());
+                    reservedUnits.add(-line.getValue());
+                }
+            }
+        } finally {
+            unlock(held);
+        }
+    }
+    
+    /**
+     * Unidades descontadas desde el arranque
+     */
+    public long getReservedUnits() {
+        return reservedUnits.sum();
+    }
+    
+    /**
+     * Órdenes rechazadas por falta de stock
+     */
+    public long getRejectedOrders() {
+        return rejectedOrders.sum();
+    }
+    
+    private static Map<String, Long> totals(List<Line> lines) {
+        Map<String, Long> quantities = new TreeMap<>();
+        for (Line line : lines) {
+            quantities.merge(line.productId(), (long) line.quantity(), Long::sum);
+        }
+        return quantities;
+    }
+    
+    /**
+     * Toma las franjas de los productos en orden ascendente
+     */
+    private TreeSet<Integer> lock(Collection<String> productIds) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String productId : productIds) {
+            indexes.add(Math.floorMod(productId.hashCode(), stripes.length));
+        }
+        for (int index : indexes) {
+            stripes[index].lock();
+        }
+        return indexes;
+    }
+    
+    private void unlock(TreeSet<Integer> indexes) {
+        for (int index : indexes.descendingSet()) {
+            stripes[index].unlock();
+        }
+    }
+    
+    /**
+     * Stock actual de un producto, o null si no se controla
+     */
+    private Long stockOf(String productId) {
+        Optional<ObjectNode> product = products.find(productId);
+        JsonNode stock = product.map(record -> record.get("stock")).orElse(null);
+        return stock != null && stock.isIntegralNumber() ? stock.longValue() : null;
+    }
+    
+    private void write(String productId, long stock) {
+        ObjectNode change = JsonNodeFactory.instance.objectNode();
+        change.put("stock", stock);
+        products.patch(productId, change);
+    }
+}
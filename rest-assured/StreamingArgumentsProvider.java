@@ -0,0 +1,136 @@
+package com.greenmarket.tests.data;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.ArgumentsProvider;
+import org.junit.jupiter.params.support.AnnotationConsumer;
+import org.junit.platform.commons.PreconditionViolationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Provee los argumentos de @StreamingSource como un Stream perezoso de filas
+ *
+ * El archivo se abre recién cuando JUnit pide la primera invocación y se cierra al agotar el Stream;
+ * el límite y el reparto se aplican sobre la marcha sin contar antes las filas. Con
+ * -Dgreenmarket.data.shard=k/n (k desde 1) cada worker ejecuta sólo las filas cuyo índice i cumple
+ * i % n == k - 1, de modo que n invocaciones de la suite completa (jobs de CI o JVMs separadas, cada una con
+ * su k) cubren el archivo sin repetir casos ni chocar entre sí (por ejemplo con emails duplicados).
+ * No sirve para repartir entre forks de Surefire: cada clase corre en un solo fork, que ejecutaría solo
+ * su parte de las filas y las demás no correrían en ninguno
+ *
+ * Los valores escalares se pasan como String y JUnit los convierte al tipo del parámetro (int, long, boolean...);
+ * objetos y arreglos JSON se pasan como JsonNode
+ */
+public class StreamingArgumentsProvider implements ArgumentsProvider, AnnotationConsumer<StreamingSource> {
+    
+    private StreamingSource source;
+    
+    /**
+     * Reparto de filas entre workers
+     * @param index Worker actual, desde 0
+     * @param count Cantidad de workers
+     */
+    record Shard(int index, int count) {
+        
+        static final Shard ALL = new Shard(0, 1);
+        
+        /**
+         * Lee -Dgreenmarket.data.shard con formato k/n (k desde 1)
+         */
+        static Shard fromSystemProperties() {
+            String value = System.getProperty("greenmarket.data.shard");
+            if (value == null || value.isBlank()) {
+                return ALL;
+            }
+            String[] parts = value.trim().split("/");
+            try {
+                int k = Integer.parseInt(parts[0].trim());
+                int n = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : -1;
+                if (parts.length == 2 && n > 0 && k >= 1 && k <= n) {
+                    return new Shard(k - 1, n);
+                }
+            } catch (NumberFormatException e) {
+                // cae al error de abajo
+            }
+            throw new IllegalArgumentException("greenmarket.data.shard inválido: " + value + " (se espera k/n con 1 <= k <= n)");
+        }
+        
+        boolean owns(long row) {
+            return row % count == index;
+        }
+    }
+    
+    @Override
+    public void accept(StreamingSource source) {
+        this.source = source;
+    }
+    
+    @Override
+    public Stream<? extends Arguments> provideArguments(ExtensionContext context) {
+        boolean hasFile = !source.file().isEmpty();
+        boolean hasDataset = !source.dataset().isEmpty();
+        if (hasFile == hasDataset) {
+            throw new PreconditionViolationException("@StreamingSource necesita file o dataset (sólo uno) en "
+                    + context.getRequiredTestMethod());
+        }
+        Stream<ObjectNode> rows;
+        try {
+            rows = hasFile
+                    ? DataRows.file(resolve(source.file()), source.delimiter())
+                    : DataRows.synthetic(source.dataset(), source.records(), source.seed());
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir " + source.file(), e);
+        }
+        long limit = limit(source.limit());
+        if (limit >= 0) {
+            rows = rows.limit(limit);
+        }
+        Shard shard = Shard.fromSystemProperties();
+        if (shard.count() > 1) {
+            AtomicLong row = new AtomicLong();
+            rows = rows.filter(r -> shard.owns(row.getAndIncrement()));
+        }
+        return rows.map(this::toArguments);
+    }
+    
+    private Arguments toArguments(ObjectNode row) {
+        String[] fields = source.fields();
+        if (fields.length == 0) {
+            return Arguments.of(row);
+        }
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            JsonNode value = row.get(fields[i]);
+            values[i] = value == null || value.isNull() ? null : value.isContainerNode() ? value : value.asText();
+        }
+        return Arguments.of(values);
+    }
+    
+    /**
+     * El menor entre el límite de la anotación y -Dgreenmarket.data.limit, o -1 si no hay ninguno
+     */
+    private static long limit(long annotated) {
+        long global = Long.getLong("greenmarket.data.limit", -1);
+        if (annotated < 0) {
+            return global;
+        }
+        return global < 0 ? annotated : Math.min(annotated, global);
+    }
+    
+    /**
+     * Rutas relativas al directorio de datos (-Dgreenmarket.data.dir, por defecto el directorio de trabajo)
+     */
+    private static Path resolve(String file) {
+        Path path = Paths.get(file);
+        String dir = System.getProperty("greenmarket.data.dir");
+        return path.isAbsolute() || dir == null ? path : Paths.get(dir).resolve(path);
+    }
+}
@@ -0,0 +1,46 @@
+package com.greenmarket.tests.data;
+
+import org.junit.jupiter.params.provider.ArgumentsSource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fuente de casos para @ParameterizedTest leída en streaming desde un archivo grande o el dataset sintético
+ * Las filas se leen a medida que JUnit ejecuta las invocaciones, así nunca están todas en memoria
+ * Cada fila se reparte entre los workers con -Dgreenmarket.data.shard=k/n (ver StreamingArgumentsProvider)
+ *
+ * Ejemplos:
+ * {@code @StreamingSource(file = "data/order-lines.csv", fields = {"productId", "quantity"})}
+ * {@code @StreamingSource(dataset = "users", fields = {"name", "email", "password", "phone"}, limit = 25)}
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+@ArgumentsSource(StreamingArgumentsProvider.class)
+public @interface StreamingSource {
+    
+    /** Archivo .jsonl/.ndjson (un objeto por línea) o .csv con encabezado, opcionalmente .gz */
+    String file() default "";
+    
+    /** Dataset sintético en lugar de archivo: users o products (ver DataRows) */
+    String dataset() default "";
+    
+    /** Campos de cada fila que se pasan como argumentos, en orden; vacío pasa la fila completa (ObjectNode) */
+    String[] fields() default {};
+    
+    /** Filas como máximo antes de repartir entre workers; -1 sin límite (-Dgreenmarket.data.limit lo acota) */
+    long limit() default -1;
+    
+    /** Tamaño del dataset sintético */
+    long records() default 1000;
+    
+    /** Semilla del dataset sintético */
+    long seed() default 42;
+    
+    /** Separador de columnas del CSV */
+    char delimiter() default ',';
+}
@@ -0,0 +1,398 @@
+package com.greenmarket.tests.validation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeMatcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validación de respuestas JSON en una sola pasada con el JsonParser de streaming de Jackson
+ *
+ * A diferencia de JsonPath, no construye el árbol del documento: recorre los tokens una vez y comprueba
+ * presencia de campos, tipos, rangos numéricos y tamaños de arreglo. La memoria usada depende de la
+ * cantidad de reglas y no del tamaño de la respuesta, así que sirve igual para 10 que para 100.000 productos
+ *
+ * Las reglas de campo se aplican al objeto raíz (forObject) o a cada elemento de un arreglo raíz (forArray)
+ */
+public final class StreamingValidator {
+    
+    private static final JsonFactory FACTORY = new JsonFactory();
+    
+    /** Tipos JSON que puede exigir una regla; NUMBER acepta también enteros */
+    public enum JsonType {
+        STRING, NUMBER, INTEGER, BOOLEAN, OBJECT, ARRAY, NULL;
+        
+        static JsonType of(JsonToken token) {
+            if (token == null) {
+                return NULL;
+            }
+            return switch (token) {
+                case VALUE_STRING -> STRING;
+                case VALUE_NUMBER_INT -> INTEGER;
+                case VALUE_NUMBER_FLOAT -> NUMBER;
+                case VALUE_TRUE, VALUE_FALSE -> BOOLEAN;
+                case START_OBJECT -> OBJECT;
+                case START_ARRAY -> ARRAY;
+                default -> NULL;
+            };
+        }
+        
+        boolean accepts(JsonType actual) {
+            return this == actual || (this == NUMBER && actual == INTEGER);
+        }
+    }
+    
+    /**
+     * Resultado de una validación
+     * @param elements Elementos del arreglo raíz (1 si la raíz es un objeto)
+     * @param violationCount Total de violaciones encontradas
+     * @param violations Primeras violaciones, hasta el máximo configurado
+     * @param captured Valores capturados del primer elemento (campos marcados con capture)
+     */
+    public record Result(long elements, long violationCount, List<String> violations, Map<String, String> captured) {
+        
+        public boolean isValid() {
+            return violationCount == 0;
+        }
+        
+        /**
+         * Valor de un campo capturado del primer elemento
+         * @param field Nombre del campo
+         * @return Texto del valor, o null si no se capturó
+         */
+        public String get(String field) {
+            return captured.get(field);
+        }
+    }
+    
+    private static final class FieldRule {
+        final String name;
+        final int index;
+        boolean required;
+        boolean capture;
+        JsonType type;
+        double min = Double.NEGATIVE_INFINITY;
+        double max = Double.POSITIVE_INFINITY;
+        boolean exclusiveMin;
+        long minSize = 0;
+        long maxSize = Long.MAX_VALUE;
+        
+        FieldRule(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+        
+        boolean checksSize() {
+            return minSize > 0 || maxSize < Long.MAX_VALUE;
+        }
+    }
+    
+    private final boolean rootArray;
+    private final long minElements;
+    private final long maxElements;
+    private final int maxViolations;
+    private final Map<String, FieldRule> rules;
+    private final FieldRule[] requiredRules;
+    
+    private StreamingValidator(Builder builder) {
+        this.rootArray = builder.rootArray;
+        this.minElements = builder.minElements;
+        this.maxElements = builder.maxElements;
+        this.maxViolations = builder.maxViolations;
+        this.rules = new HashMap<>(builder.rules);
+        this.requiredRules = builder.rules.values().stream().filter(rule -> rule.required).toArray(FieldRule[]::new);
+    }
+    
+    /**
+     * Validador para respuestas cuyo cuerpo es un objeto (GET /products/{id})
+     */
+    public static Builder forObject() {
+        return new Builder(false);
+    }
+    
+    /**
+     * Validador para respuestas cuyo cuerpo es un arreglo de objetos (GET /products)
+     */
+    public static Builder forArray() {
+        return new Builder(true);
+    }
+    
+    public Result validate(byte[] body) {
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            return validate(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public Result validate(String body) {
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            return validate(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public Result validate(InputStream body) {
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            return validate(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Matcher de Hamcrest para usar con REST Assured: then().body(validator.matcher())
+     * @return Matcher sobre el cuerpo de la respuesta como texto
+     */
+    public Matcher<String> matcher() {
+        return new TypeSafeMatcher<>() {
+            
+            @Override
+            protected boolean matchesSafely(String body) {
+                return validate(body).isValid();
+            }
+            
+            @Override
+            public void describeTo(Description description) {
+                description.appendText("JSON válido según " + StreamingValidator.this);
+            }
+            
+            @Override
+            protected void describeMismatchSafely(String body, Description description) {
+                Result result = validate(body);
+                description.appendText(result.violationCount() + " violaciones: ").appendValueList("", ", ", "",
+                        result.violations());
+            }
+        };
+    }
+    
+    private Result validate(JsonParser parser) throws IOException {
+        Pass pass = new Pass();
+        JsonToken root;
+        try {
+            root = parser.nextToken();
+            if (rootArray) {
+                if (root != JsonToken.START_ARRAY) {
+                    pass.violation("$: se esperaba ARRAY y llegó " + JsonType.of(root));
+                    return pass.result();
+                }
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                    long index = pass.elements++;
+                    if (token == JsonToken.START_OBJECT) {
+                        validateObject(parser, pass, index);
+                    } else {
+                        pass.violation("[" + index + "]: se esperaba OBJECT y llegó " + JsonType.of(token));
+                        parser.skipChildren();
+                    }
+                }
+                if (pass.elements < minElements || pass.elements > maxElements) {
+                    pass.violation("$: tamaño " + pass.elements + " fuera de [" + minElements + ", "
+                            + (maxElements == Long.MAX_VALUE ? "∞" : maxElements) + "]");
+                }
+            } else {
+                if (root != JsonToken.START_OBJECT) {
+                    pass.violation("$: se esperaba OBJECT y llegó " + JsonType.of(root));
+                    return pass.result();
+                }
+                pass.elements = 1;
+                validateObject(parser, pass, -1);
+            }
+        } catch (JsonParseException e) {
+            pass.violation("JSON mal formado: " + e.getOriginalMessage());
+        }
+        return pass.result();
+    }
+    
+    private void validateObject(JsonParser parser, Pass pass, long index) throws IOException {
+        BitSet seen = pass.seen;
+        seen.clear();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            FieldRule rule = rules.get(name);
+            if (rule == null) {
+                parser.skipChildren();
+                continue;
+            }
+            JsonType actual = JsonType.of(token);
+            if (actual != JsonType.NULL) {
+                seen.set(rule.index);
+            }
+            if (rule.type != null && !rule.type.accepts(actual) && !(actual == JsonType.NULL && !rule.required)) {
+                pass.violation(path(index, name) + ": se esperaba " + rule.type + " y llegó " + actual);
+            }
+            if (token.isNumeric()) {
+                double value = parser.getDoubleValue();
+                if (value < rule.min || (rule.exclusiveMin && value == rule.min) || value > rule.max) {
+                    pass.violation(path(index, name) + ": " + parser.getText() + " fuera de "
+                            + (rule.exclusiveMin ? "(" : "[") + rule.min + ", " + rule.max + "]");
+                }
+            }
+            if (index <= 0 && rule.capture && token.isScalarValue()) {
+                pass.captured.put(name, parser.getText());
+            }
+            if (token == JsonToken.START_ARRAY && rule.checksSize()) {
+                long size = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    size++;
+                    parser.skipChildren();
+                }
+                if (size < rule.minSize || size > rule.maxSize) {
+                    pass.violation(path(index, name) + ": tamaño " + size + " fuera de [" + rule.minSize + ", "
+                            + (rule.maxSize == Long.MAX_VALUE ? "∞" : rule.maxSize) + "]");
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        for (FieldRule rule : requiredRules) {
+            if (!seen.get(rule.index)) {
+                pass.violation(path(index, rule.name) + ": campo requerido ausente o null");
+            }
+        }
+    }
+    
+    private static String path(long index, String field) {
+        return index < 0 ? field : "[" + index + "]." + field;
+    }
+    
+    @Override
+    public String toString() {
+        return (rootArray ? "arreglo" : "objeto") + " con reglas " + rules.keySet();
+    }
+    
+    /**
+     * Estado de una validación; el validador en sí es inmutable y se puede compartir entre hilos
+     */
+    private final class Pass {
+        final BitSet seen = new BitSet(rules.size());
+        final List<String> violations = new ArrayList<>();
+        final Map<String, String> captured = new LinkedHashMap<>();
+        long elements;
+        long violationCount;
+        
+        void violation(String message) {
+            violationCount++;
+            if (violations.size() < maxViolations) {
+                violations.add(message);
+            }
+        }
+        
+        Result result() {
+            return new Result(elements, violationCount, List.copyOf(violations), Map.copyOf(captured));
+        }
+    }
+    
+    /**
+     * Builder de reglas; cada método puede llamarse varias veces sobre el mismo campo
+     */
+    public static final class Builder {
+        
+        private final boolean rootArray;
+        private final Map<String, FieldRule> rules = new LinkedHashMap<>();
+        private long minElements = 0;
+        private long maxElements = Long.MAX_VALUE;
+        private int maxViolations = 20;
+        
+        private Builder(boolean rootArray) {
+            this.rootArray = rootArray;
+        }
+        
+        private FieldRule rule(String field) {
+            return rules.computeIfAbsent(field, name -> new FieldRule(name, rules.size()));
+        }
+        
+        /**
+         * Campos que deben estar presentes y no ser null
+         */
+        public Builder required(String... fields) {
+            for (String field : fields) {
+                rule(field).required = true;
+            }
+            return this;
+        }
+        
+        /**
+         * Tipo JSON exigido para un campo (si está presente)
+         */
+        public Builder type(String field, JsonType type) {
+            rule(field).type = type;
+            return this;
+        }
+        
+        /**
+         * Rango numérico cerrado [min, max]
+         */
+        public Builder range(String field, double min, double max) {
+            FieldRule rule = rule(field);
+            rule.min = min;
+            rule.max = max;
+            rule.exclusiveMin = false;
+            return this;
+        }
+        
+        /**
+         * Valor numérico estrictamente mayor que min
+         */
+        public Builder greaterThan(String field, double min) {
+            FieldRule rule = rule(field);
+            rule.min = min;
+            rule.exclusiveMin = true;
+            return this;
+        }
+        
+        /**
+         * Tamaño permitido de un campo arreglo
+         */
+        public Builder size(String field, long min, long max) {
+            FieldRule rule = rule(field);
+            rule.minSize = min;
+            rule.maxSize = max;
+            return this;
+        }
+        
+        /**
+         * Guarda el valor del campo en el primer elemento (o en el objeto raíz) para leerlo del resultado
+         */
+        public Builder capture(String field) {
+            rule(field).capture = true;
+            return this;
+        }
+        
+        /**
+         * Tamaño permitido del arreglo raíz
+         */
+        public Builder elements(long min, long max) {
+            this.minElements = min;
+            this.maxElements = max;
+            return this;
+        }
+        
+        /**
+         * Máximo de mensajes de violación que se guardan (el conteo total no se limita)
+         */
+        public Builder maxViolations(int maxViolations) {
+            this.maxViolations = maxViolations;
+            return this;
+        }
+        
+        public StreamingValidator build() {
+            return new StreamingValidator(this);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.greenmarket.tests.base;
+
+import com.greenmarket.tests.http.HttpTransport;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Estado aislado de una clase de prueba o de un usuario virtual
+ * Cada contexto tiene su propia RequestSpecification, token, usuario e ids creados,
+ * de modo que las suites pueden ejecutarse en paralelo sin pisarse
+ */
+public class TestContext {
+    
+    private final RequestSpecification baseSpec;
+    private volatile RequestSpecification spec;
+    private volatile String authToken;
+    private volatile String userId;
+    private final ConcurrentMap<String, Queue<String>> createdIds = new ConcurrentHashMap<>();
+    
+    /**
+     * Crea un contexto sin autenticar con el cliente por defecto de REST Assured
+     * @param baseUrl URL base de la API
+     */
+    public TestContext(String baseUrl) {
+        this(baseUrl, null);
+    }
+    
+    /**
+     * Crea un contexto sin autenticar que envía sus peticiones por un transporte compartido
+     * @param baseUrl URL base de la API
+     * @param transport Transporte HTTP (pool keep-alive, HTTP/2), o null para el cliente por defecto
+     * @param filters Filtros aplicados a todas las peticiones del contexto (validación de esquemas, etc.)
+     */
+    public TestContext(String baseUrl, HttpTransport transport, Filter... filters) {
+        RequestSpecBuilder builder = new RequestSpecBuilder()
+                .setBaseUri(baseUrl)
+                .setContentType(ContentType.JSON)
+                .setAccept(ContentType.JSON);
+        for (Filter filter : filters) {
+            builder.addFilter(filter);
+        }
+        if (transport != null) {
+            transport.apply(builder);
+        }
+        this.baseSpec = builder.build();
+        this.spec = baseSpec;
+    }
+    
+    /**
+     * Specification del contexto, con Authorization si ya hay token
+     * @return Specification lista para given().spec(...)
+     */
+    public RequestSpecification getSpec() {
+        return spec;
+    }
+    
+    /**
+     * Specification sin cabecera de autenticación
+     * @return Specification base
+     */
+    public RequestSpecification getBaseSpec() {
+        return baseSpec;
+    }
+    
+    /**
+     * Configura el token del contexto
+     * La specification se reconstruye desde la base, así un token nuevo reemplaza al anterior
+     * @param token Token JWT obtenido del login
+     */
+    public synchronized void setAuthToken(String token) {
+        this.authToken = token;
+        this.spec = token == null
+                ? baseSpec
+                : new RequestSpecBuilder()
+                        .addRequestSpecification(baseSpec)
+                        .addHeader("Authorization", "Bearer " + token)
+                        .build();
+    }
+    
+    public String getAuthToken() {
+        return authToken;
+    }
+    
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    /**
+     * Registra un recurso creado por este contexto
+     * @param resource Colección del recurso (users, orders, ...)
+     * @param id Identificador asignado por la API
+     */
+    public void addCreatedId(String resource, String id) {
+        if (id == null) {
+            return;
+        }
+        createdIds.computeIfAbsent(resource, r -> new ConcurrentLinkedQueue<>()).add(id);
+    }
+    
+    /**
+     * Ids creados por este contexto en una colección, en orden de creación
+     * @param resource Colección del recurso
+     * @return Copia de los ids registrados
+     */
+    public List<String> getCreatedIds(String resource) {
+        Queue<String> ids = createdIds.get(resource);
+        return ids == null ? List.of() : List.copyOf(ids);
+    }
+}
@@ -0,0 +1,29 @@
+package com.greenmarket.tests.metrics;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Publica el ID del caso de prueba en curso para que ApiMetricsFilter lo adjunte a cada llamada
+ * El ID sale del @DisplayName ("CP-010: Crear Orden de Compra" -> "CP-010") o, si no tiene, es Clase.metodo
+ */
+public class TestIdExtension implements BeforeEachCallback, AfterEachCallback {
+    
+    private static final Pattern CASE_ID = Pattern.compile("^(CP-\\d+)");
+    
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        Matcher matcher = CASE_ID.matcher(context.getDisplayName());
+        ApiMetrics.setCurrentTest(matcher.find() ? matcher.group(1)
+                : context.getRequiredTestClass().getSimpleName() + "." + context.getRequiredTestMethod().getName());
+    }
+    
+    @Override
+    public void afterEach(ExtensionContext context) {
+        ApiMetrics.setCurrentTest(null);
+    }
+}
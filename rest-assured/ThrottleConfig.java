@@ -0,0 +1,43 @@
+package com.greenmarket.tests.http;
+
+import java.time.Duration;
+
+/**
+ * Configuración del control de concurrencia adaptativo del cliente (AdaptiveThrottle)
+ *
+ * @param enabled Si las peticiones pasan por el throttle
+ * @param initialLimit Peticiones simultáneas permitidas al inicio
+ * @param minLimit Límite mínimo tras las reducciones
+ * @param maxLimit Límite máximo tras los aumentos
+ * @param decrease Factor multiplicativo aplicado al recibir 429/503 (AIMD)
+ * @param maxRetries Reintentos por petición antes de devolver la última respuesta
+ * @param baseDelay Espera base del backoff exponencial
+ * @param maxDelay Tope del backoff (sin contar Retry-After)
+ */
+public record ThrottleConfig(boolean enabled,
+                             int initialLimit,
+                             int minLimit,
+                             int maxLimit,
+                             double decrease,
+                             int maxRetries,
+                             Duration baseDelay,
+                             Duration maxDelay) {
+    
+    /**
+     * Lee la configuración desde propiedades del sistema:
+     * greenmarket.throttle (aimd|off), greenmarket.throttle.initialLimit, minLimit, maxLimit,
+     * greenmarket.throttle.decrease, greenmarket.throttle.maxRetries, baseDelayMs y maxDelayMs
+     * @return Configuración (deshabilitada por defecto: la carga ofrecida llega tal cual al servidor)
+     */
+    public static ThrottleConfig fromSystemProperties() {
+        return new ThrottleConfig(
+                "aimd".equalsIgnoreCase(System.getProperty("greenmarket.throttle", "off")),
+                Integer.getInteger("greenmarket.throttle.initialLimit", 32),
+                Integer.getInteger("greenmarket.throttle.minLimit", 1),
+                Integer.getInteger("greenmarket.throttle.maxLimit", 1024),
+                Double.parseDouble(System.getProperty("greenmarket.throttle.decrease", "0.7")),
+                Integer.getInteger("greenmarket.throttle.maxRetries", 4),
+                Duration.ofMillis(Long.getLong("greenmarket.throttle.baseDelayMs", 50L)),
+                Duration.ofMillis(Long.getLong("greenmarket.throttle.maxDelayMs", 2000L)));
+    }
+}
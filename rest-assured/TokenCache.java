@@ -0,0 +1,268 @@
+package com.greenmarket.tests.base;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de tokens JWT por credenciales, compartida por todas las clases de prueba o por una corrida de carga
+ *
+ * El login se hace de forma perezosa la primera vez que se pide un token. La expiración se lee del claim exp
+ * y el token se renueva antes de vencer: dentro de la ventana de renovación se sigue entregando el token
+ * vigente mientras un solo hilo inicia sesión de nuevo. Si varios hilos piden el mismo token sin que exista
+ * uno válido, solo uno llama al login y el resto espera su resultado (single-flight); quien llega después de
+ * que otro hilo ya lo renovó usa ese token sin volver a iniciar sesión
+ *
+ * La renovación anticipada reserva el vuelo en inFlight antes de lanzar su hilo, así dos hilos que entran a
+ * la ventana a la vez no lanzan dos renovaciones. Si el login de una renovación falla, el token vigente se
+ * sigue entregando y el siguiente intento espera DEFAULT_REFRESH_BACKOFF, el doble tras cada fallo seguido,
+ * en lugar de reintentar en cada get hasta que venza
+ */
+public class TokenCache {
+    
+    /** Anticipación con la que se renueva un token antes de su exp */
+    public static final Duration DEFAULT_REFRESH_AHEAD = Duration.ofSeconds(60);
+    
+    /** Vigencia asumida para tokens sin claim exp */
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    
+    /** Espera antes de reintentar una renovación anticipada que falló */
+    public static final Duration DEFAULT_REFRESH_BACKOFF = Duration.ofSeconds(5);
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    /**
+     * Credenciales de login, clave de la caché
+     */
+    public record Credentials(String email, String password) {
+        
+        @Override
+        public String toString() {
+            return "Credentials[email=" + email + "]";
+        }
+    }
+    
+    /**
+     * Inicia sesión contra la API y devuelve el token JWT
+     */
+    @FunctionalInterface
+    public interface Login {
+        String login(Credentials credentials);
+    }
+    
+    /**
+     * Token cacheado; failures cuenta las renovaciones anticipadas fallidas seguidas
+     */
+    private record Entry(String token, Instant refreshAt, Instant expiresAt, int failures) {
+    }
+    
+    private final Login login;
+    private final Duration refreshAhead;
+    private final Duration defaultTtl;
+    private final Clock clock;
+    private final ConcurrentMap<Credentials, Entry> tokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Credentials, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder logins = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    
+    public TokenCache(Login login) {
+        this(login, DEFAULT_REFRESH_AHEAD, DEFAULT_TTL, Clock.systemUTC());
+    }
+    
+    /**
+     * @param login Función de login
+     * @param refreshAhead Anticipación de la renovación respecto de exp
+     * @param defaultTtl Vigencia de tokens sin claim exp
+     * @param clock Reloj usado para la expiración
+     */
+    public TokenCache(Login login, Duration refreshAhead, Duration defaultTtl, Clock clock) {
+        this.login = login;
+        this.refreshAhead = refreshAhead;
+        this.defaultTtl = defaultTtl;
+        this.clock = clock;
+    }
+    
+    /**
+     * Token vigente para las credenciales, iniciando sesión solo si hace falta
+     * @param credentials Credenciales del usuario
+     * @return Token JWT
+     */
+    public String get(Credentials credentials) {
+        Entry entry = tokens.get(credentials);
+        Instant now = clock.instant();
+        if (entry != null && now.isBefore(entry.expiresAt())) {
+            hits.increment();
+            if (!now.isBefore(entry.refreshAt())) {
+                // Renovación anticipada en segundo plano, el token actual sigue siendo válido.
+                // El vuelo se reserva antes de crear el hilo: solo quien lo obtiene lanza la renovación
+                CompletableFuture<Entry> flight = new CompletableFuture<>();
+                if (inFlight.putIfAbsent(credentials, flight) == null) {
+                    Thread.ofVirtual().name("token-refresh").start(() -> fly(credentials, entry, flight, true));
+                }
+            }
+            return entry.token();
+        }
+        try {
+            return load(credentials, entry).join().token();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Guarda un token obtenido fuera de la caché (por ejemplo en la prueba de login)
+     * @param credentials Credenciales con las que se obtuvo
+     * @param token Token JWT
+     */
+    public void put(Credentials credentials, String token) {
+        tokens.put(credentials, entryFor(token));
+    }
+    
+    /**
+     * Descarta el token de unas credenciales, el próximo get vuelve a iniciar sesión
+     * @param credentials Credenciales del usuario
+     */
+    public void invalidate(Credentials credentials) {
+        tokens.remove(credentials);
+    }
+    
+    /**
+     * Peticiones resueltas con un token ya cacheado
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    /**
+     * Llamadas reales al login (iniciales y renovaciones)
+     */
+    public long getLogins() {
+        return logins.sum();
+    }
+    
+    /**
+     * Renovaciones anticipadas que llegaron a llamar al login antes de la expiración
+     */
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+    
+    /**
+     * Resumen de una línea para los logs
+     */
+    public String summary() {
+        return "Tokens: " + tokens.size() + " | Logins: " + getLogins() + " | Aciertos: " + getHits()
+                + " | Renovaciones anticipadas: " + getRefreshes();
+    }
+    
+    /**
+     * Inicia sesión con un solo vuelo por credenciales
+     * @param credentials Credenciales del usuario
+     * @param seen Entrada que el llamador encontró vencida o por renovar (null si no había)
+     */
+    private CompletableFuture<Entry> load(Credentials credentials, Entry seen) {
+        CompletableFuture<Entry> created = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inFlight.putIfAbsent(credentials, created);
+        if (existing != null) {
+            return existing;
+        }
+        fly(credentials, seen, created, false);
+        return created;
+    }
+    
+    /**
+     * Ejecuta un vuelo ya reservado en inFlight y lo libera al terminar
+     * @param credentials Credenciales del usuario
+     * @param seen Entrada que el llamador encontró vencida o por renovar (null si no había)
+     * @param flight Futuro reservado por el llamador
+     * @param refresh true si es una renovación anticipada, con el token vigente todavía en la caché
+     */
+    private void fly(Credentials credentials, Entry seen, CompletableFuture<Entry> flight, boolean refresh) {
+        try {
+            // Otro hilo pudo renovar el token y liberar el vuelo entre la lectura del llamador y este punto:
+            // si la entrada cambió y sigue vigente se usa esa, sin un segundo login
+            Entry current = tokens.get(credentials);
+            if (current != null && current != seen && clock.instant().isBefore(current.expiresAt())) {
+                flight.complete(current);
+                return;
+            }
+            if (refresh) {
+                refreshes.increment();
+            }
+            logins.increment();
+            Entry entry = entryFor(login.login(credentials));
+            // El token se publica antes de liberar el vuelo, así nadie vuelve a iniciar sesión en el intermedio
+            tokens.put(credentials, entry);
+            flight.complete(entry);
+        } catch (RuntimeException e) {
+            if (refresh) {
+                backOff(credentials, seen);
+            }
+            flight.completeExceptionally(e);
+        } finally {
+            inFlight.remove(credentials, flight);
+        }
+    }
+    
+    /**
+     * Posterga la próxima renovación anticipada tras un login fallido, sin tocar la expiración del token
+     * @param credentials Credenciales del usuario
+     * @param failed Entrada cuya renovación falló
+     */
+    private void backOff(Credentials credentials, Entry failed) {
+        Duration delay = DEFAULT_REFRESH_BACKOFF.multipliedBy(1L << Math.min(failed.failures(), 10));
+        Instant retryAt = clock.instant().plus(delay);
+        tokens.replace(credentials, failed,
+                new Entry(failed.token(), retryAt, failed.expiresAt(), failed.failures() + 1));
+    }
+    
+    private Entry entryFor(String token) {
+        Instant now = clock.instant();
+        Instant expiresAt = expiryOf(token).orElse(now.plus(defaultTtl));
+        Instant refreshAt = expiresAt.minus(refreshAhead);
+        if (refreshAt.isBefore(now)) {
+            // Tokens muy cortos: renovar a mitad de su vida restante
+            refreshAt = now.plus(Duration.between(now, expiresAt).dividedBy(2));
+        }
+        return new Entry(token, refreshAt, expiresAt, 0);
+    }
+    
+    /**
+     * Lee el claim exp (segundos epoch) del payload de un JWT sin verificar la firma
+     * @param token Token JWT
+     * @return Instante de expiración, vacío si el token no es un JWT o no trae exp
+     */
+    static Optional<Instant> expiryOf(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length < 2) {
+            return Optional.empty();
+        }
+        try {
+            JsonNode payload = MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            JsonNode exp = payload.get("exp");
+            return exp != null && exp.canConvertToLong()
+                    ? Optional.of(Instant.ofEpochSecond(exp.asLong()))
+                    : Optional.empty();
+        } catch (IOException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
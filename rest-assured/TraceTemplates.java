@@ -0,0 +1,181 @@
+package com.greenmarket.tests.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.greenmarket.tests.metrics.EndpointTemplate;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plantillas de IDs en las trazas de tráfico
+ *
+ * Un valor creado por la API durante la captura (id de un registro, orderId, token) se guarda como {{vN}}
+ * solo donde puede aparecer ese recurso: el segmento de la ruta que sigue a su colección (/products/{{v3}}),
+ * los campos *Id del cuerpo JSON y del query string que lo nombran (productId, userId) y el token de la cabecera
+ * Authorization ("Bearer {{vN}}"). Al reproducir, {{vN}} se reemplaza por el valor que devolvió la API de destino,
+ * así la traza sirve contra cualquier base de datos
+ *
+ * Las variables se identifican por recurso y valor: el mock numera cada colección por separado, así que el
+ * usuario "3" y el producto "3" son variables distintas y un "3" en otro lugar queda igual
+ */
+final class TraceTemplates {
+    
+    /** Campos de las respuestas a POST cuyo valor se convierte en variable */
+    static final List<String> CAPTURED_FIELDS = List.of("id", "orderId", "token");
+    
+    /** Recurso de los tokens de la cabecera Authorization */
+    static final String TOKEN = "token";
+    
+    private static final String BEARER = "Bearer ";
+    
+    /**
+     * Reemplazo de un valor completo según el recurso al que pertenece
+     */
+    @FunctionalInterface
+    interface Rewrite {
+        
+        /**
+         * @param resource Colección del id (products, orders...) o TOKEN
+         * @param value Valor grabado
+         * @return Reemplazo, o null para dejarlo igual
+         */
+        String apply(String resource, String value);
+    }
+    
+    private TraceTemplates() {
+    }
+    
+    /**
+     * Plantilla de una variable
+     * @param name Nombre de la variable (vN)
+     * @return {{vN}}
+     */
+    static String placeholder(String name) {
+        return "{{" + name + "}}";
+    }
+    
+    /**
+     * Clave de una variable: el mismo valor en dos colecciones son dos variables
+     */
+    static String key(String resource, String value) {
+        return resource + "/" + value;
+    }
+    
+    /**
+     * Recurso de un campo o parámetro que referencia un id, p. ej. productId → products
+     * @return Colección, o null si el campo no termina en Id
+     */
+    static String resourceOfField(String field) {
+        if (field.length() <= 2 || !field.endsWith("Id")) {
+            return null;
+        }
+        String singular = field.substring(0, field.length() - 2);
+        return singular.endsWith("y") ? singular.substring(0, singular.length() - 1) + "ies" : singular + "s";
+    }
+    
+    /**
+     * Variable de un texto que es exactamente una plantilla
+     * @return Nombre de la variable, o null si el texto no es {{vN}}
+     */
+    static String variableOf(String text) {
+        if (text.length() > 4 && text.startsWith("{{") && text.endsWith("}}")) {
+            return text.substring(2, text.length() - 2);
+        }
+        return null;
+    }
+    
+    /**
+     * Reescribe los segmentos que siguen a una colección y los parámetros *Id del query string
+     * @param rawPath Ruta con query opcional (/orders/abc?userId=u1)
+     * @param rewrite Reemplazo de un valor completo
+     * @return Ruta reescrita
+     */
+    static String rewritePath(String rawPath, Rewrite rewrite) {
+        int query = rawPath.indexOf('?');
+        String path = query < 0 ? rawPath : rawPath.substring(0, query);
+        StringBuilder out = new StringBuilder(rawPath.length());
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                out.append('/');
+            }
+            out.append(i < 2 ? segments[i] : rewriteValue(segments[i - 1], segments[i], rewrite));
+        }
+        if (query >= 0) {
+            out.append('?');
+            String[] params = rawPath.substring(query + 1).split("&", -1);
+            for (int i = 0; i < params.length; i++) {
+                if (i > 0) {
+                    out.append('&');
+                }
+                int eq = params[i].indexOf('=');
+                String resource = eq < 0 ? null : resourceOfField(params[i].substring(0, eq));
+                if (resource == null) {
+                    out.append(params[i]);
+                } else {
+                    out.append(params[i], 0, eq + 1)
+                            .append(rewriteValue(resource, params[i].substring(eq + 1), rewrite));
+                }
+            }
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Reescribe una cabecera; en Authorization solo el token que sigue a "Bearer "
+     */
+    static String rewriteHeader(String name, String value, Rewrite rewrite) {
+        if ("Authorization".equalsIgnoreCase(name) && value.startsWith(BEARER)) {
+            return BEARER + rewriteValue(TOKEN, value.substring(BEARER.length()), rewrite);
+        }
+        return value;
+    }
+    
+    /**
+     * Reescribe en el lugar los textos de los campos *Id de un documento JSON, a cualquier profundidad
+     * @param node Documento (se modifica)
+     * @param rewrite Reemplazo de un texto completo
+     * @return El mismo documento
+     */
+    static JsonNode rewriteJson(JsonNode node, Rewrite rewrite) {
+        if (node instanceof ObjectNode object) {
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String resource = resourceOfField(field.getKey());
+                if (resource != null && field.getValue().isTextual()) {
+                    String replaced = rewriteValue(resource, field.getValue().asText(), rewrite);
+                    field.setValue(TextNode.valueOf(replaced));
+                } else {
+                    rewriteJson(field.getValue(), rewrite);
+                }
+            }
+        } else if (node instanceof ArrayNode array) {
+            for (JsonNode element : array) {
+                rewriteJson(element, rewrite);
+            }
+        }
+        return node;
+    }
+    
+    /**
+     * Plantilla del endpoint para agrupar estadísticas, p. ej. "GET /orders/{id}"
+     * @param method Método HTTP
+     * @param rawPath Ruta con query opcional
+     */
+    static String endpointOf(String method, String rawPath) {
+        return EndpointTemplate.of(method, rawPath);
+    }
+    
+    private static String rewriteValue(String resource, String value, Rewrite rewrite) {
+        if (resource.isEmpty() || value.isEmpty()) {
+            return value;
+        }
+        String replaced = rewrite.apply(resource, value);
+        return replaced == null ? value : replaced;
+    }
+}
@@ -0,0 +1,310 @@
+package com.greenmarket.tests.replay;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Header;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filtro de REST Assured que graba cada intercambio en una traza JSONL reproducible con TrafficReplayer
+ *
+ * Una línea por petición:
+ * {"seq": 12, "t": 153400, "method": "POST", "path": "/orders", "headers": {"Authorization": "Bearer {{v3}}"},
+ *  "body": {...}, "status": 201, "ms": 12.4, "binds": {"v17": "id"}}
+ * t son microsegundos desde el inicio de la captura y ms la duración del intercambio. binds declara las variables
+ * que nacen de la respuesta (el id de la orden pasa a ser {{v17}} en /orders/{id} y en los orderId de las
+ * peticiones siguientes, ver TraceTemplates). Un id que se vuelve a crear en la misma colección toma una
+ * variable nueva
+ *
+ * Las líneas se serializan en el hilo de la prueba y las escribe un solo hilo con un buffer de 64 KB,
+ * que vacía al disco cuando la cola queda vacía. Si la cola se llena la prueba espera: la traza no pierde líneas
+ */
+public class TrafficRecorder implements Filter, AutoCloseable {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    /** Marca de fin para el hilo escritor */
+    private static final byte[] END = new byte[0];
+    
+    private final Path file;
+    private final long startNanos = System.nanoTime();
+    private final BlockingQueue<byte[]> queue;
+    private final Thread writer;
+    /** Clave de TraceTemplates.key → {{vN}} */
+    private final Map<String, String> variables;
+    private final ReentrantLock ordering = new ReentrantLock();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong nextVariable = new AtomicLong();
+    private final LongAdder bytes = new LongAdder();
+    private volatile IOException failure;
+    
+    /**
+     * @param file Archivo de la traza (se reemplaza si existe)
+     * @param queueCapacity Líneas pendientes de escribir antes de que las pruebas esperen
+     * @param maxVariables Valores recordados para las plantillas; los más antiguos se olvidan
+     * @throws IOException Si no se puede crear el archivo
+     */
+    public TrafficRecorder(Path file, int queueCapacity, int maxVariables) throws IOException {
+        this.file = file;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.variables = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxVariables;
+            }
+        };
+        this.writer = Thread.ofPlatform().daemon().name("traffic-recorder").start(() -> writeLoop(out));
+    }
+    
+    /**
+     * Grabador configurado con -Dgreenmarket.capture (archivo de la traza)
+     * @return Grabador, o null si no se indica archivo
+     */
+    public static TrafficRecorder fromSystemProperties() {
+        String file = System.getProperty("greenmarket.capture");
+        if (file == null || file.isBlank()) {
+            return null;
+        }
+        try {
+            return new TrafficRecorder(Path.of(file), Integer.getInteger("greenmarket.capture.queue", 8192),
+                    Integer.getInteger("greenmarket.capture.maxVariables", 100_000));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear la traza " + file, e);
+        }
+    }
+    
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec,
+                           FilterableResponseSpecification responseSpec,
+                           FilterContext ctx) {
+        ObjectNode line = MAPPER.createObjectNode();
+        // seq y t se completan más abajo; se crean primero para que encabecen la línea
+        line.put("seq", 0L);
+        line.put("t", 0L);
+        String method = requestSpec.getMethod();
+        URI uri = URI.create(requestSpec.getURI());
+        String rawPath = uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+        line.put("method", method);
+        line.put("path", TraceTemplates.rewritePath(rawPath, this::variableFor));
+        ObjectNode headers = line.putObject("headers");
+        for (Header header : requestSpec.getHeaders()) {
+            headers.put(header.getName(), TraceTemplates.rewriteHeader(header.getName(), header.getValue(),
+                    this::variableFor));
+        }
+        putBody(line, requestSpec.getBody());
+        
+        long start = System.nanoTime();
+        Response response = ctx.next(requestSpec, responseSpec);
+        long elapsed = System.nanoTime() - start;
+        
+        line.put("status", response.statusCode());
+        line.put("ms", Math.round(elapsed / 1000.0) / 1000.0);
+        Map<String, String> created = "POST".equals(method) && response.statusCode() / 100 == 2
+                ? createdValues(response, uri.getRawPath()) : Map.of();
+        List<String> names = new ArrayList<>(created.size());
+        if (!created.isEmpty()) {
+            ObjectNode binds = line.putObject("binds");
+            for (String field : created.values()) {
+                String name = "v" + nextVariable.incrementAndGet();
+                binds.put(name, field);
+                names.add(name);
+            }
+        }
+        line.put("t", (start - startNanos) / 1000);
+        enqueue(line);
+        // Se publican después de encolar: una línea que use {{vN}} siempre queda detrás de la que lo declara
+        if (!created.isEmpty()) {
+            int i = 0;
+            synchronized (variables) {
+                for (String key : created.keySet()) {
+                    variables.put(key, TraceTemplates.placeholder(names.get(i++)));
+                }
+            }
+        }
+        return response;
+    }
+    
+    /**
+     * Escribe las líneas pendientes y cierra el archivo
+     */
+    @Override
+    public void close() {
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    /**
+     * Resumen de una línea para los logs de la suite
+     */
+    public String summary() {
+        String status = failure == null ? "" : " | Error: " + failure.getMessage();
+        return String.format(Locale.ROOT, "Traza: %s | Peticiones: %d | Variables: %d | %.1f KB%s",
+                file, sequence.get(), nextVariable.get(), bytes.sum() / 1024.0, status);
+    }
+    
+    private String variableFor(String resource, String value) {
+        String key = TraceTemplates.key(resource, value);
+        synchronized (variables) {
+            return variables.get(key);
+        }
+    }
+    
+    private static void putBody(ObjectNode line, Object body) {
+        if (body == null) {
+            return;
+        }
+        String text = body instanceof byte[] raw ? new String(raw, StandardCharsets.UTF_8) : body.toString();
+        try {
+            line.set("body", MAPPER.readTree(text));
+        } catch (JsonProcessingException e) {
+            line.put("bodyText", text);
+        }
+    }
+    
+    /**
+     * Valores de CAPTURED_FIELDS en la respuesta JSON de una creación o un login
+     * El id pertenece a la colección de la ruta (POST /users/register crea un usuario); orderId y el token,
+     * a la suya. Un valor que aparece en dos campos del mismo recurso (id y orderId) es una sola variable
+     * @param path Ruta del POST, sin query
+     * @return Clave de TraceTemplates.key → campo, vacío si la respuesta no es un objeto JSON
+     */
+    private Map<String, String> createdValues(Response response, String path) {
+        String contentType = response.getContentType();
+        if (contentType == null || !contentType.contains("json")) {
+            return Map.of();
+        }
+        JsonNode json;
+        try {
+            json = MAPPER.readTree(response.asByteArray());
+        } catch (IOException e) {
+            return Map.of();
+        }
+        String collection = path.startsWith("/") ? path.substring(1) : path;
+        if (collection.indexOf('/') >= 0) {
+            collection = collection.substring(0, collection.indexOf('/'));
+        }
+        Map<String, String> created = new LinkedHashMap<>();
+        for (String field : TraceTemplates.CAPTURED_FIELDS) {
+            JsonNode value = json.get(field);
+            if (value == null || !value.isValueNode() || value.asText().isEmpty()) {
+                continue;
+            }
+            String resource = switch (field) {
+                case "id" -> collection;
+                case "token" -> TraceTemplates.TOKEN;
+                default -> TraceTemplates.resourceOfField(field);
+            };
+            if (resource != null && !resource.isEmpty()) {
+                created.putIfAbsent(TraceTemplates.key(resource, value.asText()), field);
+            }
+        }
+        return created;
+    }
+    
+    private void enqueue(ObjectNode line) {
+        byte[] bytes;
+        // seq se asigna al encolar para que siga el orden del archivo
+        ordering.lock();
+        try {
+            line.put("seq", sequence.incrementAndGet());
+            try {
+                bytes = MAPPER.writeValueAsBytes(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("No se pudo serializar la línea de la traza", e);
+            }
+            try {
+                queue.put(bytes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrumpido al grabar la traza", e);
+            }
+        } finally {
+            ordering.unlock();
+        }
+    }
+    
+    private void writeLoop(OutputStream out) {
+        List<byte[]> batch = new ArrayList<>();
+        try (out) {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (byte[] line : batch) {
+                    if (line == END) {
+                        return;
+                    }
+                    write(out, line);
+                }
+                batch.clear();
+                if (queue.isEmpty()) {
+                    flush(out);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void write(OutputStream out, byte[] line) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            out.write(line);
+            out.write('\n');
+            bytes.add(line.length + 1);
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+    
+    private void flush(OutputStream out) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+}
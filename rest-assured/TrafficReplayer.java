@@ -0,0 +1,307 @@
+package com.greenmarket.tests.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenmarket.tests.base.TestContext;
+import com.greenmarket.tests.http.HttpTransport;
+import com.greenmarket.tests.http.TransportConfig;
+import com.greenmarket.tests.load.LoadReport;
+import com.greenmarket.tests.mock.MockServer;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Reproduce una traza grabada por TrafficRecorder contra el mock server o una API externa
+ *
+ * La traza se lee línea a línea y cada petición sale en su propio hilo virtual en el instante grabado
+ * dividido por la velocidad (1x, Nx) o apenas se lee (max). La memoria no depende del tamaño de la traza:
+ * solo hay una línea por petición en curso (tope max-in-flight) y las variables {{vN}} más recientes (tope max-bindings)
+ *
+ * Una petición que usa {{vN}} espera la respuesta que lo define, así una orden no se consulta antes de crearse
+ * aunque la traza se envíe a máxima velocidad. Si esa respuesta falló, la petición no se envía y se cuenta
+ * como "sin enlazar". Una petición es exitosa si la API responde el mismo código que en la captura
+ *
+ * Uso: java com.greenmarket.tests.replay.TrafficReplayer --trace=target/traffic.jsonl --speed=10
+ */
+public class TrafficReplayer {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    /**
+     * Variable {{vN}} olvidada o cuya respuesta no la definió
+     */
+    private static class UnboundVariableException extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        UnboundVariableException(String name) {
+            super(name, null, false, false);
+        }
+    }
+    
+    /**
+     * Valores de las variables, definidos por las respuestas de la API de destino
+     * Las más antiguas se olvidan al superar el tope para que la memoria no crezca con la traza
+     */
+    private static class Bindings {
+        
+        private final Map<String, CompletableFuture<String>> values;
+        
+        Bindings(int maxBindings) {
+            this.values = new LinkedHashMap<>(1024, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<String>> eldest) {
+                    return size() > maxBindings;
+                }
+            };
+        }
+        
+        /**
+         * Declara una variable antes de enviar la petición que la define
+         */
+        synchronized CompletableFuture<String> declare(String name) {
+            CompletableFuture<String> value = new CompletableFuture<>();
+            values.put(name, value);
+            return value;
+        }
+        
+        synchronized CompletableFuture<String> get(String name) {
+            return values.get(name);
+        }
+    }
+    
+    private final ReplayConfig config;
+    private final HttpTransport transport;
+    private final Bindings bindings;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+    private final LongAdder unbound = new LongAdder();
+    private final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+    
+    /**
+     * @param config Configuración de la reproducción
+     * @param transport Transporte HTTP compartido por todas las peticiones
+     */
+    public TrafficReplayer(ReplayConfig config, HttpTransport transport) {
+        this.config = config;
+        this.transport = transport;
+        this.bindings = new Bindings(config.maxBindings());
+    }
+    
+    /**
+     * Reproduce la traza completa contra la URL indicada
+     * @param baseUrl URL base de la API
+     * @return Reporte con las estadísticas por endpoint (una iteración por petición)
+     * @throws IOException Si la traza no se puede leer o tiene una línea inválida
+     * @throws InterruptedException Si se interrumpe la espera entre peticiones
+     */
+    public LoadReport run(String baseUrl) throws IOException, InterruptedException {
+        LoadReport report = new LoadReport();
+        RequestSpecification baseSpec = new TestContext(baseUrl, transport).getBaseSpec();
+        Semaphore inFlight = new Semaphore(config.maxInFlight());
+        report.markStart();
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(config.trace(), StandardCharsets.UTF_8);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode record;
+                try {
+                    record = MAPPER.readTree(line);
+                } catch (IOException e) {
+                    throw new IOException("Línea " + lineNumber + " inválida en " + config.trace(), e);
+                }
+                // Las variables se declaran en el orden del archivo, antes de que alguien las use
+                Map<String, CompletableFuture<String>> declared = new LinkedHashMap<>();
+                Iterator<String> names = record.path("binds").fieldNames();
+                while (names.hasNext()) {
+                    String name = names.next();
+                    declared.put(name, bindings.declare(name));
+                }
+                if (!config.isMaxSpeed()) {
+                    long due = start + (long) (record.path("t").asLong() * 1000 / config.speed());
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    maxLagNanos.accumulate(System.nanoTime() - due);
+                }
+                inFlight.acquire();
+                executor.submit(() -> {
+                    try {
+                        report.iterationCompleted(replay(record, declared, baseSpec, report));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        report.markEnd();
+        return report;
+    }
+    
+    /**
+     * Resumen de una línea con lo que no aparece en la tabla por endpoint
+     */
+    public String summary() {
+        return String.format(Locale.ROOT,
+                "Velocidad: %s | Enviadas: %d | Código distinto al grabado: %d | Sin enlazar: %d | Retraso máx.: %.1f ms",
+                config.isMaxSpeed() ? "max" : config.speed() + "x", sent.sum(), mismatched.sum(), unbound.sum(),
+                maxLagNanos.get() / 1_000_000.0);
+    }
+    
+    /**
+     * Envía una petición de la traza
+     * @return true si la API respondió el código grabado
+     */
+    private boolean replay(JsonNode record, Map<String, CompletableFuture<String>> declared,
+                           RequestSpecification baseSpec, LoadReport report) {
+        String method = record.path("method").asText();
+        String templatePath = record.path("path").asText();
+        String endpoint = TraceTemplates.endpointOf(method, templatePath);
+        Response response = null;
+        try {
+            RequestSpecification request = given().spec(baseSpec).urlEncodingEnabled(false);
+            Iterator<Map.Entry<String, JsonNode>> headers = record.path("headers").fields();
+            while (headers.hasNext()) {
+                Map.Entry<String, JsonNode> header = headers.next();
+                if (!"Content-Length".equalsIgnoreCase(header.getKey()) && !"Host".equalsIgnoreCase(header.getKey())) {
+                    request.header(header.getKey(),
+                            TraceTemplates.rewriteHeader(header.getKey(), header.getValue().asText(), this::resolve));
+                }
+            }
+            if (record.has("body")) {
+                request.body(TraceTemplates.rewriteJson(record.get("body"), this::resolve).toString());
+            } else if (record.has("bodyText")) {
+                request.body(record.get("bodyText").asText());
+            }
+            String path = TraceTemplates.rewritePath(templatePath, this::resolve);
+            
+            sent.increment();
+            long start = System.nanoTime();
+            try {
+                response = request.request(method, path);
+            } catch (RuntimeException e) {
+                report.endpoint(endpoint).record(System.nanoTime() - start, false);
+                return false;
+            }
+            boolean success = response.statusCode() == record.path("status").asInt();
+            report.endpoint(endpoint).record(System.nanoTime() - start, success);
+            if (!success) {
+                mismatched.increment();
+            }
+            return success;
+        } catch (UnboundVariableException e) {
+            unbound.increment();
+            return false;
+        } finally {
+            bind(record.path("binds"), declared, response);
+        }
+    }
+    
+    /**
+     * Define las variables de la línea con la respuesta recibida (o sin valor si no la hubo)
+     */
+    private static void bind(JsonNode binds, Map<String, CompletableFuture<String>> declared, Response response) {
+        if (declared.isEmpty()) {
+            return;
+        }
+        JsonNode json = null;
+        if (response != null && response.statusCode() / 100 == 2) {
+            try {
+                json = MAPPER.readTree(response.asByteArray());
+            } catch (IOException | RuntimeException e) {
+                json = null;
+            }
+        }
+        for (Map.Entry<String, CompletableFuture<String>> variable : declared.entrySet()) {
+            JsonNode value = json == null ? null : json.get(binds.path(variable.getKey()).asText());
+            variable.getValue().complete(value == null || !value.isValueNode() ? null : value.asText());
+        }
+    }
+    
+    /**
+     * Valor de un texto {{vN}}, esperando la respuesta que lo define
+     * @param resource Recurso del valor; la variable ya lo identifica
+     * @return Valor, o null si el texto no es una plantilla
+     */
+    private String resolve(String resource, String text) {
+        String name = TraceTemplates.variableOf(text);
+        if (name == null) {
+            return null;
+        }
+        CompletableFuture<String> value = bindings.get(name);
+        if (value == null) {
+            throw new UnboundVariableException(name);
+        }
+        String resolved;
+        try {
+            resolved = value.get(config.bindingTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnboundVariableException(name);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new UnboundVariableException(name);
+        }
+        if (resolved == null) {
+            throw new UnboundVariableException(name);
+        }
+        return resolved;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        ReplayConfig config = ReplayConfig.parse(args);
+        MockServer mockServer = null;
+        String baseUrl = config.baseUrl();
+        if (baseUrl == null) {
+            mockServer = MockServer.start(Paths.get(System.getProperty("greenmarket.mock.db", MockServer.DEFAULT_DB_FILE)));
+            baseUrl = mockServer.getBaseUrl();
+        }
+        System.out.printf("Reproduciendo %s contra %s a velocidad %s%n", config.trace(), baseUrl,
+                config.isMaxSpeed() ? "max" : config.speed() + "x");
+        try (HttpTransport transport = HttpTransport.create(TransportConfig.fromSystemProperties())) {
+            TrafficReplayer replayer = new TrafficReplayer(config, transport);
+            LoadReport report = replayer.run(baseUrl);
+            report.print(System.out);
+            System.out.println("Reproducción: " + replayer.summary());
+            System.out.println("Conexiones (" + transport.getConfig().type().name().toLowerCase() + "): "
+                    + transport.summary());
+            report.writeCsv(config.csvFile());
+            System.out.println("CSV: " + config.csvFile().toAbsolutePath());
+        } finally {
+            if (mockServer != null) {
+                mockServer.stop();
+            }
+        }
+    }
+}
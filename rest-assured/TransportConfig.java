@@ -0,0 +1,49 @@
+package com.greenmarket.tests.http;
+
+import java.time.Duration;
+
+/**
+ * Configuración del transporte HTTP usado por las specifications de las pruebas
+ *
+ * @param type Backend: DEFAULT (cliente nuevo por petición, comportamiento original de REST Assured),
+ *             POOLED (Apache HttpClient con pool keep-alive) o HTTP2 (java.net.http.HttpClient)
+ * @param maxPerRoute Conexiones máximas por host:puerto en el pool
+ * @param maxTotal Conexiones máximas del pool
+ * @param idleTimeout Tiempo tras el cual una conexión ociosa se cierra
+ * @param connectTimeout Tiempo máximo para abrir una conexión
+ * @param acceptEncoding Valor de Accept-Encoding que envían los transportes pooled y http2 ("identity" pide
+ *                       cuerpos sin comprimir)
+ * @param cache Caché HTTP del cliente con revalidación por ETag (ver CacheConfig)
+ */
+public record TransportConfig(Type type,
+                              int maxPerRoute,
+                              int maxTotal,
+                              Duration idleTimeout,
+                              Duration connectTimeout,
+                              String acceptEncoding,
+                              CacheConfig cache) {
+    
+    public enum Type {
+        DEFAULT,
+        POOLED,
+        HTTP2
+    }
+    
+    /**
+     * Lee la configuración desde propiedades del sistema:
+     * greenmarket.http.transport (default|pooled|http2), greenmarket.http.maxPerRoute,
+     * greenmarket.http.maxTotal, greenmarket.http.idleTimeoutSeconds, greenmarket.http.connectTimeoutMs
+     * y greenmarket.http.acceptEncoding (gzip, deflate por defecto); la caché con greenmarket.http.cache.*
+     * @return Configuración (pooled por defecto)
+     */
+    public static TransportConfig fromSystemProperties() {
+        return new TransportConfig(
+                Type.valueOf(System.getProperty("greenmarket.http.transport", "pooled").toUpperCase()),
+                Integer.getInteger("greenmarket.http.maxPerRoute", 50),
+                Integer.getInteger("greenmarket.http.maxTotal", 200),
+                Duration.ofSeconds(Long.getLong("greenmarket.http.idleTimeoutSeconds", 30L)),
+                Duration.ofMillis(Long.getLong("greenmarket.http.connectTimeoutMs", 5000L)),
+                System.getProperty("greenmarket.http.acceptEncoding", "gzip, deflate"),
+                CacheConfig.fromSystemProperties());
+    }
+}
@@ -0,0 +1,118 @@
+package com.greenmarket.tests.history;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reporte HTML estático con la tendencia de cada serie del historial
+ *
+ * Un solo archivo sin dependencias externas: tabla con la mediana actual, la de la línea base, el cambio,
+ * el p-valor y un gráfico SVG de la mediana por corrida. Las regresiones van primero
+ */
+public class TrendReport {
+    
+    /** Corridas que se dibujan por serie */
+    private static final int MAX_POINTS = 50;
+    
+    private static final int WIDTH = 240;
+    private static final int HEIGHT = 40;
+    
+    private TrendReport() {
+    }
+    
+    /**
+     * Escribe el reporte
+     * @param file Archivo HTML destino (se crean los directorios faltantes)
+     * @param trends Resultado de RegressionDetector
+     * @param config Umbrales usados, para mostrarlos en el encabezado
+     * @throws IOException Si no se puede escribir
+     */
+    public static void write(Path file, List<RegressionDetector.Trend> trends, HistoryConfig config) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        List<RegressionDetector.Trend> sorted = trends.stream()
+                .sorted((a, b) -> Integer.compare(a.status().ordinal(), b.status().ordinal()))
+                .toList();
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("<!DOCTYPE html>\n<html lang=\"es\">\n<head>\n<meta charset=\"utf-8\">\n");
+            out.write("<title>GreenMarket - Historial de rendimiento</title>\n<style>\n");
+            out.write("body{font-family:sans-serif;margin:24px;color:#222}table{border-collapse:collapse}");
+            out.write("th,td{padding:4px 10px;border-bottom:1px solid #ddd;text-align:right}");
+            out.write("th{background:#f4f4f4}td.key{text-align:left;max-width:420px;overflow-wrap:anywhere}");
+            out.write(".REGRESSION{color:#b00020;font-weight:bold}.IMPROVEMENT{color:#1b7f3b}");
+            out.write(".INSUFFICIENT{color:#888}\n</style>\n</head>\n<body>\n");
+            out.write("<h1>Historial de rendimiento</h1>\n");
+            long regressions = trends.stream().filter(t -> t.status() == RegressionDetector.Status.REGRESSION).count();
+            out.write(String.format(Locale.ROOT,
+                    "<p>Generado %s &middot; %d series &middot; %d regresiones &middot; Mann-Whitney unilateral, "
+                            + "alpha=%s, cambio mínimo de la mediana %.0f%%, línea base de %d corridas</p>\n",
+                    Instant.now(), trends.size(), regressions, config.alpha(), config.minEffect() * 100,
+                    config.baselineRuns()));
+            out.write("<table>\n<tr><th>Estado</th><th>Origen</th><th>Serie</th><th>Corridas</th>"
+                    + "<th>Mediana actual (ms)</th><th>Mediana base (ms)</th><th>Cambio</th><th>p-valor</th>"
+                    + "<th>Tendencia</th></tr>\n");
+            for (RegressionDetector.Trend trend : sorted) {
+                out.write(String.format(Locale.ROOT,
+                        "<tr><td class=\"%s\">%s</td><td>%s</td><td class=\"key\">%s</td><td>%d</td><td>%s</td>"
+                                + "<td>%s</td><td>%s</td><td>%s</td><td>%s</td></tr>\n",
+                        trend.status(), label(trend.status()), escape(trend.source()), escape(trend.key()),
+                        trend.points().size(), format(trend.currentMedianMillis()), format(trend.baselineMedianMillis()),
+                        Double.isNaN(trend.change()) ? "-" : String.format(Locale.ROOT, "%+.1f%%", trend.change() * 100),
+                        trend.test() == null ? "-" : String.format(Locale.ROOT, "%.4f", trend.test().pSlower()),
+                        sparkline(trend)));
+            }
+            out.write("</table>\n</body>\n</html>\n");
+        }
+    }
+    
+    private static String label(RegressionDetector.Status status) {
+        return switch (status) {
+            case REGRESSION -> "Regresión";
+            case IMPROVEMENT -> "Mejora";
+            case STABLE -> "Estable";
+            case INSUFFICIENT -> "Sin historia";
+        };
+    }
+    
+    /**
+     * Mediana por corrida; los puntos de la muestra actual se marcan en rojo
+     */
+    private static String sparkline(RegressionDetector.Trend trend) {
+        List<RegressionDetector.Point> points = trend.points();
+        List<RegressionDetector.Point> shown = points.subList(Math.max(0, points.size() - MAX_POINTS), points.size());
+        double max = shown.stream().mapToDouble(RegressionDetector.Point::medianMillis).max().orElse(1);
+        double min = shown.stream().mapToDouble(RegressionDetector.Point::medianMillis).min().orElse(0);
+        double range = max > min ? max - min : Math.max(max, 1);
+        double step = shown.size() > 1 ? (WIDTH - 6) / (double) (shown.size() - 1) : 0;
+        StringBuilder line = new StringBuilder();
+        StringBuilder dots = new StringBuilder();
+        int currentFrom = shown.size() - Math.min(trend.currentRuns(), shown.size());
+        for (int i = 0; i < shown.size(); i++) {
+            RegressionDetector.Point point = shown.get(i);
+            double x = 3 + i * step;
+            double y = HEIGHT - 3 - (point.medianMillis() - (max > min ? min : 0)) / range * (HEIGHT - 6);
+            line.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+            if (i >= currentFrom) {
+                dots.append(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"2.5\" fill=\"#b00020\">"
+                        + "<title>%s: %s ms</title></circle>", x, y, escape(point.run()), format(point.medianMillis())));
+            }
+        }
+        return String.format("<svg width=\"%d\" height=\"%d\"><polyline fill=\"none\" stroke=\"#3366cc\" "
+                + "stroke-width=\"1.5\" points=\"%s\"/>%s</svg>", WIDTH, HEIGHT, line.toString().trim(), dots);
+    }
+    
+    private static String format(double millis) {
+        return Double.isNaN(millis) ? "-" : String.format(Locale.ROOT, "%.2f", millis);
+    }
+    
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
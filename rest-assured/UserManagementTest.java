@@ -1,8 +1,11 @@
 package com.greenmarket.tests;
 
 import com.greenmarket.tests.base.BaseTest;
+import com.greenmarket.tests.data.StreamingSource;
+import io.restassured.http.ContentType;
 import io.restassured.response.Response;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
 import static io.restassured.RestAssured.*;
 import static org.hamcrest.Matchers.*;
 
@@ -51,6 +54,7 @@ public class UserManagementTest extends BaseTest {
         
         // Guardar userId para pruebas posteriores
         setUserId(response.jsonPath().getString("userId"));
+        trackCreated("users", getUserId());
         
         System.out.println("✓ CP-001 Pasó: Usuario registrado exitosamente");
         System.out.println("  User ID: " + getUserId());
@@ -117,6 +121,7 @@ public class UserManagementTest extends BaseTest {
         // Guardar token para pruebas posteriores
         String token = response.jsonPath().getString("token");
         setAuthToken(token);
+        cacheToken(testEmail, testPassword, token);
         
         System.out.println("✓ CP-003 Pasó: Login exitoso");
         System.out.println("  Token obtenido: " + token.substring(0, 20) + "...");
@@ -185,8 +190,8 @@ public class UserManagementTest extends BaseTest {
     @DisplayName("CP-006: Acceso sin Token de Autenticación")
     public void testGetUserProfileWithoutAuth() {
         given()
-            .spec(requestSpec)
-            // No se envía header de Authorization
+            // Specification sin el token que guardó CP-003: no se envía header de Authorization
+            .spec(context().getBaseSpec())
         .when()
             .get("/users/profile")
         .then()
@@ -197,6 +202,36 @@ public class UserManagementTest extends BaseTest {
         System.out.println("✓ CP-006 Pasó: Acceso sin token rechazado");
     }
     
+    /**
+     * CP-001 con datos: Registro de Usuarios del Dataset
+     * Repite el registro exitoso con usuarios sintéticos de email único, leídos en streaming
+     * (-Dgreenmarket.data.limit y -Dgreenmarket.data.shard controlan cuántos y cuáles corre cada worker)
+     */
+    @ParameterizedTest(name = "CP-001 [{index}]: Registro de {1}")
+    @Order(7)
+    @StreamingSource(dataset = "users", fields = {"name", "email", "password", "phone"}, limit = 25)
+    public void testUserRegistrationFromDataset(String name, String email, String password, String phone) {
+        String requestBody = String.format(
+            "{\"name\":\"%s\",\"email\":\"%s\",\"password\":\"%s\",\"phone\":\"%s\"}",
+            name, email, password, phone
+        );
+        
+        String userId = given()
+                .spec(requestSpec)
+                .body(requestBody)
+            .when()
+                .post("/users/register")
+            .then()
+                .statusCode(201)
+                .contentType(ContentType.JSON)
+                .body("email", equalTo(email))
+                .body("$", not(hasKey("password")))
+            .extract()
+                .path("userId");
+        
+        trackCreated("users", userId);
+    }
+    
     @AfterAll
     public static void tearDown() {
         System.out.println("\n=== Resumen de Pruebas de Usuarios ===");
@@ -0,0 +1,54 @@
+package com.greenmarket.tests.validation;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Costo de la validación de esquemas, medido aparte de la latencia de las peticiones
+ * Registra el tiempo de parseo más validación por respuesta en microsegundos
+ */
+public class ValidationStats {
+    
+    private final Histogram micros = new ConcurrentHistogram(TimeUnit.SECONDS.toMicros(10), 3);
+    private final LongAdder failures = new LongAdder();
+    
+    void record(long nanos, boolean valid) {
+        micros.recordValue(Math.max(1, nanos / 1_000));
+        if (!valid) {
+            failures.increment();
+        }
+    }
+    
+    public long getValidated() {
+        return micros.getTotalCount();
+    }
+    
+    public long getFailures() {
+        return failures.sum();
+    }
+    
+    /**
+     * Copia del histograma de costos en microsegundos
+     */
+    public Histogram snapshot() {
+        return micros.copy();
+    }
+    
+    /**
+     * Resumen de una línea para los logs
+     */
+    public String summary() {
+        Histogram h = snapshot();
+        if (h.getTotalCount() == 0) {
+            return "Respuestas validadas: 0";
+        }
+        return String.format(Locale.ROOT,
+                "Respuestas validadas: %d | Inválidas: %d | Costo µs p50: %d p99: %d max: %d | Total: %.1f ms",
+                h.getTotalCount(), getFailures(), h.getValueAtPercentile(50), h.getValueAtPercentile(99),
+                h.getMaxValue(), h.getMean() * h.getTotalCount() / 1000.0);
+    }
+}
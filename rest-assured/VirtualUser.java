@@ -0,0 +1,51 @@
+package com.greenmarket.tests.load;
+
+import com.greenmarket.tests.base.TestContext;
+import com.greenmarket.tests.base.TokenCache;
+import com.greenmarket.tests.http.HttpTransport;
+import io.restassured.filter.Filter;
+
+/**
+ * Usuario virtual de una corrida de carga
+ * Cada uno registra su propio email para no chocar con los demás (CP-002 rechaza duplicados)
+ * y mantiene su propio TestContext (specification, token e ids creados)
+ * Las conexiones salen del transporte compartido por toda la corrida
+ */
+public class VirtualUser {
+    
+    private final String email;
+    private final String password = "Password123!";
+    private final String name;
+    private final String phone = "+56912345678";
+    private final TestContext context;
+    
+    public VirtualUser(String runId, long number, String baseUrl, HttpTransport transport, Filter... filters) {
+        this.email = "vu-" + runId + "-" + number + "@greenmarket.com";
+        this.name = "Usuario Virtual " + number;
+        this.context = new TestContext(baseUrl, transport, filters);
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getPassword() {
+        return password;
+    }
+    
+    public TokenCache.Credentials getCredentials() {
+        return new TokenCache.Credentials(email, password);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public TestContext getContext() {
+        return context;
+    }
+}
@@ -0,0 +1,145 @@
+package com.greenmarket.tests.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+/**
+ * Mensajes entre LoadCoordinator y LoadWorker sobre un socket de loopback
+ *
+ * HELLO (worker → coordinador): marca del protocolo y número de worker, cuando el worker ya tiene el transporte listo
+ * START (coordinador → worker): su parte de la carga, el runId y el instante de inicio común en epoch ms
+ * INTERVAL y DONE (worker → coordinador): lo registrado desde el mensaje anterior; latencias por endpoint como
+ * histogramas HdrHistogram comprimidos (un par de cientos de bytes por endpoint), errores e iteraciones.
+ * DONE es el último mensaje del worker
+ */
+final class WorkerProtocol {
+    
+    private static final int MAGIC = 0x474D4C57;
+    private static final byte HELLO = 1;
+    private static final byte START = 2;
+    private static final byte INTERVAL = 3;
+    private static final byte DONE = 4;
+    
+    private WorkerProtocol() {
+    }
+    
+    /**
+     * Orden de inicio de un worker
+     * @param shard Parte de la carga del worker, con la URL de la API
+     * @param runId Identificador de los usuarios virtuales del worker
+     * @param startEpochMillis Instante en que todos los workers empiezan
+     */
+    record Start(LoadConfig shard, String runId, long startEpochMillis) {
+    }
+    
+    /**
+     * Latencias (microsegundos) y errores de un endpoint en un intervalo
+     */
+    record EndpointDelta(Histogram latencies, long errors) {
+    }
+    
+    /**
+     * Lo registrado por un worker desde su mensaje anterior
+     * @param last true en el último mensaje de la corrida
+     */
+    record Interval(boolean last, Map<String, EndpointDelta> endpoints, long iterations, long failedIterations,
+                    long droppedArrivals) {
+    }
+    
+    static void writeHello(DataOutputStream out, int worker) throws IOException {
+        out.writeByte(HELLO);
+        out.writeInt(MAGIC);
+        out.writeInt(worker);
+        out.flush();
+    }
+    
+    /**
+     * @return Número del worker que se conectó
+     * @throws IOException Si lo conectado no es un LoadWorker
+     */
+    static int readHello(DataInputStream in) throws IOException {
+        if (in.readByte() != HELLO || in.readInt() != MAGIC) {
+            throw new IOException("Conexión que no es de un LoadWorker");
+        }
+        return in.readInt();
+    }
+    
+    static void writeStart(DataOutputStream out, Start start) throws IOException {
+        LoadConfig shard = start.shard();
+        out.writeByte(START);
+        out.writeUTF(shard.model().name());
+        out.writeInt(shard.users());
+        out.writeDouble(shard.arrivalRate());
+        out.writeInt(shard.maxInFlight());
+        out.writeLong(shard.duration().toMillis());
+        out.writeUTF(shard.baseUrl());
+        out.writeUTF(shard.csvFile().toString());
+        out.writeUTF(start.runId());
+        out.writeLong(start.startEpochMillis());
+        out.flush();
+    }
+    
+    static Start readStart(DataInputStream in) throws IOException {
+        if (in.readByte() != START) {
+            throw new IOException("Se esperaba START del coordinador");
+        }
+        LoadConfig shard = new LoadConfig(
+                LoadConfig.Model.valueOf(in.readUTF()),
+                in.readInt(),
+                in.readDouble(),
+                in.readInt(),
+                Duration.ofMillis(in.readLong()),
+                in.readUTF(),
+                Paths.get(in.readUTF()));
+        return new Start(shard, in.readUTF(), in.readLong());
+    }
+    
+    static void writeInterval(DataOutputStream out, Interval interval) throws IOException {
+        out.writeByte(interval.last() ? DONE : INTERVAL);
+        out.writeInt(interval.endpoints().size());
+        for (Map.Entry<String, EndpointDelta> entry : interval.endpoints().entrySet()) {
+            Histogram latencies = entry.getValue().latencies();
+            ByteBuffer buffer = ByteBuffer.allocate(latencies.getNeededByteBufferCapacity());
+            int length = latencies.encodeIntoCompressedByteBuffer(buffer);
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue().errors());
+            out.writeInt(length);
+            out.write(buffer.array(), 0, length);
+        }
+        out.writeLong(interval.iterations());
+        out.writeLong(interval.failedIterations());
+        out.writeLong(interval.droppedArrivals());
+        out.flush();
+    }
+    
+    static Interval readInterval(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type != INTERVAL && type != DONE) {
+            throw new IOException("Mensaje desconocido del worker: " + type);
+        }
+        int count = in.readInt();
+        Map<String, EndpointDelta> endpoints = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String endpoint = in.readUTF();
+            long errors = in.readLong();
+            byte[] encoded = new byte[in.readInt()];
+            in.readFully(encoded);
+            try {
+                endpoints.put(endpoint, new EndpointDelta(
+                        Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded), 0), errors));
+            } catch (DataFormatException e) {
+                throw new IOException("Histograma inválido de " + endpoint, e);
+            }
+        }
+        return new Interval(type == DONE, endpoints, in.readLong(), in.readLong(), in.readLong());
+    }
+}